@@ -499,6 +499,26 @@ public final class TweetNaclFast {
             return ret;
         }
 
+        /*
+         * @description
+         *   Encrypts and authenticates the message in place, without allocating buffers.
+         *   The buffer must start with zerobytesLength bytes reserved for the cipher state,
+         *   followed by the message of mlen bytes.
+         *
+         *   Afterwards the buffer holds the authenticator at [boxzerobytesLength, zerobytesLength)
+         *   and the encrypted message at [zerobytesLength, zerobytesLength+mlen), just like the result of box().
+         * */
+        public boolean boxInPlace(byte [] buffer, final int mlen, byte [] theNonce) {
+            if (!(buffer!=null && mlen>=0 && buffer.length>=(zerobytesLength+mlen) &&
+                    theNonce!=null && theNonce.length==nonceLength))
+                return false;
+
+            for (int i = 0; i < zerobytesLength; i ++)
+                buffer[i] = 0;
+
+            return 0 == crypto_secretbox(buffer, buffer, mlen + zerobytesLength, theNonce, key);
+        }
+
         /*
          * @description
          *   Authenticates and decrypts the given secret box
@@ -561,6 +581,26 @@ public final class TweetNaclFast {
             return ret;
         }
 
+        /*
+         * @description
+         *   Authenticates and decrypts the box in place, without allocating buffers.
+         *   The buffer must start with boxzerobytesLength bytes that may be overwritten,
+         *   followed by the box of boxlen bytes.
+         *
+         *   Afterwards the buffer holds the original message at [zerobytesLength, boxzerobytesLength+boxlen).
+         *   Returns false if authentication fails, the content of the buffer is unchanged in that case.
+         * */
+        public boolean openInPlace(byte [] buffer, final int boxlen, byte [] theNonce) {
+            if (!(buffer!=null && boxlen>=boxzerobytesLength && buffer.length>=(boxzerobytesLength+boxlen) &&
+                    theNonce!=null && theNonce.length==nonceLength))
+                return false;
+
+            for (int i = 0; i < boxzerobytesLength; i ++)
+                buffer[i] = 0;
+
+            return 0 == crypto_secretbox_open(buffer, buffer, boxlen + boxzerobytesLength, theNonce, key);
+        }
+
         /*
          * @description
          *   Length of key in bytes.
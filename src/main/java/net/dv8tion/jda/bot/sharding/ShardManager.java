@@ -0,0 +1,362 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.bot.sharding;
+
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.JDABuilder;
+import net.dv8tion.jda.core.entities.*;
+import net.dv8tion.jda.core.exceptions.RateLimitedException;
+import net.dv8tion.jda.core.hooks.IEventManager;
+import net.dv8tion.jda.core.requests.SessionReconnectQueue;
+import net.dv8tion.jda.core.requests.WebSocketClient;
+import net.dv8tion.jda.core.utils.HeartbeatTimer;
+import net.dv8tion.jda.core.utils.MiscUtil;
+import net.dv8tion.jda.core.utils.SimpleLog;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+import okhttp3.OkHttpClient;
+
+import javax.security.auth.login.LoginException;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Manages multiple shards of one bot in a single process.
+ * <br>All shards share one callback executor, one rate-limit executor, one audio keep-alive executor,
+ * one {@link net.dv8tion.jda.core.utils.HeartbeatTimer HeartbeatTimer}, one {@link okhttp3.OkHttpClient OkHttpClient}
+ * and one {@link net.dv8tion.jda.core.requests.SessionReconnectQueue SessionReconnectQueue}
+ * instead of creating their own, which greatly reduces the amount of idle threads for large bots.
+ *
+ * <p>Entities can be looked up across all shards, guild lookups are routed to the responsible shard
+ * using {@code (guildId >> 22) % shardsTotal}.
+ *
+ * @see net.dv8tion.jda.bot.sharding.ShardManagerBuilder
+ */
+public class ShardManager
+{
+    public static final SimpleLog LOG = SimpleLog.getLog("ShardManager");
+
+    protected final JDABuilder builder;
+    protected final int shardsTotal;
+    protected final int[] shardIds;
+    protected final JDA[] shards;
+    protected final IntFunction<IEventManager> eventManagerProvider;
+    protected final SessionReconnectQueue reconnectQueue;
+    protected final OkHttpClient httpClient;
+    protected final ScheduledThreadPoolExecutor callbackPool;
+    protected final ScheduledThreadPoolExecutor rateLimitPool;
+    protected final ScheduledThreadPoolExecutor audioPool;
+    protected final HeartbeatTimer heartbeatTimer;
+    protected final ThreadingModel threadingModel;
+    protected volatile ScheduledFuture<?> loginTask;
+    protected volatile boolean shutdown = false;
+
+    protected ShardManager(JDABuilder builder, int shardsTotal, int[] shardIds, OkHttpClient.Builder httpClientBuilder,
+                           SessionReconnectQueue reconnectQueue, IntFunction<IEventManager> eventManagerProvider,
+                           int corePoolSize, int rateLimitPoolSize, ThreadingModel threadingModel)
+    {
+        this.builder = builder;
+        this.shardsTotal = shardsTotal;
+        this.shardIds = shardIds != null ? shardIds : rangeOf(shardsTotal);
+        this.shards = new JDA[shardsTotal];
+        this.eventManagerProvider = eventManagerProvider;
+        this.reconnectQueue = reconnectQueue;
+        this.httpClient = httpClientBuilder.build();
+        this.threadingModel = threadingModel;
+        this.callbackPool = new ScheduledThreadPoolExecutor(corePoolSize,
+            threadingModel.asThreadFactory(ThreadingModel.ThreadType.POOL, "ShardManager Callback-Pool"));
+        this.rateLimitPool = new ScheduledThreadPoolExecutor(rateLimitPoolSize,
+            threadingModel.asThreadFactory(ThreadingModel.ThreadType.POOL, "ShardManager RateLimit-Queue Pool"));
+        this.audioPool = new ScheduledThreadPoolExecutor(1,
+            threadingModel.asThreadFactory(ThreadingModel.ThreadType.AUDIO, "ShardManager Audio-KeepAlive Pool"));
+        this.heartbeatTimer = new HeartbeatTimer(threadingModel);
+    }
+
+    protected void login() throws LoginException, RateLimitedException
+    {
+        if (shardIds.length == 0)
+            return;
+
+        //The first shard is started directly to fail fast on an invalid token
+        startShard(shardIds[0]);
+        if (shardIds.length == 1)
+            return;
+
+        final AtomicInteger next = new AtomicInteger(1);
+        //IDENTIFY may only be sent once every 5 seconds per identify bucket, the 200ms are a buffer for sending the payload
+        final long delay = TimeUnit.SECONDS.toMillis(WebSocketClient.IDENTIFY_DELAY) + 200;
+        final int concurrency = reconnectQueue.getConcurrency();
+        loginTask = callbackPool.scheduleWithFixedDelay(() ->
+        {
+            //Consecutive shard ids are in different buckets, so one shard of each bucket can be started at once
+            for (int i = 0; i < concurrency; i++)
+            {
+                final int index = next.getAndIncrement();
+                if (shutdown || index >= shardIds.length)
+                {
+                    loginTask.cancel(false);
+                    return;
+                }
+                try
+                {
+                    startShard(shardIds[index]);
+                }
+                catch (Exception e)
+                {
+                    LOG.fatal("Failed to start shard " + shardIds[index]);
+                    LOG.log(e);
+                }
+            }
+        }, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    protected void startShard(int shardId) throws LoginException, RateLimitedException
+    {
+        synchronized (builder)
+        {
+            builder.useSharding(shardId, shardsTotal)
+                   .setReconnectQueue(reconnectQueue)
+                   .setHttpClient(httpClient)
+                   .setSharedExecutors(callbackPool, rateLimitPool, audioPool)
+                   .setHeartbeatTimer(heartbeatTimer)
+                   .setThreadingModel(threadingModel);
+            if (eventManagerProvider != null)
+                builder.setEventManager(eventManagerProvider.apply(shardId));
+            shards[shardId] = builder.buildAsync();
+        }
+    }
+
+    /**
+     * The total amount of shards of the bot, including those not managed by this instance.
+     *
+     * @return The total amount of shards
+     */
+    public int getShardsTotal()
+    {
+        return shardsTotal;
+    }
+
+    /**
+     * All shards that have been started by this manager, ordered by shard id.
+     * <br>Shards are started asynchronously so this might not contain all shards yet.
+     *
+     * @return Immutable list of the started shards
+     */
+    public List<JDA> getShards()
+    {
+        List<JDA> list = new ArrayList<>(shardIds.length);
+        for (int id : shardIds)
+        {
+            JDA shard = shards[id];
+            if (shard != null)
+                list.add(shard);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * The shard with the specified id.
+     *
+     * @param  shardId
+     *         The shard id
+     *
+     * @return The shard, or {@code null} if it is not managed by this instance or not started yet
+     */
+    public JDA getShardById(int shardId)
+    {
+        return shardId >= 0 && shardId < shardsTotal ? shards[shardId] : null;
+    }
+
+    /**
+     * The shard which is responsible for the guild with the specified id.
+     *
+     * @param  guildId
+     *         The guild id
+     *
+     * @return The shard, or {@code null} if it is not managed by this instance or not started yet
+     */
+    public JDA getShardForGuild(long guildId)
+    {
+        return shards[(int) ((guildId >>> 22) % shardsTotal)];
+    }
+
+    public Guild getGuildById(String id)
+    {
+        return getGuildById(MiscUtil.parseSnowflake(id));
+    }
+
+    public Guild getGuildById(long id)
+    {
+        JDA shard = getShardForGuild(id);
+        return shard == null ? null : shard.getGuildById(id);
+    }
+
+    public List<Guild> getGuilds()
+    {
+        return collect(JDA::getGuilds);
+    }
+
+    public User getUserById(String id)
+    {
+        return getUserById(MiscUtil.parseSnowflake(id));
+    }
+
+    public User getUserById(long id)
+    {
+        for (JDA shard : getShards())
+        {
+            User user = shard.getUserById(id);
+            if (user != null)
+                return user;
+        }
+        return null;
+    }
+
+    public TextChannel getTextChannelById(String id)
+    {
+        return getTextChannelById(MiscUtil.parseSnowflake(id));
+    }
+
+    public TextChannel getTextChannelById(long id)
+    {
+        for (JDA shard : getShards())
+        {
+            TextChannel channel = shard.getTextChannelById(id);
+            if (channel != null)
+                return channel;
+        }
+        return null;
+    }
+
+    public VoiceChannel getVoiceChannelById(String id)
+    {
+        return getVoiceChannelById(MiscUtil.parseSnowflake(id));
+    }
+
+    public VoiceChannel getVoiceChannelById(long id)
+    {
+        for (JDA shard : getShards())
+        {
+            VoiceChannel channel = shard.getVoiceChannelById(id);
+            if (channel != null)
+                return channel;
+        }
+        return null;
+    }
+
+    /**
+     * The {@link net.dv8tion.jda.core.JDA.Status Status} of every started shard, by shard id.
+     *
+     * @return Immutable map of the shard statuses
+     */
+    public Map<Integer, JDA.Status> getStatuses()
+    {
+        Map<Integer, JDA.Status> statuses = new LinkedHashMap<>();
+        for (JDA shard : getShards())
+            statuses.put(shard.getShardInfo().getShardId(), shard.getStatus());
+        return Collections.unmodifiableMap(statuses);
+    }
+
+    /**
+     * Whether all shards of this manager have been started and are {@link net.dv8tion.jda.core.JDA.Status#CONNECTED CONNECTED}.
+     *
+     * @return True, if all shards are connected
+     */
+    public boolean isConnected()
+    {
+        List<JDA> shards = getShards();
+        return shards.size() == shardIds.length && shards.stream().allMatch(shard -> shard.getStatus() == JDA.Status.CONNECTED);
+    }
+
+    /**
+     * The average heartbeat ping of all connected shards.
+     *
+     * @return The average ping in milliseconds, or -1 if no shard is connected
+     */
+    public double getAveragePing()
+    {
+        return getShards().stream()
+            .mapToLong(JDA::getPing)
+            .filter(ping -> ping >= 0)
+            .average()
+            .orElse(-1);
+    }
+
+    /**
+     * Adds the provided listeners to all started shards.
+     * <br>Shards that are started later receive the listeners registered on the JDABuilder only.
+     *
+     * @param listeners
+     *        The listeners to add
+     */
+    public void addEventListener(Object... listeners)
+    {
+        getShards().forEach(shard -> shard.addEventListener(listeners));
+    }
+
+    public void removeEventListener(Object... listeners)
+    {
+        getShards().forEach(shard -> shard.removeEventListener(listeners));
+    }
+
+    /**
+     * Shuts down all shards and the resources shared by them.
+     */
+    public void shutdown()
+    {
+        if (shutdown)
+            return;
+        shutdown = true;
+
+        ScheduledFuture<?> task = loginTask;
+        if (task != null)
+            task.cancel(false);
+        getShards().forEach(JDA::shutdown);
+
+        final long time = 5L;
+        final TimeUnit unit = TimeUnit.SECONDS;
+        for (ScheduledThreadPoolExecutor pool : Arrays.asList(callbackPool, rateLimitPool))
+        {
+            pool.setKeepAliveTime(time, unit);
+            pool.allowCoreThreadTimeOut(true);
+        }
+        audioPool.shutdownNow();
+        heartbeatTimer.shutdown();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    protected <T> List<T> collect(Function<JDA, List<T>> mapper)
+    {
+        return Collections.unmodifiableList(getShards().stream()
+            .flatMap(shard -> mapper.apply(shard).stream())
+            .collect(Collectors.toList()));
+    }
+
+    private static int[] rangeOf(int total)
+    {
+        int[] ids = new int[total];
+        for (int i = 0; i < total; i++)
+            ids[i] = i;
+        return ids;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.bot.sharding;
+
+import net.dv8tion.jda.core.JDABuilder;
+import net.dv8tion.jda.core.exceptions.RateLimitedException;
+import net.dv8tion.jda.core.hooks.IEventManager;
+import net.dv8tion.jda.core.requests.SessionReconnectQueue;
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+import okhttp3.OkHttpClient;
+
+import javax.security.auth.login.LoginException;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Used to create a {@link net.dv8tion.jda.bot.sharding.ShardManager ShardManager}.
+ * <br>All shards are built from the provided {@link net.dv8tion.jda.core.JDABuilder JDABuilder} which
+ * holds the settings (token, listeners, cache configuration...) used by every shard.
+ *
+ * <p>The builder must not be configured with sharding, a reconnect queue, an http client, shared executors, a heartbeat timer or a threading model,
+ * these are managed by the ShardManager. If a custom {@link net.dv8tion.jda.core.hooks.IEventManager IEventManager}
+ * is required use {@link #setEventManagerProvider(IntFunction)} so each shard gets its own instance.
+ *
+ * <p><b>Example</b>
+ * <pre><code>
+ * JDABuilder builder = new JDABuilder(AccountType.BOT).setToken(token).addEventListener(listener);
+ * ShardManager manager = new ShardManagerBuilder(builder).setShardsTotal(16).build();
+ * </code></pre>
+ */
+public class ShardManagerBuilder
+{
+    protected final JDABuilder builder;
+    protected OkHttpClient.Builder httpClientBuilder = null;
+    protected IntFunction<IEventManager> eventManagerProvider = null;
+    protected SessionReconnectQueue reconnectQueue = null;
+    protected ThreadingModel threadingModel = ThreadingModel.DEFAULT;
+    protected int[] shardIds = null;
+    protected int shardsTotal = 1;
+    protected int corePoolSize = 4;
+    protected int rateLimitPoolSize = 5;
+    protected int identifyConcurrency = 1;
+
+    /**
+     * Creates a ShardManagerBuilder which builds all shards from the provided JDABuilder.
+     *
+     * @param  builder
+     *         The JDABuilder holding the configuration of all shards
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided builder is {@code null}
+     */
+    public ShardManagerBuilder(JDABuilder builder)
+    {
+        Checks.notNull(builder, "JDABuilder");
+        this.builder = builder;
+    }
+
+    /**
+     * Sets the total amount of shards of the bot. (Default: 1)
+     *
+     * @param  shardsTotal
+     *         The total amount of shards
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided amount is not positive
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setShardsTotal(int shardsTotal)
+    {
+        Checks.positive(shardsTotal, "Shards total");
+        this.shardsTotal = shardsTotal;
+        return this;
+    }
+
+    /**
+     * Sets the ids of the shards that should be started by this manager.
+     * <br>This is useful when the shards of a bot are split over multiple processes. (Default: all shards)
+     *
+     * @param  shardIds
+     *         The shard ids, or {@code null} to start all shards
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If any of the provided ids is negative
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setShards(int... shardIds)
+    {
+        if (shardIds != null)
+        {
+            for (int id : shardIds)
+                Checks.notNegative(id, "Shard ID");
+            shardIds = Arrays.stream(shardIds).sorted().distinct().toArray();
+        }
+        this.shardIds = shardIds;
+        return this;
+    }
+
+    /**
+     * Sets the core pool size of the executor shared by all shards for callbacks and scheduled tasks. (Default: 4)
+     *
+     * @param  size
+     *         The core pool size
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided size is not positive
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setCorePoolSize(int size)
+    {
+        Checks.positive(size, "Core pool size");
+        this.corePoolSize = size;
+        return this;
+    }
+
+    /**
+     * Sets the core pool size of the executor shared by all shards to execute REST requests. (Default: 5)
+     *
+     * @param  size
+     *         The core pool size
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided size is not positive
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setRateLimitPoolSize(int size)
+    {
+        Checks.positive(size, "Rate-limit pool size");
+        this.rateLimitPoolSize = size;
+        return this;
+    }
+
+    /**
+     * Sets the builder for the {@link okhttp3.OkHttpClient OkHttpClient} that is shared by all shards.
+     *
+     * @param  builder
+     *         The http client builder, or {@code null} to use the default settings
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setHttpClientBuilder(OkHttpClient.Builder builder)
+    {
+        this.httpClientBuilder = builder;
+        return this;
+    }
+
+    /**
+     * Sets the provider of the {@link net.dv8tion.jda.core.hooks.IEventManager IEventManager} of each shard.
+     * <br>The provider is called with the shard id and must return a new instance for every shard.
+     *
+     * @param  provider
+     *         The event manager provider, or {@code null} to use the default event manager
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setEventManagerProvider(IntFunction<IEventManager> provider)
+    {
+        this.eventManagerProvider = provider;
+        return this;
+    }
+
+    /**
+     * Sets the amount of shards that may send an IDENTIFY at the same time. (Default: 1)
+     * <br>Only use this if Discord granted a higher identify concurrency to the bot account!
+     * This is ignored if a {@link #setReconnectQueue(SessionReconnectQueue) reconnect queue} is provided.
+     *
+     * @param  concurrency
+     *         The identify concurrency
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided concurrency is not positive
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setIdentifyConcurrency(int concurrency)
+    {
+        Checks.positive(concurrency, "Concurrency");
+        this.identifyConcurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.requests.SessionReconnectQueue SessionReconnectQueue} used by all shards.
+     * <br>This only has to be set if the same bot also runs shards outside of this manager. (Default: new queue)
+     *
+     * @param  queue
+     *         The reconnect queue, or {@code null} to create a new queue
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setReconnectQueue(SessionReconnectQueue queue)
+    {
+        this.reconnectQueue = queue;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} used for all threads of the manager and its shards.
+     * <br>The shared executors of the manager are created with the threads of this model, the executors
+     * provided by the model itself are not used. The model is also applied to the reconnect queue if the manager creates it.
+     *
+     * @param  model
+     *         The threading model, or {@code null} to use the default threads
+     *
+     * @return The ShardManagerBuilder instance. Useful for chaining.
+     */
+    public ShardManagerBuilder setThreadingModel(ThreadingModel model)
+    {
+        this.threadingModel = model == null ? ThreadingModel.DEFAULT : model;
+        return this;
+    }
+
+    /**
+     * Creates the {@link net.dv8tion.jda.bot.sharding.ShardManager ShardManager} and starts the login process
+     * of all shards.
+     * <br>The first shard is logged in before this method returns to validate the token, the remaining shards
+     * are logged in asynchronously, one per identify bucket every {@link net.dv8tion.jda.core.requests.WebSocketClient#IDENTIFY_DELAY IDENTIFY_DELAY} seconds.
+     *
+     * @throws LoginException
+     *         If the provided token is invalid
+     * @throws IllegalArgumentException
+     *         If any of the shard ids is not lower than the total amount of shards
+     * @throws RateLimitedException
+     *         If we are being Rate limited
+     *
+     * @return The ShardManager
+     */
+    public ShardManager build() throws LoginException, IllegalArgumentException, RateLimitedException
+    {
+        final int[] shards = shardIds == null ? null : shardIds.clone();
+        if (shards != null)
+        {
+            for (int id : shards)
+                Checks.check(id < shardsTotal, "Shard ID %d is not lower than the shards total %d", id, shardsTotal);
+        }
+
+        SessionReconnectQueue queue = reconnectQueue;
+        if (queue == null)
+        {
+            queue = new SessionReconnectQueue(identifyConcurrency);
+            queue.setThreadingModel(threadingModel);
+        }
+        ShardManager manager = new ShardManager(builder, shardsTotal, shards,
+            httpClientBuilder == null ? new OkHttpClient.Builder() : httpClientBuilder,
+            queue, eventManagerProvider, corePoolSize, rateLimitPoolSize, threadingModel);
+        manager.login();
+        return manager;
+    }
+}
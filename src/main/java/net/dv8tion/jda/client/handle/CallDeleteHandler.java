@@ -44,7 +44,7 @@ public class CallDeleteHandler extends SocketHandler
             channel = api.getPrivateChannelMap().get(channelId);
         if (channel == null)
         {
-            api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CHANNEL, channelId);
             EventCache.LOG.debug("Received CALL_DELETE for a Group/PrivateChannel that is not yet cached. JSON: " + content);
             return null;
         }
@@ -52,7 +52,7 @@ public class CallDeleteHandler extends SocketHandler
         CallImpl call = (CallImpl) channel.getCurrentCall();
         if (call == null)
         {
-            api.getEventCache().cache(EventCache.Type.CALL, channelId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CALL, channelId);
             EventCache.LOG.debug("Received a CALL_DELETE for a Call that is not yet cached. JSON: " + content);
             return null;
         }
@@ -25,7 +25,14 @@ import net.dv8tion.jda.core.exceptions.RateLimitedException;
 import net.dv8tion.jda.core.hooks.IEventManager;
 import net.dv8tion.jda.core.managers.impl.PresenceImpl;
 import net.dv8tion.jda.core.requests.SessionReconnectQueue;
+import net.dv8tion.jda.core.utils.BufferOverflowPolicy;
 import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.EventBuffer;
+import net.dv8tion.jda.core.utils.HeartbeatTimer;
+import net.dv8tion.jda.core.utils.MemberCachePolicy;
+import net.dv8tion.jda.core.utils.SessionStore;
+import net.dv8tion.jda.core.utils.StringPool;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 import okhttp3.OkHttpClient;
 
 import javax.security.auth.login.LoginException;
@@ -33,6 +40,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Used to create new {@link net.dv8tion.jda.core.JDA} instances. This is also useful for making sure all of
@@ -51,6 +61,10 @@ public class JDABuilder
 
     protected SessionReconnectQueue reconnectQueue = null;
     protected OkHttpClient.Builder httpClientBuilder = null;
+    protected OkHttpClient httpClient = null;
+    protected ScheduledThreadPoolExecutor callbackPool = null;
+    protected ScheduledThreadPoolExecutor rateLimitPool = null;
+    protected ScheduledThreadPoolExecutor audioPool = null;
     protected WebSocketFactory wsFactory = null;
     protected AccountType accountType;
     protected String token = null;
@@ -59,12 +73,26 @@ public class JDABuilder
     protected JDA.ShardInfo shardInfo = null;
     protected Game game = null;
     protected OnlineStatus status = OnlineStatus.ONLINE;
+    protected MemberCachePolicy memberCachePolicy = MemberCachePolicy.ALL;
+    protected StringPool stringPool = null;
+    protected SessionStore sessionStore = null;
+    protected ExecutorService guildSetupPool = null;
+    protected HeartbeatTimer heartbeatTimer = null;
+    protected ThreadingModel threadingModel = null;
+    protected BufferOverflowPolicy bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
+    protected int eventBufferMaxEvents = EventBuffer.DEFAULT_MAX_EVENTS;
+    protected long eventBufferMaxBytes = EventBuffer.DEFAULT_MAX_BYTES;
+    protected long eventBufferTTL = EventBuffer.DEFAULT_TTL;
     protected int maxReconnectDelay = 900;
+    protected int offHeapMemberThreshold = 0;
     protected int corePoolSize = 2;
     protected boolean enableVoice = true;
     protected boolean enableShutdownHook = true;
     protected boolean enableBulkDeleteSplitting = true;
     protected boolean autoReconnect = true;
+    protected boolean enableChunking = true;
+    protected boolean lazyGuildLoading = false;
+    protected boolean enableGameCache = true;
     protected boolean idle = false;
 
     /**
@@ -187,6 +215,94 @@ public class JDABuilder
         return this;
     }
 
+    /**
+     * Sets the {@link okhttp3.OkHttpClient OkHttpClient} that will be used by the JDA instance for all REST requests.
+     * <br>This allows multiple shards to share one connection pool and dispatcher, it takes precedence over
+     * {@link #setHttpClientBuilder(OkHttpClient.Builder)}.
+     *
+     * <p>The client is not shut down by JDA.
+     *
+     * @param  client
+     *         The shared client, or null to build a dedicated client
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    net.dv8tion.jda.bot.sharding.ShardManager
+     */
+    public JDABuilder setHttpClient(OkHttpClient client)
+    {
+        this.httpClient = client;
+        return this;
+    }
+
+    /**
+     * Sets the executors that will be shared with other JDA instances instead of creating dedicated pools.
+     * <br>Each executor may be null to create a dedicated pool for that purpose.
+     *
+     * <p>Shared executors are not shut down by JDA, this has to be done by the owner once all
+     * JDA instances using them have been shut down.
+     *
+     * @param  callbackPool
+     *         The global executor of the JDA instance, used for callbacks and scheduled tasks.
+     *         This replaces the pool configured by {@link #setCorePoolSize(int)}.
+     * @param  rateLimitPool
+     *         The executor used to execute rate-limited REST requests
+     * @param  audioPool
+     *         The executor used for the keep-alive of audio connections
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    net.dv8tion.jda.bot.sharding.ShardManager
+     */
+    public JDABuilder setSharedExecutors(ScheduledThreadPoolExecutor callbackPool, ScheduledThreadPoolExecutor rateLimitPool,
+                                         ScheduledThreadPoolExecutor audioPool)
+    {
+        this.callbackPool = callbackPool;
+        this.rateLimitPool = rateLimitPool;
+        this.audioPool = audioPool;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.HeartbeatTimer HeartbeatTimer} that drives the heartbeats of the
+     * main gateway and of all audio connections.
+     * <br>The same timer can be used by any amount of JDA instances, a shared timer is not shut down by JDA.
+     *
+     * <p>Default: <b>null (every JDA instance creates its own timer)</b>
+     *
+     * @param  timer
+     *         The timer to use, or null to create a dedicated timer
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    net.dv8tion.jda.bot.sharding.ShardManager
+     */
+    public JDABuilder setHeartbeatTimer(HeartbeatTimer timer)
+    {
+        this.heartbeatTimer = timer;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} which provides all threads and
+     * executors used by JDA.
+     * <br>Executors provided by the model are shared and never shut down by JDA. Executors configured through
+     * {@link #setSharedExecutors(ScheduledThreadPoolExecutor, ScheduledThreadPoolExecutor, ScheduledThreadPoolExecutor) setSharedExecutors}
+     * take precedence over those of the model.
+     *
+     * <p>Default: <b>null ({@link net.dv8tion.jda.core.utils.ThreadingModel#DEFAULT ThreadingModel.DEFAULT})</b>
+     *
+     * @param  model
+     *         The threading model, or null to use the default threads
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setThreadingModel(ThreadingModel model)
+    {
+        this.threadingModel = model;
+        return this;
+    }
+
     /**
      * Enables/Disables Voice functionality.
      * <br>This is useful, if your current system doesn't support Voice and you do not need it.
@@ -240,6 +356,249 @@ public class JDABuilder
         return this;
     }
 
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy} which decides
+     * which {@link net.dv8tion.jda.core.entities.Member Members} are kept in the cache.
+     * <br>Members that are not cached can be retrieved using
+     * {@link net.dv8tion.jda.core.entities.Guild#retrieveMemberById(long) Guild.retrieveMemberById(long)}.
+     *
+     * <p>Default: <b>{@link net.dv8tion.jda.core.utils.MemberCachePolicy#ALL MemberCachePolicy.ALL}</b>
+     *
+     * @param  policy
+     *         The policy to use
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided policy is {@code null}
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    #setChunkingEnabled(boolean)
+     */
+    public JDABuilder setMemberCachePolicy(MemberCachePolicy policy)
+    {
+        Checks.notNull(policy, "Policy");
+        this.memberCachePolicy = policy;
+        return this;
+    }
+
+    /**
+     * Enables/Disables member chunking for guilds.
+     * <br>If disabled, JDA will not request the full member list of large guilds and only knows about the members
+     * Discord sends with the guild (online members, members in voice channels) and members that join later.
+     * This drastically reduces startup time and memory usage for bots in many or large guilds.
+     *
+     * <p>Default: <b>true (enabled)</b>
+     *
+     * @param  enabled
+     *         True - request all members of large guilds
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    #setMemberCachePolicy(MemberCachePolicy)
+     */
+    public JDABuilder setChunkingEnabled(boolean enabled)
+    {
+        this.enableChunking = enabled;
+        return this;
+    }
+
+    /**
+     * Enables/Disables lazy guild loading.
+     * <br>By default JDA only fires the {@link net.dv8tion.jda.core.events.ReadyEvent ReadyEvent} once every guild
+     * of the session has been received and chunked, which means a single large guild delays the readiness of all others.
+     *
+     * <p>If enabled, the session is {@link net.dv8tion.jda.core.JDA.Status#CONNECTED CONNECTED} as soon as READY was
+     * handled and every guild is loaded independently. A {@link net.dv8tion.jda.core.events.guild.GuildReadyEvent GuildReadyEvent}
+     * is fired for each guild once it can be used, events of guilds that are still loading are held back until then.
+     * <br>Note that {@link net.dv8tion.jda.core.JDA#getGuilds() JDA.getGuilds()} may contain unavailable guilds
+     * after the ReadyEvent until their GuildReadyEvent was fired.
+     *
+     * <p>Default: <b>false (disabled)</b>
+     *
+     * @param  enabled
+     *         True - load guilds independently of the ReadyEvent
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setLazyGuildLoading(boolean enabled)
+    {
+        this.lazyGuildLoading = enabled;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.StringPool StringPool} used to deduplicate Strings of cached
+     * entities such as user names, nicknames, avatar ids and role names.
+     * <br>The same pool can be used for multiple shards to also share Strings between them.
+     *
+     * <p>Default: <b>null (disabled)</b>
+     *
+     * @param  pool
+     *         The pool to use, or null to disable deduplication
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    net.dv8tion.jda.core.utils.StringPool#weak()
+     * @see    net.dv8tion.jda.core.utils.StringPool#bounded(int)
+     */
+    public JDABuilder setStringPool(StringPool pool)
+    {
+        this.stringPool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.SessionStore SessionStore} used to persist the session
+     * across restarts of the process.
+     * <br>On {@link net.dv8tion.jda.core.JDA#shutdown() shutdown} the session id, the last sequence number and a snapshot
+     * of the entity cache are saved to the store. The next login with the same store restores the cache from the
+     * snapshot and resumes the session instead of loading all guilds again. If the session cannot be resumed,
+     * JDA falls back to a normal login.
+     *
+     * <p>This is only supported for {@link net.dv8tion.jda.core.AccountType#BOT BOT} accounts.
+     * <br>Only one process may use a stored session, the store of a shard must not be shared by running processes.
+     *
+     * <p>Default: <b>null (disabled)</b>
+     *
+     * @param  store
+     *         The store to use, or null to disable session persistence
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     *
+     * @see    net.dv8tion.jda.core.utils.SessionStore#file(java.io.File)
+     */
+    public JDABuilder setSessionStore(SessionStore store)
+    {
+        this.sessionStore = store;
+        return this;
+    }
+
+    /**
+     * Sets the {@link java.util.concurrent.ExecutorService ExecutorService} used to build the entities of
+     * {@link net.dv8tion.jda.core.entities.Guild Guilds} received through {@code GUILD_CREATE}.
+     * <br>Without a pool every guild is built on the thread reading from the websocket, which for bots in many or large
+     * guilds keeps that thread busy for a long time during startup. With a pool the guilds are built in parallel and
+     * each guild is published to the cache once it is complete, events of a guild are queued until then.
+     *
+     * <p>The pool can be shared by multiple shards and is never shut down by JDA.
+     *
+     * <p>Default: <b>null (build on the websocket thread)</b>
+     *
+     * @param  pool
+     *         The pool to use, or null to build guilds on the websocket thread
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setGuildSetupPool(ExecutorService pool)
+    {
+        this.guildSetupPool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the limits of the buffers that hold events while a {@link net.dv8tion.jda.core.entities.Guild Guild}
+     * is loading or unavailable and while an event references an entity that is not cached yet.
+     * <br>Each buffer is limited separately. When a buffer exceeds its limits the oldest events are dropped and
+     * the {@link #setBufferOverflowPolicy(BufferOverflowPolicy) overflow policy} is applied. Events that reference an entity
+     * which is not cached yet are dropped silently once they are older than the time-to-live, events of a loading or
+     * unavailable guild never expire.
+     *
+     * <p>Default: <b>100000 events, 64 MiB, 15 minutes</b>
+     *
+     * @param  maxEvents
+     *         The maximum amount of events per buffer
+     * @param  maxBytes
+     *         The maximum approximate size of the buffered events per buffer, in bytes
+     * @param  ttl
+     *         The time after which an event referencing an uncached entity is dropped, or 0 to never drop events because of their age
+     * @param  unit
+     *         The unit of the time-to-live
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If any of the limits is not positive, the ttl is negative or the unit is {@code null}
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setEventBufferLimits(int maxEvents, long maxBytes, long ttl, TimeUnit unit)
+    {
+        Checks.positive(maxEvents, "Max events");
+        Checks.positive(maxBytes, "Max bytes");
+        Checks.notNegative(ttl, "TTL");
+        Checks.notNull(unit, "TimeUnit");
+        this.eventBufferMaxEvents = maxEvents;
+        this.eventBufferMaxBytes = maxBytes;
+        this.eventBufferTTL = unit.toMillis(ttl);
+        return this;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.BufferOverflowPolicy BufferOverflowPolicy} that is applied when
+     * one of the event buffers exceeds its {@link #setEventBufferLimits(int, long, long, TimeUnit) limits}.
+     *
+     * <p>Default: <b>{@link net.dv8tion.jda.core.utils.BufferOverflowPolicy#DROP_OLDEST DROP_OLDEST}</b>
+     *
+     * @param  policy
+     *         The policy to use
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided policy is {@code null}
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setBufferOverflowPolicy(BufferOverflowPolicy policy)
+    {
+        Checks.notNull(policy, "Policy");
+        this.bufferOverflowPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Sets the member count from which {@link net.dv8tion.jda.core.entities.Guild Guilds} keep their
+     * {@link net.dv8tion.jda.core.entities.Member Members} in a compact off-heap store.
+     * <br>Members of these guilds are written straight into the store, independent of the
+     * {@link #setMemberCachePolicy(MemberCachePolicy) MemberCachePolicy}. Only the self member, the owner and
+     * members connected to a voice channel are kept on-heap.
+     * <br>Stored members are still returned by {@link net.dv8tion.jda.core.entities.Guild#getMemberById(long) Guild.getMemberById(long)},
+     * {@link net.dv8tion.jda.core.entities.Guild#getOwner() Guild.getOwner()} and {@link net.dv8tion.jda.core.entities.Guild#getMembers() Guild.getMembers()},
+     * but are materialized as new instances on every access and do not keep their {@link net.dv8tion.jda.core.entities.Game Game}.
+     *
+     * <p>Default: <b>0 (disabled)</b>
+     *
+     * @param  threshold
+     *         The minimum member count of a guild to use an off-heap store, or 0 to disable
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided threshold is negative
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setOffHeapMemberThreshold(int threshold)
+    {
+        Checks.notNegative(threshold, "Threshold");
+        this.offHeapMemberThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Enables/Disables caching of the {@link net.dv8tion.jda.core.entities.Game Game} of
+     * {@link net.dv8tion.jda.core.entities.Member Members}.
+     * <br>If disabled, {@link net.dv8tion.jda.core.entities.Member#getGame() Member.getGame()} always returns {@code null}
+     * and no {@link net.dv8tion.jda.core.events.user.UserGameUpdateEvent UserGameUpdateEvents} are fired.
+     * The {@link net.dv8tion.jda.core.OnlineStatus OnlineStatus} of members is still updated.
+     *
+     * <p>Default: <b>true (enabled)</b>
+     *
+     * @param  enabled
+     *         True - keep track of the games of members
+     *
+     * @return The {@link net.dv8tion.jda.core.JDABuilder JDABuilder} instance. Useful for chaining.
+     */
+    public JDABuilder setGameCachingEnabled(boolean enabled)
+    {
+        this.enableGameCache = enabled;
+        return this;
+    }
+
     /**
      * Sets whether or not JDA should try to reconnect if a connection-error is encountered.
      * <br>This will use an incremental reconnect (timeouts are increased each time an attempt fails).
@@ -284,7 +643,9 @@ public class JDABuilder
     /**
      * Changes the factory used to create {@link net.dv8tion.jda.core.audio.factory.IAudioSendSystem IAudioSendSystem}
      * objects which handle the sending loop for audio packets.
-     * <br>By default, JDA uses {@link net.dv8tion.jda.core.audio.factory.DefaultSendFactory DefaultSendFactory}.
+     * <br>By default, JDA uses {@link net.dv8tion.jda.core.audio.factory.DefaultSendFactory DefaultSendFactory}, which uses
+     * a sending and a receiving thread per connection. Bots with many voice connections should share one
+     * {@link net.dv8tion.jda.core.audio.factory.NioAudioEngine NioAudioEngine} between all their JDA instances instead.
      *
      * @param  factory
      *         The new {@link net.dv8tion.jda.core.audio.factory.IAudioSendFactory IAudioSendFactory} to be used
@@ -484,8 +845,20 @@ public class JDABuilder
     {
         OkHttpClient.Builder httpClientBuilder = this.httpClientBuilder == null ? new OkHttpClient.Builder() : this.httpClientBuilder;
         WebSocketFactory wsFactory = this.wsFactory == null ? new WebSocketFactory() : this.wsFactory;
+        ScheduledThreadPoolExecutor callbackPool = this.callbackPool;
+        ScheduledThreadPoolExecutor rateLimitPool = this.rateLimitPool;
+        ScheduledThreadPoolExecutor audioPool = this.audioPool;
+        if (threadingModel != null)
+        {
+            if (callbackPool == null)
+                callbackPool = threadingModel.getScheduledExecutor();
+            if (rateLimitPool == null)
+                rateLimitPool = threadingModel.getBlockingExecutor();
+            if (audioPool == null)
+                audioPool = threadingModel.getBlockingExecutor();
+        }
         JDAImpl jda = new JDAImpl(accountType, httpClientBuilder, wsFactory, autoReconnect, enableVoice, enableShutdownHook,
-                enableBulkDeleteSplitting, corePoolSize, maxReconnectDelay);
+                enableBulkDeleteSplitting, corePoolSize, maxReconnectDelay, callbackPool, httpClient, rateLimitPool, audioPool, threadingModel);
 
         if (eventManager != null)
             jda.setEventManager(eventManager);
@@ -493,6 +866,18 @@ public class JDABuilder
         if (audioSendFactory != null)
             jda.setAudioSendFactory(audioSendFactory);
 
+        jda.setMemberCachePolicy(memberCachePolicy);
+        jda.setChunkingEnabled(enableChunking);
+        jda.setLazyGuildLoading(lazyGuildLoading);
+        jda.setGameCachingEnabled(enableGameCache);
+        jda.setStringPool(stringPool);
+        jda.setOffHeapMemberThreshold(offHeapMemberThreshold);
+        jda.setSessionStore(sessionStore);
+        jda.setGuildSetupPool(guildSetupPool);
+        jda.setHeartbeatTimer(heartbeatTimer);
+        jda.setBufferOverflowPolicy(bufferOverflowPolicy);
+        jda.setEventBufferLimits(eventBufferMaxEvents, eventBufferMaxBytes, eventBufferTTL, TimeUnit.MILLISECONDS);
+
         listeners.forEach(jda::addEventListener);
         jda.setStatus(JDA.Status.INITIALIZED);  //This is already set by JDA internally, but this is to make sure the listeners catch it.
 
@@ -16,37 +16,39 @@
 
 package net.dv8tion.jda.core.audio;
 
-import com.sun.jna.ptr.PointerByReference;
+import com.iwebpp.crypto.TweetNaclFast;
 import gnu.trove.map.TIntLongMap;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntLongHashMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.audio.factory.FrameClock;
 import net.dv8tion.jda.core.audio.factory.IAudioSendFactory;
 import net.dv8tion.jda.core.audio.factory.IAudioSendSystem;
 import net.dv8tion.jda.core.audio.factory.IPacketProvider;
+import net.dv8tion.jda.core.audio.factory.NioAudioEngine;
 import net.dv8tion.jda.core.audio.hooks.ConnectionStatus;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.entities.VoiceChannel;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.events.ExceptionEvent;
-import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
 import net.dv8tion.jda.core.utils.SimpleLog;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 import net.dv8tion.jda.core.utils.tuple.Pair;
 import org.json.JSONObject;
-import tomp2p.opuswrapper.Opus;
 
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -61,7 +63,7 @@ public class AudioConnection
                                                         // to Left and Right mono (stereo that is the same on both sides)
     private final TIntLongMap ssrcMap = new TIntLongHashMap();
     private final TIntObjectMap<Decoder> opusDecoders = new TIntObjectHashMap<>();
-    private final HashMap<User, Queue<Pair<Long, short[]>>> combinedQueue = new HashMap<>();
+    private final Map<User, Queue<Pair<Long, short[]>>> combinedQueue = new ConcurrentHashMap<>();
 
     private final String threadIdentifier;
     private final AudioWebSocket webSocket;
@@ -69,12 +71,18 @@ public class AudioConnection
     private VoiceChannel channel;
     private volatile AudioSendHandler sendHandler = null;
     private volatile AudioReceiveHandler receiveHandler = null;
-    private PointerByReference opusEncoder;
+    private volatile Encoder encoder;
     private ScheduledExecutorService combinedAudioExecutor;
 
     private IAudioSendSystem sendSystem;
     private Thread receiveThread;
+    private NioAudioEngine receiveEngine;
+    private FrameClock.Registration playout;
+    private final List<Decoder> playoutDecoders = new ArrayList<>();
+    //Frames the playout has to run for, the clock only counts them and the decode pool plays them out
+    private final AtomicInteger pendingPlayouts = new AtomicInteger();
     private long queueTimeout;
+    private volatile int jitterBufferDelay = 0;
 
     private volatile boolean couldReceive = false;
     private volatile boolean speaking = false;      //Also acts as "couldProvide"
@@ -95,7 +103,7 @@ public class AudioConnection
 
     public void ready()
     {
-        Thread readyThread = new Thread(AudioManagerImpl.AUDIO_THREADS, () ->
+        Thread readyThread = getThreadingModel().newThread(ThreadingModel.ThreadType.AUDIO, () ->
         {
             final long timeout = getGuild().getAudioManager().getConnectTimeout();
 
@@ -130,14 +138,13 @@ public class AudioConnection
             {
                 webSocket.close(ConnectionStatus.ERROR_CONNECTION_TIMEOUT);
             }
-        });
+        }, threadIdentifier + " Ready Thread");
         readyThread.setUncaughtExceptionHandler((thread, throwable) ->
         {
             LOG.log(throwable);
             JDAImpl api = (JDAImpl) getJDA();
             api.getEventManager().handle(new ExceptionEvent(api, throwable, true));
         });
-        readyThread.setName(threadIdentifier + " Ready Thread");
         readyThread.start();
     }
 
@@ -158,6 +165,23 @@ public class AudioConnection
         this.queueTimeout = queueTimeout;
     }
 
+    public synchronized void setJitterBufferDelay(int jitterBufferDelay)
+    {
+        if (this.jitterBufferDelay == jitterBufferDelay)
+            return;
+        this.jitterBufferDelay = jitterBufferDelay;
+        //Audio buffered with the old delay is dropped, the buffers are recreated with the next packet
+        synchronized (opusDecoders)
+        {
+            opusDecoders.forEachValue(decoder ->
+            {
+                decoder.jitterBuffer = null;
+                return true;
+            });
+        }
+        setupPlayout();
+    }
+
     public VoiceChannel getChannel()
     {
         return channel;
@@ -168,6 +192,11 @@ public class AudioConnection
         this.channel = channel;
     }
 
+    private ThreadingModel getThreadingModel()
+    {
+        return ((JDAImpl) getJDA()).getThreadingModel();
+    }
+
     public JDA getJDA()
     {
         return channel.getJDA();
@@ -191,7 +220,11 @@ public class AudioConnection
         });
         if (!modified)
             return;
-        final Decoder decoder = opusDecoders.remove(ssrcRef.get());
+        final Decoder decoder;
+        synchronized (opusDecoders)
+        {
+            decoder = opusDecoders.remove(ssrcRef.get());
+        }
         if (decoder != null) // cleanup decoder
             decoder.close();
     }
@@ -213,9 +246,14 @@ public class AudioConnection
         {
             ssrcMap.put(ssrc, userId);
 
-            //Only create a decoder if we are actively handling received audio.
-            if (receiveThread != null)
-                opusDecoders.put(ssrc, new Decoder(ssrc));
+            //Only create a decoder if we are actively handling received audio that has to be decoded.
+            if (isReceiving() && needsDecoding(receiveHandler))
+            {
+                synchronized (opusDecoders)
+                {
+                    opusDecoders.put(ssrc, new Decoder(ssrc));
+                }
+            }
         }
     }
 
@@ -233,32 +271,26 @@ public class AudioConnection
             sendSystem.shutdown();
             sendSystem = null;
         }
-        if (receiveThread != null)
-        {
-            receiveThread.interrupt();
-            receiveThread = null;
-        }
+        stopReceiving();
         if (combinedAudioExecutor != null)
         {
             combinedAudioExecutor.shutdownNow();
             combinedAudioExecutor = null;
         }
-        if (opusEncoder != null)
+        if (encoder != null)
         {
-            Opus.INSTANCE.opus_encoder_destroy(opusEncoder);
-            opusEncoder = null;
+            encoder.close();
+            encoder = null;
         }
 
-        opusDecoders.valueCollection().forEach(Decoder::close);
-        opusDecoders.clear();
+        closeDecoders();
     }
 
     private synchronized void setupSendSystem()
     {
         if (udpSocket != null && !udpSocket.isClosed() && sendHandler != null && sendSystem == null)
         {
-            IntBuffer error = IntBuffer.allocate(4);
-            opusEncoder = Opus.INSTANCE.opus_encoder_create(OPUS_SAMPLE_RATE, OPUS_CHANNEL_COUNT, Opus.OPUS_APPLICATION_AUDIO, error);
+            encoder = new Encoder();
 
             IAudioSendFactory factory = ((JDAImpl) channel.getJDA()).getAudioSendFactory();
             sendSystem = factory.createSendSystem(new PacketProvider());
@@ -269,24 +301,23 @@ public class AudioConnection
             sendSystem.shutdown();
             sendSystem = null;
 
-            if (opusEncoder != null)
+            if (encoder != null)
             {
-                Opus.INSTANCE.opus_encoder_destroy(opusEncoder);
-                opusEncoder = null;
+                encoder.close();
+                encoder = null;
             }
         }
     }
 
     private synchronized void setupReceiveSystem()
     {
-        if (udpSocket != null && !udpSocket.isClosed() && receiveHandler != null && receiveThread == null)
+        if (udpSocket != null && !udpSocket.isClosed() && receiveHandler != null && !isReceiving())
         {
             setupReceiveThread();
         }
-        else if (receiveHandler == null && receiveThread != null)
+        else if (receiveHandler == null && isReceiving())
         {
-            receiveThread.interrupt();
-            receiveThread = null;
+            stopReceiving();
 
             if (combinedAudioExecutor != null)
             {
@@ -294,142 +325,334 @@ public class AudioConnection
                 combinedAudioExecutor = null;
             }
 
-            opusDecoders.valueCollection().forEach(Decoder::close);
-            opusDecoders.clear();
+            closeDecoders();
         }
         else if (receiveHandler != null && !receiveHandler.canReceiveCombined() && combinedAudioExecutor != null)
         {
             combinedAudioExecutor.shutdownNow();
             combinedAudioExecutor = null;
         }
+
+        //A passthrough handler never decodes, decoders of a previous handler are not needed anymore
+        if (receiveHandler != null && !needsDecoding(receiveHandler))
+            closeDecoders();
     }
 
     private synchronized void setupReceiveThread()
     {
-        if (receiveThread == null)
+        if (!isReceiving())
         {
-            receiveThread = new Thread(AudioManagerImpl.AUDIO_THREADS, () ->
+            final IAudioSendFactory factory = ((JDAImpl) getJDA()).getAudioSendFactory();
+            if (factory instanceof NioAudioEngine && udpSocket.getChannel() != null)
+            {
+                //The engine reads all connections on a few shared threads
+                final DecodeDispatcher dispatcher = createDispatcher();
+                receiveEngine = (NioAudioEngine) factory;
+                receiveEngine.registerReceiver(udpSocket.getChannel(), (channel, maxPackets) ->
+                {
+                    for (int i = 0; i < maxPackets && dispatcher.getBuffer().receive(channel); i++)
+                        dispatchPacket(dispatcher);
+                });
+            }
+            else
+            {
+                startReceiveThread();
+            }
+        }
+
+        setupPlayout();
+        if (receiveHandler.canReceiveCombined())
+        {
+            setupCombinedExecutor();
+        }
+    }
+
+    private synchronized void setupPlayout()
+    {
+        if (jitterBufferDelay > 0 && isReceiving())
+        {
+            //One frame per user is played out of the jitter buffers every 20ms.
+            // Decoding and the handler callbacks run on the decode pool, they must not delay the clock that also sends audio.
+            if (playout == null)
+                playout = FrameClock.getShared(getThreadingModel()).register(threadIdentifier + " Jitter Playout", this::schedulePlayout);
+        }
+        else if (playout != null)
+        {
+            playout.cancel();
+            playout = null;
+        }
+    }
+
+    private void schedulePlayout(long deadline)
+    {
+        if (pendingPlayouts.getAndIncrement() > 0)
+            return;
+        try
+        {
+            ((JDAImpl) getJDA()).getAudioDecodePool().execute(this::runPlayouts);
+        }
+        catch (RejectedExecutionException e)
+        {
+            //The pool was shut down together with JDA
+            pendingPlayouts.set(0);
+        }
+    }
+
+    private void runPlayouts()
+    {
+        //Frames that were due while a playout was still running are played right after it, one at a time
+        do
+        {
+            try
+            {
+                playout();
+            }
+            catch (Exception e)
+            {
+                LOG.log(e);
+            }
+        }
+        while (pendingPlayouts.decrementAndGet() > 0);
+    }
+
+    private void playout()
+    {
+        final AudioReceiveHandler handler = receiveHandler;
+        if (handler == null)
+            return;
+        synchronized (opusDecoders)
+        {
+            playoutDecoders.clear();
+            playoutDecoders.addAll(opusDecoders.valueCollection());
+        }
+        for (Decoder decoder : playoutDecoders)
+        {
+            final JitterBuffer jitterBuffer = decoder.jitterBuffer;
+            if (jitterBuffer == null)
+                continue;
+            final ShortBuffer decoded = jitterBuffer.poll();
+            if (decoded == null)
+                continue;
+            final User user = getJDA().getUserById(ssrcMap.get(decoder.ssrc));
+            if (user != null)
+                handleDecodedAudio(handler, user, decoded);
+        }
+    }
+
+    private void startReceiveThread()
+    {
+        receiveThread = getThreadingModel().newThread(ThreadingModel.ThreadType.AUDIO, () ->
+        {
+            try
+            {
+                udpSocket.setSoTimeout(1000);
+            }
+            catch (SocketException e)
+            {
+                LOG.log(e);
+            }
+            //This thread only receives, the packets are decrypted and decoded on the decode pool
+            final DecodeDispatcher dispatcher = createDispatcher();
+            while (!udpSocket.isClosed() && !Thread.currentThread().isInterrupted())
             {
                 try
                 {
-                    udpSocket.setSoTimeout(1000);
+                    dispatcher.getBuffer().receive(udpSocket);
+                    dispatchPacket(dispatcher);
+                }
+                catch (SocketTimeoutException e)
+                {
+                    //Ignore. We set a low timeout so that we wont block forever so we can properly shutdown the loop.
                 }
                 catch (SocketException e)
                 {
-                    LOG.log(e);
+                    //The socket was closed while we were listening for the next packet.
+                    //This is expected. Ignore the exception. The thread will exit during the next while
+                    // iteration because the udpSocket.isClosed() will return true.
                 }
-                while (!udpSocket.isClosed() && !Thread.currentThread().isInterrupted())
+                catch (Exception e)
                 {
-                    DatagramPacket receivedPacket = new DatagramPacket(new byte[1920], 1920);
-                    try
-                    {
-                        udpSocket.receive(receivedPacket);
+                    LOG.log(e);
+                }
+            }
+        }, threadIdentifier + " Receiving Thread");
+        receiveThread.setUncaughtExceptionHandler((thread, throwable) ->
+        {
+            LOG.log(throwable);
+            JDAImpl api = (JDAImpl) getJDA();
+            api.getEventManager().handle(new ExceptionEvent(api, throwable, true));
+        });
+        receiveThread.start();
+    }
 
-                        if (receiveHandler != null && (receiveHandler.canReceiveUser() || receiveHandler.canReceiveCombined()) && webSocket.getSecretKey() != null)
-                        {
-                            if (!couldReceive)
-                            {
-                                couldReceive = true;
-                                sendSilentPackets();
-                            }
-                            AudioPacket decryptedPacket = AudioPacket.decryptAudioPacket(receivedPacket, webSocket.getSecretKey());
-                            if (decryptedPacket == null)
-                                continue;
+    private DecodeDispatcher createDispatcher()
+    {
+        return new DecodeDispatcher(((JDAImpl) getJDA()).getAudioDecodePool(), buffer -> handlePacket(buffer, true));
+    }
 
-                            int ssrc = decryptedPacket.getSSRC();
-                            final long userId = ssrcMap.get(ssrc);
-                            Decoder decoder = opusDecoders.get(ssrc);
-                            if (userId == ssrcMap.getNoEntryValue())
-                            {
-                                byte[] audio = decryptedPacket.getEncodedAudio();
+    private void dispatchPacket(DecodeDispatcher dispatcher)
+    {
+        final ReceiveBuffer receiveBuffer = dispatcher.getBuffer();
+        //Packets of unknown SSRCs are not worth a thread hop, they are only logged and dropped
+        if (receiveBuffer.parseHeader() && ssrcMap.containsKey(receiveBuffer.getSSRC()))
+            dispatcher.dispatch();
+        else
+            handlePacket(receiveBuffer, false);
+    }
 
-                                //If the bytes are silence, then this was caused by a User joining the voice channel,
-                                // and as such, we haven't yet received information to pair the SSRC with the UserId.
-                                if (!Arrays.equals(audio, silenceBytes))
-                                    LOG.debug("Received audio data with an unknown SSRC id. Ignoring");
+    private void handlePacket(ReceiveBuffer receiveBuffer, boolean dispatched)
+    {
+        final AudioReceiveHandler handler = receiveHandler;
+        final TweetNaclFast.SecretBox boxer = webSocket.getSecretBox();
+        if (handler != null && (needsDecoding(handler) || handler.canReceiveEncoded()) && boxer != null)
+        {
+            if (!couldReceive)
+            {
+                couldReceive = true;
+                sendSilentPackets();
+            }
+            if (!receiveBuffer.decrypt(boxer))
+            {
+                LOG.debug("Failed to decrypt audio packet");
+                return;
+            }
 
-                                continue;
-                            }
-                            if (decoder == null)
-                            {
-                                opusDecoders.put(ssrc, decoder = new Decoder(ssrc));
-                            }
-                            if (!decoder.isInOrder(decryptedPacket.getSequence()))
-                            {
-                                LOG.trace("Got out-of-order audio packet. Ignoring.");
-                                continue;
-                            }
+            int ssrc = receiveBuffer.getSSRC();
+            final long userId = ssrcMap.get(ssrc);
+            if (userId == ssrcMap.getNoEntryValue())
+            {
+                //If the bytes are silence, then this was caused by a User joining the voice channel,
+                // and as such, we haven't yet received information to pair the SSRC with the UserId.
+                if (!receiveBuffer.isAudio(silenceBytes))
+                    LOG.debug("Received audio data with an unknown SSRC id. Ignoring");
 
-                            User user = getJDA().getUserById(userId);
-                            if (user == null)
-                            {
-                                LOG.warn("Received audio data with a known SSRC, but the userId associate with the SSRC is unknown to JDA!");
-                                continue;
-                            }
-//                              if (decoder.wasPacketLost(decryptedPacket.getSequence()))
-//                              {
-//                                  LOG.debug("Packet(s) missed. Using Opus packetloss-compensation.");
-//                                  short[] decodedAudio = decoder.decodeFromOpus(null);
-//                                  receiveHandler.handleUserAudio(new UserAudio(user, decodedAudio));
-//                              }
-                            short[] decodedAudio = decoder.decodeFromOpus(decryptedPacket);
-
-                            //If decodedAudio is null, then the Opus decode failed, so throw away the packet.
-                            if (decodedAudio == null)
-                            {
-                                //decoder error logged in method
-                                continue;
-                            }
-                            if (receiveHandler.canReceiveUser())
-                            {
-                                receiveHandler.handleUserAudio(new UserAudio(user, decodedAudio));
-                            }
-                            if (receiveHandler.canReceiveCombined())
-                            {
-                                Queue<Pair<Long, short[]>> queue = combinedQueue.get(user);
-                                if (queue == null)
-                                {
-                                    queue = new ConcurrentLinkedQueue<>();
-                                    combinedQueue.put(user, queue);
-                                }
-                                queue.add(Pair.of(System.currentTimeMillis(), decodedAudio));
-                            }
-                        }
-                        else if (couldReceive)
-                        {
-                            couldReceive = false;
-                            sendSilentPackets();
-                        }
-                    }
-                    catch (SocketTimeoutException e)
-                    {
-                        //Ignore. We set a low timeout so that we wont block forever so we can properly shutdown the loop.
-                    }
-                    catch (SocketException e)
-                    {
-                        //The socket was closed while we were listening for the next packet.
-                        //This is expected. Ignore the exception. The thread will exit during the next while
-                        // iteration because the udpSocket.isClosed() will return true.
-                    }
-                    catch (Exception e)
-                    {
-                        LOG.log(e);
-                    }
+                return;
+            }
+            //The SSRC was paired after the packet was checked, it is dropped to not decode on the receiving thread
+            if (!dispatched)
+                return;
+            if (handler.canReceiveEncoded())
+            {
+                User user = getJDA().getUserById(userId);
+                if (user == null)
+                {
+                    LOG.warn("Received audio data with a known SSRC, but the userId associate with the SSRC is unknown to JDA!");
+                    return;
                 }
-            });
-            receiveThread.setUncaughtExceptionHandler((thread, throwable) ->
+                final int offset = receiveBuffer.getAudioOffset();
+                final byte[] opusAudio = Arrays.copyOfRange(receiveBuffer.getBuffer(), offset, offset + receiveBuffer.getAudioLength());
+                handler.handleEncodedAudio(new EncodedAudio(user, ssrc, receiveBuffer.getSequence(), receiveBuffer.getTimestamp(), opusAudio));
+            }
+            //Passthrough only, no decoder is ever created
+            if (!needsDecoding(handler))
+                return;
+
+            Decoder decoder;
+            synchronized (opusDecoders)
             {
-                LOG.log(throwable);
-                JDAImpl api = (JDAImpl) getJDA();
-                api.getEventManager().handle(new ExceptionEvent(api, throwable, true));
-            });
-            receiveThread.setName(threadIdentifier + " Receiving Thread");
-            receiveThread.start();
+                decoder = opusDecoders.get(ssrc);
+                if (decoder == null)
+                    opusDecoders.put(ssrc, decoder = new Decoder(ssrc));
+            }
+            final int jitterDelay = jitterBufferDelay;
+            if (jitterDelay > 0)
+            {
+                //Out-of-order packets are reordered, the playout decodes them
+                JitterBuffer jitterBuffer = decoder.jitterBuffer;
+                if (jitterBuffer == null)
+                    decoder.jitterBuffer = jitterBuffer = new JitterBuffer(decoder, jitterDelay / OPUS_FRAME_TIME_AMOUNT);
+                jitterBuffer.offer(receiveBuffer.getSequence(), receiveBuffer.getTimestamp(),
+                    receiveBuffer.getBuffer(), receiveBuffer.getAudioOffset(), receiveBuffer.getAudioLength());
+                return;
+            }
+            if (!decoder.isInOrder(receiveBuffer.getSequence()))
+            {
+                LOG.trace("Got out-of-order audio packet. Ignoring.");
+                return;
+            }
+
+            User user = getJDA().getUserById(userId);
+            if (user == null)
+            {
+                LOG.warn("Received audio data with a known SSRC, but the userId associate with the SSRC is unknown to JDA!");
+                return;
+            }
+            ShortBuffer decoded = decoder.decode(receiveBuffer.getBuffer(), receiveBuffer.getAudioOffset(),
+                receiveBuffer.getAudioLength(), receiveBuffer.getSequence(), receiveBuffer.getTimestamp());
+
+            //If decoded is null, then the Opus decode failed, so throw away the packet.
+            if (decoded == null)
+            {
+                //decoder error logged in method
+                return;
+            }
+            handleDecodedAudio(handler, user, decoded);
         }
+        else if (couldReceive)
+        {
+            couldReceive = false;
+            sendSilentPackets();
+        }
+    }
 
-        if (receiveHandler.canReceiveCombined())
+    private static boolean needsDecoding(AudioReceiveHandler handler)
+    {
+        return handler != null && (handler.canReceiveUser() || handler.canReceiveUserView() || handler.canReceiveCombined());
+    }
+
+    private void handleDecodedAudio(AudioReceiveHandler handler, User user, ShortBuffer decoded)
+    {
+        if (handler.canReceiveUserView())
         {
-            setupCombinedExecutor();
+            handler.handleUserAudio(user, decoded);
+            decoded.rewind();
+        }
+        //Only these consumers may keep the audio around, so only they get a copy
+        if (!handler.canReceiveUser() && !handler.canReceiveCombined())
+            return;
+        short[] decodedAudio = new short[decoded.remaining()];
+        decoded.get(decodedAudio);
+        if (handler.canReceiveUser())
+        {
+            handler.handleUserAudio(new UserAudio(user, decodedAudio));
+        }
+        if (handler.canReceiveCombined())
+        {
+            Queue<Pair<Long, short[]>> queue = combinedQueue.computeIfAbsent(user, u -> new ConcurrentLinkedQueue<>());
+            queue.add(Pair.of(System.currentTimeMillis(), decodedAudio));
+        }
+    }
+
+    private boolean isReceiving()
+    {
+        return receiveThread != null || receiveEngine != null;
+    }
+
+    private void stopReceiving()
+    {
+        if (receiveThread != null)
+        {
+            receiveThread.interrupt();
+            receiveThread = null;
+        }
+        if (receiveEngine != null)
+        {
+            receiveEngine.unregisterReceiver(udpSocket.getChannel());
+            receiveEngine = null;
+        }
+        if (playout != null)
+        {
+            playout.cancel();
+            playout = null;
+        }
+    }
+
+    private void closeDecoders()
+    {
+        synchronized (opusDecoders)
+        {
+            opusDecoders.valueCollection().forEach(Decoder::close);
+            opusDecoders.clear();
         }
     }
 
@@ -439,7 +662,7 @@ public class AudioConnection
         {
             combinedAudioExecutor = Executors.newSingleThreadScheduledExecutor((task) ->
             {
-                final Thread t = new Thread(AudioManagerImpl.AUDIO_THREADS, task, threadIdentifier + " Combined Thread");
+                final Thread t = getThreadingModel().newThread(ThreadingModel.ThreadType.AUDIO, task, threadIdentifier + " Combined Thread");
                 t.setUncaughtExceptionHandler((thread, throwable) ->
                 {
                     LOG.log(throwable);
@@ -517,32 +740,6 @@ public class AudioConnection
         }
     }
 
-    private byte[] encodeToOpus(byte[] rawAudio)
-    {
-        ShortBuffer nonEncodedBuffer = ShortBuffer.allocate(rawAudio.length / 2);
-        ByteBuffer encoded = ByteBuffer.allocate(4096);
-        for (int i = 0; i < rawAudio.length; i += 2)
-        {
-            int firstByte =  (0x000000FF & rawAudio[i]);      //Promotes to int and handles the fact that it was unsigned.
-            int secondByte = (0x000000FF & rawAudio[i + 1]);  //
-
-            //Combines the 2 bytes into a short. Opus deals with unsigned shorts, not bytes.
-            short toShort = (short) ((firstByte << 8) | secondByte);
-
-            nonEncodedBuffer.put(toShort);
-        }
-        nonEncodedBuffer.flip();
-
-        //TODO: check for 0 / negative value for error.
-        int result = Opus.INSTANCE.opus_encode(opusEncoder, nonEncodedBuffer, OPUS_FRAME_SIZE, encoded, encoded.capacity());
-
-        //ENCODING STOPS HERE
-
-        byte[] audio = new byte[result];
-        encoded.get(audio);
-        return audio;
-    }
-
     private void setSpeaking(boolean isSpeaking)
     {
         this.speaking = isSpeaking;
@@ -576,6 +773,11 @@ public class AudioConnection
         char seq = 0;           //Sequence of audio packets. Used to determine the order of the packets.
         int timestamp = 0;      //Used to sync up our packets within the same timeframe of other people talking.
 
+        //Reused for every packet, the send system is done with a packet once it asks for the next one
+        private final byte[] nonceBuffer = new byte[AudioPacket.XSALSA20_NONCE_LENGTH];
+        private byte[] packetBuffer = new byte[AudioPacket.getEncryptedBufferSize(1024)];
+        private DatagramPacket packet;
+
         @Override
         public String getIdentifier()
         {
@@ -604,23 +806,49 @@ public class AudioConnection
                 if (sentSilenceOnConnect && sendHandler != null && sendHandler.canProvide())
                 {
                     silenceCounter = -1;
-                    byte[] rawAudio = sendHandler.provide20MsAudio();
-                    if (rawAudio == null || rawAudio.length == 0)
+                    final AudioSendHandler handler = sendHandler;
+                    byte[] audio;
+                    int length;
+                    if (handler instanceof PcmBufferSendHandler)
                     {
-                        if (speaking && changeTalking)
-                            setSpeaking(false);
+                        ShortBuffer pcm = ((PcmBufferSendHandler) handler).provide20MsPcm();
+                        length = pcm == null || !pcm.hasRemaining() ? 0 : encoder.encode(pcm);
+                        audio = encoder.getEncoded();
+                    }
+                    else if (handler instanceof PrefetchingSendHandler)
+                    {
+                        //Prefetched frames are sent from their slot, which may be longer than the frame
+                        final PrefetchingSendHandler prefetching = (PrefetchingSendHandler) handler;
+                        audio = prefetching.provideFrame();
+                        length = audio == null ? 0 : prefetching.getProvidedLength();
+                        if (length > 0 && !handler.isOpus())
+                        {
+                            length = encoder.encode(audio, length);
+                            audio = encoder.getEncoded();
+                        }
                     }
                     else
                     {
-                        if (!sendHandler.isOpus())
+                        audio = handler.provide20MsAudio();
+                        length = audio == null ? 0 : audio.length;
+                        if (length > 0 && !handler.isOpus())
                         {
-                            rawAudio = encodeToOpus(rawAudio);
+                            length = encoder.encode(audio);
+                            audio = encoder.getEncoded();
                         }
-                        AudioPacket packet = new AudioPacket(seq, timestamp, webSocket.getSSRC(), rawAudio);
+                    }
+
+                    if (length <= 0)
+                    {
+                        if (speaking && changeTalking)
+                            setSpeaking(false);
+                    }
+                    else
+                    {
                         if (!speaking)
                             setSpeaking(true);
 
-                        nextPacket = packet.asEncryptedUdpPacket(webSocket.getAddress(), webSocket.getSecretKey());
+                        nextPacket = buildPacket(audio, length);
 
                         if (seq + 1 > Character.MAX_VALUE)
                             seq = 0;
@@ -630,9 +858,7 @@ public class AudioConnection
                 }
                 else if (silenceCounter > -1)
                 {
-                    AudioPacket packet = new AudioPacket(seq, timestamp, webSocket.getSSRC(), silenceBytes);
-
-                    nextPacket = packet.asEncryptedUdpPacket(webSocket.getAddress(), webSocket.getSecretKey());
+                    nextPacket = buildPacket(silenceBytes, silenceBytes.length);
 
                     if (seq + 1 > Character.MAX_VALUE)
                         seq = 0;
@@ -659,6 +885,31 @@ public class AudioConnection
             return nextPacket;
         }
 
+        private DatagramPacket buildPacket(byte[] encodedAudio, int audioLength)
+        {
+            final int required = AudioPacket.getEncryptedBufferSize(audioLength);
+            if (packetBuffer.length < required)
+                packetBuffer = new byte[required];
+
+            final int length = AudioPacket.writeEncrypted(packetBuffer, nonceBuffer, webSocket.getSecretBox(),
+                seq, timestamp, webSocket.getSSRC(), encodedAudio, 0, audioLength);
+            if (length < 0)
+                return null;
+
+            final InetSocketAddress address = webSocket.getAddress();
+            if (packet == null)
+            {
+                packet = new DatagramPacket(packetBuffer, AudioPacket.ENCRYPTED_PACKET_OFFSET, length, address);
+            }
+            else
+            {
+                packet.setData(packetBuffer, AudioPacket.ENCRYPTED_PACKET_OFFSET, length);
+                if (packet.getSocketAddress() != address)
+                    packet.setSocketAddress(address);
+            }
+            return packet;
+        }
+
         @Override
         public void onConnectionError(ConnectionStatus status)
         {
@@ -55,6 +55,13 @@ public class AudioPacket
     public static final int TIMESTAMP_INDEX =               4;
     public static final int SSRC_INDEX =                    8;
 
+    /**
+     * Offset of the packet in a buffer written by {@link #writeEncrypted(byte[], byte[], TweetNaclFast.SecretBox, char, int, int, byte[], int, int)}.
+     * <br>The RTP header is placed right in front of the authenticator of the box, so the packet is contiguous.
+     */
+    public static final int ENCRYPTED_PACKET_OFFSET = TweetNaclFast.SecretBox.zerobytesLength
+                                                    - TweetNaclFast.SecretBox.boxzerobytesLength - RTP_HEADER_BYTE_LENGTH;
+
     private final char seq;
     private final int timestamp;
     private final int ssrc;
@@ -176,6 +183,72 @@ public class AudioPacket
         return new AudioPacket(seq, timestamp, ssrc, encryptedAudio).asUdpPacket(address);
     }
 
+    /**
+     * The minimum size of a buffer for {@link #writeEncrypted(byte[], byte[], TweetNaclFast.SecretBox, char, int, int, byte[], int, int)}.
+     *
+     * @param  audioLength
+     *         The length of the encoded audio
+     *
+     * @return The required buffer size
+     */
+    public static int getEncryptedBufferSize(int audioLength)
+    {
+        return TweetNaclFast.SecretBox.zerobytesLength + audioLength;
+    }
+
+    /**
+     * Writes an encrypted RTP packet into the provided buffer without allocating any intermediate arrays.
+     * <br>The packet starts at {@link #ENCRYPTED_PACKET_OFFSET} of the buffer. Both the buffer and the nonce
+     * are meant to be reused for every packet of a connection.
+     *
+     * @param  buffer
+     *         The target buffer, at least {@link #getEncryptedBufferSize(int) getEncryptedBufferSize(length)} bytes long
+     * @param  nonce
+     *         The nonce buffer of {@link #XSALSA20_NONCE_LENGTH} bytes, of which only the first 12 bytes are written.
+     *         The remaining bytes must stay zero.
+     * @param  boxer
+     *         The SecretBox of the current secret key
+     * @param  seq
+     *         The sequence number
+     * @param  timestamp
+     *         The RTP timestamp
+     * @param  ssrc
+     *         The SSRC of the connection
+     * @param  encodedAudio
+     *         The Opus audio
+     * @param  offset
+     *         The offset of the audio in the provided array
+     * @param  length
+     *         The length of the audio
+     *
+     * @return The length of the packet, or -1 if the packet could not be encrypted
+     */
+    public static int writeEncrypted(byte[] buffer, byte[] nonce, TweetNaclFast.SecretBox boxer,
+                                     char seq, int timestamp, int ssrc, byte[] encodedAudio, int offset, int length)
+    {
+        nonce[RTP_VERSION_PAD_EXTEND_INDEX] = RTP_VERSION_PAD_EXTEND;
+        nonce[RTP_PAYLOAD_INDEX] = RTP_PAYLOAD_TYPE;
+        nonce[SEQ_INDEX]     = (byte) (seq >> 8);
+        nonce[SEQ_INDEX + 1] = (byte) seq;
+        writeInt(nonce, TIMESTAMP_INDEX, timestamp);
+        writeInt(nonce, SSRC_INDEX, ssrc);
+
+        System.arraycopy(encodedAudio, offset, buffer, TweetNaclFast.SecretBox.zerobytesLength, length);
+        if (!boxer.boxInPlace(buffer, length, nonce))
+            return -1;
+        //The RTP header doubles as the nonce, place it in front of the box
+        System.arraycopy(nonce, 0, buffer, ENCRYPTED_PACKET_OFFSET, RTP_HEADER_BYTE_LENGTH);
+        return RTP_HEADER_BYTE_LENGTH + TweetNaclFast.SecretBox.overheadLength + length;
+    }
+
+    private static void writeInt(byte[] array, int index, int value)
+    {
+        array[index]     = (byte) (value >> 24);
+        array[index + 1] = (byte) (value >> 16);
+        array[index + 2] = (byte) (value >> 8);
+        array[index + 3] = (byte) value;
+    }
+
     public static AudioPacket createEchoPacket(DatagramPacket packet, int ssrc)
     {
         ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(packet.getData(), packet.getLength()));
@@ -16,10 +16,17 @@
 
 package net.dv8tion.jda.core.audio;
 
+import net.dv8tion.jda.core.entities.User;
+
 import javax.sound.sampled.AudioFormat;
+import java.nio.ShortBuffer;
 
 /**
  * Interface used to receive audio from Discord through JDA.
+ *
+ * <p>Received audio is decoded on a pool of threads, the audio of different users may therefore be provided to
+ * {@link #handleUserAudio(UserAudio)} and {@link #handleUserAudio(User, ShortBuffer)} concurrently.
+ * The audio of one user is always provided in order and by one thread at a time.
  */
 public interface AudioReceiveHandler
 {
@@ -43,6 +50,29 @@ public interface AudioReceiveHandler
      */
     boolean canReceiveUser();
 
+    /**
+     * If this method returns true, then JDA will provide audio data to the {@link #handleUserAudio(User, ShortBuffer)} method.
+     * <br>Unlike {@link #canReceiveUser()} this does not allocate any arrays per packet.
+     *
+     * @return If true, JDA provides user specific audio data through a reusable view.
+     */
+    default boolean canReceiveUserView()
+    {
+        return false;
+    }
+
+    /**
+     * If this method returns true, then JDA will provide the decrypted Opus audio to the {@link #handleEncodedAudio(EncodedAudio)} method.
+     * <br>If none of the other {@code canReceive} methods returns true, the received audio is never decoded,
+     * which is a lot cheaper for applications that only forward or store the audio.
+     *
+     * @return If true, JDA provides the received Opus audio without decoding it.
+     */
+    default boolean canReceiveEncoded()
+    {
+        return false;
+    }
+
     /**
      * If {@link #canReceiveCombined()} returns true, JDA will provide a {@link net.dv8tion.jda.core.audio.CombinedAudio CombinedAudio}
      * object to this method <b>every 20 milliseconds</b>. The data provided by CombinedAudio is all audio that occurred
@@ -86,4 +116,29 @@ public interface AudioReceiveHandler
      *         The user audio data
      */
     void handleUserAudio(UserAudio userAudio);
+
+    /**
+     * If {@link #canReceiveUserView()} returns true, JDA will provide the decoded audio of each received packet
+     * to this method, right after it was decoded.
+     * <br>The buffer holds interleaved 48KHz stereo samples and is reused for the next packet of the user,
+     * it is only valid during this call and must be copied if the audio is needed afterwards.
+     *
+     * @param  user
+     *         The {@link net.dv8tion.jda.core.entities.User User} that provided the audio
+     * @param  audio
+     *         Read-only view of the decoded samples
+     */
+    default void handleUserAudio(User user, ShortBuffer audio) {}
+
+    /**
+     * If {@link #canReceiveEncoded()} returns true, JDA will provide every received Opus packet to this method
+     * after it was decrypted.
+     * <br>Packets are provided in the order they arrived, they are neither reordered nor is lost audio concealed.
+     * The sequence and RTP timestamp of the {@link net.dv8tion.jda.core.audio.EncodedAudio EncodedAudio} can be used
+     * to detect gaps and reordering.
+     *
+     * @param  encodedAudio
+     *         The Opus audio of one packet
+     */
+    default void handleEncodedAudio(EncodedAudio encodedAudio) {}
 }
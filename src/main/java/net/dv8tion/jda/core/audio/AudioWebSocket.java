@@ -16,8 +16,10 @@
 
 package net.dv8tion.jda.core.audio;
 
+import com.iwebpp.crypto.TweetNaclFast;
 import com.neovisionaries.ws.client.*;
 import net.dv8tion.jda.core.WebSocketCode;
+import net.dv8tion.jda.core.audio.factory.NioAudioEngine;
 import net.dv8tion.jda.core.audio.hooks.ConnectionListener;
 import net.dv8tion.jda.core.audio.hooks.ConnectionStatus;
 import net.dv8tion.jda.core.entities.Guild;
@@ -26,6 +28,7 @@ import net.dv8tion.jda.core.entities.VoiceChannel;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.events.ExceptionEvent;
 import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
+import net.dv8tion.jda.core.utils.HeartbeatTimer;
 import net.dv8tion.jda.core.utils.SimpleLog;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -33,11 +36,11 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class AudioWebSocket extends WebSocketAdapter
 {
@@ -60,11 +63,14 @@ public class AudioWebSocket extends WebSocketAdapter
     private boolean shutdown = false;
     private boolean reconnecting = false;
     private Future<?> keepAliveHandle;
+    private volatile HeartbeatTimer.Task heartbeatTask;
+    private volatile boolean heartbeatAcked = true;
     private String wssEndpoint;
     private boolean shouldReconnect;
 
     private int ssrc;
     private byte[] secretKey;
+    private volatile TweetNaclFast.SecretBox secretBox;
     private DatagramSocket udpSocket;
     private InetSocketAddress address;
 
@@ -195,6 +201,7 @@ public class AudioWebSocket extends WebSocketAdapter
                 secretKey = new byte[DISCORD_SECRET_KEY_LENGTH];
                 for (int i = 0; i < keyArray.length(); i++)
                     secretKey[i] = (byte) keyArray.getInt(i);
+                secretBox = new TweetNaclFast.SecretBox(secretKey);
 
                 LOG.trace("Audio connection has finished connecting!");
                 ready = true;
@@ -210,6 +217,7 @@ public class AudioWebSocket extends WebSocketAdapter
             case VoiceCode.HEARTBEAT_ACK:
             {
                 LOG.trace("-> HEARTBEAT_ACK " + contentAll);
+                heartbeatAcked = true;
                 final long ping = System.currentTimeMillis() - contentAll.getLong("d");
                 listener.onPing(ping);
                 break;
@@ -474,6 +482,17 @@ public class AudioWebSocket extends WebSocketAdapter
         return Arrays.copyOf(secretKey, secretKey.length);
     }
 
+    /**
+     * The {@link com.iwebpp.crypto.TweetNaclFast.SecretBox SecretBox} for the current secret key.
+     * <br>Created once per SESSION_DESCRIPTION, so the send path does not have to copy the key for every packet.
+     *
+     * @return The SecretBox, or {@code null} if no secret key has been received yet
+     */
+    TweetNaclFast.SecretBox getSecretBox()
+    {
+        return secretBox;
+    }
+
     public int getSSRC()
     {
         return ssrc;
@@ -493,7 +512,11 @@ public class AudioWebSocket extends WebSocketAdapter
         //This is called UDP hole punching.
         try
         {
-            udpSocket = new DatagramSocket();   //Use UDP, not TCP.
+            //Use UDP, not TCP. The NioAudioEngine needs a socket that is backed by a channel
+            if (api.getAudioSendFactory() instanceof NioAudioEngine)
+                udpSocket = DatagramChannel.open().socket();
+            else
+                udpSocket = new DatagramSocket();
 
             //Create a byte array of length 70 containing our ssrc.
             ByteBuffer buffer = ByteBuffer.allocate(70);    //70 taken from https://github.com/Rapptz/discord.py/blob/async/discord/voice_client.py#L208
@@ -557,6 +580,10 @@ public class AudioWebSocket extends WebSocketAdapter
         if (keepAliveHandle != null)
             keepAliveHandle.cancel(true);
         keepAliveHandle = null;
+        HeartbeatTimer.Task task = heartbeatTask;
+        if (task != null)
+            task.cancel();
+        heartbeatTask = null;
     }
 
     private void setupKeepAlive(final int keepAliveInterval)
@@ -564,10 +591,18 @@ public class AudioWebSocket extends WebSocketAdapter
         if (keepAliveHandle != null)
             LOG.fatal("Setting up a KeepAlive runnable while the previous one seems to still be active!!");
 
+        heartbeatAcked = true;
+        try
+        {
+            //The first heartbeat is jittered so that connections which were opened at the same time do not heartbeat at once
+            final long delay = (long) (keepAliveInterval * ThreadLocalRandom.current().nextDouble());
+            heartbeatTask = api.getHeartbeatTimer().schedule(this::heartbeat, delay, keepAliveInterval, TimeUnit.MILLISECONDS);
+        }
+        catch (IllegalStateException ignored) {} //ignored because the timer is only shut down together with JDA
+
+        //The udp keep-alive does blocking I/O, so it stays on the keep-alive pool instead of the heartbeat timer
         Runnable keepAliveRunnable = () ->
         {
-            if (socket != null && socket.isOpen())
-                send(VoiceCode.HEARTBEAT, System.currentTimeMillis());
             if (udpSocket != null && !udpSocket.isClosed())
             {
                 long seq = 0;
@@ -576,8 +611,18 @@ public class AudioWebSocket extends WebSocketAdapter
                     ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 1);
                     buffer.put((byte)0xC9);
                     buffer.putLong(seq);
-                    DatagramPacket keepAlivePacket = new DatagramPacket(buffer.array(), buffer.array().length, address);
-                    udpSocket.send(keepAlivePacket);
+                    //The channel of the NioAudioEngine is non-blocking, which the socket does not support
+                    DatagramChannel channel = udpSocket.getChannel();
+                    if (channel != null)
+                    {
+                        buffer.flip();
+                        channel.send(buffer, address);
+                    }
+                    else
+                    {
+                        DatagramPacket keepAlivePacket = new DatagramPacket(buffer.array(), buffer.array().length, address);
+                        udpSocket.send(keepAlivePacket);
+                    }
                 }
                 catch (NoRouteToHostException e)
                 {
@@ -601,6 +646,22 @@ public class AudioWebSocket extends WebSocketAdapter
                                                       // related to the threadpool shutdown.
     }
 
+    private void heartbeat()
+    {
+        if (socket == null || !socket.isOpen())
+            return;
+        if (!heartbeatAcked)
+        {
+            //The last heartbeat was never acknowledged, close with a code that makes us resume the connection
+            LOG.warn("Did not receive a heartbeat ACK in time, reconnecting the zombie audio connection");
+            heartbeatAcked = true;
+            socket.sendClose(4000, "Heartbeat ACK missing");
+            return;
+        }
+        heartbeatAcked = false;
+        send(VoiceCode.HEARTBEAT, System.currentTimeMillis());
+    }
+
     public void changeStatus(ConnectionStatus newStatus)
     {
         connectionStatus = newStatus;
@@ -634,22 +695,4 @@ public class AudioWebSocket extends WebSocketAdapter
             close(ConnectionStatus.NOT_CONNECTED);
         }
     }
-
-    public static class KeepAliveThreadFactory implements ThreadFactory
-    {
-        final String identifier;
-        AtomicInteger threadCount = new AtomicInteger(1);
-
-        public KeepAliveThreadFactory(JDAImpl api)
-        {
-            identifier = api.getIdentifierString() + " Audio-KeepAlive Pool";
-        }
-
-        @Override
-        public Thread newThread(Runnable r)
-        {
-            return new Thread(AudioManagerImpl.AUDIO_THREADS, r, identifier + " - Thread " + threadCount.getAndIncrement());
-        }
-    }
 }
-
@@ -0,0 +1,140 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hands received packets of one connection from the receiving thread to a shared decode pool.
+ * <br>Every SSRC has its own queue which is drained by at most one pool thread at a time, so the packets of one user
+ * are decrypted and decoded in order while different users are decoded in parallel.
+ *
+ * <p>The receiving thread receives into {@link #getBuffer()} and calls {@link #dispatch()} after parsing the header,
+ * the buffer then belongs to the pool until it was handled and the receiving thread continues with a recycled one.
+ * Only one thread may receive and dispatch.
+ */
+final class DecodeDispatcher
+{
+    static final int MAX_PENDING = 50;  //(packets) 1 second of audio per user, more means the pool cannot keep up
+
+    private final Executor executor;
+    private final Consumer<ReceiveBuffer> handler;
+    private final ConcurrentLinkedQueue<ReceiveBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final TIntObjectMap<Strand> strands = new TIntObjectHashMap<>();
+    private ReceiveBuffer current = new ReceiveBuffer();
+
+    DecodeDispatcher(Executor executor, Consumer<ReceiveBuffer> handler)
+    {
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    /**
+     * The buffer the next packet has to be received into.
+     *
+     * @return The current buffer of the receiving thread
+     */
+    ReceiveBuffer getBuffer()
+    {
+        return current;
+    }
+
+    /**
+     * Queues the current buffer for the SSRC of its {@link ReceiveBuffer#parseHeader() parsed header}.
+     * <br>If too many packets of the SSRC are pending the packet is dropped and the buffer is reused.
+     */
+    void dispatch()
+    {
+        final ReceiveBuffer buffer = current;
+        final int ssrc = buffer.getSSRC();
+        Strand strand = strands.get(ssrc);
+        if (strand == null)
+            strands.put(ssrc, strand = new Strand());
+        if (strand.pending.get() >= MAX_PENDING)
+        {
+            AudioConnection.LOG.trace("Decode pool is falling behind, dropping audio packet of SSRC " + ssrc);
+            return;
+        }
+
+        ReceiveBuffer next = freeBuffers.poll();
+        current = next == null ? new ReceiveBuffer() : next;
+        strand.add(buffer);
+    }
+
+    private final class Strand implements Runnable
+    {
+        private final ConcurrentLinkedQueue<ReceiveBuffer> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void add(ReceiveBuffer buffer)
+        {
+            queue.add(buffer);
+            pending.incrementAndGet();
+            if (scheduled.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    //The pool was shut down together with JDA
+                    scheduled.set(false);
+                    queue.clear();
+                    pending.set(0);
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            do
+            {
+                ReceiveBuffer buffer;
+                while ((buffer = queue.poll()) != null)
+                {
+                    pending.decrementAndGet();
+                    try
+                    {
+                        handler.accept(buffer);
+                    }
+                    catch (Exception e)
+                    {
+                        AudioConnection.LOG.log(e);
+                    }
+                    finally
+                    {
+                        freeBuffers.add(buffer);
+                    }
+                }
+                scheduled.set(false);
+                //A packet added after the queue ran empty but before the flag was cleared would be stuck otherwise
+            }
+            while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
+}
@@ -19,6 +19,8 @@ package net.dv8tion.jda.core.audio;
 import com.sun.jna.ptr.PointerByReference;
 import tomp2p.opuswrapper.Opus;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
@@ -31,6 +33,14 @@ public class Decoder
     protected char lastSeq;
     protected int lastTimestamp;
     protected PointerByReference opusDecoder;
+    volatile JitterBuffer jitterBuffer;
+
+    //Direct buffers are passed to opus without copying, both are reused for every packet of this user
+    protected final ByteBuffer encodedBuffer = ByteBuffer.allocateDirect(ReceiveBuffer.MAX_PACKET_SIZE);
+    protected final ShortBuffer decodedBuffer = ByteBuffer
+            .allocateDirect(AudioConnection.OPUS_FRAME_SIZE * AudioConnection.OPUS_CHANNEL_COUNT * 2)
+            .order(ByteOrder.nativeOrder()).asShortBuffer();
+    protected final ShortBuffer decodedView = decodedBuffer.asReadOnlyBuffer();
 
     protected Decoder(int ssrc)
     {
@@ -56,26 +66,99 @@ public class Decoder
 
     protected short[] decodeFromOpus(AudioPacket decryptedPacket)
     {
-        int result;
-        ShortBuffer decoded = ShortBuffer.allocate(4096);
+        final ShortBuffer decoded;
         if (decryptedPacket == null)    //Flag for packet-loss
         {
-            result = Opus.INSTANCE.opus_decode(opusDecoder, null, 0, decoded,
-                    AudioConnection.OPUS_FRAME_SIZE, 0);
+            decoded = decode(null, 0, 0, (char) -1, -1);
+        }
+        else
+        {
+            byte[] encodedAudio = decryptedPacket.getEncodedAudio();
+            decoded = decode(encodedAudio, 0, encodedAudio.length, decryptedPacket.getSequence(), decryptedPacket.getTimestamp());
+        }
+
+        //If the decode failed, return null as a signifier.
+        if (decoded == null)
+            return null;
+
+        short[] audio = new short[decoded.remaining()];
+        decoded.get(audio);
+        return audio;
+    }
+
+    /**
+     * Decodes the provided Opus audio into the reusable PCM buffer of this decoder.
+     * <br>The returned view is read-only, native-ordered and only valid until the next call of this method.
+     *
+     * @param  encodedAudio
+     *         The array holding the Opus audio, or {@code null} for packet-loss
+     * @param  offset
+     *         The offset of the audio in the array
+     * @param  length
+     *         The length of the audio
+     * @param  seq
+     *         The sequence of the packet
+     * @param  timestamp
+     *         The RTP timestamp of the packet
+     *
+     * @return The decoded interleaved stereo samples, or {@code null} if the decode failed
+     */
+    protected synchronized ShortBuffer decode(byte[] encodedAudio, int offset, int length, char seq, int timestamp)
+    {
+        if (encodedAudio == null)    //Flag for packet-loss
+        {
             lastSeq = (char) -1;
             lastTimestamp = -1;
         }
         else
         {
-            char seq = decryptedPacket.getSequence();
             this.lastSeq = seq;
-            this.lastTimestamp = decryptedPacket.getTimestamp();
+            this.lastTimestamp = timestamp;
+        }
+        return decode(encodedAudio, offset, length, 0);
+    }
 
-            byte[] encodedAudio = decryptedPacket.getEncodedAudio();
+    /**
+     * Recovers the frame that was lost before the provided Opus packet from the forward error correction data
+     * embedded in that packet, the packet itself is not decoded.
+     * <br>If the packet carries no FEC data Opus falls back to packet-loss concealment.
+     * The returned view is only valid until the next decode of this decoder.
+     *
+     * @param  encodedAudio
+     *         The array holding the Opus packet that follows the lost frame
+     * @param  offset
+     *         The offset of the audio in the array
+     * @param  length
+     *         The length of the audio
+     *
+     * @return The recovered interleaved stereo samples, or {@code null} if the decode failed
+     */
+    protected synchronized ShortBuffer decodeFec(byte[] encodedAudio, int offset, int length)
+    {
+        return decode(encodedAudio, offset, length, 1);
+    }
+
+    private ShortBuffer decode(byte[] encodedAudio, int offset, int length, int decodeFec)
+    {
+        //The decoder might have been closed by a user leaving while their last frame is played out
+        if (opusDecoder == null)
+            return null;
 
-            result = Opus.INSTANCE.opus_decode(opusDecoder, encodedAudio, encodedAudio.length, decoded,
+        int result;
+        decodedBuffer.clear();
+        if (encodedAudio == null)
+        {
+            result = Opus.INSTANCE.opus_decode(opusDecoder, (ByteBuffer) null, 0, decodedBuffer,
                     AudioConnection.OPUS_FRAME_SIZE, 0);
         }
+        else
+        {
+            encodedBuffer.clear();
+            encodedBuffer.put(encodedAudio, offset, length);
+            encodedBuffer.clear();
+            result = Opus.INSTANCE.opus_decode(opusDecoder, encodedBuffer, length, decodedBuffer,
+                    AudioConnection.OPUS_FRAME_SIZE, decodeFec);
+        }
 
         //If we get a result that is less than 0, then there was an error. Return null as a signifier.
         if (result < Opus.OPUS_OK)
@@ -84,9 +167,9 @@ public class Decoder
             return null;
         }
 
-        short[] audio = new short[result * 2];
-        decoded.get(audio);
-        return audio;
+        decodedView.clear();
+        decodedView.limit(result * AudioConnection.OPUS_CHANNEL_COUNT);
+        return decodedView;
     }
 
     private void handleDecodeError(int result)
@@ -0,0 +1,92 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import net.dv8tion.jda.core.entities.User;
+
+/**
+ * Represents one received packet of User specific Opus audio, as provided by Discord.
+ * <br>The audio has been decrypted but not decoded, it can be forwarded or stored as is.
+ */
+public class EncodedAudio
+{
+    protected User user;
+    protected int ssrc;
+    protected char sequence;
+    protected int timestamp;
+    protected byte[] opusAudio;
+
+    public EncodedAudio(User user, int ssrc, char sequence, int timestamp, byte[] opusAudio)
+    {
+        this.user = user;
+        this.ssrc = ssrc;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.opusAudio = opusAudio;
+    }
+
+    /**
+     * The {@link net.dv8tion.jda.core.entities.User User} that provided the audio data.
+     *
+     * @return Never-null {@link net.dv8tion.jda.core.entities.User User} object.
+     */
+    public User getUser()
+    {
+        return user;
+    }
+
+    /**
+     * The RTP synchronization source of the audio stream of the user.
+     *
+     * @return The SSRC
+     */
+    public int getSSRC()
+    {
+        return ssrc;
+    }
+
+    /**
+     * The RTP sequence of the packet, incremented by 1 for every packet of the stream and wrapping around after 65535.
+     *
+     * @return The sequence
+     */
+    public char getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * The RTP timestamp of the packet, in samples at 48KHz.
+     * <br>A 20 millisecond frame advances the timestamp by 960.
+     *
+     * @return The timestamp
+     */
+    public int getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * The Opus encoded audio of the packet, without any RTP header or header extension.
+     *
+     * @return Never-null byte array of Opus audio
+     */
+    public byte[] getOpusAudio()
+    {
+        return opusAudio;
+    }
+}
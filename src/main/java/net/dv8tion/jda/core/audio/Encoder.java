@@ -0,0 +1,154 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import com.sun.jna.ptr.PointerByReference;
+import tomp2p.opuswrapper.Opus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Class that wraps functionality around the Opus encoder.
+ * <br>All buffers are allocated once per connection. The PCM and the encoded audio are kept in direct buffers,
+ * which are passed to opus without being copied by JNA.
+ */
+class Encoder
+{
+    //The largest opus packet is 1275 bytes per frame, this leaves plenty of room
+    static final int MAX_ENCODED_SIZE = 4096;
+    private static final int FRAME_SAMPLES = AudioConnection.OPUS_FRAME_SIZE * AudioConnection.OPUS_CHANNEL_COUNT;
+    private static final boolean NATIVE_BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private final ByteBuffer pcmBytes = ByteBuffer.allocateDirect(FRAME_SAMPLES * 2).order(ByteOrder.nativeOrder());
+    private final ShortBuffer pcmNative = pcmBytes.asShortBuffer();
+    //Big endian input is staged here and converted to native order by a single bulk put
+    private final ByteBuffer rawBytes = NATIVE_BIG_ENDIAN ? pcmBytes : ByteBuffer.allocateDirect(FRAME_SAMPLES * 2).order(ByteOrder.BIG_ENDIAN);
+    private final ShortBuffer rawShorts = rawBytes.asShortBuffer();
+    private final ByteBuffer encodedBuffer = ByteBuffer.allocateDirect(MAX_ENCODED_SIZE);
+    private final byte[] encoded = new byte[MAX_ENCODED_SIZE];
+    private PointerByReference opusEncoder;
+
+    Encoder()
+    {
+        IntBuffer error = IntBuffer.allocate(4);
+        opusEncoder = Opus.INSTANCE.opus_encoder_create(AudioConnection.OPUS_SAMPLE_RATE, AudioConnection.OPUS_CHANNEL_COUNT,
+                Opus.OPUS_APPLICATION_AUDIO, error);
+    }
+
+    /**
+     * Encodes 20 milliseconds of PCM in the format of {@link AudioSendHandler#INPUT_FORMAT}.
+     *
+     * @param  rawAudio
+     *         The big endian PCM
+     *
+     * @return The length of the encoded audio in {@link #getEncoded()}, or -1 if the encode failed
+     */
+    int encode(byte[] rawAudio)
+    {
+        return encode(rawAudio, rawAudio.length);
+    }
+
+    /**
+     * Encodes 20 milliseconds of PCM in the format of {@link AudioSendHandler#INPUT_FORMAT}.
+     *
+     * @param  rawAudio
+     *         The big endian PCM
+     * @param  length
+     *         The amount of bytes of PCM in the array, starting at index 0
+     *
+     * @return The length of the encoded audio in {@link #getEncoded()}, or -1 if the encode failed
+     */
+    int encode(byte[] rawAudio, int length)
+    {
+        rawBytes.clear();
+        rawBytes.put(rawAudio, 0, Math.min(length, rawBytes.capacity()));
+        //Short frames are padded with silence
+        while (rawBytes.hasRemaining())
+            rawBytes.put((byte) 0);
+
+        pcmNative.clear();
+        if (!NATIVE_BIG_ENDIAN)
+        {
+            rawShorts.clear();
+            pcmNative.put(rawShorts);
+            pcmNative.clear();
+        }
+        return encode(pcmNative);
+    }
+
+    /**
+     * Encodes 20 milliseconds of interleaved stereo samples.
+     * <br>Direct buffers in native order starting at position 0 are passed to opus as they are, all other buffers
+     * are copied into the PCM buffer of this encoder first. The position of the provided buffer is not changed.
+     *
+     * @param  pcm
+     *         The samples
+     *
+     * @return The length of the encoded audio in {@link #getEncoded()}, or -1 if the encode failed
+     */
+    int encode(ShortBuffer pcm)
+    {
+        ShortBuffer input = pcm;
+        if (pcm != pcmNative && (!pcm.isDirect() || pcm.order() != ByteOrder.nativeOrder() || pcm.position() != 0 || pcm.remaining() < FRAME_SAMPLES))
+        {
+            final int position = pcm.position();
+            final int limit = pcm.limit();
+            if (pcm.remaining() > FRAME_SAMPLES)
+                pcm.limit(position + FRAME_SAMPLES);
+            pcmNative.clear();
+            pcmNative.put(pcm);
+            pcm.limit(limit);
+            pcm.position(position);
+            while (pcmNative.hasRemaining())
+                pcmNative.put((short) 0);
+            pcmNative.clear();
+            input = pcmNative;
+        }
+
+        encodedBuffer.clear();
+        int result = Opus.INSTANCE.opus_encode(opusEncoder, input, AudioConnection.OPUS_FRAME_SIZE, encodedBuffer, MAX_ENCODED_SIZE);
+        if (result <= 0)
+        {
+            AudioConnection.LOG.debug("Encoder failed to encode audio with code " + result);
+            return -1;
+        }
+        encodedBuffer.get(encoded, 0, result);
+        return result;
+    }
+
+    /**
+     * The array holding the result of the last {@link #encode(ShortBuffer) encode}, starting at index 0.
+     *
+     * @return The reusable array of encoded audio
+     */
+    byte[] getEncoded()
+    {
+        return encoded;
+    }
+
+    synchronized void close()
+    {
+        if (opusEncoder != null)
+        {
+            Opus.INSTANCE.opus_encoder_destroy(opusEncoder);
+            opusEncoder = null;
+        }
+    }
+}
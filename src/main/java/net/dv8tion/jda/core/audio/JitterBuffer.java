@@ -0,0 +1,233 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Adaptive jitter buffer for the audio of a single SSRC.
+ * <br>Received packets are stored by their RTP sequence, so packets that arrive out of order are put back in order
+ * instead of being dropped. {@link #poll()} is called once every 20ms and plays out exactly one frame per call
+ * while the user is talking, frames that did not arrive in time are recovered from the forward error correction
+ * data of the following packet or concealed by Opus.
+ *
+ * <p>Playout starts once {@link #getTargetDelay() target delay} frames are buffered. The target grows by one frame
+ * for every packet that arrives too late to be played and shrinks again after 5 seconds without late packets.
+ *
+ * <p>This class is thread-safe, packets are offered by the receiving thread while the frames are polled by the playout thread.
+ */
+class JitterBuffer
+{
+    static final int MIN_DELAY = 2;              //(frames) Playout starts with at least 40ms of buffered audio
+    static final int MAX_CONCEALED_FRAMES = 5;   //Frames concealed with an empty buffer before the talk spurt ends
+    private static final int ADAPT_INTERVAL = 250;      //(frames) 5 seconds without late packets lower the target by 1 frame
+
+    private final Decoder decoder;
+    private final int maxDelay;
+    private final int mask;
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final int[] timestamps;
+    private final char[] sequences;
+    private final boolean[] filled;
+
+    private int buffered = 0;
+    private int targetDelay = MIN_DELAY;
+    private boolean playing = false;
+    private char nextSeq;
+    private int waited = 0;
+    private int concealed = 0;
+    private int stableFrames = 0;
+
+    /**
+     * Creates a new jitter buffer that plays out through the provided decoder.
+     *
+     * @param decoder
+     *        The decoder of the SSRC
+     * @param maxDelay
+     *        The maximum delay in frames of 20ms
+     */
+    JitterBuffer(Decoder decoder, int maxDelay)
+    {
+        this.decoder = decoder;
+        this.maxDelay = Math.max(MIN_DELAY, maxDelay);
+        //Twice the maximum delay so that packets which arrive while the buffer is full still have a slot
+        final int capacity = Math.max(16, Integer.highestOneBit(this.maxDelay * 2 - 1) << 1);
+        this.mask = capacity - 1;
+        this.slots = new byte[capacity][];
+        this.lengths = new int[capacity];
+        this.timestamps = new int[capacity];
+        this.sequences = new char[capacity];
+        this.filled = new boolean[capacity];
+    }
+
+    /**
+     * Stores a copy of the provided Opus packet.
+     *
+     * @param  seq
+     *         The RTP sequence of the packet
+     * @param  timestamp
+     *         The RTP timestamp of the packet
+     * @param  audio
+     *         The array holding the Opus audio
+     * @param  offset
+     *         The offset of the audio in the array
+     * @param  length
+     *         The length of the audio
+     *
+     * @return True, if the packet was stored. False if it arrived too late or is a duplicate.
+     */
+    synchronized boolean offer(char seq, int timestamp, byte[] audio, int offset, int length)
+    {
+        final int diff = (short) (seq - nextSeq);
+        if (buffered == 0 && !playing)
+        {
+            nextSeq = seq;
+        }
+        else if (diff < 0)
+        {
+            if (playing)
+            {
+                //The frame has already been concealed, wait longer for the next packets
+                targetDelay = Math.min(maxDelay, targetDelay + 1);
+                stableFrames = 0;
+                AudioConnection.LOG.trace("Got late audio packet. Increasing jitter buffer delay to " + targetDelay + " frames");
+                return false;
+            }
+            //Still buffering, this packet is the new start of the talk spurt
+            if (-diff > mask)
+                reset();
+            nextSeq = seq;
+        }
+        else if (diff > mask)
+        {
+            //The stream jumped ahead, everything buffered is outdated
+            reset();
+            nextSeq = seq;
+        }
+
+        final int index = seq & mask;
+        if (filled[index])
+        {
+            if (sequences[index] == seq)
+                return false;
+            buffered--;
+        }
+        byte[] slot = slots[index];
+        if (slot == null || slot.length < length)
+            slots[index] = slot = new byte[Math.max(length, 512)];
+        System.arraycopy(audio, offset, slot, 0, length);
+        lengths[index] = length;
+        timestamps[index] = timestamp;
+        sequences[index] = seq;
+        filled[index] = true;
+        buffered++;
+        return true;
+    }
+
+    /**
+     * Plays out the next frame, this has to be called every 20ms.
+     * <br>The returned view is only valid until the next decode of the decoder.
+     *
+     * @return The decoded frame, or {@code null} if the user is not talking or the decode failed
+     */
+    synchronized ShortBuffer poll()
+    {
+        if (!playing)
+        {
+            if (buffered == 0)
+                return null;
+            //Start once the target is buffered, short talk spurts start after waiting as long as the target delay
+            if (buffered < targetDelay && ++waited < targetDelay)
+                return null;
+            playing = true;
+            waited = 0;
+        }
+
+        ShortBuffer decoded;
+        int index = nextSeq & mask;
+        if (isFilled(index, nextSeq))
+        {
+            decoded = decoder.decode(slots[index], 0, lengths[index], nextSeq, timestamps[index]);
+            take(index);
+            concealed = 0;
+        }
+        else if (buffered == 0 && ++concealed > MAX_CONCEALED_FRAMES)
+        {
+            //Nothing arrived for a while, the user stopped talking
+            playing = false;
+            concealed = 0;
+            return null;
+        }
+        else
+        {
+            final char seq = (char) (nextSeq + 1);
+            index = seq & mask;
+            if (isFilled(index, seq))
+                decoded = decoder.decodeFec(slots[index], 0, lengths[index]);
+            else
+                decoded = decoder.decode(null, 0, 0, (char) -1, -1);
+        }
+        nextSeq++;
+
+        if (++stableFrames >= ADAPT_INTERVAL)
+        {
+            stableFrames = 0;
+            targetDelay = Math.max(MIN_DELAY, targetDelay - 1);
+        }
+        if (buffered > targetDelay + 2)
+        {
+            //The delay built up after a burst of packets, skip a frame to catch up again
+            index = nextSeq & mask;
+            if (isFilled(index, nextSeq))
+                take(index);
+            nextSeq++;
+        }
+        return decoded;
+    }
+
+    /**
+     * The amount of frames that are buffered before playout starts.
+     *
+     * @return The current target delay in frames
+     */
+    synchronized int getTargetDelay()
+    {
+        return targetDelay;
+    }
+
+    private boolean isFilled(int index, char seq)
+    {
+        return filled[index] && sequences[index] == seq;
+    }
+
+    private void take(int index)
+    {
+        filled[index] = false;
+        buffered--;
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < filled.length; i++)
+            filled[i] = false;
+        buffered = 0;
+        playing = false;
+        waited = 0;
+        concealed = 0;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link net.dv8tion.jda.core.audio.AudioReceiveHandler AudioReceiveHandler} which records the audio of every
+ * user into an Ogg Opus file, without decoding it.
+ * <br>The received Opus packets are stored as they are, which takes roughly 1/70 of the space of the same audio as PCM.
+ *
+ * <p>Every audio stream is written to {@code <userId>-<ssrc>.opus} in the directory of the recorder.
+ * All files start at the time the recorder was created: the time before the first packet of a user and the
+ * pauses while the user is not talking, taken from the RTP timestamps of the packets, are filled with silence.
+ * Packets that arrive out of order are dropped since Ogg pages cannot be rewritten.
+ *
+ * <p>Optionally the combined audio of all users is recorded to {@code combined.opus}, note that this
+ * has to decode, mix and encode the audio again and therefore costs a lot more CPU.
+ *
+ * <p>Pages are buffered in memory and flushed to the files periodically, so at most one flush interval of audio
+ * is lost if the process dies. Use {@link #close()} to finish all files once the recording is done.
+ *
+ * <p><b>Example</b>
+ * <pre><code>
+ * OggOpusRecorder recorder = new OggOpusRecorder(new File("recordings"));
+ * guild.getAudioManager().setReceivingHandler(recorder);
+ * ...
+ * guild.getAudioManager().setReceivingHandler(null);
+ * recorder.close();
+ * </code></pre>
+ */
+public class OggOpusRecorder implements AudioReceiveHandler, Closeable
+{
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    //Packets at most this many samples (1 second) behind the stream are late, further back the client restarted its timestamps
+    private static final int MAX_LATE_SAMPLES = AudioConnection.OPUS_SAMPLE_RATE;
+
+    private static ScheduledThreadPoolExecutor flushExecutor;
+
+    protected final File directory;
+    protected final boolean recordCombined;
+    protected final long startTime = System.nanoTime();
+    protected final ScheduledFuture<?> flushTask;
+    private final Map<Integer, Track> tracks = new ConcurrentHashMap<>();
+    private Track combinedTrack;
+    private Encoder encoder;
+    protected volatile boolean closed = false;
+
+    /**
+     * Creates a recorder which records every user into the provided directory.
+     *
+     * @param  directory
+     *         The directory, created if it does not exist
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided directory is {@code null} or an existing file
+     */
+    public OggOpusRecorder(File directory)
+    {
+        this(directory, false, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Creates a recorder which records every user into the provided directory.
+     *
+     * @param  directory
+     *         The directory, created if it does not exist
+     * @param  recordCombined
+     *         Whether the combined audio of all users should be recorded as well
+     * @param  flushInterval
+     *         The interval in milliseconds in which the buffered pages are written to the files
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided directory is {@code null} or an existing file, or the flush interval is not positive
+     */
+    public OggOpusRecorder(File directory, boolean recordCombined, long flushInterval)
+    {
+        this(directory, recordCombined, flushInterval, null);
+    }
+
+    /**
+     * Creates a recorder which records every user into the provided directory.
+     *
+     * @param  directory
+     *         The directory, created if it does not exist
+     * @param  recordCombined
+     *         Whether the combined audio of all users should be recorded as well
+     * @param  flushInterval
+     *         The interval in milliseconds in which the buffered pages are written to the files
+     * @param  executor
+     *         The executor to write the files on, or {@code null} to use an executor shared by all instances
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided directory is {@code null} or an existing file, or the flush interval is not positive
+     */
+    public OggOpusRecorder(File directory, boolean recordCombined, long flushInterval, ScheduledExecutorService executor)
+    {
+        Checks.notNull(directory, "Directory");
+        Checks.check(!directory.isFile(), "Provided directory is a file: %s", directory);
+        Checks.positive(flushInterval, "Flush interval");
+        this.directory = directory;
+        this.recordCombined = recordCombined;
+        this.flushTask = (executor == null ? getFlushExecutor() : executor).scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getFlushExecutor()
+    {
+        if (flushExecutor == null)
+        {
+            flushExecutor = new ScheduledThreadPoolExecutor(1,
+                ThreadingModel.DEFAULT.asThreadFactory(ThreadingModel.ThreadType.POOL, "AudioRecorder Flush"));
+        }
+        return flushExecutor;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * The files this recorder has written to so far.
+     *
+     * @return List of the recorded files
+     */
+    public List<File> getFiles()
+    {
+        List<File> files = new ArrayList<>();
+        for (Track track : tracks.values())
+            files.add(track.file);
+        if (combinedTrack != null)
+            files.add(combinedTrack.file);
+        return files;
+    }
+
+    @Override
+    public boolean canReceiveCombined()
+    {
+        return recordCombined && !closed;
+    }
+
+    @Override
+    public boolean canReceiveUser()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean canReceiveEncoded()
+    {
+        return !closed;
+    }
+
+    @Override
+    public void handleUserAudio(UserAudio userAudio) {}
+
+    @Override
+    public void handleEncodedAudio(EncodedAudio encodedAudio)
+    {
+        if (closed)
+            return;
+        final int ssrc = encodedAudio.getSSRC();
+        Track track = tracks.get(ssrc);
+        if (track == null)
+        {
+            track = openTrack(encodedAudio.getUser().getId() + "-" + Integer.toUnsignedString(ssrc) + ".opus", ssrc);
+            if (track == null)
+                return;
+            tracks.put(ssrc, track);
+            //The recorder might have been closed while the file was created
+            if (closed)
+            {
+                track.close();
+                return;
+            }
+        }
+
+        final byte[] audio = encodedAudio.getOpusAudio();
+        synchronized (track)
+        {
+            if (track.stream == null)
+                return;
+            final long now = System.nanoTime();
+            if (track.lastPacket == 0)
+            {
+                //Align the first packet to the start of the recording
+                track.stream.writeSilence(toSamples(now - startTime) - track.stream.getGranule());
+            }
+            else
+            {
+                final int gap = encodedAudio.getTimestamp() - track.nextTimestamp;
+                if (gap < 0 && gap >= -MAX_LATE_SAMPLES)
+                {
+                    AudioConnection.LOG.trace("Dropping late audio packet of SSRC " + Integer.toUnsignedString(ssrc) + " from recording");
+                    return;
+                }
+                //The pause cannot be longer than it actually was, a larger or negative gap means that the client restarted its timestamps.
+                //Those are resynchronized using the time since the last packet and the stream continues from the new timestamps.
+                final long elapsed = toSamples(now - track.lastPacket) - track.lastSamples;
+                if (gap < 0 || gap > elapsed + MAX_LATE_SAMPLES)
+                {
+                    AudioConnection.LOG.debug("Timestamps of SSRC " + Integer.toUnsignedString(ssrc) + " were reset, resynchronizing recording");
+                    track.stream.writeSilence(elapsed);
+                }
+                else
+                {
+                    track.stream.writeSilence(gap);
+                }
+            }
+            final int samples = track.stream.writePacket(audio, 0, audio.length);
+            track.nextTimestamp = encodedAudio.getTimestamp() + samples;
+            track.lastSamples = samples;
+            track.lastPacket = now;
+        }
+    }
+
+    @Override
+    public void handleCombinedAudio(CombinedAudio combinedAudio)
+    {
+        if (closed || !recordCombined)
+            return;
+        synchronized (this)
+        {
+            if (combinedTrack == null)
+            {
+                combinedTrack = openTrack("combined.opus", 0);
+                encoder = new Encoder();
+            }
+            if (combinedTrack == null || combinedTrack.stream == null)
+                return;
+            final int length = encoder.encode(combinedAudio.getAudioData(1.0));
+            if (length < 0)
+                return;
+            synchronized (combinedTrack)
+            {
+                if (combinedTrack.stream != null)
+                    combinedTrack.stream.writePacket(encoder.getEncoded(), 0, length);
+            }
+        }
+    }
+
+    /**
+     * Finishes all files and stops the recording.
+     * <br>The receiving handler of the {@link net.dv8tion.jda.core.managers.AudioManager AudioManager} should be
+     * removed first, audio received after this call is ignored.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (closed)
+            return;
+        closed = true;
+        flushTask.cancel(false);
+        for (Track track : tracks.values())
+            track.close();
+        if (combinedTrack != null)
+            combinedTrack.close();
+        if (encoder != null)
+            encoder.close();
+    }
+
+    protected void flush()
+    {
+        for (Track track : tracks.values())
+            track.flush();
+        final Track combined = combinedTrack;
+        if (combined != null)
+            combined.flush();
+    }
+
+    private Track openTrack(String name, int serial)
+    {
+        final File file = new File(directory, name);
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+                throw new IOException("Could not create directory " + directory);
+            FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new Track(file, new OggOpusStream(channel, serial));
+        }
+        catch (IOException e)
+        {
+            AudioConnection.LOG.fatal("Could not create recording " + file);
+            AudioConnection.LOG.log(e);
+            return null;
+        }
+    }
+
+    private static long toSamples(long nanos)
+    {
+        return nanos * AudioConnection.OPUS_SAMPLE_RATE / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static final class Track
+    {
+        private final File file;
+        private OggOpusStream stream;
+        private int nextTimestamp;
+        private long lastPacket = 0;
+        private int lastSamples;
+
+        private Track(File file, OggOpusStream stream)
+        {
+            this.file = file;
+            this.stream = stream;
+        }
+
+        private synchronized void flush()
+        {
+            if (stream == null)
+                return;
+            try
+            {
+                stream.flush();
+            }
+            catch (IOException e)
+            {
+                fail(e);
+            }
+        }
+
+        private synchronized void close()
+        {
+            if (stream == null)
+                return;
+            try
+            {
+                stream.close();
+            }
+            catch (IOException e)
+            {
+                AudioConnection.LOG.log(e);
+            }
+            stream = null;
+        }
+
+        private void fail(IOException e)
+        {
+            //Stop recording into a broken file instead of failing on every packet
+            AudioConnection.LOG.fatal("Failed to write recording " + file + ", the recording of this stream is stopped");
+            AudioConnection.LOG.log(e);
+            close();
+        }
+    }
+}
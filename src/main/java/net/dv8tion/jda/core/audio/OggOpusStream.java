@@ -0,0 +1,288 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes one logical Ogg Opus stream (RFC 7845) into a {@link java.nio.channels.FileChannel FileChannel}.
+ * <br>Packets are collected into pages of up to one second of audio, finished pages are kept in memory
+ * until {@link #flush()} writes them to the channel.
+ *
+ * <p>Not thread-safe.
+ */
+final class OggOpusStream
+{
+    static final int SAMPLES_PER_FRAME = AudioConnection.OPUS_FRAME_SIZE;
+    //TOC of a 20ms fullband CELT stereo frame followed by the silent frame, same as the silence JDA sends
+    private static final byte[] SILENCE_20MS = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE};
+    //The same frame 6 times in one code 3 packet (constant bitrate, 6 frames), used for longer gaps
+    private static final byte[] SILENCE_120MS = {(byte) 0xFB, 0x06,
+        (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFE,
+        (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFE};
+    private static final int MAX_SEGMENTS = 255;
+    private static final int PAGE_PACKETS = 50;     //1 second of 20ms packets
+    private static final int PAGE_HEADER_SIZE = 27;
+    private static final int CRC_OFFSET = 22;
+    private static final int[] CRC_TABLE = new int[256];
+
+    static
+    {
+        for (int i = 0; i < CRC_TABLE.length; i++)
+        {
+            int r = i << 24;
+            for (int j = 0; j < 8; j++)
+                r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04C11DB7 : r << 1;
+            CRC_TABLE[i] = r;
+        }
+    }
+
+    private final FileChannel channel;
+    private final int serial;
+    private final byte[] lacing = new byte[MAX_SEGMENTS];
+    private byte[] pageData = new byte[4096];
+    private ByteBuffer pages = ByteBuffer.allocate(16384).order(ByteOrder.LITTLE_ENDIAN);
+    private int segments = 0;
+    private int pageLength = 0;
+    private int pagePackets = 0;
+    private int pageSequence = 0;
+    private long granule = 0;
+
+    /**
+     * Creates a new stream and writes the identification and comment header.
+     *
+     * @param  channel
+     *         The channel of the file, closed together with this stream
+     * @param  serial
+     *         The serial number of the logical stream
+     */
+    OggOpusStream(FileChannel channel, int serial)
+    {
+        this.channel = channel;
+        this.serial = serial;
+
+        ByteBuffer head = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        head.put("OpusHead".getBytes(StandardCharsets.US_ASCII))
+            .put((byte) 1)                                  //version
+            .put((byte) AudioConnection.OPUS_CHANNEL_COUNT)
+            .putShort((short) 0)                            //pre-skip, the lookahead of the remote encoder is unknown
+            .putInt(AudioConnection.OPUS_SAMPLE_RATE)
+            .putShort((short) 0)                            //output gain
+            .put((byte) 0);                                 //channel mapping family
+        addPacket(head.array(), 0, head.capacity());
+        writePage(0x02);
+
+        final byte[] vendor = "JDA".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer tags = ByteBuffer.allocate(8 + 4 + vendor.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        tags.put("OpusTags".getBytes(StandardCharsets.US_ASCII))
+            .putInt(vendor.length)
+            .put(vendor)
+            .putInt(0);                                     //no user comments
+        addPacket(tags.array(), 0, tags.capacity());
+        writePage(0x00);
+    }
+
+    /**
+     * Appends an Opus packet to the stream.
+     *
+     * @param  packet
+     *         The array holding the packet
+     * @param  offset
+     *         The offset of the packet in the array
+     * @param  length
+     *         The length of the packet
+     *
+     * @return The amount of samples per channel of the packet, or 0 if it is malformed and was skipped
+     */
+    int writePacket(byte[] packet, int offset, int length)
+    {
+        final int samples = getSamples(packet, offset, length);
+        if (samples <= 0)
+            return 0;
+        if (segments + length / 255 + 1 > MAX_SEGMENTS)
+            writePage(0x00);
+        addPacket(packet, offset, length);
+        granule += samples;
+        if (++pagePackets >= PAGE_PACKETS)
+            writePage(0x00);
+        return samples;
+    }
+
+    /**
+     * Appends silence of the specified length, rounded down to whole 20 millisecond frames.
+     *
+     * @param  samples
+     *         The amount of samples per channel
+     */
+    void writeSilence(long samples)
+    {
+        for (; samples >= 6 * SAMPLES_PER_FRAME; samples -= 6 * SAMPLES_PER_FRAME)
+            writePacket(SILENCE_120MS, 0, SILENCE_120MS.length);
+        for (; samples >= SAMPLES_PER_FRAME; samples -= SAMPLES_PER_FRAME)
+            writePacket(SILENCE_20MS, 0, SILENCE_20MS.length);
+    }
+
+    /**
+     * Ends the current page and writes all buffered pages to the channel.
+     *
+     * @throws java.io.IOException
+     *         If the channel failed
+     */
+    void flush() throws IOException
+    {
+        if (pagePackets > 0)
+            writePage(0x00);
+        pages.flip();
+        while (pages.hasRemaining())
+            channel.write(pages);
+        pages.clear();
+    }
+
+    /**
+     * Writes the last page, flagged as end of stream, and closes the channel.
+     *
+     * @throws java.io.IOException
+     *         If the channel failed
+     */
+    void close() throws IOException
+    {
+        try
+        {
+            //The end of stream flag has to be on a page with at least one packet
+            if (pagePackets == 0)
+                writePacket(SILENCE_20MS, 0, SILENCE_20MS.length);
+            writePage(0x04);
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * The amount of samples per channel written to this stream, which is the granule position of the last packet.
+     *
+     * @return The written samples
+     */
+    long getGranule()
+    {
+        return granule;
+    }
+
+    /**
+     * Reads the amount of samples per channel of an Opus packet from its TOC byte, see RFC 6716 section 3.1.
+     *
+     * @param  packet
+     *         The array holding the packet
+     * @param  offset
+     *         The offset of the packet in the array
+     * @param  length
+     *         The length of the packet
+     *
+     * @return The samples per channel at 48KHz, or -1 if the packet is malformed
+     */
+    static int getSamples(byte[] packet, int offset, int length)
+    {
+        if (length < 1)
+            return -1;
+        final int toc = packet[offset] & 0xFF;
+        final int config = toc >> 3;
+        final int frameSize; //in samples at 48KHz
+        if (config < 12)        //SILK 10, 20, 40, 60ms
+            frameSize = config % 4 == 0 ? 480 : 960 * (config % 4);
+        else if (config < 16)   //Hybrid 10, 20ms
+            frameSize = 480 << (config % 2);
+        else                    //CELT 2.5, 5, 10, 20ms
+            frameSize = 120 << (config % 4);
+
+        final int frames;
+        switch (toc & 0x03)
+        {
+            case 0:
+                frames = 1;
+                break;
+            case 1:
+            case 2:
+                frames = 2;
+                break;
+            default:
+                if (length < 2)
+                    return -1;
+                frames = packet[offset + 1] & 0x3F;
+        }
+        return frames * frameSize;
+    }
+
+    private void addPacket(byte[] packet, int offset, int length)
+    {
+        if (pageData.length < pageLength + length)
+        {
+            byte[] data = new byte[Math.max(pageData.length * 2, pageLength + length)];
+            System.arraycopy(pageData, 0, data, 0, pageLength);
+            pageData = data;
+        }
+        System.arraycopy(packet, offset, pageData, pageLength, length);
+        pageLength += length;
+
+        //Lacing values: 255 for every full segment, the last one is below 255 and may be 0
+        for (int remaining = length; ; remaining -= 255)
+        {
+            lacing[segments++] = (byte) Math.min(remaining, 255);
+            if (remaining < 255)
+                break;
+        }
+    }
+
+    private void writePage(int headerType)
+    {
+        final int size = PAGE_HEADER_SIZE + segments + pageLength;
+        if (pages.remaining() < size)
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(pages.capacity() * 2, pages.position() + size)).order(ByteOrder.LITTLE_ENDIAN);
+            pages.flip();
+            buffer.put(pages);
+            pages = buffer;
+        }
+
+        final int start = pages.position();
+        pages.put((byte) 'O').put((byte) 'g').put((byte) 'g').put((byte) 'S')
+             .put((byte) 0)                 //version
+             .put((byte) headerType)
+             .putLong(granule)
+             .putInt(serial)
+             .putInt(pageSequence++)
+             .putInt(0)                     //checksum, computed over the page with this field set to 0
+             .put((byte) segments)
+             .put(lacing, 0, segments)
+             .put(pageData, 0, pageLength);
+
+        final byte[] array = pages.array();
+        int crc = 0;
+        for (int i = start; i < start + size; i++)
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ array[i]) & 0xFF];
+        pages.putInt(start + CRC_OFFSET, crc);
+
+        segments = 0;
+        pageLength = 0;
+        pagePackets = 0;
+    }
+}
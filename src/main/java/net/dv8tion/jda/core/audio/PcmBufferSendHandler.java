@@ -0,0 +1,75 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import java.nio.ShortBuffer;
+
+/**
+ * {@link net.dv8tion.jda.core.audio.AudioSendHandler AudioSendHandler} which provides its PCM as a {@link java.nio.ShortBuffer ShortBuffer}.
+ * <br>JDA encodes the buffer without converting it to a byte array first. If the buffer is a direct buffer in
+ * {@link java.nio.ByteOrder#nativeOrder() native order} starting at position 0, it is passed to Opus without any copy.
+ * Such a buffer can be allocated once and reused for every frame:
+ * <pre><code>
+ * ShortBuffer pcm = ByteBuffer.allocateDirect(1920 * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+ * </code></pre>
+ *
+ * <p>{@link #provide20MsAudio()} is not called by JDA for these handlers, it is only implemented for code that
+ * expects a regular AudioSendHandler.
+ */
+public interface PcmBufferSendHandler extends AudioSendHandler
+{
+    /**
+     * If {@link #canProvide()} returns true JDA will call this method to retrieve the next 20 milliseconds of audio.
+     * <br>The buffer has to contain 1920 interleaved stereo samples at 48KHz between its position and limit,
+     * its position is not changed by JDA. The buffer is not used anymore once this method is called again.
+     *
+     * @return Buffer of 20 milliseconds of PCM, or {@code null} if no audio is available
+     */
+    ShortBuffer provide20MsPcm();
+
+    /**
+     * Copies the next buffer into a byte array in the format of {@link #INPUT_FORMAT}.
+     *
+     * @return Byte array of 20 milliseconds of PCM, or {@code null} if no audio is available
+     */
+    @Override
+    default byte[] provide20MsAudio()
+    {
+        ShortBuffer pcm = provide20MsPcm();
+        if (pcm == null)
+            return null;
+        byte[] audio = new byte[pcm.remaining() * 2];
+        for (int i = 0, index = pcm.position(); i < audio.length; i += 2, index++)
+        {
+            short s = pcm.get(index);
+            audio[i] = (byte) (s >> 8);
+            audio[i + 1] = (byte) s;
+        }
+        return audio;
+    }
+
+    /**
+     * PCM handlers never provide Opus.
+     *
+     * @return false
+     */
+    @Override
+    default boolean isOpus()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * {@link net.dv8tion.jda.core.audio.PrefetchingSendHandler PrefetchingSendHandler} for a
+ * {@link net.dv8tion.jda.core.audio.PcmBufferSendHandler PcmBufferSendHandler}.
+ * <br>The PCM of the wrapped handler is copied into direct buffers that are allocated once per slot,
+ * which JDA encodes without any further copy.
+ */
+public class PcmPrefetchingSendHandler extends PrefetchingSendHandler implements PcmBufferSendHandler
+{
+    protected final ShortBuffer[] buffers;
+
+    /**
+     * Creates a handler which buffers {@link #DEFAULT_DEPTH} milliseconds of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null}
+     */
+    public PcmPrefetchingSendHandler(PcmBufferSendHandler handler)
+    {
+        this(handler, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates a handler which buffers the specified amount of audio of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     * @param  depth
+     *         The amount of audio to buffer in milliseconds, rounded up to whole 20 millisecond frames
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null} or the depth is not between 20 and 5000 milliseconds
+     */
+    public PcmPrefetchingSendHandler(PcmBufferSendHandler handler, int depth)
+    {
+        this(handler, depth, null);
+    }
+
+    /**
+     * Creates a handler which buffers the specified amount of audio of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     * @param  depth
+     *         The amount of audio to buffer in milliseconds, rounded up to whole 20 millisecond frames
+     * @param  executor
+     *         The executor to run the prefetching on, or {@code null} to use an executor shared by all instances
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null} or the depth is not between 20 and 5000 milliseconds
+     */
+    public PcmPrefetchingSendHandler(PcmBufferSendHandler handler, int depth, ScheduledExecutorService executor)
+    {
+        super(handler, depth, executor);
+        this.buffers = new ShortBuffer[frames.length];
+    }
+
+    @Override
+    public ShortBuffer provide20MsPcm()
+    {
+        final long read = readIndex;
+        if (read >= writeIndex)
+            return null;
+        final ShortBuffer pcm = buffers[(int) (read % buffers.length)];
+        readIndex = read + 1;
+        providedFrames++;
+        return pcm;
+    }
+
+    @Override
+    public byte[] provide20MsAudio()
+    {
+        return PcmBufferSendHandler.super.provide20MsAudio();
+    }
+
+    @Override
+    protected boolean fetchFrame(long index)
+    {
+        final ShortBuffer pcm = ((PcmBufferSendHandler) handler).provide20MsPcm();
+        if (pcm == null || !pcm.hasRemaining())
+            return false;
+
+        final int slot = (int) (index % buffers.length);
+        ShortBuffer buffer = buffers[slot];
+        if (buffer == null || buffer.capacity() < pcm.remaining())
+            buffer = buffers[slot] = ByteBuffer.allocateDirect(pcm.remaining() * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        buffer.clear();
+        buffer.put(pcm.duplicate());
+        buffer.flip();
+        return true;
+    }
+
+    @Override
+    protected void clearFrames()
+    {
+        Arrays.fill(buffers, null);
+    }
+}
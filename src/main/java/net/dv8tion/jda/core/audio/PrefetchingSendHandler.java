@@ -0,0 +1,349 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link net.dv8tion.jda.core.audio.AudioSendHandler AudioSendHandler} which pulls frames from another handler ahead of time.
+ * <br>Frames are requested on a worker thread and kept in a bounded ring buffer, from which JDA takes the frame that is due
+ * without waiting for the wrapped handler. Latency spikes of the wrapped handler (decoding, resampling, GC) shorter than
+ * the buffered audio therefore do not cause stutter, at the cost of the audio starting and reacting to changes later.
+ *
+ * <p>The buffer is only filled while JDA requests frames, prefetching pauses one second after the last request
+ * and resumes with the next one. Use {@link #shutdown()} to stop it right away and release the buffered frames.
+ *
+ * <p>Frames of the wrapped handler are copied into arrays that are allocated once per slot, so it may reuse its arrays.
+ * An array returned by {@link #provide20MsAudio()} is reused for a later frame once the method is called again.
+ * <br>To keep the zero-copy path of a
+ * {@link net.dv8tion.jda.core.audio.PcmBufferSendHandler PcmBufferSendHandler}, wrap it in a
+ * {@link net.dv8tion.jda.core.audio.PcmPrefetchingSendHandler PcmPrefetchingSendHandler} instead.
+ *
+ * <p><b>Example</b>
+ * <pre><code>
+ * guild.getAudioManager().setSendingHandler(new PrefetchingSendHandler(handler, 200));
+ * </code></pre>
+ */
+public class PrefetchingSendHandler implements AudioSendHandler
+{
+    public static final int DEFAULT_DEPTH = 200;
+    private static final long FILL_INTERVAL = AudioConnection.OPUS_FRAME_TIME_AMOUNT / 2;
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+    //20 milliseconds of 16bit stereo PCM, Opus frames are smaller
+    private static final int FRAME_BYTES = AudioConnection.OPUS_FRAME_SIZE * AudioConnection.OPUS_CHANNEL_COUNT * 2;
+
+    private static ScheduledThreadPoolExecutor sharedExecutor;
+
+    protected final AudioSendHandler handler;
+    protected final ScheduledExecutorService executor;
+    //Single producer (fill task) and single consumer (sending thread), so the indices are enough to synchronize the slots.
+    //One more slot than frames, the frame JDA is sending is not overwritten before the next frame is requested
+    protected final int depth;
+    protected final byte[][] frames;
+    protected final int[] frameLengths;
+    protected volatile long writeIndex = 0;
+    protected volatile long readIndex = 0;
+    protected volatile long lastRequest = 0;
+    protected volatile boolean shutdown = false;
+    protected volatile ScheduledFuture<?> fillTask;
+    //A cancelled fill task may still be running when the next one starts
+    private final AtomicBoolean filling = new AtomicBoolean();
+
+    protected boolean streaming = false;
+    protected volatile long underruns = 0;
+    protected volatile long providedFrames = 0;
+    private int providedLength = 0;
+
+    /**
+     * Creates a handler which buffers {@link #DEFAULT_DEPTH} milliseconds of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null}
+     */
+    public PrefetchingSendHandler(AudioSendHandler handler)
+    {
+        this(handler, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates a handler which buffers the specified amount of audio of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     * @param  depth
+     *         The amount of audio to buffer in milliseconds, rounded up to whole 20 millisecond frames
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null} or the depth is not between 20 and 5000 milliseconds
+     */
+    public PrefetchingSendHandler(AudioSendHandler handler, int depth)
+    {
+        this(handler, depth, null);
+    }
+
+    /**
+     * Creates a handler which buffers the specified amount of audio of the provided handler.
+     *
+     * @param  handler
+     *         The handler to prefetch from
+     * @param  depth
+     *         The amount of audio to buffer in milliseconds, rounded up to whole 20 millisecond frames
+     * @param  executor
+     *         The executor to run the prefetching on, or {@code null} to use an executor shared by all instances
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided handler is {@code null} or the depth is not between 20 and 5000 milliseconds
+     */
+    public PrefetchingSendHandler(AudioSendHandler handler, int depth, ScheduledExecutorService executor)
+    {
+        Checks.notNull(handler, "AudioSendHandler");
+        Checks.check(depth >= AudioConnection.OPUS_FRAME_TIME_AMOUNT && depth <= 5000,
+            "Depth must be between 20 and 5000 milliseconds, provided: %d", depth);
+        this.handler = handler;
+        this.executor = executor == null ? getSharedExecutor() : executor;
+        this.depth = (depth + AudioConnection.OPUS_FRAME_TIME_AMOUNT - 1) / AudioConnection.OPUS_FRAME_TIME_AMOUNT;
+        this.frames = new byte[this.depth + 1][];
+        this.frameLengths = new int[this.depth + 1];
+    }
+
+    private static synchronized ScheduledExecutorService getSharedExecutor()
+    {
+        if (sharedExecutor == null)
+        {
+            sharedExecutor = new ScheduledThreadPoolExecutor(2,
+                ThreadingModel.DEFAULT.asThreadFactory(ThreadingModel.ThreadType.POOL, "AudioPrefetch Pool"));
+        }
+        return sharedExecutor;
+    }
+
+    public AudioSendHandler getHandler()
+    {
+        return handler;
+    }
+
+    /**
+     * The capacity of the buffer in frames of 20 milliseconds.
+     *
+     * @return The capacity
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * The amount of frames that are currently buffered.
+     *
+     * @return The buffered frames
+     */
+    public int getBufferedFrames()
+    {
+        return (int) (writeIndex - readIndex);
+    }
+
+    /**
+     * The amount of times the buffer ran empty while audio was being sent.
+     * <br>Each underrun is an audible gap, a steadily increasing count means the wrapped handler
+     * cannot keep up or the depth is too small.
+     *
+     * @return The amount of underruns
+     */
+    public long getUnderruns()
+    {
+        return underruns;
+    }
+
+    /**
+     * The amount of frames that have been provided to JDA.
+     *
+     * @return The amount of provided frames
+     */
+    public long getProvidedFrames()
+    {
+        return providedFrames;
+    }
+
+    @Override
+    public boolean canProvide()
+    {
+        if (shutdown)
+            return false;
+        lastRequest = System.currentTimeMillis();
+        if (fillTask == null)
+            startPrefetch();
+
+        if (readIndex < writeIndex)
+        {
+            streaming = true;
+            return true;
+        }
+        if (streaming)
+        {
+            streaming = false;
+            underruns++;
+        }
+        return false;
+    }
+
+    @Override
+    public byte[] provide20MsAudio()
+    {
+        final byte[] frame = provideFrame();
+        if (frame == null)
+            return null;
+        //Opus frames vary in length, only frames filling their slot can be provided without a copy
+        return providedLength == frame.length ? frame : Arrays.copyOf(frame, providedLength);
+    }
+
+    /**
+     * Used by JDA to send frames straight from their slot.
+     * <br>The length of the returned frame is available from {@link #getProvidedLength()}.
+     *
+     * @return The slot array of the next frame, or {@code null} if no frame is buffered
+     */
+    byte[] provideFrame()
+    {
+        final long read = readIndex;
+        if (read >= writeIndex)
+            return null;
+        final int slot = (int) (read % frames.length);
+        final byte[] frame = frames[slot];
+        providedLength = frameLengths[slot];
+        readIndex = read + 1;
+        providedFrames++;
+        return frame;
+    }
+
+    /**
+     * The length of the frame last returned by {@link #provideFrame()}.
+     *
+     * @return The length of the frame
+     */
+    int getProvidedLength()
+    {
+        return providedLength;
+    }
+
+    @Override
+    public boolean isOpus()
+    {
+        return handler.isOpus();
+    }
+
+    /**
+     * Stops prefetching and drops all buffered frames.
+     * <br>This handler provides no more audio afterwards.
+     */
+    public synchronized void shutdown()
+    {
+        shutdown = true;
+        if (fillTask != null)
+        {
+            fillTask.cancel(false);
+            fillTask = null;
+        }
+        clearFrames();
+    }
+
+    protected synchronized void startPrefetch()
+    {
+        if (fillTask == null && !shutdown)
+            fillTask = executor.scheduleAtFixedRate(this::fill, 0, FILL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    protected void fill()
+    {
+        if (!filling.compareAndSet(false, true))
+            return;
+        try
+        {
+            if (System.currentTimeMillis() - lastRequest > IDLE_TIMEOUT)
+            {
+                stopPrefetch();
+                return;
+            }
+            long write = writeIndex;
+            while (!shutdown && write - readIndex < depth && handler.canProvide())
+            {
+                if (!fetchFrame(write))
+                    break;
+                writeIndex = ++write;
+            }
+        }
+        catch (Exception e)
+        {
+            AudioConnection.LOG.log(e);
+        }
+        finally
+        {
+            filling.set(false);
+        }
+    }
+
+    /**
+     * Requests the next frame from the wrapped handler and stores it at the provided index.
+     * <br>Only called by the fill task, while the slot of the index is free.
+     *
+     * @param  index
+     *         The index of the frame
+     *
+     * @return False, if the handler provided no audio
+     */
+    protected boolean fetchFrame(long index)
+    {
+        final byte[] frame = handler.provide20MsAudio();
+        if (frame == null || frame.length == 0)
+            return false;
+        //The handler may reuse its array for the next frame
+        final int slot = (int) (index % frames.length);
+        byte[] buffer = frames[slot];
+        if (buffer == null || buffer.length < frame.length)
+            buffer = frames[slot] = new byte[Math.max(frame.length, FRAME_BYTES)];
+        System.arraycopy(frame, 0, buffer, 0, frame.length);
+        frameLengths[slot] = frame.length;
+        return true;
+    }
+
+    /**
+     * Drops all buffered frames.
+     */
+    protected void clearFrames()
+    {
+        Arrays.fill(frames, null);
+    }
+
+    private synchronized void stopPrefetch()
+    {
+        //A request may have arrived since the idle check
+        if (fillTask != null && System.currentTimeMillis() - lastRequest > IDLE_TIMEOUT)
+        {
+            fillTask.cancel(false);
+            fillTask = null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio;
+
+import com.iwebpp.crypto.TweetNaclFast;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Reusable buffer for incoming audio packets of one connection.
+ * <br>Packets are received and decrypted in place, the header fields and the location of the Opus audio
+ * are kept in fields instead of creating an {@link net.dv8tion.jda.core.audio.AudioPacket AudioPacket}.
+ *
+ * <p>Not thread-safe, a buffer is only used by one thread at a time. Buffers are handed from the receiving
+ * thread to the decode pool by the {@link net.dv8tion.jda.core.audio.DecodeDispatcher DecodeDispatcher}.
+ */
+final class ReceiveBuffer
+{
+    //Same size the receiving thread always used for its packets
+    static final int MAX_PACKET_SIZE = 1920;
+    //Places the header so that the box starts right after the zero bytes the cipher needs at the start of the buffer
+    private static final int PACKET_OFFSET = TweetNaclFast.SecretBox.boxzerobytesLength - AudioPacket.RTP_HEADER_BYTE_LENGTH;
+
+    private final byte[] buffer = new byte[PACKET_OFFSET + MAX_PACKET_SIZE];
+    private final byte[] nonce = new byte[AudioPacket.XSALSA20_NONCE_LENGTH];
+    private final DatagramPacket packet = new DatagramPacket(buffer, PACKET_OFFSET, MAX_PACKET_SIZE);
+    private final ByteBuffer view = ByteBuffer.wrap(buffer);
+
+    private int length;
+    private char sequence;
+    private int timestamp;
+    private int ssrc;
+    private int audioOffset;
+    private int audioLength;
+
+    /**
+     * Receives the next packet from the provided socket, blocking until one arrives or the socket times out.
+     *
+     * @param  socket
+     *         The UDP socket
+     *
+     * @throws java.io.IOException
+     *         If the socket failed or timed out
+     */
+    void receive(DatagramSocket socket) throws IOException
+    {
+        packet.setData(buffer, PACKET_OFFSET, MAX_PACKET_SIZE);
+        socket.receive(packet);
+        length = packet.getLength();
+    }
+
+    /**
+     * Receives the next packet from the provided non-blocking channel.
+     *
+     * @param  channel
+     *         The UDP channel
+     *
+     * @throws java.io.IOException
+     *         If the channel failed
+     *
+     * @return True, if a packet was received, false if no packet was available
+     */
+    boolean receive(DatagramChannel channel) throws IOException
+    {
+        view.clear();
+        view.position(PACKET_OFFSET);
+        if (channel.receive(view) == null)
+            return false;
+        length = view.position() - PACKET_OFFSET;
+        return true;
+    }
+
+    /**
+     * Reads the sequence, timestamp and SSRC from the unencrypted header of the last received packet.
+     * <br>This is enough to route the packet, {@link #decrypt(TweetNaclFast.SecretBox)} reads the header again.
+     *
+     * @return True, if the packet is long enough to hold a header
+     */
+    boolean parseHeader()
+    {
+        if (length < AudioPacket.RTP_HEADER_BYTE_LENGTH)
+            return false;
+        sequence = (char) ((buffer[PACKET_OFFSET + AudioPacket.SEQ_INDEX] & 0xFF) << 8 | buffer[PACKET_OFFSET + AudioPacket.SEQ_INDEX + 1] & 0xFF);
+        timestamp = readInt(buffer, PACKET_OFFSET + AudioPacket.TIMESTAMP_INDEX);
+        ssrc = readInt(buffer, PACKET_OFFSET + AudioPacket.SSRC_INDEX);
+        return true;
+    }
+
+    /**
+     * Decrypts the last received packet in place.
+     *
+     * @param  boxer
+     *         The SecretBox of the current secret key
+     *
+     * @return True, if the packet was decrypted, false if it was malformed or could not be authenticated
+     */
+    boolean decrypt(TweetNaclFast.SecretBox boxer)
+    {
+        if (length < AudioPacket.RTP_HEADER_BYTE_LENGTH + TweetNaclFast.SecretBox.overheadLength)
+            return false;
+
+        //The header is overwritten by the cipher, it is kept in the nonce which is needed anyway
+        System.arraycopy(buffer, PACKET_OFFSET, nonce, 0, AudioPacket.RTP_HEADER_BYTE_LENGTH);
+        final int boxLength = length - AudioPacket.RTP_HEADER_BYTE_LENGTH;
+        if (!boxer.openInPlace(buffer, boxLength, nonce))
+            return false;
+
+        sequence = (char) ((nonce[AudioPacket.SEQ_INDEX] & 0xFF) << 8 | nonce[AudioPacket.SEQ_INDEX + 1] & 0xFF);
+        timestamp = readInt(nonce, AudioPacket.TIMESTAMP_INDEX);
+        ssrc = readInt(nonce, AudioPacket.SSRC_INDEX);
+
+        final int start = TweetNaclFast.SecretBox.zerobytesLength;
+        final int end = start + boxLength - TweetNaclFast.SecretBox.overheadLength;
+        int i = start;
+        //Skip the RTP header extension, see AudioPacket(byte[])
+        if ((nonce[AudioPacket.RTP_VERSION_PAD_EXTEND_INDEX] & 0b0001_0000) != 0
+            && end - start > 4 && buffer[start] == (byte) 0xBE && buffer[start + 1] == (byte) 0xDE)
+        {
+            final short headerLength = (short) (buffer[start + 2] << 8 | buffer[start + 3]);
+            i = start + 4;
+            for (; i < headerLength + start + 4 && i < end; i++)
+                i += (buffer[i] & 0x0F) + 1;
+            while (i < end && buffer[i] == 0)
+                i++;
+            if (i > end)
+                return false;
+        }
+        audioOffset = i;
+        audioLength = end - i;
+        return true;
+    }
+
+    char getSequence()
+    {
+        return sequence;
+    }
+
+    int getTimestamp()
+    {
+        return timestamp;
+    }
+
+    int getSSRC()
+    {
+        return ssrc;
+    }
+
+    /**
+     * The array holding the decrypted Opus audio, starting at {@link #getAudioOffset()}.
+     * <br>Only valid until the next packet is received.
+     *
+     * @return The backing array
+     */
+    byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    int getAudioOffset()
+    {
+        return audioOffset;
+    }
+
+    int getAudioLength()
+    {
+        return audioLength;
+    }
+
+    boolean isAudio(byte[] audio)
+    {
+        if (audio.length != audioLength)
+            return false;
+        for (int i = 0; i < audioLength; i++)
+        {
+            if (buffer[audioOffset + i] != audio[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] array, int index)
+    {
+        return (array[index] & 0xFF) << 24 | (array[index + 1] & 0xFF) << 16
+             | (array[index + 2] & 0xFF) << 8 | array[index + 3] & 0xFF;
+    }
+}
@@ -16,14 +16,63 @@
 
 package net.dv8tion.jda.core.audio.factory;
 
+import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.utils.Checks;
+
 /**
  * The default implementation of the {@link net.dv8tion.jda.core.audio.factory.IAudioSendFactory IAudioSendFactory}.
+ * <br>All created {@link net.dv8tion.jda.core.audio.factory.DefaultSendSystem DefaultSendSystems} are paced by a
+ * {@link net.dv8tion.jda.core.audio.factory.FrameClock FrameClock}, by default the
+ * {@link FrameClock#getShared(net.dv8tion.jda.core.utils.ThreadingModel) shared clock} of the
+ * {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} of each connection.
  */
 public class DefaultSendFactory implements IAudioSendFactory
 {
+    private final FrameClock clock;
+
+    /**
+     * Creates a factory using the {@link FrameClock#getShared(net.dv8tion.jda.core.utils.ThreadingModel) shared FrameClock}
+     * of the {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} of each connection.
+     */
+    public DefaultSendFactory()
+    {
+        this.clock = null;
+    }
+
+    /**
+     * Creates a factory using the provided clock.
+     *
+     * @param  clock
+     *         The clock pacing the created send systems
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided clock is {@code null}
+     */
+    public DefaultSendFactory(FrameClock clock)
+    {
+        Checks.notNull(clock, "FrameClock");
+        this.clock = clock;
+    }
+
+    /**
+     * The clock pacing the created send systems.
+     *
+     * @return The clock, or {@code null} if the shared clock of each connection's model is used
+     */
+    public FrameClock getClock()
+    {
+        return clock;
+    }
+
     @Override
     public IAudioSendSystem createSendSystem(IPacketProvider packetProvider)
     {
-        return new DefaultSendSystem(packetProvider);
+        return new DefaultSendSystem(packetProvider, clock != null ? clock : getSharedClock(packetProvider));
+    }
+
+    static FrameClock getSharedClock(IPacketProvider packetProvider)
+    {
+        JDAImpl api = (JDAImpl) packetProvider.getConnectedChannel().getJDA();
+        return FrameClock.getShared(api.getThreadingModel());
     }
 }
@@ -17,100 +17,92 @@
 package net.dv8tion.jda.core.audio.factory;
 
 import net.dv8tion.jda.core.audio.AudioConnection;
-import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
-import net.dv8tion.jda.core.utils.SimpleLog;
+import net.dv8tion.jda.core.utils.Checks;
 
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.NoRouteToHostException;
 import java.net.SocketException;
 
-import static net.dv8tion.jda.core.audio.AudioConnection.OPUS_FRAME_TIME_AMOUNT;
-
 /**
  * The default implementation of the {@link net.dv8tion.jda.core.audio.factory.IAudioSendSystem IAudioSendSystem}.
- * <br>This implementation uses a Java thread, named based on: {@link IPacketProvider#getIdentifier()} + " Sending Thread".
+ * <br>This implementation sends the packets of the connection from a {@link net.dv8tion.jda.core.audio.factory.FrameClock FrameClock},
+ * by default the {@link FrameClock#getShared(net.dv8tion.jda.core.utils.ThreadingModel) shared clock} which paces the audio
+ * of all connections of the process that use the same {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel}.
  */
 public class DefaultSendSystem implements IAudioSendSystem
 {
     private final IPacketProvider packetProvider;
-    private Thread sendThread;
+    private final FrameClock clock;
+    private FrameClock.Registration registration;
 
     public DefaultSendSystem(IPacketProvider packetProvider)
     {
+        this(packetProvider, DefaultSendFactory.getSharedClock(packetProvider));
+    }
+
+    public DefaultSendSystem(IPacketProvider packetProvider, FrameClock clock)
+    {
+        Checks.notNull(clock, "FrameClock");
         this.packetProvider = packetProvider;
+        this.clock = clock;
     }
 
     @Override
-    public void start()
+    public synchronized void start()
     {
+        if (registration != null)
+            return;
         final DatagramSocket udpSocket = packetProvider.getUdpSocket();
-
-        sendThread = new Thread(AudioManagerImpl.AUDIO_THREADS, () ->
+        registration = clock.register(packetProvider.getIdentifier() + " Sending", deadline ->
         {
-            long lastFrameSent = System.currentTimeMillis();
-            while (!udpSocket.isClosed() && !sendThread.isInterrupted())
+            if (udpSocket.isClosed())
             {
-                try
-                {
-                    boolean changeTalking = (System.currentTimeMillis() - lastFrameSent) > OPUS_FRAME_TIME_AMOUNT;
-                    DatagramPacket packet = packetProvider.getNextPacket(changeTalking);
+                shutdown();
+                return;
+            }
+            try
+            {
+                //Only change the talking indicator if we are more than a frame behind
+                boolean changeTalking = System.nanoTime() - deadline > FrameClock.FRAME_NANOS;
+                DatagramPacket packet = packetProvider.getNextPacket(changeTalking);
 
-                    if (packet != null)
-                        udpSocket.send(packet);
-                }
-                catch (NoRouteToHostException e)
-                {
-                    packetProvider.onConnectionLost();
-                }
-                catch (SocketException e)
-                {
-                    //Most likely the socket has been closed due to the audio connection be closed. Next iteration will kill loop.
-                }
-                catch (Exception e)
-                {
-                    AudioConnection.LOG.log(e);
-                }
-                finally
-                {
-                    long sleepTime = (OPUS_FRAME_TIME_AMOUNT) - (System.currentTimeMillis() - lastFrameSent);
-                    if (sleepTime > 0)
-                    {
-                        try
-                        {
-                            Thread.sleep(sleepTime);
-                        }
-                        catch (InterruptedException e)
-                        {
-                            //We've been asked to stop.
-                            Thread.currentThread().interrupt();
-                        }
-                    }
-                    if (System.currentTimeMillis() < lastFrameSent + 60) // If the sending didn't took longer than 60ms (3 times the time frame)
-                    {
-                        lastFrameSent += OPUS_FRAME_TIME_AMOUNT; // increase lastFrameSent
-                    }
-                    else
-                    {
-                        lastFrameSent = System.currentTimeMillis(); // else reset lastFrameSent to current time
-                    }
-                }
+                if (packet != null)
+                    udpSocket.send(packet);
+            }
+            catch (NoRouteToHostException e)
+            {
+                packetProvider.onConnectionLost();
+            }
+            catch (SocketException e)
+            {
+                //Most likely the socket has been closed due to the audio connection be closed. Next frame will stop the task.
+            }
+            catch (Exception e)
+            {
+                AudioConnection.LOG.log(e);
             }
         });
-        sendThread.setUncaughtExceptionHandler((thread, throwable) ->
-        {
-            SimpleLog.getLog("DefaultSendSystem").log(throwable);
-            start();
-        });
-        sendThread.setName(packetProvider.getIdentifier() + " Sending Thread");
-        sendThread.setPriority((Thread.NORM_PRIORITY + Thread.MAX_PRIORITY) / 2);
-        sendThread.start();
+    }
+
+    /**
+     * The {@link net.dv8tion.jda.core.audio.factory.FrameClock.Registration Registration} of this system,
+     * which provides metrics about the pacing of the sent packets.
+     *
+     * @return The registration, or {@code null} if this system is not running
+     */
+    public synchronized FrameClock.Registration getRegistration()
+    {
+        return registration;
     }
 
     @Override
-    public void shutdown()
+    public synchronized void shutdown()
     {
-        if (sendThread != null)
-            sendThread.interrupt();
+        if (registration != null)
+        {
+            registration.cancel();
+            registration = null;
+        }
     }
 }
@@ -0,0 +1,439 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio.factory;
+
+import net.dv8tion.jda.core.audio.AudioConnection;
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.dv8tion.jda.core.audio.AudioConnection.OPUS_FRAME_TIME_AMOUNT;
+
+/**
+ * Clock which paces the audio of many connections with a single high-resolution timer.
+ * <br>One clock thread wakes up every 20 milliseconds using {@link java.util.concurrent.locks.LockSupport#parkNanos(long) parkNanos}
+ * and hands the frame to a small pool of workers, each of which runs the {@link FrameTask tasks} of its share of the connections.
+ *
+ * <p>Frames are scheduled at fixed points in time, so the pacing does not drift by the time spent running tasks
+ * or by inaccurate wake-ups. If the clock falls behind by more than 3 frames (for example because the process was suspended),
+ * the missed frames are skipped instead of being sent in a burst.
+ *
+ * <p>The threads are daemon threads, they are started on the first registration and sleep while nothing is registered.
+ *
+ * @see net.dv8tion.jda.core.audio.factory.DefaultSendFactory
+ */
+public class FrameClock
+{
+    public static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(OPUS_FRAME_TIME_AMOUNT);
+    public static final int DEFAULT_WORKERS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int MAX_LATE_FRAMES = 3;
+
+    private static final Map<ThreadingModel, FrameClock> shared = new HashMap<>();
+
+    protected final ThreadingModel threadingModel;
+    protected final Worker[] workers;
+    protected final List<Registration> registrations = new CopyOnWriteArrayList<>();
+    protected final AtomicLong skippedFrames = new AtomicLong();
+    protected volatile Thread clockThread;
+    protected volatile boolean shutdown = false;
+
+    /**
+     * Creates a clock with {@link #DEFAULT_WORKERS} workers.
+     */
+    public FrameClock()
+    {
+        this(DEFAULT_WORKERS, ThreadingModel.DEFAULT);
+    }
+
+    /**
+     * Creates a clock with the specified amount of workers.
+     *
+     * @param  workers
+     *         The amount of worker threads running the frame tasks
+     * @param  threadingModel
+     *         The {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} creating the threads
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the amount is not positive or the threading model is {@code null}
+     */
+    public FrameClock(int workers, ThreadingModel threadingModel)
+    {
+        Checks.positive(workers, "Workers");
+        Checks.notNull(threadingModel, "ThreadingModel");
+        this.threadingModel = threadingModel;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++)
+            this.workers[i] = new Worker(i + 1);
+    }
+
+    /**
+     * The clock shared by all connections of the process that use the {@link ThreadingModel#DEFAULT default ThreadingModel}.
+     *
+     * @return The shared clock
+     *
+     * @see    #getShared(net.dv8tion.jda.core.utils.ThreadingModel)
+     */
+    public static FrameClock getShared()
+    {
+        return getShared(ThreadingModel.DEFAULT);
+    }
+
+    /**
+     * The clock used by {@link net.dv8tion.jda.core.audio.factory.DefaultSendFactory DefaultSendFactory}, shared by
+     * all connections of the process whose {@link net.dv8tion.jda.core.JDA JDA} instance uses the provided model.
+     * <br>The threads of the clock are created by that model.
+     *
+     * @param  threadingModel
+     *         The {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} of the connections
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided model is {@code null}
+     *
+     * @return The shared clock of the model
+     */
+    public static synchronized FrameClock getShared(ThreadingModel threadingModel)
+    {
+        Checks.notNull(threadingModel, "ThreadingModel");
+        return shared.computeIfAbsent(threadingModel, model -> new FrameClock(DEFAULT_WORKERS, model));
+    }
+
+    /**
+     * Registers a task that is run once per frame, until the returned registration is cancelled.
+     *
+     * @param  name
+     *         The name of the task, used for logging and metrics
+     * @param  task
+     *         The task
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If any of the provided arguments is {@code null}
+     * @throws java.lang.IllegalStateException
+     *         If the clock has been shut down
+     *
+     * @return The registration of the task
+     */
+    public Registration register(String name, FrameTask task)
+    {
+        Checks.notNull(name, "Name");
+        Checks.notNull(task, "Task");
+        if (shutdown)
+            throw new IllegalStateException("FrameClock has been shut down");
+
+        Worker worker = workers[0];
+        for (Worker w : workers)
+        {
+            if (w.tasks.size() < worker.tasks.size())
+                worker = w;
+        }
+        Registration registration = new Registration(name, task, worker);
+        worker.tasks.add(registration);
+        registrations.add(registration);
+        start();
+        return registration;
+    }
+
+    /**
+     * All current registrations, useful to monitor the lateness of the connections.
+     *
+     * @return Immutable list of the registrations
+     */
+    public List<Registration> getRegistrations()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(registrations));
+    }
+
+    /**
+     * The amount of frames the clock skipped because it fell too far behind.
+     *
+     * @return The amount of skipped frames
+     */
+    public long getSkippedFrames()
+    {
+        return skippedFrames.get();
+    }
+
+    /**
+     * Stops all threads of this clock, registered tasks are no longer run.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        Thread clock = clockThread;
+        if (clock != null)
+            LockSupport.unpark(clock);
+        for (Worker worker : workers)
+        {
+            if (worker.thread != null)
+                LockSupport.unpark(worker.thread);
+        }
+    }
+
+    protected synchronized void start()
+    {
+        if (clockThread != null)
+        {
+            LockSupport.unpark(clockThread);
+            return;
+        }
+        for (Worker worker : workers)
+        {
+            worker.thread = newThread(worker, "FrameClock Worker " + worker.id);
+            worker.thread.start();
+        }
+        clockThread = newThread(this::runClock, "FrameClock");
+        clockThread.start();
+    }
+
+    private Thread newThread(Runnable task, String name)
+    {
+        Thread thread = threadingModel.newThread(ThreadingModel.ThreadType.AUDIO_SEND, task, name);
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, throwable) -> AudioConnection.LOG.log(throwable));
+        return thread;
+    }
+
+    private void runClock()
+    {
+        long deadline = System.nanoTime();
+        while (!shutdown)
+        {
+            if (registrations.isEmpty())
+            {
+                //Nothing to pace, sleep until the next registration
+                LockSupport.park(this);
+                deadline = System.nanoTime();
+                continue;
+            }
+
+            long now = System.nanoTime();
+            while (deadline - now > 0 && !shutdown)
+            {
+                LockSupport.parkNanos(this, deadline - now);
+                now = System.nanoTime();
+            }
+
+            if (now - deadline > MAX_LATE_FRAMES * FRAME_NANOS)
+            {
+                final long skipped = (now - deadline) / FRAME_NANOS;
+                skippedFrames.addAndGet(skipped);
+                AudioConnection.LOG.debug("FrameClock fell behind, skipping " + skipped + " frames");
+                deadline += skipped * FRAME_NANOS;
+            }
+
+            for (Worker worker : workers)
+                worker.tick(deadline);
+            deadline += FRAME_NANOS;
+        }
+    }
+
+    /**
+     * A task run once per frame, typically sending the next audio packet of a connection.
+     */
+    @FunctionalInterface
+    public interface FrameTask
+    {
+        /**
+         * Runs the task for the frame that is due at the specified time.
+         *
+         * @param  deadline
+         *         The {@link System#nanoTime() nanoTime} at which the frame was due
+         */
+        void run(long deadline);
+    }
+
+    protected final class Worker implements Runnable
+    {
+        private final int id;
+        private final List<Registration> tasks = new CopyOnWriteArrayList<>();
+        //Deadlines only ever increase, comparing them tells whether a frame is pending or still running
+        private volatile long nextDeadline = Long.MIN_VALUE;
+        private volatile long startedDeadline = Long.MIN_VALUE;
+        private volatile long completedDeadline = Long.MIN_VALUE;
+        private volatile Thread thread;
+
+        private Worker(int id)
+        {
+            this.id = id;
+        }
+
+        private void tick(long deadline)
+        {
+            if (nextDeadline != completedDeadline)
+            {
+                //Still busy with the previous frame, this one will be late or replaced by the next one
+                for (Registration registration : tasks)
+                    registration.missedFrames++;
+            }
+            nextDeadline = deadline;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run()
+        {
+            while (!shutdown)
+            {
+                final long deadline = nextDeadline;
+                if (deadline == startedDeadline)
+                {
+                    LockSupport.park(this);
+                    continue;
+                }
+                startedDeadline = deadline;
+                for (Registration registration : tasks)
+                    registration.run(deadline);
+                completedDeadline = deadline;
+            }
+        }
+    }
+
+    /**
+     * A task registered with a {@link net.dv8tion.jda.core.audio.factory.FrameClock FrameClock}.
+     * <br>Keeps metrics about how late the task ran compared to the frame it was run for.
+     */
+    public final class Registration
+    {
+        private final String name;
+        private final FrameTask task;
+        private final Worker worker;
+        private volatile boolean cancelled = false;
+        private volatile long lastLateness = 0;
+        private volatile long maxLateness = 0;
+        private volatile long averageLateness = 0;
+        private volatile long frames = 0;
+        private volatile long missedFrames = 0;
+
+        private Registration(String name, FrameTask task, Worker worker)
+        {
+            this.name = name;
+            this.task = task;
+            this.worker = worker;
+        }
+
+        private void run(long deadline)
+        {
+            if (cancelled)
+                return;
+            try
+            {
+                task.run(deadline);
+            }
+            catch (Exception e)
+            {
+                AudioConnection.LOG.log(e);
+            }
+            final long lateness = Math.max(0, System.nanoTime() - deadline);
+            lastLateness = lateness;
+            if (lateness > maxLateness)
+                maxLateness = lateness;
+            //Exponential moving average over roughly the last 16 frames
+            averageLateness = frames == 0 ? lateness : averageLateness + (lateness - averageLateness) / 16;
+            frames++;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Time between the scheduled frame and the completion of the task, for the most recent frame.
+         *
+         * @param  unit
+         *         The unit of the returned value
+         *
+         * @return The lateness of the last frame
+         */
+        public long getLastLateness(TimeUnit unit)
+        {
+            return unit.convert(lastLateness, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Moving average of the lateness of the recent frames.
+         *
+         * @param  unit
+         *         The unit of the returned value
+         *
+         * @return The average lateness
+         */
+        public long getAverageLateness(TimeUnit unit)
+        {
+            return unit.convert(averageLateness, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The highest lateness since the task was registered.
+         *
+         * @param  unit
+         *         The unit of the returned value
+         *
+         * @return The maximum lateness
+         */
+        public long getMaxLateness(TimeUnit unit)
+        {
+            return unit.convert(maxLateness, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The amount of frames that were run.
+         *
+         * @return The amount of frames
+         */
+        public long getFrames()
+        {
+            return frames;
+        }
+
+        /**
+         * The amount of frames that were due while the worker of this task was still busy with the previous frame.
+         * <br>Such frames are run late, or not at all if the worker is busy for longer than a frame.
+         *
+         * @return The amount of missed frames
+         */
+        public long getMissedFrames()
+        {
+            return missedFrames;
+        }
+
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        /**
+         * Stops running the task. A frame that is currently running is completed.
+         */
+        public void cancel()
+        {
+            if (cancelled)
+                return;
+            cancelled = true;
+            worker.tasks.remove(this);
+            registrations.remove(this);
+        }
+    }
+}
@@ -68,6 +68,10 @@ public interface IPacketProvider
      *
      * <p><b>Note:</b> When the AudioSendHandler cannot or does not provide a new packet to send, this method will return null.
      *
+     * <p>The returned packet and its buffer are reused by the following call of this method.
+     * Implementations that queue packets must copy the {@link java.net.DatagramPacket#getData() data}
+     * between {@link java.net.DatagramPacket#getOffset() offset} and offset + {@link java.net.DatagramPacket#getLength() length}.
+     *
      * @param  changeTalking
      *         Whether or not to change the talking indicator if the AudioSendHandler cannot provide a new audio packet.
      *
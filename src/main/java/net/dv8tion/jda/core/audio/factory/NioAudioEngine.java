@@ -0,0 +1,412 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.audio.factory;
+
+import net.dv8tion.jda.core.audio.AudioConnection;
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.NoRouteToHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.dv8tion.jda.core.audio.AudioConnection.OPUS_FRAME_TIME_AMOUNT;
+
+/**
+ * {@link net.dv8tion.jda.core.audio.factory.IAudioSendFactory IAudioSendFactory} which sends and receives the audio
+ * of all connections using it with a small, fixed amount of threads.
+ * <br>Every worker thread owns a {@link java.nio.channels.Selector Selector} and services a share of the connections:
+ * it sends the next packet of each connection every 20 milliseconds and reads incoming packets as soon as they arrive.
+ * A connection is always serviced by the same worker.
+ *
+ * <p>When this factory is configured, the UDP sockets of voice connections are backed by a non-blocking
+ * {@link java.nio.channels.DatagramChannel DatagramChannel} and received packets are read on the worker threads instead of
+ * a receiving thread per connection. The workers only read the packets, decrypting, decoding and the receive handlers run
+ * on the audio decode pool of the {@link net.dv8tion.jda.core.JDA JDA} instance.
+ * <br>Send handlers are called on the workers, which also encode their PCM. Send handlers should therefore return quickly,
+ * a {@link net.dv8tion.jda.core.audio.PrefetchingSendHandler PrefetchingSendHandler} moves slow handlers off the workers.
+ *
+ * <p>One engine may be shared by all {@link net.dv8tion.jda.core.JDA JDA} instances of a process.
+ * The workers are daemon threads and are started with the engine, use {@link #shutdown()} to stop them.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setAudioSendFactory(IAudioSendFactory)
+ */
+public class NioAudioEngine implements IAudioSendFactory
+{
+    public static final int DEFAULT_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(OPUS_FRAME_TIME_AMOUNT);
+    private static final long MIN_SELECT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    //Connections may read at most this many packets per wakeup, so one busy connection cannot starve the others
+    private static final int MAX_READS = 32;
+
+    private final Worker[] workers;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates an engine with {@link #DEFAULT_THREADS} workers.
+     */
+    public NioAudioEngine()
+    {
+        this(DEFAULT_THREADS, ThreadingModel.DEFAULT);
+    }
+
+    /**
+     * Creates an engine with the specified amount of workers.
+     *
+     * @param  threads
+     *         The amount of worker threads
+     * @param  threadingModel
+     *         The {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} creating the worker threads
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the amount is not positive or the threading model is {@code null}
+     * @throws java.io.UncheckedIOException
+     *         If a selector could not be opened
+     */
+    public NioAudioEngine(int threads, ThreadingModel threadingModel)
+    {
+        Checks.positive(threads, "Threads");
+        Checks.notNull(threadingModel, "ThreadingModel");
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            Worker worker = workers[i] = new Worker();
+            Thread thread = threadingModel.newThread(ThreadingModel.ThreadType.AUDIO_SEND, worker, "NioAudioEngine Worker " + (i + 1));
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((t, throwable) -> AudioConnection.LOG.log(throwable));
+            thread.start();
+        }
+    }
+
+    @Override
+    public IAudioSendSystem createSendSystem(IPacketProvider packetProvider)
+    {
+        return new NioSendSystem(packetProvider);
+    }
+
+    /**
+     * Registers the channel of a connection for reading.
+     * <br>The channel is switched to non-blocking mode, the receiver is called on a worker thread whenever
+     * packets are available and has to read all of them.
+     * <br>This is used internally by the {@link net.dv8tion.jda.core.audio.AudioConnection AudioConnection}.
+     *
+     * @param  channel
+     *         The UDP channel of the connection
+     * @param  receiver
+     *         The receiver reading from the channel
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If any of the provided arguments is {@code null}
+     */
+    public void registerReceiver(DatagramChannel channel, Receiver receiver)
+    {
+        Checks.notNull(channel, "Channel");
+        Checks.notNull(receiver, "Receiver");
+        getWorker(channel).submit(worker -> worker.register(channel, receiver));
+    }
+
+    /**
+     * Stops reading from the provided channel.
+     *
+     * @param  channel
+     *         The UDP channel of the connection
+     */
+    public void unregisterReceiver(DatagramChannel channel)
+    {
+        if (channel != null)
+            getWorker(channel).submit(worker -> worker.register(channel, null));
+    }
+
+    /**
+     * Stops all workers. Connections using this engine no longer send or receive audio.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        for (Worker worker : workers)
+            worker.selector.wakeup();
+    }
+
+    private Worker getWorker(Object channel)
+    {
+        return workers[Math.floorMod(System.identityHashCode(channel), workers.length)];
+    }
+
+    /**
+     * Reads the packets of one connection from its channel.
+     */
+    @FunctionalInterface
+    public interface Receiver
+    {
+        /**
+         * Called on a worker thread when packets can be read from the channel.
+         *
+         * @param  channel
+         *         The non-blocking channel
+         * @param  maxPackets
+         *         The maximum amount of packets to read now, remaining packets are read on the next call
+         *
+         * @throws java.io.IOException
+         *         If reading from the channel failed
+         */
+        void receive(DatagramChannel channel, int maxPackets) throws IOException;
+    }
+
+    private final class Worker implements Runnable
+    {
+        private final Selector selector;
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        //Only accessed by the worker thread
+        private final List<NioSendSystem> senders = new ArrayList<>();
+
+        private Worker()
+        {
+            try
+            {
+                selector = Selector.open();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void submit(Task task)
+        {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        private void register(DatagramChannel channel, Receiver receiver)
+        {
+            SelectionKey key = channel.keyFor(selector);
+            if (receiver == null)
+            {
+                if (key != null)
+                    key.cancel();
+                return;
+            }
+            try
+            {
+                channel.configureBlocking(false);
+                if (key != null && key.isValid())
+                    key.attach(receiver);
+                else
+                    channel.register(selector, SelectionKey.OP_READ, receiver);
+            }
+            catch (ClosedChannelException ignored)
+            {
+                //The connection was closed before we got to register it
+            }
+            catch (IOException e)
+            {
+                AudioConnection.LOG.log(e);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            long nextFrame = System.nanoTime();
+            while (!shutdown)
+            {
+                try
+                {
+                    Task task;
+                    while ((task = tasks.poll()) != null)
+                        task.run(this);
+
+                    long now = System.nanoTime();
+                    if (now - nextFrame >= 0)
+                    {
+                        sendFrames(nextFrame);
+                        nextFrame += FRAME_NANOS;
+                        //If we fell behind by more than 3 frames, don't try to catch up
+                        if (now - nextFrame > 3 * FRAME_NANOS)
+                            nextFrame = now + FRAME_NANOS;
+                    }
+
+                    //select only waits whole milliseconds, the rest of the wait is parked to not spin on selectNow
+                    final long wait = nextFrame - System.nanoTime();
+                    if (wait >= MIN_SELECT_NANOS)
+                        selector.select(TimeUnit.NANOSECONDS.toMillis(wait));
+                    else
+                        selector.selectNow();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext())
+                    {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        receive(key);
+                    }
+
+                    final long remaining = nextFrame - System.nanoTime();
+                    if (remaining > 0 && remaining < MIN_SELECT_NANOS)
+                        LockSupport.parkNanos(this, remaining);
+                }
+                catch (Exception e)
+                {
+                    AudioConnection.LOG.log(e);
+                }
+            }
+
+            for (NioSendSystem sender : senders)
+                sender.registered = false;
+            senders.clear();
+            try
+            {
+                selector.close();
+            }
+            catch (IOException ignored) {}
+        }
+
+        private void receive(SelectionKey key)
+        {
+            if (!key.isValid() || !key.isReadable())
+                return;
+            try
+            {
+                ((Receiver) key.attachment()).receive((DatagramChannel) key.channel(), MAX_READS);
+            }
+            catch (ClosedChannelException e)
+            {
+                key.cancel();
+            }
+            catch (Exception e)
+            {
+                AudioConnection.LOG.log(e);
+            }
+        }
+
+        private void sendFrames(long deadline)
+        {
+            for (Iterator<NioSendSystem> it = senders.iterator(); it.hasNext();)
+            {
+                NioSendSystem sender = it.next();
+                if (!sender.send(deadline))
+                {
+                    sender.registered = false;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task
+    {
+        void run(Worker worker);
+    }
+
+    private final class NioSendSystem implements IAudioSendSystem
+    {
+        private final IPacketProvider packetProvider;
+        private volatile boolean running = false;
+        private boolean registered = false;
+        private ByteBuffer buffer;
+
+        private NioSendSystem(IPacketProvider packetProvider)
+        {
+            this.packetProvider = packetProvider;
+        }
+
+        @Override
+        public void start()
+        {
+            running = true;
+            final DatagramSocket socket = packetProvider.getUdpSocket();
+            getWorker(socket.getChannel() != null ? socket.getChannel() : socket).submit(worker ->
+            {
+                if (registered || !running)
+                    return;
+                try
+                {
+                    if (socket.getChannel() != null)
+                        socket.getChannel().configureBlocking(false);
+                }
+                catch (IOException e)
+                {
+                    //The channel was closed, the connection is going away
+                    return;
+                }
+                registered = true;
+                worker.senders.add(this);
+            });
+        }
+
+        @Override
+        public void shutdown()
+        {
+            running = false;
+        }
+
+        //Returns false once this system should no longer be serviced
+        private boolean send(long deadline)
+        {
+            final DatagramSocket socket = packetProvider.getUdpSocket();
+            if (!running || socket.isClosed())
+                return false;
+            try
+            {
+                //Only change the talking indicator if we are more than a frame behind
+                boolean changeTalking = System.nanoTime() - deadline > FRAME_NANOS;
+                DatagramPacket packet = packetProvider.getNextPacket(changeTalking);
+                if (packet == null)
+                    return true;
+
+                DatagramChannel channel = socket.getChannel();
+                if (channel == null)
+                {
+                    socket.send(packet);
+                    return true;
+                }
+                if (buffer == null || buffer.array() != packet.getData())
+                    buffer = ByteBuffer.wrap(packet.getData());
+                buffer.limit(packet.getOffset() + packet.getLength());
+                buffer.position(packet.getOffset());
+                //A full send buffer drops the packet, just like UDP would
+                channel.send(buffer, packet.getSocketAddress());
+            }
+            catch (NoRouteToHostException e)
+            {
+                packetProvider.onConnectionLost();
+                return false;
+            }
+            catch (ClosedChannelException e)
+            {
+                return false;
+            }
+            catch (Exception e)
+            {
+                AudioConnection.LOG.log(e);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,768 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.entities;
+
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.core.OnlineStatus;
+import net.dv8tion.jda.core.Region;
+import net.dv8tion.jda.core.entities.impl.*;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the entity cache of a bot session, used to restore the cache after a restart of the process
+ * without loading all guilds from Discord again.
+ * <br>The snapshot contains all guilds with their roles, emotes, channels, permission overrides, members, presences
+ * and voice states, the users of these members and the private channels of the session.
+ *
+ * <p>A snapshot starts with a fixed size header:
+ * <pre>
+ * int   magic   ("JDAC")
+ * short version
+ * short flags   (reserved)
+ * int   length  (of the payload)
+ * int   crc32   (of the payload)
+ * </pre>
+ * followed by the payload. All values are big-endian, strings are stored as length-prefixed UTF-8 (length -1 for null).
+ * <br>Users are stored once in a table and referenced by their index, so users that share many guilds are only written once.
+ *
+ * <p>Snapshots are read from a {@link java.nio.ByteBuffer ByteBuffer} and construct the entities directly,
+ * a snapshot file can be memory-mapped using {@link #read(JDAImpl, java.io.File)}.
+ *
+ * @see net.dv8tion.jda.core.utils.SessionStore
+ */
+public class CacheSnapshot
+{
+    public static final int MAGIC = 0x4A444143; // JDAC
+    public static final short VERSION = 2;
+    public static final int HEADER_SIZE = 16;
+    //Message ids of channels without a latest message
+    private static final long NO_MESSAGE = 0;
+
+    private static final byte CHANNEL_CATEGORY = 0;
+    private static final byte CHANNEL_TEXT = 1;
+    private static final byte CHANNEL_VOICE = 2;
+
+    private static final byte USER_BOT = 1;
+    private static final byte USER_FAKE = 1 << 1;
+    private static final byte SELF_VERIFIED = 1 << 2;
+    private static final byte SELF_MFA = 1 << 3;
+
+    private static final byte ROLE_MANAGED = 1;
+    private static final byte ROLE_HOISTED = 1 << 1;
+    private static final byte ROLE_MENTIONABLE = 1 << 2;
+
+    private static final byte VOICE_MUTED = 1;
+    private static final byte VOICE_DEAFENED = 1 << 1;
+    private static final byte VOICE_SELF_MUTED = 1 << 2;
+    private static final byte VOICE_SELF_DEAFENED = 1 << 3;
+    private static final byte VOICE_SUPPRESSED = 1 << 4;
+    private static final byte VOICE_CONNECTED = 1 << 5;
+
+    /**
+     * Serializes the current entity cache of the provided session.
+     * <br>This should only be called while no events are handled, otherwise the snapshot might be inconsistent.
+     *
+     * @param  api
+     *         The session
+     *
+     * @return The snapshot
+     */
+    public static byte[] write(JDAImpl api)
+    {
+        SnapshotWriter out = new SnapshotWriter();
+        out.position(HEADER_SIZE);
+
+        //Collect all users first, every user is written once and referenced by index
+        List<User> users = new ArrayList<>();
+        TLongIntMap userIndex = new TLongIntHashMap(1024, 0.5f, 0, -1);
+        List<Guild> guilds = api.getGuilds();
+        List<PrivateChannel> privateChannels = new ArrayList<>(api.getPrivateChannelMap().valueCollection());
+        privateChannels.addAll(api.getFakePrivateChannelMap().valueCollection());
+        List<List<Member>> guildMembers = new ArrayList<>(guilds.size());
+        for (Guild guild : guilds)
+        {
+            List<Member> members = guild.isAvailable() ? getMembers(guild) : null;
+            guildMembers.add(members);
+            if (members != null)
+                members.forEach(member -> indexUser(member.getUser(), users, userIndex));
+        }
+        privateChannels.forEach(channel -> indexUser(channel.getUser(), users, userIndex));
+
+        SelfUser self = api.getSelfUser();
+        out.putLong(self.getIdLong());
+        out.putString(self.getName());
+        out.putString(self.getDiscriminator());
+        out.putString(self.getAvatarId());
+        out.put((byte) ((self.isBot() ? USER_BOT : 0) | (self.isVerified() ? SELF_VERIFIED : 0) | (self.isMfaEnabled() ? SELF_MFA : 0)));
+
+        out.putInt(users.size());
+        for (User user : users)
+        {
+            out.putLong(user.getIdLong());
+            out.putString(user.getName());
+            out.putString(user.getDiscriminator());
+            out.putString(user.getAvatarId());
+            out.put((byte) ((user.isBot() ? USER_BOT : 0) | (user.isFake() ? USER_FAKE : 0)));
+        }
+
+        out.putInt(guilds.size());
+        for (int i = 0; i < guilds.size(); i++)
+            writeGuild(out, guilds.get(i), guildMembers.get(i), userIndex);
+
+        out.putInt(privateChannels.size());
+        for (PrivateChannel channel : privateChannels)
+        {
+            out.putLong(channel.getIdLong());
+            out.putLong(channel.hasLatestMessage() ? channel.getLatestMessageIdLong() : NO_MESSAGE);
+            out.putInt(userIndex.get(channel.getUser().getIdLong()));
+        }
+
+        final int length = out.position() - HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HEADER_SIZE, length);
+        out.position(0);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) 0);
+        out.putInt(length);
+        out.putInt((int) crc.getValue());
+        return out.toByteArray(HEADER_SIZE + length);
+    }
+
+    /**
+     * Writes a snapshot of the current entity cache of the provided session to the specified file.
+     *
+     * @param  api
+     *         The session
+     * @param  file
+     *         The file, replaced if it exists
+     *
+     * @throws java.io.IOException
+     *         If the file could not be written
+     *
+     * @see    #write(JDAImpl)
+     */
+    public static void write(JDAImpl api, File file) throws IOException
+    {
+        Files.write(file.toPath(), write(api));
+    }
+
+    /**
+     * Restores the entity cache of the provided session from a snapshot created by {@link #write(JDAImpl)}.
+     * <br>The cache of the session must be empty.
+     *
+     * @param  api
+     *         The session
+     * @param  snapshot
+     *         The snapshot
+     *
+     * @throws java.io.IOException
+     *         If the snapshot is corrupted or of an unknown version
+     */
+    public static void read(JDAImpl api, byte[] snapshot) throws IOException
+    {
+        read(api, ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Restores the entity cache of the provided session from a snapshot file, the file is memory-mapped while reading.
+     *
+     * @param  api
+     *         The session
+     * @param  file
+     *         The snapshot file
+     *
+     * @throws java.io.IOException
+     *         If the file could not be read, is corrupted or of an unknown version
+     */
+    public static void read(JDAImpl api, File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            read(api, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Restores the entity cache of the provided session from the remaining bytes of the provided buffer.
+     * <br>The position of the buffer is not modified.
+     *
+     * @param  api
+     *         The session
+     * @param  snapshot
+     *         The buffer holding the snapshot, possibly memory-mapped
+     *
+     * @throws java.io.IOException
+     *         If the snapshot is corrupted or of an unknown version
+     */
+    public static void read(JDAImpl api, ByteBuffer snapshot) throws IOException
+    {
+        ByteBuffer in = snapshot.slice().order(ByteOrder.BIG_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC)
+            throw new IOException("Not a cache snapshot");
+        final short version = in.getShort();
+        if (version != VERSION)
+            throw new IOException("Unsupported snapshot version " + version);
+        in.getShort(); // flags
+        final int length = in.getInt();
+        final int checksum = in.getInt();
+        if (length != in.remaining())
+            throw new IOException("Snapshot is truncated, expected " + length + " bytes but got " + in.remaining());
+
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate());
+        if ((int) crc.getValue() != checksum)
+            throw new IOException("Snapshot checksum mismatch");
+
+        try
+        {
+            readPayload(api, in);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            throw new IOException("Snapshot is malformed", e);
+        }
+    }
+
+    private static void readPayload(JDAImpl api, ByteBuffer in)
+    {
+        EntityBuilder builder = api.getEntityBuilder();
+
+        final long selfId = in.getLong();
+        SelfUserImpl self = (SelfUserImpl) api.getSelfUser();
+        if (self == null)
+        {
+            self = new SelfUserImpl(selfId, api);
+            api.setSelfUser(self);
+        }
+        self.setName(builder.intern(getString(in)))
+            .setDiscriminator(getString(in))
+            .setAvatarId(builder.intern(getString(in)));
+        final byte selfFlags = in.get();
+        self.setBot((selfFlags & USER_BOT) != 0);
+        self.setVerified((selfFlags & SELF_VERIFIED) != 0)
+            .setMfaEnabled((selfFlags & SELF_MFA) != 0);
+        api.getUserMap().put(selfId, self);
+
+        UserImpl[] users = new UserImpl[in.getInt()];
+        for (int i = 0; i < users.length; i++)
+        {
+            final long id = in.getLong();
+            UserImpl user = id == selfId ? self : new UserImpl(id, api);
+            String name = builder.intern(getString(in));
+            String discriminator = getString(in);
+            String avatarId = builder.intern(getString(in));
+            final byte flags = in.get();
+            users[i] = user;
+            if (user == self)
+                continue;
+
+            final boolean fake = (flags & USER_FAKE) != 0;
+            user.setName(name)
+                .setDiscriminator(discriminator)
+                .setAvatarId(avatarId)
+                .setBot((flags & USER_BOT) != 0)
+                .setFake(fake);
+            if (fake)
+                api.getFakeUserMap().put(id, user);
+            else
+                api.getUserMap().put(id, user);
+        }
+
+        final int guildCount = in.getInt();
+        for (int i = 0; i < guildCount; i++)
+            readGuild(api, builder, in, users);
+
+        final int privateChannelCount = in.getInt();
+        for (int i = 0; i < privateChannelCount; i++)
+        {
+            final long id = in.getLong();
+            final long lastMessageId = in.getLong();
+            UserImpl user = users[in.getInt()];
+            PrivateChannelImpl channel = new PrivateChannelImpl(id, user).setLastMessageId(lastMessageId);
+            user.setPrivateChannel(channel);
+            if (user.isFake())
+            {
+                channel.setFake(true);
+                api.getFakePrivateChannelMap().put(id, channel);
+            }
+            else
+            {
+                api.getPrivateChannelMap().put(id, channel);
+            }
+        }
+    }
+
+    private static void writeGuild(SnapshotWriter out, Guild guild, List<Member> members, TLongIntMap userIndex)
+    {
+        out.putLong(guild.getIdLong());
+        out.put((byte) (guild.isAvailable() ? 1 : 0));
+        if (!guild.isAvailable())
+            return;
+
+        out.putString(guild.getName());
+        out.putString(guild.getIconId());
+        out.putString(guild.getSplashId());
+        out.putString(guild.getRegion().getKey());
+        out.putLong(guild.getOwnerIdLong());
+        out.putInt(guild.getAfkTimeout().getSeconds());
+        out.putLong(guild.getAfkChannel() == null ? 0 : guild.getAfkChannel().getIdLong());
+        out.putLong(guild.getSystemChannel() == null ? 0 : guild.getSystemChannel().getIdLong());
+        out.put((byte) guild.getVerificationLevel().getKey());
+        out.put((byte) guild.getDefaultNotificationLevel().getKey());
+        out.put((byte) guild.getRequiredMFALevel().getKey());
+        out.put((byte) guild.getExplicitContentLevel().getKey());
+
+        List<Role> roles = guild.getRoles();
+        out.putInt(roles.size());
+        for (Role role : roles)
+        {
+            out.putLong(role.getIdLong());
+            out.putString(role.getName());
+            out.putInt(role.getPositionRaw());
+            out.putLong(role.getPermissionsRaw());
+            out.put((byte) ((role.isManaged() ? ROLE_MANAGED : 0) | (role.isHoisted() ? ROLE_HOISTED : 0) | (role.isMentionable() ? ROLE_MENTIONABLE : 0)));
+            out.putInt(role.getColor() == null ? 0 : role.getColor().getRGB() & 0xFFFFFF);
+        }
+
+        List<Emote> emotes = guild.getEmotes();
+        out.putInt(emotes.size());
+        for (Emote emote : emotes)
+        {
+            out.putLong(emote.getIdLong());
+            out.putString(emote.getName());
+            out.put((byte) (emote.isManaged() ? 1 : 0));
+            List<Role> emoteRoles = emote.getRoles();
+            out.putInt(emoteRoles.size());
+            emoteRoles.forEach(role -> out.putLong(role.getIdLong()));
+        }
+
+        List<Channel> channels = new ArrayList<>();
+        channels.addAll(guild.getCategories());
+        channels.addAll(guild.getTextChannels());
+        channels.addAll(guild.getVoiceChannels());
+        out.putInt(channels.size());
+        for (Channel channel : channels)
+        {
+            out.put(channel instanceof Category ? CHANNEL_CATEGORY : channel instanceof TextChannel ? CHANNEL_TEXT : CHANNEL_VOICE);
+            out.putLong(channel.getIdLong());
+            out.putString(channel.getName());
+            out.putInt(channel.getPositionRaw());
+            out.putLong(channel.getParent() == null ? 0 : channel.getParent().getIdLong());
+            if (channel instanceof TextChannel)
+            {
+                TextChannel text = (TextChannel) channel;
+                out.putString(text.getTopic());
+                out.put((byte) (text.isNSFW() ? 1 : 0));
+                out.putLong(text.hasLatestMessage() ? text.getLatestMessageIdLong() : NO_MESSAGE);
+            }
+            else if (channel instanceof VoiceChannel)
+            {
+                VoiceChannel voice = (VoiceChannel) channel;
+                out.putInt(voice.getUserLimit());
+                out.putInt(voice.getBitrate());
+            }
+        }
+
+        out.putInt(members.size());
+        for (Member member : members)
+        {
+            out.putInt(userIndex.get(member.getUser().getIdLong()));
+            OffsetDateTime joinDate = member.getJoinDate();
+            out.putLong(joinDate == null ? Long.MIN_VALUE : joinDate.toInstant().toEpochMilli());
+            out.putInt(joinDate == null ? 0 : joinDate.getOffset().getTotalSeconds());
+            out.putString(member.getNickname());
+            out.put((byte) member.getOnlineStatus().ordinal());
+            Game game = member.getGame();
+            out.putString(game == null ? null : game.getName());
+            if (game != null)
+            {
+                out.putString(game.getUrl());
+                out.putInt(game.getType().getKey());
+            }
+
+            List<Role> memberRoles = member.getRoles();
+            out.putInt(memberRoles.size());
+            memberRoles.forEach(role -> out.putLong(role.getIdLong()));
+
+            GuildVoiceState voiceState = member.getVoiceState();
+            final boolean connected = voiceState.inVoiceChannel() && voiceState.getSessionId() != null;
+            out.put((byte) ((voiceState.isGuildMuted() ? VOICE_MUTED : 0)
+                | (voiceState.isGuildDeafened() ? VOICE_DEAFENED : 0)
+                | (voiceState.isSelfMuted() ? VOICE_SELF_MUTED : 0)
+                | (voiceState.isSelfDeafened() ? VOICE_SELF_DEAFENED : 0)
+                | (voiceState.isSuppressed() ? VOICE_SUPPRESSED : 0)
+                | (connected ? VOICE_CONNECTED : 0)));
+            if (connected)
+            {
+                out.putLong(voiceState.getChannel().getIdLong());
+                out.putString(voiceState.getSessionId());
+            }
+        }
+
+        //Overrides are written after the members as member overrides reference them
+        for (Channel channel : channels)
+        {
+            List<PermissionOverride> overrides = channel.getPermissionOverrides();
+            out.putInt(overrides.size());
+            for (PermissionOverride override : overrides)
+            {
+                out.putLong(override.isRoleOverride() ? override.getRole().getIdLong() : override.getMember().getUser().getIdLong());
+                out.put((byte) (override.isRoleOverride() ? 0 : 1));
+                out.putLong(override.getAllowedRaw());
+                out.putLong(override.getDeniedRaw());
+            }
+        }
+    }
+
+    private static void readGuild(JDAImpl api, EntityBuilder builder, ByteBuffer in, UserImpl[] users)
+    {
+        final long id = in.getLong();
+        GuildImpl guild = new GuildImpl(api, id);
+        api.getGuildMap().put(id, guild);
+        if (in.get() == 0)
+        {
+            //Discord sends a GUILD_CREATE once the guild is available again
+            guild.setAvailable(false);
+            api.getGuildLock().lock(id);
+            return;
+        }
+
+        guild.setAvailable(true)
+            .setName(getString(in))
+            .setIconId(getString(in))
+            .setSplashId(getString(in))
+            .setRegion(Region.fromKey(getString(in)))
+            .setOwnerId(in.getLong())
+            .setAfkTimeout(Guild.Timeout.fromKey(in.getInt()));
+        final long afkChannelId = in.getLong();
+        final long systemChannelId = in.getLong();
+        guild.setVerificationLevel(Guild.VerificationLevel.fromKey(in.get()))
+            .setDefaultNotificationLevel(Guild.NotificationLevel.fromKey(in.get()))
+            .setRequiredMFALevel(Guild.MFALevel.fromKey(in.get()))
+            .setExplicitContentLevel(Guild.ExplicitContentLevel.fromKey(in.get()));
+
+        final int roleCount = in.getInt();
+        for (int i = 0; i < roleCount; i++)
+        {
+            RoleImpl role = new RoleImpl(in.getLong(), guild)
+                .setName(builder.intern(getString(in)))
+                .setRawPosition(in.getInt())
+                .setRawPermissions(in.getLong());
+            final byte flags = in.get();
+            final int color = in.getInt();
+            role.setManaged((flags & ROLE_MANAGED) != 0)
+                .setHoisted((flags & ROLE_HOISTED) != 0)
+                .setMentionable((flags & ROLE_MENTIONABLE) != 0)
+                .setColor(color != 0 ? new Color(color) : null);
+            guild.getRolesMap().put(role.getIdLong(), role);
+            if (role.getIdLong() == id)
+                guild.setPublicRole(role);
+        }
+
+        final int emoteCount = in.getInt();
+        for (int i = 0; i < emoteCount; i++)
+        {
+            EmoteImpl emote = new EmoteImpl(in.getLong(), guild)
+                .setName(getString(in))
+                .setManaged(in.get() != 0);
+            final int emoteRoleCount = in.getInt();
+            for (int j = 0; j < emoteRoleCount; j++)
+            {
+                Role role = guild.getRolesMap().get(in.getLong());
+                if (role != null)
+                    emote.getRoleSet().add(role);
+            }
+            guild.getEmoteMap().put(emote.getIdLong(), emote);
+        }
+
+        AbstractChannelImpl<?>[] channels = new AbstractChannelImpl<?>[in.getInt()];
+        for (int i = 0; i < channels.length; i++)
+        {
+            final byte type = in.get();
+            final long channelId = in.getLong();
+            AbstractChannelImpl<?> channel;
+            switch (type)
+            {
+                case CHANNEL_CATEGORY:
+                    CategoryImpl category = new CategoryImpl(channelId, guild);
+                    guild.getCategoriesMap().put(channelId, category);
+                    api.getCategoryMap().put(channelId, category);
+                    channel = category;
+                    break;
+                case CHANNEL_TEXT:
+                    TextChannelImpl text = new TextChannelImpl(channelId, guild);
+                    guild.getTextChannelsMap().put(channelId, text);
+                    api.getTextChannelMap().put(channelId, text);
+                    channel = text;
+                    break;
+                case CHANNEL_VOICE:
+                    VoiceChannelImpl voice = new VoiceChannelImpl(channelId, guild);
+                    guild.getVoiceChannelsMap().put(channelId, voice);
+                    api.getVoiceChannelMap().put(channelId, voice);
+                    channel = voice;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown channel type " + type);
+            }
+
+            channel.setName(getString(in))
+                .setRawPosition(in.getInt())
+                .setParent(in.getLong());
+            if (type == CHANNEL_TEXT)
+            {
+                ((TextChannelImpl) channel).setTopic(getString(in))
+                    .setNSFW(in.get() != 0)
+                    .setLastMessageId(in.getLong());
+            }
+            else if (type == CHANNEL_VOICE)
+            {
+                ((VoiceChannelImpl) channel).setUserLimit(in.getInt())
+                    .setBitrate(in.getInt());
+            }
+            channels[i] = channel;
+        }
+
+        final int memberCount = in.getInt();
+        final int offHeapThreshold = api.getOffHeapMemberThreshold();
+        if (offHeapThreshold > 0 && memberCount >= offHeapThreshold)
+            guild.setMemberStore(new OffHeapMemberStore());
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            MemberImpl member = new MemberImpl(guild, users[in.getInt()]);
+            final long joinDate = in.getLong();
+            final ZoneOffset offset = ZoneOffset.ofTotalSeconds(in.getInt());
+            member.setJoinDate(joinDate == Long.MIN_VALUE ? null : OffsetDateTime.ofInstant(Instant.ofEpochMilli(joinDate), offset))
+                .setNickname(builder.intern(getString(in)))
+                .setOnlineStatus(OnlineStatus.values()[in.get()]);
+            String gameName = getString(in);
+            if (gameName != null)
+            {
+                String url = getString(in);
+                Game.GameType gameType = Game.GameType.fromKey(in.getInt());
+                if (api.isGameCachingEnabled())
+                    member.setGame(builder.createGame(gameName, url, gameType));
+            }
+
+            final int memberRoleCount = in.getInt();
+            for (int j = 0; j < memberRoleCount; j++)
+            {
+                Role role = guild.getRolesMap().get(in.getLong());
+                if (role != null)
+                    member.getRoleSet().add(role);
+            }
+
+            final byte voiceFlags = in.get();
+            GuildVoiceStateImpl voiceState = (GuildVoiceStateImpl) member.getVoiceState();
+            voiceState.setGuildMuted((voiceFlags & VOICE_MUTED) != 0)
+                .setGuildDeafened((voiceFlags & VOICE_DEAFENED) != 0)
+                .setSelfMuted((voiceFlags & VOICE_SELF_MUTED) != 0)
+                .setSelfDeafened((voiceFlags & VOICE_SELF_DEAFENED) != 0)
+                .setSuppressed((voiceFlags & VOICE_SUPPRESSED) != 0);
+            if ((voiceFlags & VOICE_CONNECTED) != 0)
+            {
+                VoiceChannelImpl channel = (VoiceChannelImpl) guild.getVoiceChannelsMap().get(in.getLong());
+                voiceState.setSessionId(getString(in));
+                if (channel != null)
+                {
+                    voiceState.setConnectedChannel(channel);
+                    channel.getConnectedMembersMap().put(member.getUser().getIdLong(), member);
+                }
+            }
+            guild.getMembersMap().put(member.getUser().getIdLong(), member);
+        }
+
+        for (AbstractChannelImpl<?> channel : channels)
+        {
+            final int overrideCount = in.getInt();
+            for (int i = 0; i < overrideCount; i++)
+            {
+                final long holderId = in.getLong();
+                final boolean isRole = in.get() == 0;
+                final long allow = in.getLong();
+                final long deny = in.getLong();
+                IPermissionHolder holder = isRole ? guild.getRolesMap().get(holderId) : guild.getMemberById(holderId);
+                if (holder == null)
+                    continue;
+                channel.getOverrideMap().put(holderId, new PermissionOverrideImpl(channel, holderId, holder)
+                    .setAllow(allow)
+                    .setDeny(deny));
+            }
+        }
+
+        if (afkChannelId != 0)
+            guild.setAfkChannel(guild.getVoiceChannelsMap().get(afkChannelId));
+        if (systemChannelId != 0)
+            guild.setSystemChannel(guild.getTextChannelsMap().get(systemChannelId));
+
+        //Also moves the members of guilds with an off-heap store into the store
+        builder.applyMemberCachePolicy(guild);
+    }
+
+    private static List<Member> getMembers(Guild guild)
+    {
+        List<Member> cached = guild.getMembers();
+        List<Member> members = new ArrayList<>(cached.size());
+        TLongSet memberIds = new TLongHashSet();
+        for (Member member : cached)
+        {
+            //Off-heap members that left since the list was created are null
+            if (member != null && memberIds.add(member.getUser().getIdLong()))
+                members.add(member);
+        }
+
+        //Overrides keep members that are not cached due to the MemberCachePolicy, they are written as well
+        // so the overrides can be restored. Reading the snapshot applies the policy to them again.
+        for (Channel channel : guild.getCategories())
+            addOverrideMembers(channel, members, memberIds);
+        for (Channel channel : guild.getTextChannels())
+            addOverrideMembers(channel, members, memberIds);
+        for (Channel channel : guild.getVoiceChannels())
+            addOverrideMembers(channel, members, memberIds);
+        return members;
+    }
+
+    private static void addOverrideMembers(Channel channel, List<Member> members, TLongSet memberIds)
+    {
+        for (PermissionOverride override : channel.getMemberPermissionOverrides())
+        {
+            Member member = override.getMember();
+            if (memberIds.add(member.getUser().getIdLong()))
+                members.add(member);
+        }
+    }
+
+    private static void indexUser(User user, List<User> users, TLongIntMap userIndex)
+    {
+        if (userIndex.putIfAbsent(user.getIdLong(), users.size()) == -1)
+            users.add(user);
+    }
+
+    private static String getString(ByteBuffer in)
+    {
+        final int length = in.getInt();
+        if (length < 0)
+            return null;
+        if (in.hasArray())
+        {
+            String str = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return str;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class SnapshotWriter
+    {
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        private void ensure(int bytes)
+        {
+            if (buffer.remaining() >= bytes)
+                return;
+            int capacity = buffer.capacity();
+            while (capacity - buffer.position() < bytes)
+                capacity *= 2;
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        private int position()
+        {
+            return buffer.position();
+        }
+
+        private void position(int position)
+        {
+            ensure(position - buffer.position());
+            buffer.position(position);
+        }
+
+        private byte[] array()
+        {
+            return buffer.array();
+        }
+
+        private byte[] toByteArray(int length)
+        {
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer.array(), 0, bytes, 0, length);
+            return bytes;
+        }
+
+        private void put(byte b)
+        {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        private void putShort(short s)
+        {
+            ensure(2);
+            buffer.putShort(s);
+        }
+
+        private void putInt(int i)
+        {
+            ensure(4);
+            buffer.putInt(i);
+        }
+
+        private void putLong(long l)
+        {
+            ensure(8);
+            buffer.putLong(l);
+        }
+
+        private void putString(String str)
+        {
+            if (str == null)
+            {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+}
@@ -16,7 +16,10 @@
 
 package net.dv8tion.jda.core.entities;
 
+import gnu.trove.iterator.TLongIterator;
 import gnu.trove.map.TLongObjectMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import net.dv8tion.jda.bot.entities.ApplicationInfo;
 import net.dv8tion.jda.bot.entities.impl.ApplicationInfoImpl;
 import net.dv8tion.jda.client.entities.*;
@@ -28,16 +31,20 @@ import net.dv8tion.jda.core.audit.AuditLogEntry;
 import net.dv8tion.jda.core.entities.MessageEmbed.*;
 import net.dv8tion.jda.core.entities.impl.*;
 import net.dv8tion.jda.core.exceptions.AccountTypeException;
+import net.dv8tion.jda.core.handle.EventCache;
 import net.dv8tion.jda.core.handle.GuildMembersChunkHandler;
 import net.dv8tion.jda.core.handle.ReadyHandler;
 import net.dv8tion.jda.core.requests.WebSocketClient;
+import net.dv8tion.jda.core.utils.MemberCachePolicy;
 import net.dv8tion.jda.core.utils.MiscUtil;
+import net.dv8tion.jda.core.utils.StringPool;
 import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.awt.Color;
+import java.lang.ref.WeakReference;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -57,6 +64,11 @@ public class EntityBuilder
     protected final JDAImpl api;
     protected final TLongObjectMap<JSONObject> cachedGuildJsons = MiscUtil.newLongMap();
     protected final TLongObjectMap<Consumer<Guild>> cachedGuildCallbacks = MiscUtil.newLongMap();
+    protected final Object userLock = new Object();
+    //Users created for guilds that are built but not published yet, guarded by the userLock
+    protected final TLongObjectMap<UserImpl> pendingUsers = MiscUtil.newLongMap();
+
+    private static final Map<Game, WeakReference<Game>> gameCache = new WeakHashMap<>();
 
     public EntityBuilder(JDA api)
     {
@@ -80,28 +92,87 @@ public class EntityBuilder
                 .setVerified(self.getBoolean("verified"))
                 .setMfaEnabled(self.getBoolean("mfa_enabled"))
                 .setEmail(!self.isNull("email") ? self.getString("email") : null)
-                .setName(self.getString("username"))
+                .setName(intern(self.getString("username")))
                 .setDiscriminator(self.getString("discriminator"))
-                .setAvatarId(self.isNull("avatar") ? null : self.getString("avatar"))
+                .setAvatarId(self.isNull("avatar") ? null : intern(self.getString("avatar")))
                 .setBot(self.has("bot") && self.getBoolean("bot"));
     }
 
+    /**
+     * Deduplicates the provided String using the {@link net.dv8tion.jda.core.utils.StringPool StringPool}
+     * of this session, if one is configured.
+     *
+     * @param  str
+     *         The String to deduplicate, may be null
+     *
+     * @return The pooled String, or the provided String if no pool is configured
+     */
+    public String intern(String str)
+    {
+        StringPool pool = api.getStringPool();
+        return pool == null ? str : pool.intern(str);
+    }
+
     public Game createGame(String name, String url, Game.GameType type)
     {
-        return new Game(name, url, type);
+        Game game = new Game(name, url, type);
+        //Most members play one of a small set of games, so we share one instance per distinct game.
+        // The weak references allow unused games to be collected once no member references them anymore.
+        synchronized (gameCache)
+        {
+            WeakReference<Game> ref = gameCache.get(game);
+            Game cached = ref == null ? null : ref.get();
+            if (cached != null)
+                return cached;
+            gameCache.put(game, new WeakReference<>(game));
+        }
+        return game;
     }
 
-    public void createGuildFirstPass(JSONObject guild, Consumer<Guild> secondPassCallback)
+    /**
+     * Creates the {@link net.dv8tion.jda.core.entities.Game Game} of a presence json.
+     *
+     * @param  gameJson
+     *         The game json, possibly null
+     *
+     * @return The game, or null if there is none or game caching is disabled
+     */
+    public Game createGame(JSONObject gameJson)
     {
-        final long id = guild.getLong("id");
-        GuildImpl guildObj = ((GuildImpl) api.getGuildMap().get(id));
-        if (guildObj == null)
+        if (gameJson == null || gameJson.isNull("name") || !api.isGameCachingEnabled())
+            return null;
+
+        String gameName = gameJson.get("name").toString();
+        String url = gameJson.isNull("url")
+                ? null
+                : gameJson.get("url").toString();
+
+        Game.GameType gameType;
+        try
         {
-            guildObj = new GuildImpl(api, id);
-            api.getGuildMap().put(id, guildObj);
+            gameType = gameJson.isNull("type")
+                    ? Game.GameType.DEFAULT
+                    : Game.GameType.fromKey(Integer.parseInt(gameJson.get("type").toString()));
+        }
+        catch (NumberFormatException e)
+        {
+            gameType = Game.GameType.DEFAULT;
         }
+
+        return createGame(gameName, url, gameType);
+    }
+
+    public void createGuildFirstPass(JSONObject guild, Consumer<Guild> secondPassCallback)
+    {
         if (guild.has("unavailable") && guild.getBoolean("unavailable"))
         {
+            final long id = guild.getLong("id");
+            GuildImpl guildObj = ((GuildImpl) api.getGuildMap().get(id));
+            if (guildObj == null)
+            {
+                guildObj = new GuildImpl(api, id);
+                api.getGuildMap().put(id, guildObj);
+            }
             guildObj.setAvailable(false);
             //This is used for when GuildCreateHandler receives a guild that is currently unavailable. During normal READY
             // loading for bots (which unavailable is always true) the secondPassCallback parameter will always
@@ -112,6 +183,28 @@ public class EntityBuilder
             return;
         }
 
+        completeGuildFirstPass(createGuildEntities(guild), guild, secondPassCallback);
+    }
+
+    /**
+     * Creates the entities of an available guild from its json without publishing the guild.
+     * <br>This is the expensive part of the first pass and does not touch the {@link net.dv8tion.jda.core.requests.GuildLock GuildLock},
+     * the handlers of the socket or the global channel and user caches, so it can run on a different thread than the socket
+     * as long as the guild is locked. Channels are only added to the guild and new users are kept aside until the guild is published. The guild has to be published using {@link #completeGuildFirstPass(GuildImpl, JSONObject, Consumer)}
+     * afterwards.
+     *
+     * @param  guild
+     *         The json of the guild
+     *
+     * @return The guild, not yet marked as available and not added to the guild cache if it is new
+     */
+    public GuildImpl createGuildEntities(JSONObject guild)
+    {
+        final long id = guild.getLong("id");
+        GuildImpl guildObj = ((GuildImpl) api.getGuildMap().get(id));
+        if (guildObj == null)
+            guildObj = new GuildImpl(api, id);
+
         //If we make it to here, the Guild is available. This means 1 of 2 things:
         //Either:
         // 1) This is Guild provided during READY for a Client account
@@ -131,8 +224,7 @@ public class EntityBuilder
         // that might rely on Users that we don't have due to needing the GUILD_MEMBERS_CHUNK
         // This includes making VoiceStatus and PermissionOverrides
 
-        guildObj.setAvailable(true)
-                .setIconId(guild.isNull("icon") ? null : guild.getString("icon"))
+        guildObj.setIconId(guild.isNull("icon") ? null : guild.getString("icon"))
                 .setSplashId(guild.isNull("splash") ? null : guild.getString("splash"))
                 .setRegion(Region.fromKey(guild.getString("region")))
                 .setName(guild.getString("name"))
@@ -145,7 +237,7 @@ public class EntityBuilder
         JSONArray roles = guild.getJSONArray("roles");
         for (int i = 0; i < roles.length(); i++)
         {
-            Role role = createRole(roles.getJSONObject(i), guildObj.getIdLong());
+            Role role = createRole(roles.getJSONObject(i), guildObj);
             guildObj.getRolesMap().put(role.getIdLong(), role);
             if (role.getIdLong() == guildObj.getIdLong())
                 guildObj.setPublicRole(role);
@@ -172,17 +264,20 @@ public class EntityBuilder
             }
         }
 
+        final int offHeapThreshold = api.getOffHeapMemberThreshold();
+        if (offHeapThreshold > 0 && guildObj.getMemberStore() == null && guild.optInt("member_count") >= offHeapThreshold)
+            guildObj.setMemberStore(new OffHeapMemberStore());
+
+        //The owner Member could be missing for Client accounts (fixed by GUILD_SYNC) or when it is not cached.
+        // The id is needed by the member pass, which keeps the owner on-heap.
+        guildObj.setOwnerId(guild.getLong("owner_id"));
+
         if (guild.has("members"))
         {
             JSONArray members = guild.getJSONArray("members");
             createGuildMemberPass(guildObj, members);
         }
 
-        //This could be null for Client accounts. Will be fixed by GUILD_SYNC
-        Member owner = guildObj.getMemberById(guild.getLong("owner_id"));
-        if (owner != null)
-            guildObj.setOwner(owner);
-
         if (guild.has("presences"))
         {
             JSONArray presences = guild.getJSONArray("presences");
@@ -192,10 +287,10 @@ public class EntityBuilder
                 final long userId = presence.getJSONObject("user").getLong("id");
                 MemberImpl member = (MemberImpl) guildObj.getMembersMap().get(userId);
 
-                if (member == null)
-                    WebSocketClient.LOG.debug("Received a ghost presence in GuildFirstPass! Guild: " + guildObj + " UserId: " + userId);
-                else
+                if (member != null)
                     createPresence(member, presence);
+                else if (!setStoredStatus(guildObj, userId, presence))
+                    WebSocketClient.LOG.debug("Received a ghost presence in GuildFirstPass! Guild: " + guildObj + " UserId: " + userId);
             }
         }
 
@@ -210,13 +305,13 @@ public class EntityBuilder
                 switch (type)
                 {
                     case TEXT:
-                        createTextChannel(channel, guildObj.getIdLong(), false);
+                        createTextChannel(channel, guildObj, false, false);
                         break;
                     case VOICE:
-                        createVoiceChannel(channel, guildObj.getIdLong(), false);
+                        createVoiceChannel(channel, guildObj, false, false);
                         break;
                     case CATEGORY:
-                        createCategory(channel, guildObj.getIdLong(), false);
+                        createCategory(channel, guildObj, false, false);
                         break;
                     default:
                         WebSocketClient.LOG.fatal("Received a channel for a guild that isn't a text, voice or category channel. JSON: " + channel);
@@ -248,7 +343,47 @@ public class EntityBuilder
         //If we actually -did- get all of the users needed, then we don't need to Chunk. Furthermore,
         // we don't need to use GUILD_SYNC because we always get presences with users thus we have all information
         // needed to guild the Guild. We will skip
-        if (guild.getJSONArray("members").length() != guild.getInt("member_count"))
+        //When chunking is disabled we will simply work with the members that we were provided with and
+        // treat the guild as complete.
+        if (!requiresChunking(guild))
+        {
+            //As detailed in the comment above, if we've made it this far then we have all member information needed to
+            // create the Guild. Thus, we fill in the remaining information.
+            //This should only occur on small user count guilds.
+
+            JSONArray channels = guild.getJSONArray("channels");
+            createGuildChannelPass(guildObj, channels); //Actually creates PermissionOverrides
+
+            JSONArray voiceStates = guild.getJSONArray("voice_states");
+            createGuildVoiceStatePass(guildObj, voiceStates);
+        }
+        return guildObj;
+    }
+
+    /**
+     * Publishes a guild created by {@link #createGuildEntities(JSONObject)}.
+     * <br>If the guild is complete, it is unlocked and provided to the callback. Otherwise the remaining
+     * members are requested and the guild is completed by the second pass.
+     * <br>This has to be called on the thread that handles the events of the socket.
+     *
+     * @param guildObj
+     *        The guild
+     * @param guild
+     *        The json of the guild
+     * @param secondPassCallback
+     *        The callback to provide the complete guild to
+     */
+    public void completeGuildFirstPass(GuildImpl guildObj, JSONObject guild, Consumer<Guild> secondPassCallback)
+    {
+        final long id = guildObj.getIdLong();
+        //An existing guild was rebuilt in place, permissions cached before the rebuild may be stale
+        if (api.getGuildMap().get(id) == guildObj)
+            guildObj.getPermissionCache().invalidateAll();
+        guildObj.setAvailable(true);
+        api.getGuildMap().put(id, guildObj);
+        publishGuildEntities(guildObj);
+
+        if (requiresChunking(guild))
         {
             cachedGuildJsons.put(id, guild);
             cachedGuildCallbacks.put(id, secondPassCallback);
@@ -258,23 +393,13 @@ public class EntityBuilder
 
             //If we are already past READY / RESUME, then chunk at runtime. Otherwise, pass back to the ReadyHandler
             // and let it send a burst chunk request.
+            //With lazy guild loading this is the case for every guild that was not complete in READY.
             if (api.getClient().isReady())
             {
+                //Runtime requests are batched by the client, up to 50 guilds per request
                 if (api.getAccountType() == AccountType.CLIENT)
-                {
-                    JSONObject obj = new JSONObject()
-                            .put("op", WebSocketCode.GUILD_SYNC)
-                            .put("guild_id", guildObj.getId());
-                    api.getClient().chunkOrSyncRequest(obj);
-                }
-                JSONObject obj = new JSONObject()
-                        .put("op", WebSocketCode.MEMBER_CHUNK_REQUEST)
-                        .put("d", new JSONObject()
-                            .put("guild_id", id)
-                            .put("query","")
-                            .put("limit", 0)
-                        );
-                api.getClient().chunkOrSyncRequest(obj);
+                    api.getClient().requestGuildSync(id);
+                api.getClient().requestGuildMembers(id);
             }
             else
             {
@@ -286,23 +411,79 @@ public class EntityBuilder
             return;
         }
 
-        //As detailed in the comment above, if we've made it this far then we have all member information needed to
-        // create the Guild. Thus, we fill in the remaining information, unlock the guild, and provide the guild
-        // to the callback
-        //This should only occur on small user count guilds.
-
-        JSONArray channels = guild.getJSONArray("channels");
-        createGuildChannelPass(guildObj, channels); //Actually creates PermissionOverrides
-
-        JSONArray voiceStates = guild.getJSONArray("voice_states");
-        createGuildVoiceStatePass(guildObj, voiceStates);
+        //Presences and voice states are known now, so the cache policy can make an informed decision.
+        // This has to wait for the publish, otherwise users shared with other guilds would not be found.
+        applyMemberCachePolicy(guildObj);
 
-        api.getGuildLock().unlock(guildObj.getIdLong());
+        api.getGuildLock().unlock(id);
         if (secondPassCallback != null)
             secondPassCallback.accept(guildObj);
     }
 
-    public void createGuildSecondPass(long guildId, List<JSONArray> memberChunks)
+    /**
+     * Adds the channels and the users of a guild built by {@link #createGuildEntities(JSONObject)} to the global caches.
+     *
+     * @param guildObj
+     *        The guild
+     */
+    private void publishGuildEntities(GuildImpl guildObj)
+    {
+        guildObj.getCategoriesMap().forEachEntry((channelId, channel) ->
+        {
+            api.getCategoryMap().put(channelId, channel);
+            return true;
+        });
+        guildObj.getTextChannelsMap().forEachEntry((channelId, channel) ->
+        {
+            api.getTextChannelMap().put(channelId, channel);
+            return true;
+        });
+        guildObj.getVoiceChannelsMap().forEachEntry((channelId, channel) ->
+        {
+            api.getVoiceChannelMap().put(channelId, channel);
+            return true;
+        });
+
+        synchronized (userLock)
+        {
+            guildObj.getMembersMap().forEachValue(member ->
+            {
+                UserImpl user = (UserImpl) member.getUser();
+                final long userId = user.getIdLong();
+                pendingUsers.remove(userId);
+                if (user.isFake())
+                    promoteFakeUser(user);
+                else if (!api.getUserMap().containsKey(userId))
+                    api.getUserMap().put(userId, user);
+                return true;
+            });
+        }
+    }
+
+    private boolean requiresChunking(JSONObject guild)
+    {
+        return api.isChunkingEnabled() && guild.getJSONArray("members").length() != guild.getInt("member_count");
+    }
+
+    /**
+     * Creates the members of a {@code GUILD_MEMBERS_CHUNK} for a guild that is waiting for its second pass.
+     * <br>Chunks are converted as they arrive, so their json does not have to be retained until all chunks were received.
+     *
+     * @param guildId
+     *        The id of the guild
+     * @param members
+     *        The members of the chunk
+     */
+    public void createGuildMemberChunk(long guildId, JSONArray members)
+    {
+        GuildImpl guildObj = (GuildImpl) api.getGuildMap().get(guildId);
+        if (guildObj == null || !cachedGuildJsons.containsKey(guildId))
+            throw new IllegalStateException("Received a member chunk for a Guild that is not waiting for its second pass. GuildId: " + guildId);
+
+        createGuildMemberPass(guildObj, members);
+    }
+
+    public void createGuildSecondPass(long guildId)
     {
         JSONObject guildJson = cachedGuildJsons.remove(guildId);
         Consumer<Guild> secondPassCallback = cachedGuildCallbacks.remove(guildId);
@@ -317,24 +498,24 @@ public class EntityBuilder
         if (secondPassCallback == null)
             throw new IllegalArgumentException("No callback provided for the second pass on the Guild!");
 
-        for (JSONArray chunk : memberChunks)
+        guildObj.setOwnerId(guildJson.getLong("owner_id"));
+        if (guildObj.getOwner() == null)
         {
-            createGuildMemberPass(guildObj, chunk);
+            //Without chunking the owner is only known if discord sent it with the guild
+            if (api.isChunkingEnabled())
+                WebSocketClient.LOG.fatal("Never set the Owner of the Guild: " + guildObj.getId() + " because we don't have the owner User object! How?!");
+            else
+                WebSocketClient.LOG.debug("The Owner of the Guild: " + guildObj.getId() + " is not cached because member chunking is disabled");
         }
 
-        Member owner = guildObj.getMemberById(guildJson.getLong("owner_id"));
-        if (owner != null)
-            guildObj.setOwner(owner);
-
-        if (guildObj.getOwner() == null)
-            WebSocketClient.LOG.fatal("Never set the Owner of the Guild: " + guildObj.getId() + " because we don't have the owner User object! How?!");
-
         JSONArray channels = guildJson.getJSONArray("channels");
         createGuildChannelPass(guildObj, channels);
 
         JSONArray voiceStates = guildJson.getJSONArray("voice_states");
         createGuildVoiceStatePass(guildObj, voiceStates);
 
+        applyMemberCachePolicy(guildObj);
+
         secondPassCallback.accept(guildObj);
         api.getGuildLock().unlock(guildId);
     }
@@ -344,7 +525,8 @@ public class EntityBuilder
         for (int i = 0; i < members.length(); i++)
         {
             JSONObject memberJson = members.getJSONObject(i);
-            createMember(guild, memberJson);
+            if (!storeMember(guild, memberJson))
+                createMember(guild, memberJson);
         }
 
         for (int i = 0; i < presences.length(); i++)
@@ -353,10 +535,10 @@ public class EntityBuilder
             final long userId = presenceJson.getJSONObject("user").getLong("id");
 
             MemberImpl member = (MemberImpl) guild.getMembersMap().get(userId);
-            if (member == null)
-                WebSocketClient.LOG.fatal("Received a Presence for a non-existent Member when dealing with GuildSync!");
-            else
+            if (member != null)
                 this.createPresence(member, presenceJson);
+            else if (!setStoredStatus(guild, userId, presenceJson))
+                WebSocketClient.LOG.fatal("Received a Presence for a non-existent Member when dealing with GuildSync!");
         }
     }
 
@@ -365,10 +547,63 @@ public class EntityBuilder
         for (int i = 0; i < members.length(); i++)
         {
             JSONObject memberJson = members.getJSONObject(i);
-            createMember(guildObj, memberJson);
+            if (!storeMember(guildObj, memberJson))
+                createMember(guildObj, memberJson, true);
         }
     }
 
+    /**
+     * Writes the provided member straight into the {@link OffHeapMemberStore} of its guild,
+     * without creating a {@link MemberImpl} or a {@link UserImpl}.
+     * <br>The self member, the owner and members that are already cached stay on-heap.
+     *
+     * @param  guild
+     *         The guild of the member
+     * @param  memberJson
+     *         The member
+     *
+     * @return True, if the member was stored
+     */
+    private boolean storeMember(GuildImpl guild, JSONObject memberJson)
+    {
+        final OffHeapMemberStore store = guild.getMemberStore();
+        if (store == null)
+            return false;
+
+        JSONObject userJson = memberJson.getJSONObject("user");
+        final long userId = userJson.getLong("id");
+        if (userId == api.getSelfUser().getIdLong() || userId == guild.getOwnerIdLong()
+            || guild.getMembersMap().containsKey(userId))
+            return false;
+
+        //Users shared with other guilds are still kept up to date
+        if (api.getUserMap().containsKey(userId))
+            createUser(userJson);
+
+        JSONArray rolesJson = memberJson.getJSONArray("roles");
+        final long[] roleIds = new long[rolesJson.length()];
+        for (int i = 0; i < roleIds.length; i++)
+            roleIds[i] = rolesJson.getLong(i);
+
+        store.put(userId,
+            userJson.getString("username"),
+            userJson.get("discriminator").toString(),
+            userJson.isNull("avatar") ? null : userJson.getString("avatar"),
+            userJson.has("bot") && userJson.getBoolean("bot"),
+            memberJson.has("nick") && !memberJson.isNull("nick") ? memberJson.getString("nick") : null,
+            OffsetDateTime.parse(memberJson.getString("joined_at")),
+            roleIds, null,
+            memberJson.getBoolean("mute"),
+            memberJson.getBoolean("deaf"));
+        return true;
+    }
+
+    private boolean setStoredStatus(GuildImpl guild, long userId, JSONObject presenceJson)
+    {
+        final OffHeapMemberStore store = guild.getMemberStore();
+        return store != null && store.setOnlineStatus(userId, OnlineStatus.fromKey(presenceJson.getString("status")));
+    }
+
     private void createGuildChannelPass(GuildImpl guildObj, JSONArray channels)
     {
         for (int i = 0; i < channels.length(); i++)
@@ -379,10 +614,10 @@ public class EntityBuilder
             switch (type)
             {
                 case TEXT:
-                    channelObj = api.getTextChannelById(channel.getLong("id"));
+                    channelObj = guildObj.getTextChannelsMap().get(channel.getLong("id"));
                     break;
                 case VOICE:
-                    channelObj = api.getVoiceChannelById(channel.getLong("id"));
+                    channelObj = guildObj.getVoiceChannelsMap().get(channel.getLong("id"));
                     break;
                 case CATEGORY:
                     channelObj = guildObj.getCategoriesMap().get(channel.getLong("id"));
@@ -421,10 +656,33 @@ public class EntityBuilder
             JSONObject voiceStateJson = voiceStates.getJSONObject(i);
             final long userId = voiceStateJson.getLong("user_id");
             Member member = guildObj.getMembersMap().get(userId);
+            //Members in voice channels are kept on-heap, stored members are moved to the member cache
+            if (member == null && guildObj.getMemberStore() != null)
+            {
+                member = guildObj.getMemberStore().materialize(guildObj, userId);
+                if (member != null)
+                {
+                    guildObj.getMembersMap().put(userId, member);
+                    guildObj.getMemberStore().remove(userId);
+                    synchronized (userLock)
+                    {
+                        //Users of guilds that were not published yet are added by the publish
+                        if (!api.getUserMap().containsKey(userId))
+                        {
+                            if (api.getGuildMap().get(guildObj.getIdLong()) == guildObj)
+                                api.getUserMap().put(userId, member.getUser());
+                            else
+                                pendingUsers.putIfAbsent(userId, (UserImpl) member.getUser());
+                        }
+                    }
+                }
+            }
             if (member == null)
             {
-                WebSocketClient.LOG.fatal("Received a VoiceState for a unknown Member! GuildId: "
-                        + guildObj.getId() + " MemberId: " + voiceStateJson.getString("user_id"));
+                //Without chunking we only know the members discord decided to send with the guild
+                if (api.isChunkingEnabled())
+                    WebSocketClient.LOG.fatal("Received a VoiceState for a unknown Member! GuildId: "
+                            + guildObj.getId() + " MemberId: " + voiceStateJson.getString("user_id"));
                 continue;
             }
 
@@ -444,56 +702,257 @@ public class EntityBuilder
         }
     }
 
-    public User createFakeUser(JSONObject user, boolean modifyCache) { return createUser(user, true, modifyCache); }
-    public User createUser(JSONObject user)     { return createUser(user, false, true); }
-    private User createUser(JSONObject user, boolean fake, boolean modifyCache)
+    /**
+     * Consults the {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy} of this session
+     * for all cached members of the provided, completely loaded guild.
+     * <br>Guilds with an {@link OffHeapMemberStore} move all members besides the owner and members in voice channels
+     * into the store instead, independent of the policy.
+     *
+     * @param  guildObj
+     *         The guild
+     */
+    public void applyMemberCachePolicy(GuildImpl guildObj)
     {
-        final long id = user.getLong("id");
-        UserImpl userObj;
+        //Guilds with a store also move accepted members off-heap
+        if (api.getMemberCachePolicy() == MemberCachePolicy.ALL && guildObj.getMemberStore() == null)
+            return;
+
+        //Users are unloaded in one pass afterwards, checking every guild for each rejected member is too expensive
+        final TLongSet unloaded = new TLongHashSet();
+        for (Member member : guildObj.getMembersMap().valueCollection().toArray(new Member[0]))
+        {
+            if (!updateMemberCache((MemberImpl) member, false))
+                unloaded.add(member.getUser().getIdLong());
+        }
+        if (unloaded.isEmpty())
+            return;
 
-        userObj = (UserImpl) api.getUserMap().get(id);
-        if (userObj == null)
+        for (Guild guild : api.getGuildMap().valueCollection())
         {
-            userObj = (UserImpl) api.getFakeUserMap().get(id);
-            if (userObj != null)
+            final TLongObjectMap<Member> members = ((GuildImpl) guild).getMembersMap();
+            if (members.size() < unloaded.size())
             {
-                if (!fake && modifyCache)
+                members.forEachKey(id ->
                 {
-                    api.getFakeUserMap().remove(id);
-                    userObj.setFake(false);
-                    api.getUserMap().put(userObj.getIdLong(), userObj);
-                    if (userObj.hasPrivateChannel())
-                    {
-                        PrivateChannelImpl priv = (PrivateChannelImpl) userObj.getPrivateChannel();
-                        priv.setFake(false);
-                        api.getFakePrivateChannelMap().remove(priv.getIdLong());
-                        api.getPrivateChannelMap().put(priv.getIdLong(), priv);
-                    }
-                }
+                    unloaded.remove(id);
+                    return !unloaded.isEmpty();
+                });
             }
             else
             {
-                userObj = new UserImpl(id, api).setFake(fake);
-                if (modifyCache)
+                for (TLongIterator it = unloaded.iterator(); it.hasNext();)
+                {
+                    if (members.containsKey(it.next()))
+                        it.remove();
+                }
+            }
+            if (unloaded.isEmpty())
+                return;
+        }
+        unloaded.forEach(userId ->
+        {
+            removeUser(userId);
+            return true;
+        });
+    }
+
+    /**
+     * Consults the {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy} of this session
+     * for the provided member and unloads it if the policy rejects it.
+     * <br>Guilds with an {@link OffHeapMemberStore} keep only the owner and members in voice channels cached,
+     * all other members are written to the store.
+     *
+     * @param  member
+     *         The member that was loaded or updated
+     *
+     * @return True, if the member is still cached
+     */
+    public boolean updateMemberCache(MemberImpl member)
+    {
+        return updateMemberCache(member, true);
+    }
+
+    private boolean updateMemberCache(MemberImpl member, boolean unloadUser)
+    {
+        final GuildImpl guild = (GuildImpl) member.getGuild();
+        final long userId = member.getUser().getIdLong();
+        if (userId == api.getSelfUser().getIdLong())
+            return true;
+
+        final OffHeapMemberStore store = guild.getMemberStore();
+        //The owner is always cached, like the self member.
+        // Guilds with a store keep all other members off-heap, unless they are connected to a voice channel.
+        final boolean cache = userId == guild.getOwnerIdLong() || (store == null
+            ? api.getMemberCachePolicy().cacheMember(member)
+            : member.getVoiceState().inVoiceChannel());
+        if (cache)
+        {
+            //Members that were built for events or REST responses are not necessarily in the cache yet
+            if (!guild.getMembersMap().containsKey(userId))
+            {
+                guild.getMembersMap().put(userId, member);
+                //Materialized members might use a User instance that is not cached
+                api.getUserMap().putIfAbsent(userId, member.getUser());
+                if (store != null)
+                    store.remove(userId);
+            }
+            return true;
+        }
+
+        if (store != null && !guild.getMembersMap().containsKey(userId))
+            store.put(member);
+        unloadMember(guild, userId, unloadUser);
+        return false;
+    }
+
+    public void unloadMember(GuildImpl guild, long userId)
+    {
+        unloadMember(guild, userId, true);
+    }
+
+    private void unloadMember(GuildImpl guild, long userId, boolean unloadUser)
+    {
+        if (userId == api.getSelfUser().getIdLong())
+            return;
+
+        MemberImpl member = (MemberImpl) guild.getMembersMap().remove(userId);
+        //Updates for unloaded members are dropped, so their permissions could become outdated
+        guild.getPermissionCache().invalidateMember(userId);
+        if (member == null)
+            return;
+
+        if (guild.getMemberStore() != null)
+            guild.getMemberStore().put(member);
+
+        VoiceChannelImpl channel = (VoiceChannelImpl) member.getVoiceState().getChannel();
+        if (channel != null)
+            channel.getConnectedMembersMap().remove(userId);
+        if (unloadUser)
+            unloadUser(userId);
+    }
+
+    /**
+     * Removes the {@link net.dv8tion.jda.core.entities.User User} with the provided id from the user cache
+     * if it no longer shares a guild with the currently logged in account.
+     * <br>Users with open PrivateChannels or shared Groups are moved to the fake user cache instead.
+     *
+     * @param  userId
+     *         The id of the user
+     *
+     * @return True, if the user was removed from the user cache
+     */
+    public boolean unloadUser(long userId)
+    {
+        //The user is not in a different guild that we share
+        // The user also is not a friend of this account in the case that the logged in account is a client account.
+        if (userId == api.getSelfUser().getIdLong() // don't remove selfUser from cache
+            || api.getGuildMap().valueCollection().stream().anyMatch(g -> ((GuildImpl) g).getMembersMap().containsKey(userId)))
+            return false;
+        return removeUser(userId);
+    }
+
+    private boolean removeUser(long userId)
+    {
+        if (api.getAccountType() == AccountType.CLIENT && api.asClient().getFriendById(userId) != null)
+            return false;
+
+        UserImpl user = (UserImpl) api.getUserMap().remove(userId);
+        if (user == null)
+            return false;
+        if (user.hasPrivateChannel())
+        {
+            PrivateChannelImpl priv = (PrivateChannelImpl) user.getPrivateChannel();
+            user.setFake(true);
+            priv.setFake(true);
+            api.getFakeUserMap().put(user.getIdLong(), user);
+            api.getFakePrivateChannelMap().put(priv.getIdLong(), priv);
+        }
+        else if (api.getAccountType() == AccountType.CLIENT)
+        {
+            //While the user might not have a private channel, if this is a client account then the user
+            // could be in a Group, and if so we need to change the User object to be fake and
+            // place it in the FakeUserMap
+            for (Group grp : api.asClient().getGroups())
+            {
+                if (grp.getNonFriendUsers().contains(user))
+                {
+                    user.setFake(true);
+                    api.getFakeUserMap().put(user.getIdLong(), user);
+                    break; //Breaks from groups loop
+                }
+            }
+        }
+        api.getEventCache().clear(EventCache.Type.USER, userId);
+        return true;
+    }
+
+    public User createFakeUser(JSONObject user, boolean modifyCache) { return createUser(user, true, modifyCache, false); }
+    public User createUser(JSONObject user)     { return createUser(user, false, true, false); }
+    private User createUser(JSONObject user, boolean fake, boolean modifyCache, boolean pending)
+    {
+        final long id = user.getLong("id");
+        UserImpl userObj;
+
+        //Guilds can be built in parallel, the lookup and creation has to be atomic to not create the same user twice
+        synchronized (userLock)
+        {
+            userObj = (UserImpl) api.getUserMap().get(id);
+            if (userObj == null)
+                userObj = pendingUsers.get(id);
+            if (userObj == null)
+            {
+                userObj = (UserImpl) api.getFakeUserMap().get(id);
+                if (userObj != null)
                 {
-                    if (fake)
-                        api.getFakeUserMap().put(id, userObj);
-                    else
-                        api.getUserMap().put(id, userObj);
+                    //Pending users are promoted once their guild is published
+                    if (!fake && modifyCache && !pending)
+                        promoteFakeUser(userObj);
+                }
+                else
+                {
+                    userObj = new UserImpl(id, api).setFake(fake);
+                    if (pending)
+                        pendingUsers.put(id, userObj);
+                    else if (modifyCache)
+                    {
+                        if (fake)
+                            api.getFakeUserMap().put(id, userObj);
+                        else
+                            api.getUserMap().put(id, userObj);
+                    }
                 }
             }
         }
 
         return userObj
-                .setName(user.getString("username"))
+                .setName(intern(user.getString("username")))
                 .setDiscriminator(user.get("discriminator").toString())
-                .setAvatarId(user.isNull("avatar") ? null : user.getString("avatar"))
+                .setAvatarId(user.isNull("avatar") ? null : intern(user.getString("avatar")))
                 .setBot(user.has("bot") && user.getBoolean("bot"));
     }
 
+    private void promoteFakeUser(UserImpl userObj)
+    {
+        api.getFakeUserMap().remove(userObj.getIdLong());
+        userObj.setFake(false);
+        api.getUserMap().put(userObj.getIdLong(), userObj);
+        if (userObj.hasPrivateChannel())
+        {
+            PrivateChannelImpl priv = (PrivateChannelImpl) userObj.getPrivateChannel();
+            priv.setFake(false);
+            api.getFakePrivateChannelMap().remove(priv.getIdLong());
+            api.getPrivateChannelMap().put(priv.getIdLong(), priv);
+        }
+    }
+
     public Member createMember(GuildImpl guild, JSONObject memberJson)
     {
-        User user = createUser(memberJson.getJSONObject("user"));
+        return createMember(guild, memberJson, false);
+    }
+
+    private Member createMember(GuildImpl guild, JSONObject memberJson, boolean pending)
+    {
+        User user = createUser(memberJson.getJSONObject("user"), false, true, pending);
         MemberImpl member = (MemberImpl) guild.getMember(user);
         if (member == null)
         {
@@ -507,7 +966,7 @@ public class EntityBuilder
 
         member.setJoinDate(OffsetDateTime.parse(memberJson.getString("joined_at")))
             .setNickname(memberJson.has("nick") && !memberJson.isNull("nick")
-                ? memberJson.getString("nick")
+                ? intern(memberJson.getString("nick"))
                 : null);
 
         JSONArray rolesJson = memberJson.getJSONArray("roles");
@@ -537,29 +996,8 @@ public class EntityBuilder
 
         JSONObject gameJson = presenceJson.isNull("game") ? null: presenceJson.getJSONObject("game");
         OnlineStatus onlineStatus = OnlineStatus.fromKey(presenceJson.getString("status"));
-        Game game = null;
-
-        if (gameJson != null && !gameJson.isNull("name"))
-        {
-            String gameName = gameJson.get("name").toString();
-            String url = gameJson.isNull("url")
-                    ? null
-                    : gameJson.get("url").toString();
-
-            Game.GameType gameType;
-            try
-            {
-                gameType = gameJson.isNull("type")
-                        ? Game.GameType.DEFAULT
-                        : Game.GameType.fromKey(Integer.parseInt(gameJson.get("type").toString()));
-            }
-            catch (NumberFormatException e)
-            {
-                gameType = Game.GameType.DEFAULT;
-            }
+        Game game = createGame(gameJson);
 
-            game = createGame(gameName, url, gameType);
-        }
         if (memberOrFriend instanceof Member)
         {
             MemberImpl member = (MemberImpl) memberOrFriend;
@@ -582,21 +1020,118 @@ public class EntityBuilder
             throw new IllegalArgumentException("An object was provided to EntityBuilder#createPresence that wasn't a Member or Friend. JSON: " + presenceJson);
     }
 
+    /**
+     * Creates a member of the provided guild from a PRESENCE_UPDATE, which contains the roles and nickname of the member.
+     * <br>Used for members that are not cached because of the {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy},
+     * the returned member is not added to any cache. Use {@link #updateMemberCache(MemberImpl)} to let the policy decide.
+     *
+     * @param guild
+     *        The guild
+     * @param presenceJson
+     *        The presence
+     *
+     * @return The member, or null if the user is not cached and the presence does not contain the full user
+     */
+    public MemberImpl createMemberFromPresence(GuildImpl guild, JSONObject presenceJson)
+    {
+        JSONObject userJson = presenceJson.getJSONObject("user");
+        final long userId = userJson.getLong("id");
+        //The stored member knows its join date, which is not part of the presence
+        MemberImpl member = guild.getMemberStore() == null ? null : guild.getMemberStore().materialize(guild, userId);
+        if (member == null)
+        {
+            User user = api.getUserMap().get(userId);
+            if (user == null)
+            {
+                if (!userJson.has("username"))
+                    return null;
+                user = new UserImpl(userId, api)
+                    .setName(intern(userJson.getString("username")))
+                    .setDiscriminator(userJson.get("discriminator").toString())
+                    .setAvatarId(userJson.isNull("avatar") ? null : intern(userJson.getString("avatar")))
+                    .setBot(userJson.has("bot") && userJson.getBoolean("bot"));
+            }
+            member = new MemberImpl(guild, user);
+        }
+
+        if (presenceJson.has("nick"))
+            member.setNickname(presenceJson.isNull("nick") ? null : intern(presenceJson.getString("nick")));
+        JSONArray rolesJson = presenceJson.optJSONArray("roles");
+        if (rolesJson != null)
+        {
+            member.getRoleSet().clear();
+            for (int i = 0; i < rolesJson.length(); i++)
+            {
+                Role role = guild.getRolesMap().get(rolesJson.getLong(i));
+                if (role != null)
+                    member.getRoleSet().add(role);
+            }
+        }
+        createPresence(member, presenceJson);
+        return member;
+    }
+
+    /**
+     * Stores the presence of a user that is not yet a cached member of the provided guild
+     * until the member is added to the guild.
+     *
+     * @param guild
+     *        The guild
+     * @param userId
+     *        The id of the user
+     * @param status
+     *        The status of the presence, {@link net.dv8tion.jda.core.OnlineStatus#OFFLINE OFFLINE} removes the stored presence
+     * @param game
+     *        The game of the presence, possibly null
+     */
+    public void cachePresence(GuildImpl guild, long userId, OnlineStatus status, Game game)
+    {
+        if (status == OnlineStatus.OFFLINE)
+        {
+            guild.getCachedPresenceStatusMap().remove(userId);
+            guild.getCachedPresenceGameMap().remove(userId);
+            return;
+        }
+
+        guild.getCachedPresenceStatusMap().put(userId, (byte) status.ordinal());
+        if (game == null)
+            guild.getCachedPresenceGameMap().remove(userId);
+        else
+            guild.getCachedPresenceGameMap().put(userId, game);
+    }
+
+    public void loadCachedPresence(GuildImpl guild, MemberImpl member)
+    {
+        final long userId = member.getUser().getIdLong();
+        if (!guild.getCachedPresenceStatusMap().containsKey(userId))
+            return;
+
+        byte status = guild.getCachedPresenceStatusMap().remove(userId);
+        member.setOnlineStatus(OnlineStatus.values()[status]);
+        member.setGame(guild.getCachedPresenceGameMap().remove(userId));
+    }
+
     public Category createCategory(JSONObject json, long guildId)
     {
         return createCategory(json, guildId, true);
     }
 
     public Category createCategory(JSONObject json, long guildId, boolean guildIsLoaded)
+    {
+        return createCategory(json, (GuildImpl) api.getGuildMap().get(guildId), guildIsLoaded, true);
+    }
+
+    private Category createCategory(JSONObject json, GuildImpl guild, boolean guildIsLoaded, boolean publish)
     {
         final long id = json.getLong("id");
-        CategoryImpl channel = api.getCategoryMap().get(id);
+        //Guilds that are still being built only look at their own channels, the global cache might hold stale channels
+        CategoryImpl channel = publish ? api.getCategoryMap().get(id) : guild.getCategoriesMap().get(id);
         if (channel == null)
         {
-            GuildImpl guild = ((GuildImpl) api.getGuildMap().get(guildId));
             channel = new CategoryImpl(id, guild);
             guild.getCategoriesMap().put(id, channel);
-            api.getCategoryMap().put(id, channel);
+            if (publish)
+                api.getCategoryMap().put(id, channel);
         }
 
         if (!json.isNull("permission_overwrites") && guildIsLoaded)
@@ -620,15 +1155,20 @@ public class EntityBuilder
     }
 
     public TextChannel createTextChannel(JSONObject json, long guildId, boolean guildIsLoaded)
+    {
+        return createTextChannel(json, (GuildImpl) api.getGuildMap().get(guildId), guildIsLoaded, true);
+    }
+
+    private TextChannel createTextChannel(JSONObject json, GuildImpl guild, boolean guildIsLoaded, boolean publish)
     {
         final long id = json.getLong("id");
-        TextChannelImpl channel = (TextChannelImpl) api.getTextChannelMap().get(id);
+        TextChannelImpl channel = (TextChannelImpl) (publish ? api.getTextChannelMap().get(id) : guild.getTextChannelsMap().get(id));
         if (channel == null)
         {
-            GuildImpl guild = ((GuildImpl) api.getGuildMap().get(guildId));
             channel = new TextChannelImpl(id, guild);
             guild.getTextChannelsMap().put(id, channel);
-            api.getTextChannelMap().put(id, channel);
+            if (publish)
+                api.getTextChannelMap().put(id, channel);
         }
 
         if (!json.isNull("permission_overwrites") && guildIsLoaded)
@@ -655,15 +1195,20 @@ public class EntityBuilder
     }
 
     public VoiceChannel createVoiceChannel(JSONObject json, long guildId, boolean guildIsLoaded)
+    {
+        return createVoiceChannel(json, (GuildImpl) api.getGuildMap().get(guildId), guildIsLoaded, true);
+    }
+
+    private VoiceChannel createVoiceChannel(JSONObject json, GuildImpl guild, boolean guildIsLoaded, boolean publish)
     {
         final long id = json.getLong("id");
-        VoiceChannelImpl channel = ((VoiceChannelImpl) api.getVoiceChannelMap().get(id));
+        VoiceChannelImpl channel = (VoiceChannelImpl) (publish ? api.getVoiceChannelMap().get(id) : guild.getVoiceChannelsMap().get(id));
         if (channel == null)
         {
-            GuildImpl guild = (GuildImpl) api.getGuildMap().get(guildId);
             channel = new VoiceChannelImpl(id, guild);
             guild.getVoiceChannelsMap().put(id, channel);
-            api.getVoiceChannelMap().put(id, channel);
+            if (publish)
+                api.getVoiceChannelMap().put(id, channel);
         }
 
         if (!json.isNull("permission_overwrites") && guildIsLoaded)
@@ -712,16 +1257,20 @@ public class EntityBuilder
     }
 
     public Role createRole(JSONObject roleJson, long guildId)
+    {
+        return createRole(roleJson, (GuildImpl) api.getGuildMap().get(guildId));
+    }
+
+    private Role createRole(JSONObject roleJson, GuildImpl guild)
     {
         final long id = roleJson.getLong("id");
-        GuildImpl guild = ((GuildImpl) api.getGuildMap().get(guildId));
         RoleImpl role = ((RoleImpl) guild.getRolesMap().get(id));
         if (role == null)
         {
             role = new RoleImpl(id, guild);
             guild.getRolesMap().put(id, role);
         }
-        return role.setName(roleJson.getString("name"))
+        return role.setName(intern(roleJson.getString("name")))
                 .setRawPosition(roleJson.getInt("position"))
                 .setRawPermissions(roleJson.getLong("permissions"))
                 .setManaged(roleJson.getBoolean("managed"))
@@ -803,6 +1352,12 @@ public class EntityBuilder
                 message.setAuthor(user);
             else if (fromWebhook || !exceptionOnMissingUser)
                 message.setAuthor(createFakeUser(author, false));
+            else if (!api.isMemberCacheComplete())
+            {
+                //The author might just not be cached due to the MemberCachePolicy, waiting for them won't help
+                user = api.getUserMap().get(authorId);
+                message.setAuthor(user != null ? user : createFakeUser(author, false));
+            }
             else
                 throw new IllegalArgumentException(MISSING_USER);
         }
@@ -1059,6 +1614,7 @@ public class EntityBuilder
             default:
                 throw new IllegalArgumentException("Provided with an unknown PermissionOverride type! JSON: " + override);
         }
+        ((GuildImpl) chan.getGuild()).getPermissionCache().invalidateChannel(chan.getIdLong());
         return permOverride.setAllow(allow).setDeny(deny);
     }
 
@@ -1231,6 +1787,10 @@ public class EntityBuilder
     {
         cachedGuildJsons.clear();
         cachedGuildCallbacks.clear();
+        synchronized (userLock)
+        {
+            pendingUsers.clear();
+        }
     }
 
     public ApplicationInfo createApplicationInfo(JSONObject object)
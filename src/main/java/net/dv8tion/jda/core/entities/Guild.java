@@ -124,10 +124,31 @@ public interface Guild extends ISnowflake
      * <p>
      * Ownership can be transferred using {@link GuildController#transferOwnership(Member)}.
      *
-     * @return Never-null Member object containing the Guild owner.
+     * <p>The owner is always cached regardless of the {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy}.
+     * This is only {@code null} if discord did not send the owner, which can happen if
+     * {@link net.dv8tion.jda.core.JDABuilder#setChunkingEnabled(boolean) chunking} is disabled.
+     * Use {@link #getOwnerIdLong()} and {@link #retrieveMemberById(long)} in that case.
+     *
+     * @return Possibly-null Member object containing the Guild owner.
      */
     Member getOwner();
 
+    /**
+     * The id of the {@link net.dv8tion.jda.core.entities.User User} that owns this Guild.
+     * <br>Unlike {@link #getOwner()} this is always available.
+     *
+     * @return The id of the owner
+     */
+    long getOwnerIdLong();
+
+    /**
+     * The id of the {@link net.dv8tion.jda.core.entities.User User} that owns this Guild.
+     * <br>Unlike {@link #getOwner()} this is always available.
+     *
+     * @return The id of the owner
+     */
+    String getOwnerId();
+
     /**
      * The {@link net.dv8tion.jda.core.entities.Guild.Timeout Timeout} set for this Guild representing the amount of time
      * that must pass for a Member to have had no activity in a {@link net.dv8tion.jda.core.entities.VoiceChannel VoiceChannel}
@@ -157,6 +178,8 @@ public interface Guild extends ISnowflake
     /**
      * Used to determine if the provided {@link net.dv8tion.jda.core.entities.User User} is a member of this Guild.
      *
+     * <p>This only checks the cached members, see {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy}.
+     *
      * @param  user
      *         The user to determine whether or not they are a member of this guild.
      *
@@ -213,10 +236,57 @@ public interface Guild extends ISnowflake
      */
     Member getMemberById(long userId);
 
+    /**
+     * Retrieves the {@link net.dv8tion.jda.core.entities.Member Member} with the provided user id.
+     * <br>If the member is cached this will return the cached instance without making a request, otherwise
+     * the member is requested from Discord. Whether the retrieved member is added to the cache is decided by the
+     * {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy} of the JDA session.
+     *
+     * <p>Possible {@link net.dv8tion.jda.core.requests.ErrorResponse ErrorResponses} include:
+     * <ul>
+     *     <li>{@link net.dv8tion.jda.core.requests.ErrorResponse#UNKNOWN_MEMBER UNKNOWN_MEMBER}
+     *     <br>The specified user is not a member of this guild</li>
+     * </ul>
+     *
+     * @param  userId
+     *         The Discord id of the User for which a Member object is requested.
+     *
+     * @throws java.lang.NumberFormatException
+     *         If the provided {@code id} cannot be parsed by {@link Long#parseLong(String)}
+     *
+     * @return {@link net.dv8tion.jda.core.requests.RestAction RestAction} - Type: {@link net.dv8tion.jda.core.entities.Member Member}
+     */
+    @CheckReturnValue
+    RestAction<Member> retrieveMemberById(String userId);
+
+    /**
+     * Retrieves the {@link net.dv8tion.jda.core.entities.Member Member} with the provided user id.
+     * <br>If the member is cached this will return the cached instance without making a request, otherwise
+     * the member is requested from Discord. Whether the retrieved member is added to the cache is decided by the
+     * {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy} of the JDA session.
+     *
+     * <p>Possible {@link net.dv8tion.jda.core.requests.ErrorResponse ErrorResponses} include:
+     * <ul>
+     *     <li>{@link net.dv8tion.jda.core.requests.ErrorResponse#UNKNOWN_MEMBER UNKNOWN_MEMBER}
+     *     <br>The specified user is not a member of this guild</li>
+     * </ul>
+     *
+     * @param  userId
+     *         The Discord id of the User for which a Member object is requested.
+     *
+     * @return {@link net.dv8tion.jda.core.requests.RestAction RestAction} - Type: {@link net.dv8tion.jda.core.entities.Member Member}
+     */
+    @CheckReturnValue
+    RestAction<Member> retrieveMemberById(long userId);
+
     /**
      * A list of all {@link net.dv8tion.jda.core.entities.Member Members} in this Guild.
      * <br>The Members are not provided in any particular order.
      *
+     * <p>This only contains the cached members, see {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy}.
+     * Members that are kept off-heap (see {@link net.dv8tion.jda.core.JDABuilder#setOffHeapMemberThreshold(int) JDABuilder.setOffHeapMemberThreshold(int)})
+     * are created when this list is requested.
+     *
      * @return Immutable list of all members in this Guild.
      */
     List<Member> getMembers();
@@ -16,7 +16,10 @@
 
 package net.dv8tion.jda.core.entities.impl;
 
+import gnu.trove.impl.sync.TSynchronizedLongByteMap;
+import gnu.trove.map.TLongByteMap;
 import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongByteHashMap;
 import net.dv8tion.jda.client.requests.restaction.pagination.MentionPaginationAction;
 import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.Permission;
@@ -47,6 +50,7 @@ import javax.annotation.Nullable;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 public class GuildImpl implements Guild
@@ -57,17 +61,21 @@ public class GuildImpl implements Guild
     private final TLongObjectMap<TextChannel> textChannels = MiscUtil.newLongMap();
     private final TLongObjectMap<VoiceChannel> voiceChannels = MiscUtil.newLongMap();
     private final TLongObjectMap<Member> members = MiscUtil.newLongMap();
+    private final PermissionCache permissionCache = new PermissionCache();
     private final TLongObjectMap<Role> roles = MiscUtil.newLongMap();
     private final TLongObjectMap<Emote> emotes = MiscUtil.newLongMap();
 
-    private final TLongObjectMap<JSONObject> cachedPresences = MiscUtil.newLongMap();
+    //Presences for users that are not yet members, stored as OnlineStatus ordinal and shared Game instance
+    private final TLongByteMap cachedPresenceStatus = new TSynchronizedLongByteMap(new TLongByteHashMap(), new Object());
+    private final TLongObjectMap<Game> cachedPresenceGames = MiscUtil.newLongMap();
 
     private final Object mngLock = new Object();
     private volatile GuildManager manager;
     private volatile GuildManagerUpdatable managerUpdatable;
     private volatile GuildController controller;
+    private volatile OffHeapMemberStore memberStore;
 
-    private Member owner;
+    private long ownerId;
     private String name;
     private String iconId;
     private String splashId;
@@ -80,7 +88,7 @@ public class GuildImpl implements Guild
     private MFALevel mfaLevel;
     private ExplicitContentLevel explicitContentLevel;
     private Timeout afkTimeout;
-    private boolean available;
+    private volatile boolean available;
     private boolean canSendVerification = false;
 
     public GuildImpl(JDAImpl api, long id)
@@ -174,7 +182,19 @@ public class GuildImpl implements Guild
     @Override
     public Member getOwner()
     {
-        return owner;
+        return getMemberById(ownerId);
+    }
+
+    @Override
+    public long getOwnerIdLong()
+    {
+        return ownerId;
+    }
+
+    @Override
+    public String getOwnerId()
+    {
+        return Long.toUnsignedString(ownerId);
     }
 
     @Override
@@ -192,7 +212,8 @@ public class GuildImpl implements Guild
     @Override
     public boolean isMember(User user)
     {
-        return members.containsKey(user.getIdLong());
+        final OffHeapMemberStore store = memberStore;
+        return members.containsKey(user.getIdLong()) || store != null && store.contains(user.getIdLong());
     }
 
     @Override
@@ -210,55 +231,100 @@ public class GuildImpl implements Guild
     @Override
     public Member getMemberById(String userId)
     {
-        return members.get(MiscUtil.parseSnowflake(userId));
+        return getMemberById(MiscUtil.parseSnowflake(userId));
     }
 
     @Override
     public Member getMemberById(long userId)
     {
-        return members.get(userId);
+        Member member = members.get(userId);
+        final OffHeapMemberStore store = memberStore;
+        if (member == null && store != null)
+            member = store.materialize(this, userId);
+        return member;
+    }
+
+    @Override
+    public RestAction<Member> retrieveMemberById(String userId)
+    {
+        return retrieveMemberById(MiscUtil.parseSnowflake(userId));
+    }
+
+    @Override
+    public RestAction<Member> retrieveMemberById(long userId)
+    {
+        Member member = getMemberById(userId);
+        if (member != null)
+            return new RestAction.EmptyRestAction<>(api, member);
+
+        Route.CompiledRoute route = Route.Guilds.GET_MEMBER.compile(getId(), Long.toUnsignedString(userId));
+        return new RestAction<Member>(api, route)
+        {
+            @Override
+            protected void handleResponse(Response response, Request<Member> request)
+            {
+                if (!response.isOk())
+                {
+                    request.onFailure(response);
+                    return;
+                }
+
+                EntityBuilder builder = api.getEntityBuilder();
+                MemberImpl member = (MemberImpl) builder.createMember(GuildImpl.this, response.getObject());
+                builder.updateMemberCache(member);
+                request.onSuccess(member);
+            }
+        };
     }
 
     @Override
     public List<Member> getMembers()
     {
-        return Collections.unmodifiableList(new ArrayList<>(members.valueCollection()));
+        final OffHeapMemberStore store = memberStore;
+        if (store == null)
+            return Collections.unmodifiableList(new ArrayList<>(members.valueCollection()));
+
+        //Members that are kept off-heap are materialized all at once, members that left in the meantime are skipped
+        final List<Member> list = new ArrayList<>(members.valueCollection());
+        for (long userId : store.getUserIds())
+        {
+            if (members.containsKey(userId))
+                continue;
+            Member member = store.materialize(this, userId);
+            if (member != null)
+                list.add(member);
+        }
+        return Collections.unmodifiableList(list);
     }
 
     @Override
     public List<Member> getMembersByName(String name, boolean ignoreCase)
     {
         Checks.notNull(name, "name");
-        return Collections.unmodifiableList(members.valueCollection().stream()
-                .filter(m ->
-                    ignoreCase
-                    ? name.equalsIgnoreCase(m.getUser().getName())
-                    : name.equals(m.getUser().getName()))
-                .collect(Collectors.toList()));
+        return findMembers((username, nickname) ->
+            ignoreCase
+            ? name.equalsIgnoreCase(username)
+            : name.equals(username));
     }
 
     @Override
     public List<Member> getMembersByNickname(String nickname, boolean ignoreCase)
     {
         Checks.notNull(nickname, "nickname");
-        return Collections.unmodifiableList(members.valueCollection().stream()
-                .filter(m ->
-                    ignoreCase
-                    ? nickname.equalsIgnoreCase(m.getNickname())
-                    : nickname.equals(m.getNickname()))
-                .collect(Collectors.toList()));
+        return findMembers((username, nick) ->
+            ignoreCase
+            ? nickname.equalsIgnoreCase(nick)
+            : nickname.equals(nick));
     }
 
     @Override
     public List<Member> getMembersByEffectiveName(String name, boolean ignoreCase)
     {
         Checks.notNull(name, "name");
-        return Collections.unmodifiableList(members.valueCollection().stream()
-                .filter(m ->
-                    ignoreCase
-                    ? name.equalsIgnoreCase(m.getEffectiveName())
-                    : name.equals(m.getEffectiveName()))
-                .collect(Collectors.toList()));
+        return findMembers((username, nickname) ->
+            ignoreCase
+            ? name.equalsIgnoreCase(nickname == null ? username : nickname)
+            : name.equals(nickname == null ? username : nickname));
     }
 
     @Override
@@ -279,9 +345,22 @@ public class GuildImpl implements Guild
                 throw new IllegalArgumentException("Role provided was from a different Guild! Role: " + r);
         }
 
-        return Collections.unmodifiableList(members.valueCollection().stream()
+        List<Member> list = members.valueCollection().stream()
                         .filter(m -> m.getRoles().containsAll(roles))
-                        .collect(Collectors.toList()));
+                        .collect(Collectors.toList());
+
+        final OffHeapMemberStore store = memberStore;
+        if (store != null)
+        {
+            final long[] roleIds = roles.stream().mapToLong(Role::getIdLong).distinct().toArray();
+            for (long userId : store.findUserIdsWithRoles(roleIds))
+            {
+                Member member = store.materialize(this, userId);
+                if (member != null && !members.containsKey(userId))
+                    list.add(member);
+            }
+        }
+        return Collections.unmodifiableList(list);
     }
 
     @Override
@@ -588,7 +667,7 @@ public class GuildImpl implements Guild
     @Override
     public RestAction<Void> leave()
     {
-        if (owner.equals(getSelfMember()))
+        if (ownerId == api.getSelfUser().getIdLong())
             throw new IllegalStateException("Cannot leave a guild that you are the owner of! Transfer guild ownership first!");
 
         Route.CompiledRoute route = Route.Self.LEAVE_GUILD.compile(getId());
@@ -617,7 +696,7 @@ public class GuildImpl implements Guild
     @Override
     public RestAction<Void> delete(String mfaCode)
     {
-        if (!owner.equals(getSelfMember()))
+        if (ownerId != api.getSelfUser().getIdLong())
             throw new PermissionException("Cannot delete a guild that you do not own!");
 
         JSONObject mfaBody = null;
@@ -747,9 +826,9 @@ public class GuildImpl implements Guild
         return this;
     }
 
-    public GuildImpl setOwner(Member owner)
+    public GuildImpl setOwnerId(long ownerId)
     {
-        this.owner = owner;
+        this.ownerId = ownerId;
         return this;
     }
 
@@ -843,6 +922,42 @@ public class GuildImpl implements Guild
         return voiceChannels;
     }
 
+    public PermissionCache getPermissionCache()
+    {
+        return permissionCache;
+    }
+
+    public OffHeapMemberStore getMemberStore()
+    {
+        return memberStore;
+    }
+
+    public GuildImpl setMemberStore(OffHeapMemberStore memberStore)
+    {
+        this.memberStore = memberStore;
+        return this;
+    }
+
+    private List<Member> findMembers(BiPredicate<String, String> names)
+    {
+        List<Member> list = members.valueCollection().stream()
+                .filter(m -> names.test(m.getUser().getName(), m.getNickname()))
+                .collect(Collectors.toList());
+
+        //Only the names of the members that are kept off-heap are compared, matching members are materialized
+        final OffHeapMemberStore store = memberStore;
+        if (store != null)
+        {
+            for (long userId : store.findUserIds(names))
+            {
+                Member member = store.materialize(this, userId);
+                if (member != null && !members.containsKey(userId))
+                    list.add(member);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
     public TLongObjectMap<Member> getMembersMap()
     {
         return members;
@@ -853,9 +968,14 @@ public class GuildImpl implements Guild
         return roles;
     }
 
-    public TLongObjectMap<JSONObject> getCachedPresenceMap()
+    public TLongByteMap getCachedPresenceStatusMap()
+    {
+        return cachedPresenceStatus;
+    }
+
+    public TLongObjectMap<Game> getCachedPresenceGameMap()
     {
-        return cachedPresences;
+        return cachedPresenceGames;
     }
 
     public TLongObjectMap<Emote> getEmoteMap()
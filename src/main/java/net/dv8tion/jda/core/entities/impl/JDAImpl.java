@@ -24,7 +24,6 @@ import net.dv8tion.jda.client.JDAClient;
 import net.dv8tion.jda.client.entities.impl.JDAClientImpl;
 import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.JDA;
-import net.dv8tion.jda.core.audio.AudioWebSocket;
 import net.dv8tion.jda.core.audio.factory.DefaultSendFactory;
 import net.dv8tion.jda.core.audio.factory.IAudioSendFactory;
 import net.dv8tion.jda.core.entities.*;
@@ -40,8 +39,14 @@ import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
 import net.dv8tion.jda.core.managers.impl.PresenceImpl;
 import net.dv8tion.jda.core.requests.*;
 import net.dv8tion.jda.core.requests.restaction.AuditableRestAction;
+import net.dv8tion.jda.core.utils.BufferOverflowPolicy;
+import net.dv8tion.jda.core.utils.HeartbeatTimer;
+import net.dv8tion.jda.core.utils.MemberCachePolicy;
 import net.dv8tion.jda.core.utils.MiscUtil;
+import net.dv8tion.jda.core.utils.SessionStore;
 import net.dv8tion.jda.core.utils.SimpleLog;
+import net.dv8tion.jda.core.utils.StringPool;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 import okhttp3.OkHttpClient;
 import net.dv8tion.jda.core.utils.Checks;
 import org.json.JSONObject;
@@ -70,6 +75,10 @@ public class JDAImpl implements JDA
     protected final TLongObjectMap<AudioManagerImpl> audioManagers = MiscUtil.newLongMap();
 
     protected final OkHttpClient.Builder httpClientBuilder;
+    protected final OkHttpClient httpClient;
+    protected final ScheduledThreadPoolExecutor rateLimitPool;
+    protected final boolean shutdownPool;
+    protected final boolean shutdownAudioKeepAlivePool;
     protected final WebSocketFactory wsFactory;
     protected final AccountType accountType;
     protected final PresenceImpl presence;
@@ -78,7 +87,7 @@ public class JDAImpl implements JDA
     protected final int maxReconnectDelay;
     protected final Thread shutdownHook;
     protected final EntityBuilder entityBuilder = new EntityBuilder(this);
-    protected final EventCache eventCache = new EventCache();
+    protected final EventCache eventCache = new EventCache(this);
     protected final GuildLock guildLock = new GuildLock(this);
     protected final Object akapLock = new Object();
 
@@ -86,7 +95,16 @@ public class JDAImpl implements JDA
     protected Requester requester;
     protected IEventManager eventManager = new InterfacedEventManager();
     protected IAudioSendFactory audioSendFactory = new DefaultSendFactory();
+    protected MemberCachePolicy memberCachePolicy = MemberCachePolicy.ALL;
+    protected StringPool stringPool = null;
+    protected SessionStore sessionStore = null;
+    protected ExecutorService guildSetupPool = null;
+    protected BufferOverflowPolicy bufferOverflowPolicy = BufferOverflowPolicy.DROP_OLDEST;
     protected ScheduledThreadPoolExecutor audioKeepAlivePool;
+    protected volatile ThreadPoolExecutor audioDecodePool;
+    protected volatile HeartbeatTimer heartbeatTimer;
+    protected final ThreadingModel threadingModel;
+    protected boolean shutdownHeartbeatTimer = true;
     protected Status status = Status.INITIALIZING;
     protected SelfUser selfUser;
     protected ShardInfo shardInfo;
@@ -94,20 +112,46 @@ public class JDAImpl implements JDA
     protected boolean audioEnabled;
     protected boolean bulkDeleteSplittingEnabled;
     protected boolean autoReconnect;
+    protected boolean chunkingEnabled = true;
+    protected boolean lazyGuildLoading = false;
+    protected boolean gameCachingEnabled = true;
+    protected int offHeapMemberThreshold = 0;
     protected long responseTotal;
     protected long ping = -1;
 
     public JDAImpl(AccountType accountType, OkHttpClient.Builder httpClientBuilder, WebSocketFactory wsFactory, boolean autoReconnect, boolean audioEnabled,
             boolean useShutdownHook, boolean bulkDeleteSplittingEnabled, int corePoolSize, int maxReconnectDelay)
+    {
+        this(accountType, httpClientBuilder, wsFactory, autoReconnect, audioEnabled, useShutdownHook, bulkDeleteSplittingEnabled,
+            corePoolSize, maxReconnectDelay, null, null, null, null, null);
+    }
+
+    /**
+     * Creates a JDA instance which uses the provided shared resources instead of creating its own.
+     * <br>Shared resources are never shut down by this instance, this is the responsibility of their owner.
+     * Any of them may be {@code null} to use a dedicated resource instead.
+     * <br>The threading model has to be known here, the {@link net.dv8tion.jda.core.requests.Requester Requester} creates
+     * its rate-limit pool with it. {@code null} uses {@link net.dv8tion.jda.core.utils.ThreadingModel#DEFAULT ThreadingModel.DEFAULT}.
+     */
+    public JDAImpl(AccountType accountType, OkHttpClient.Builder httpClientBuilder, WebSocketFactory wsFactory, boolean autoReconnect, boolean audioEnabled,
+            boolean useShutdownHook, boolean bulkDeleteSplittingEnabled, int corePoolSize, int maxReconnectDelay,
+            ScheduledThreadPoolExecutor pool, OkHttpClient httpClient, ScheduledThreadPoolExecutor rateLimitPool,
+            ScheduledThreadPoolExecutor audioKeepAlivePool, ThreadingModel threadingModel)
     {
         this.accountType = accountType;
+        this.threadingModel = threadingModel == null ? ThreadingModel.DEFAULT : threadingModel;
         this.httpClientBuilder = httpClientBuilder;
+        this.httpClient = httpClient;
+        this.rateLimitPool = rateLimitPool;
         this.wsFactory = wsFactory;
         this.autoReconnect = autoReconnect;
         this.audioEnabled = audioEnabled;
         this.shutdownHook = useShutdownHook ? new Thread(this::shutdown, "JDA Shutdown Hook") : null;
         this.bulkDeleteSplittingEnabled = bulkDeleteSplittingEnabled;
-        this.pool = new ScheduledThreadPoolExecutor(corePoolSize, new JDAThreadFactory());
+        this.shutdownPool = pool == null;
+        this.pool = pool == null ? new ScheduledThreadPoolExecutor(corePoolSize, new JDAThreadFactory()) : pool;
+        this.shutdownAudioKeepAlivePool = audioKeepAlivePool == null;
+        this.audioKeepAlivePool = audioKeepAlivePool;
         this.maxReconnectDelay = maxReconnectDelay;
 
         this.presence = new PresenceImpl(this);
@@ -601,7 +645,8 @@ public class JDAImpl implements JDA
     {
         shutdown();
 
-        pool.shutdownNow();
+        if (shutdownPool)
+            pool.shutdownNow();
         getRequester().shutdownNow();
     }
 
@@ -614,16 +659,24 @@ public class JDAImpl implements JDA
         setStatus(Status.SHUTTING_DOWN);
         audioManagers.valueCollection().forEach(AudioManager::closeAudioConnection);
 
-        if (audioKeepAlivePool != null)
+        if (audioKeepAlivePool != null && shutdownAudioKeepAlivePool)
             audioKeepAlivePool.shutdownNow();
+        if (audioDecodePool != null)
+            audioDecodePool.shutdownNow();
 
         getClient().shutdown();
 
+        if (heartbeatTimer != null && shutdownHeartbeatTimer)
+            heartbeatTimer.shutdown();
+
         final long time = 5L;
         final TimeUnit unit = TimeUnit.SECONDS;
         getRequester().shutdown(time, unit);
-        pool.setKeepAliveTime(time, unit);
-        pool.allowCoreThreadTimeOut(true);
+        if (shutdownPool)
+        {
+            pool.setKeepAliveTime(time, unit);
+            pool.allowCoreThreadTimeOut(true);
+        }
 
         if (shutdownHook != null)
         {
@@ -738,6 +791,120 @@ public class JDAImpl implements JDA
         this.audioSendFactory = factory;
     }
 
+    public MemberCachePolicy getMemberCachePolicy()
+    {
+        return memberCachePolicy;
+    }
+
+    public void setMemberCachePolicy(MemberCachePolicy policy)
+    {
+        Checks.notNull(policy, "Provided MemberCachePolicy");
+        this.memberCachePolicy = policy;
+    }
+
+    public boolean isChunkingEnabled()
+    {
+        return chunkingEnabled;
+    }
+
+    public void setChunkingEnabled(boolean enabled)
+    {
+        this.chunkingEnabled = enabled;
+    }
+
+    public BufferOverflowPolicy getBufferOverflowPolicy()
+    {
+        return bufferOverflowPolicy;
+    }
+
+    public void setBufferOverflowPolicy(BufferOverflowPolicy policy)
+    {
+        Checks.notNull(policy, "Provided BufferOverflowPolicy");
+        this.bufferOverflowPolicy = policy;
+    }
+
+    /**
+     * Sets the limits of the {@link net.dv8tion.jda.core.requests.GuildLock GuildLock} and the
+     * {@link net.dv8tion.jda.core.handle.EventCache EventCache}, each buffer is limited separately.
+     * <br>The time-to-live only applies to the EventCache, events of locked guilds never expire.
+     */
+    public void setEventBufferLimits(int maxEvents, long maxBytes, long ttl, TimeUnit unit)
+    {
+        guildLock.setLimits(maxEvents, maxBytes);
+        eventCache.setLimits(maxEvents, maxBytes, ttl, unit);
+    }
+
+    public boolean isLazyGuildLoading()
+    {
+        return lazyGuildLoading;
+    }
+
+    public void setLazyGuildLoading(boolean enabled)
+    {
+        this.lazyGuildLoading = enabled;
+    }
+
+    public StringPool getStringPool()
+    {
+        return stringPool;
+    }
+
+    public void setStringPool(StringPool stringPool)
+    {
+        this.stringPool = stringPool;
+    }
+
+    public SessionStore getSessionStore()
+    {
+        return sessionStore;
+    }
+
+    public void setSessionStore(SessionStore sessionStore)
+    {
+        this.sessionStore = sessionStore;
+    }
+
+    public ExecutorService getGuildSetupPool()
+    {
+        return guildSetupPool;
+    }
+
+    public void setGuildSetupPool(ExecutorService pool)
+    {
+        this.guildSetupPool = pool;
+    }
+
+    public int getOffHeapMemberThreshold()
+    {
+        return offHeapMemberThreshold;
+    }
+
+    public void setOffHeapMemberThreshold(int threshold)
+    {
+        this.offHeapMemberThreshold = threshold;
+    }
+
+    public boolean isGameCachingEnabled()
+    {
+        return gameCachingEnabled;
+    }
+
+    public void setGameCachingEnabled(boolean enabled)
+    {
+        this.gameCachingEnabled = enabled;
+    }
+
+    /**
+     * Whether every member of every available guild is cached.
+     * <br>If this is false, a missing member does not imply that the user is not part of the guild.
+     *
+     * @return True, if chunking is enabled and no members are discarded by the MemberCachePolicy
+     */
+    public boolean isMemberCacheComplete()
+    {
+        return chunkingEnabled && memberCachePolicy == MemberCachePolicy.ALL;
+    }
+
     public void setPing(long ping)
     {
         this.ping = ping;
@@ -836,14 +1003,33 @@ public class JDAImpl implements JDA
         return httpClientBuilder;
     }
 
+    /**
+     * The shared OkHttpClient used by the Requester, or {@code null} if it builds its own client
+     * from the {@link #getHttpClientBuilder() builder}.
+     *
+     * @return The shared OkHttpClient or {@code null}
+     */
+    public OkHttpClient getSharedHttpClient()
+    {
+        return httpClient;
+    }
+
+    /**
+     * The shared pool used by the RateLimiter, or {@code null} if it creates its own pool.
+     *
+     * @return The shared rate-limit pool or {@code null}
+     */
+    public ScheduledThreadPoolExecutor getSharedRateLimitPool()
+    {
+        return rateLimitPool;
+    }
+
     private class JDAThreadFactory implements ThreadFactory
     {
         @Override
         public Thread newThread(Runnable r)
         {
-            final Thread thread = new Thread(r, "JDA-Thread " + getIdentifierString());
-            thread.setDaemon(true);
-            return thread;
+            return threadingModel.newThread(ThreadingModel.ThreadType.POOL, r, "JDA-Thread " + getIdentifierString());
         }
     }
 
@@ -856,9 +1042,69 @@ public class JDAImpl implements JDA
             {
                 akap = audioKeepAlivePool;
                 if (akap == null)
-                    akap = audioKeepAlivePool = new ScheduledThreadPoolExecutor(1, new AudioWebSocket.KeepAliveThreadFactory(this));
+                    akap = audioKeepAlivePool = new ScheduledThreadPoolExecutor(1,
+                        threadingModel.asThreadFactory(ThreadingModel.ThreadType.AUDIO, getIdentifierString() + " Audio-KeepAlive Pool"));
             }
         }
         return akap;
     }
+
+    /**
+     * The pool which decrypts and decodes the received audio of all audio connections of this instance.
+     * <br>It has one thread per core, the threads die after a minute without received audio.
+     *
+     * @return The audio decode pool
+     */
+    public ThreadPoolExecutor getAudioDecodePool()
+    {
+        ThreadPoolExecutor pool = audioDecodePool;
+        if (pool == null)
+        {
+            synchronized (akapLock)
+            {
+                pool = audioDecodePool;
+                if (pool == null)
+                {
+                    final int threads = Runtime.getRuntime().availableProcessors();
+                    pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                        threadingModel.asThreadFactory(ThreadingModel.ThreadType.AUDIO, getIdentifierString() + " Audio-Decode Pool"));
+                    pool.allowCoreThreadTimeOut(true);
+                    audioDecodePool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    public HeartbeatTimer getHeartbeatTimer()
+    {
+        HeartbeatTimer timer = heartbeatTimer;
+        if (timer == null)
+        {
+            synchronized (akapLock)
+            {
+                timer = heartbeatTimer;
+                if (timer == null)
+                    timer = heartbeatTimer = new HeartbeatTimer(threadingModel);
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Sets a {@link net.dv8tion.jda.core.utils.HeartbeatTimer HeartbeatTimer} that is shared with other instances.
+     * <br>A shared timer is never shut down by this instance, this is the responsibility of its owner.
+     */
+    public void setHeartbeatTimer(HeartbeatTimer timer)
+    {
+        if (timer == null)
+            return;
+        this.heartbeatTimer = timer;
+        this.shutdownHeartbeatTimer = false;
+    }
+
+    public ThreadingModel getThreadingModel()
+    {
+        return threadingModel;
+    }
 }
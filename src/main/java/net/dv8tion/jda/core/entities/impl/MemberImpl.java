@@ -188,7 +188,7 @@ public class MemberImpl implements Member
 
     @Override
     public boolean isOwner() {
-        return this.equals(guild.getOwner());
+        return guild.getOwnerIdLong() == user.getIdLong();
     }
 
     public MemberImpl setNickname(String nickname)
@@ -0,0 +1,508 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.entities.impl;
+
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import net.dv8tion.jda.core.OnlineStatus;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.BiPredicate;
+
+/**
+ * Columnar store for the members of a single guild which keeps all data in direct (off-heap) buffers.
+ * <br>Used for large guilds to keep all members off-heap, independent of the
+ * {@link net.dv8tion.jda.core.utils.MemberCachePolicy MemberCachePolicy}. Only the self member, the owner
+ * and members connected to a voice channel are kept in the member cache of the guild instead.
+ * Stored members are materialized as short-lived {@link MemberImpl} flyweights when accessed.
+ *
+ * <p>Fixed-size fields are stored in one buffer per column, indexed by row.
+ * Variable-sized data lives in two arenas referenced by offset:
+ * <ul>
+ *     <li>strings: {@code [u16 name length][name][u16 nick length][nick][u8 avatar length][avatar]} (UTF-8)</li>
+ *     <li>roles: the role ids of each member as consecutive longs</li>
+ * </ul>
+ * Updated or removed members leave garbage in the arenas which is reclaimed by compaction
+ * once it makes up half of the arena.
+ */
+public class OffHeapMemberStore
+{
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NULL_U16 = 0xFFFF;
+    private static final int NULL_U8 = 0xFF;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private static final byte FLAG_BOT = 1;
+    private static final byte FLAG_MUTED = 1 << 1;
+    private static final byte FLAG_DEAFENED = 1 << 2;
+
+    private static final OnlineStatus[] STATUS = OnlineStatus.values();
+
+    private final TLongIntMap index = new TLongIntHashMap();
+
+    // columns
+    private ByteBuffer ids;
+    private ByteBuffer joinTimes;
+    private ByteBuffer discriminators;
+    private ByteBuffer statuses;
+    private ByteBuffer flags;
+    private ByteBuffer stringOffsets;
+    private ByteBuffer roleOffsets;
+    private ByteBuffer roleCounts;
+
+    // arenas
+    private ByteBuffer strings;
+    private ByteBuffer roles;
+    private int stringGarbage;
+    private int roleGarbage;
+
+    private int size;
+    private int capacity;
+
+    public OffHeapMemberStore()
+    {
+        allocateColumns(INITIAL_CAPACITY);
+        strings = ByteBuffer.allocateDirect(INITIAL_CAPACITY * 16);
+        roles = ByteBuffer.allocateDirect(INITIAL_CAPACITY * 8);
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    public synchronized boolean contains(long userId)
+    {
+        return index.containsKey(userId);
+    }
+
+    public synchronized long[] getUserIds()
+    {
+        return index.keys();
+    }
+
+    /**
+     * The ids of the stored members whose name and nickname match the provided predicate.
+     * <br>Only the names are decoded, no members are materialized.
+     *
+     * @param  names
+     *         The predicate receiving the name and the nickname, which may be null
+     *
+     * @return The ids of the matching members
+     */
+    public synchronized long[] findUserIds(BiPredicate<String, String> names)
+    {
+        final TLongList matches = new TLongArrayList();
+        for (int row = 0; row < size; row++)
+        {
+            int offset = stringOffsets.getInt(row * 4);
+            int length = strings.getShort(offset) & 0xFFFF;
+            final String name = readString(offset + 2, length);
+            offset += 2 + length;
+            length = strings.getShort(offset) & 0xFFFF;
+            final String nick = length == NULL_U16 ? null : readString(offset + 2, length);
+            if (names.test(name, nick))
+                matches.add(ids.getLong(row * 8));
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * The ids of the stored members which have all of the provided roles.
+     *
+     * @param  roleIds
+     *         The distinct ids of the roles
+     *
+     * @return The ids of the matching members
+     */
+    public synchronized long[] findUserIdsWithRoles(long[] roleIds)
+    {
+        final TLongList matches = new TLongArrayList();
+        for (int row = 0; row < size; row++)
+        {
+            final int offset = roleOffsets.getInt(row * 4);
+            final int count = roleCounts.getShort(row * 2);
+            int found = 0;
+            for (int i = 0; i < count && found < roleIds.length; i++)
+            {
+                final long roleId = roles.getLong(offset + i * 8);
+                for (long id : roleIds)
+                {
+                    if (id == roleId)
+                    {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            if (found == roleIds.length)
+                matches.add(ids.getLong(row * 8));
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * The amount of direct memory currently reserved by this store in bytes.
+     *
+     * @return The reserved memory
+     */
+    public synchronized long getMemoryUsage()
+    {
+        return (long) capacity * rowSize() + strings.capacity() + roles.capacity();
+    }
+
+    public synchronized void put(MemberImpl member)
+    {
+        final User user = member.getUser();
+        final long[] roleIds = member.getRoleSet().stream().mapToLong(Role::getIdLong).toArray();
+        put(user.getIdLong(), user.getName(), user.getDiscriminator(), user.getAvatarId(), user.isBot(),
+            member.getNickname(), member.getJoinDate(), roleIds, member.getOnlineStatus(),
+            member.getVoiceState().isGuildMuted(), member.getVoiceState().isGuildDeafened());
+    }
+
+    /**
+     * Stores the member with the provided data, replacing a previously stored member with the same id.
+     * <br>Used to store members straight from their json without creating any {@link MemberImpl} or {@link UserImpl}.
+     *
+     * @param  userId
+     *         The id of the member
+     * @param  name
+     *         The name of the user
+     * @param  discriminator
+     *         The discriminator of the user
+     * @param  avatarId
+     *         The avatar id of the user, or null
+     * @param  bot
+     *         Whether the user is a bot
+     * @param  nickname
+     *         The nickname of the member, or null
+     * @param  joinDate
+     *         The join date of the member, or null
+     * @param  roleIds
+     *         The ids of the roles of the member
+     * @param  status
+     *         The online status of the member, or null to keep the stored status ({@link OnlineStatus#OFFLINE OFFLINE} for new members)
+     * @param  muted
+     *         Whether the member is guild muted
+     * @param  deafened
+     *         Whether the member is guild deafened
+     */
+    public synchronized void put(long userId, String name, String discriminator, String avatarId, boolean bot,
+                                 String nickname, OffsetDateTime joinDate, long[] roleIds, OnlineStatus status,
+                                 boolean muted, boolean deafened)
+    {
+        int row = index.get(userId);
+        if (index.containsKey(userId))
+        {
+            stringGarbage += stringRecordLength(stringOffsets.getInt(row * 4));
+            roleGarbage += roleCounts.getShort(row * 2) * 8;
+            if (status == null)
+                status = STATUS[statuses.get(row)];
+        }
+        else
+        {
+            if (size == capacity)
+                growColumns();
+            row = size++;
+            index.put(userId, row);
+            if (status == null)
+                status = OnlineStatus.OFFLINE;
+        }
+
+        byte flag = 0;
+        if (bot)
+            flag |= FLAG_BOT;
+        if (muted)
+            flag |= FLAG_MUTED;
+        if (deafened)
+            flag |= FLAG_DEAFENED;
+
+        ids.putLong(row * 8, userId);
+        joinTimes.putLong(row * 8, joinDate == null ? NULL_TIME : joinDate.toInstant().toEpochMilli());
+        discriminators.putShort(row * 2, Short.parseShort(discriminator));
+        statuses.put(row, (byte) status.ordinal());
+        flags.put(row, flag);
+        stringOffsets.putInt(row * 4, writeStrings(name, nickname, avatarId));
+
+        ensureRoleCapacity(roleIds.length * 8);
+        roleOffsets.putInt(row * 4, roles.position());
+        roleCounts.putShort(row * 2, (short) roleIds.length);
+        for (long roleId : roleIds)
+            roles.putLong(roleId);
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Updates the online status of the stored member with the provided id.
+     *
+     * @param  userId
+     *         The id of the member
+     * @param  status
+     *         The new online status
+     *
+     * @return True, if the member is stored
+     */
+    public synchronized boolean setOnlineStatus(long userId, OnlineStatus status)
+    {
+        if (!index.containsKey(userId))
+            return false;
+        statuses.put(index.get(userId), (byte) status.ordinal());
+        return true;
+    }
+
+    public synchronized boolean remove(long userId)
+    {
+        if (!index.containsKey(userId))
+            return false;
+
+        final int row = index.remove(userId);
+        stringGarbage += stringRecordLength(stringOffsets.getInt(row * 4));
+        roleGarbage += roleCounts.getShort(row * 2) * 8;
+
+        //Keep the columns dense by moving the last row into the free slot
+        final int last = --size;
+        if (row != last)
+        {
+            ids.putLong(row * 8, ids.getLong(last * 8));
+            joinTimes.putLong(row * 8, joinTimes.getLong(last * 8));
+            discriminators.putShort(row * 2, discriminators.getShort(last * 2));
+            statuses.put(row, statuses.get(last));
+            flags.put(row, flags.get(last));
+            stringOffsets.putInt(row * 4, stringOffsets.getInt(last * 4));
+            roleOffsets.putInt(row * 4, roleOffsets.getInt(last * 4));
+            roleCounts.putShort(row * 2, roleCounts.getShort(last * 2));
+            index.put(ids.getLong(row * 8), row);
+        }
+
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * Creates a {@link MemberImpl} flyweight for the stored member with the provided id.
+     * <br>The returned member is <b>not</b> added to any cache.
+     *
+     * @param  guild
+     *         The guild this store belongs to
+     * @param  userId
+     *         The id of the member
+     *
+     * @return The materialized member, or null if the member is not stored
+     */
+    public synchronized MemberImpl materialize(GuildImpl guild, long userId)
+    {
+        if (!index.containsKey(userId))
+            return null;
+        final int row = index.get(userId);
+        final JDAImpl api = guild.getJDA();
+
+        int offset = stringOffsets.getInt(row * 4);
+        int length = strings.getShort(offset) & 0xFFFF;
+        final String name = readString(offset + 2, length);
+        offset += 2 + length;
+        length = strings.getShort(offset) & 0xFFFF;
+        final String nick = length == NULL_U16 ? null : readString(offset + 2, length);
+        offset += 2 + (length == NULL_U16 ? 0 : length);
+        length = strings.get(offset) & 0xFF;
+        final String avatar = length == NULL_U8 ? null : readString(offset + 1, length);
+
+        final byte flag = flags.get(row);
+        UserImpl user = (UserImpl) api.getUserMap().get(userId);
+        if (user == null)
+        {
+            user = new UserImpl(userId, api)
+                .setName(name)
+                .setDiscriminator(String.format("%04d", discriminators.getShort(row * 2)))
+                .setAvatarId(avatar)
+                .setBot((flag & FLAG_BOT) != 0);
+        }
+
+        final long joinTime = joinTimes.getLong(row * 8);
+        MemberImpl member = new MemberImpl(guild, user)
+            .setNickname(nick)
+            .setJoinDate(joinTime == NULL_TIME ? null : OffsetDateTime.ofInstant(Instant.ofEpochMilli(joinTime), ZoneOffset.UTC))
+            .setOnlineStatus(STATUS[statuses.get(row)]);
+        ((GuildVoiceStateImpl) member.getVoiceState())
+            .setGuildMuted((flag & FLAG_MUTED) != 0)
+            .setGuildDeafened((flag & FLAG_DEAFENED) != 0);
+
+        final int roleOffset = roleOffsets.getInt(row * 4);
+        final int roleCount = roleCounts.getShort(row * 2);
+        for (int i = 0; i < roleCount; i++)
+        {
+            Role role = guild.getRolesMap().get(roles.getLong(roleOffset + i * 8));
+            if (role != null)
+                member.getRoleSet().add(role);
+        }
+        return member;
+    }
+
+    private int writeStrings(String name, String nick, String avatar)
+    {
+        final byte[] nameBytes = encode(name);
+        final byte[] nickBytes = nick == null ? null : encode(nick);
+        final byte[] avatarBytes = avatar == null ? null : encode(avatar);
+        final int length = 2 + nameBytes.length + 2 + (nickBytes == null ? 0 : nickBytes.length)
+                         + 1 + (avatarBytes == null ? 0 : avatarBytes.length);
+        ensureStringCapacity(length);
+
+        final int offset = strings.position();
+        strings.putShort((short) nameBytes.length).put(nameBytes);
+        if (nickBytes == null)
+            strings.putShort((short) NULL_U16);
+        else
+            strings.putShort((short) nickBytes.length).put(nickBytes);
+        if (avatarBytes == null)
+            strings.put((byte) NULL_U8);
+        else
+            strings.put((byte) avatarBytes.length).put(avatarBytes);
+        return offset;
+    }
+
+    private int stringRecordLength(int offset)
+    {
+        int length = 2 + (strings.getShort(offset) & 0xFFFF);
+        int nick = strings.getShort(offset + length) & 0xFFFF;
+        length += 2 + (nick == NULL_U16 ? 0 : nick);
+        int avatar = strings.get(offset + length) & 0xFF;
+        return length + 1 + (avatar == NULL_U8 ? 0 : avatar);
+    }
+
+    private String readString(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = strings.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(String str)
+    {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        // names and nicknames are limited to 32 characters, avatar hashes to 34 so this never truncates valid data
+        if (bytes.length >= NULL_U8)
+            throw new IllegalArgumentException("String is too long to be stored: " + str);
+        return bytes;
+    }
+
+    private void ensureStringCapacity(int length)
+    {
+        if (strings.remaining() < length)
+            strings = grow(strings, strings.position() + length);
+    }
+
+    private void ensureRoleCapacity(int length)
+    {
+        if (roles.remaining() < length)
+            roles = grow(roles, roles.position() + length);
+    }
+
+    private void compactIfNeeded()
+    {
+        if (stringGarbage > 4096 && stringGarbage > strings.position() / 2
+            || roleGarbage > 4096 && roleGarbage > roles.position() / 2)
+            compact();
+    }
+
+    private void compact()
+    {
+        ByteBuffer newStrings = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY * 16, strings.position() - stringGarbage));
+        ByteBuffer newRoles = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY * 8, roles.position() - roleGarbage));
+        for (int row = 0; row < size; row++)
+        {
+            final int stringOffset = stringOffsets.getInt(row * 4);
+            final int stringLength = stringRecordLength(stringOffset);
+            stringOffsets.putInt(row * 4, newStrings.position());
+            for (int i = 0; i < stringLength; i++)
+                newStrings.put(strings.get(stringOffset + i));
+
+            final int roleOffset = roleOffsets.getInt(row * 4);
+            final int roleCount = roleCounts.getShort(row * 2);
+            roleOffsets.putInt(row * 4, newRoles.position());
+            for (int i = 0; i < roleCount; i++)
+                newRoles.putLong(roles.getLong(roleOffset + i * 8));
+        }
+        strings = newStrings;
+        roles = newRoles;
+        stringGarbage = 0;
+        roleGarbage = 0;
+    }
+
+    private void allocateColumns(int capacity)
+    {
+        this.capacity = capacity;
+        ids = ByteBuffer.allocateDirect(capacity * 8);
+        joinTimes = ByteBuffer.allocateDirect(capacity * 8);
+        discriminators = ByteBuffer.allocateDirect(capacity * 2);
+        statuses = ByteBuffer.allocateDirect(capacity);
+        flags = ByteBuffer.allocateDirect(capacity);
+        stringOffsets = ByteBuffer.allocateDirect(capacity * 4);
+        roleOffsets = ByteBuffer.allocateDirect(capacity * 4);
+        roleCounts = ByteBuffer.allocateDirect(capacity * 2);
+    }
+
+    private void growColumns()
+    {
+        ByteBuffer ids = this.ids, joinTimes = this.joinTimes, discriminators = this.discriminators,
+                   statuses = this.statuses, flags = this.flags, stringOffsets = this.stringOffsets,
+                   roleOffsets = this.roleOffsets, roleCounts = this.roleCounts;
+        allocateColumns(capacity * 2);
+        copy(ids, this.ids);
+        copy(joinTimes, this.joinTimes);
+        copy(discriminators, this.discriminators);
+        copy(statuses, this.statuses);
+        copy(flags, this.flags);
+        copy(stringOffsets, this.stringOffsets);
+        copy(roleOffsets, this.roleOffsets);
+        copy(roleCounts, this.roleCounts);
+    }
+
+    private static void copy(ByteBuffer from, ByteBuffer to)
+    {
+        ByteBuffer source = from.duplicate();
+        source.clear();
+        ByteBuffer target = to.duplicate();
+        target.clear();
+        target.put(source);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int required)
+    {
+        int capacity = buffer.capacity() * 2;
+        while (capacity < required)
+            capacity *= 2;
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static int rowSize()
+    {
+        // id + join time + discriminator + status + flags + string offset + role offset + role count
+        return 8 + 8 + 2 + 1 + 1 + 4 + 4 + 2;
+    }
+}
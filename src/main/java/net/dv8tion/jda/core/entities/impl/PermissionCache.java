@@ -0,0 +1,160 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.entities.impl;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.core.utils.Checks;
+
+/**
+ * Cache of effective channel permissions of the members of one guild, keyed by channel id and user id.
+ * <br>Entries are invalidated by the socket handlers whenever roles, permission overrides, member roles
+ * or the owner of the guild change, and removed when a member leaves or a channel is deleted.
+ *
+ * <p>Every invalidation increments the generation of the cache. Computed values are only stored if the
+ * generation did not change during the computation, this prevents values based on outdated entities
+ * from being stored after the invalidation that should have removed them.
+ *
+ * <p>The cache holds at most {@code maxEntries} values. New values are stored in a recent segment, once it holds
+ * half of the entries it replaces the previous segment, which is dropped. Values found in the previous segment are
+ * moved back to the recent one, so the members that are queried regularly stay cached while the others are evicted.
+ */
+public class PermissionCache
+{
+    /** Marker for missing entries, never a valid permission value as the sign bit is not used by discord */
+    public static final long MISSING = -1L;
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final int segmentSize;
+    private TLongObjectMap<TLongLongMap> recent = new TLongObjectHashMap<>();
+    private TLongObjectMap<TLongLongMap> previous = new TLongObjectHashMap<>();
+    private int recentSize;
+    private long generation;
+
+    public PermissionCache()
+    {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public PermissionCache(int maxEntries)
+    {
+        Checks.check(maxEntries >= 2, "Max entries must be at least 2, provided: %d", maxEntries);
+        this.segmentSize = maxEntries / 2;
+    }
+
+    /**
+     * The current generation, which has to be provided to {@link #put(long, long, long, long)} to store a computed value.
+     *
+     * @return The current generation
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    public synchronized long get(long channelId, long userId)
+    {
+        TLongLongMap members = recent.get(channelId);
+        long permissions = members == null ? MISSING : members.get(userId);
+        if (permissions != MISSING)
+            return permissions;
+
+        members = previous.get(channelId);
+        permissions = members == null ? MISSING : members.remove(userId);
+        if (permissions != MISSING)
+            store(channelId, userId, permissions);
+        return permissions;
+    }
+
+    public synchronized void put(long generation, long channelId, long userId, long permissions)
+    {
+        if (generation != this.generation)
+            return;
+        store(channelId, userId, permissions);
+    }
+
+    private void store(long channelId, long userId, long permissions)
+    {
+        if (recentSize >= segmentSize)
+        {
+            previous = recent;
+            recent = new TLongObjectHashMap<>();
+            recentSize = 0;
+        }
+        TLongLongMap members = recent.get(channelId);
+        if (members == null)
+        {
+            members = new TLongLongHashMap(16, 0.5f, 0, MISSING);
+            recent.put(channelId, members);
+        }
+        if (members.put(userId, permissions) == MISSING)
+            recentSize++;
+    }
+
+    /**
+     * Invalidates all entries of the specified channel.
+     * <br>Used when the permission overrides of the channel change or the channel is deleted.
+     *
+     * @param channelId
+     *        The id of the channel
+     */
+    public synchronized void invalidateChannel(long channelId)
+    {
+        generation++;
+        TLongLongMap members = recent.remove(channelId);
+        if (members != null)
+            recentSize -= members.size();
+        previous.remove(channelId);
+    }
+
+    /**
+     * Invalidates all entries of the specified member.
+     * <br>Used when the roles of the member change or the member leaves the guild.
+     *
+     * @param userId
+     *        The id of the member
+     */
+    public synchronized void invalidateMember(long userId)
+    {
+        generation++;
+        recent.forEachValue(members ->
+        {
+            if (members.remove(userId) != MISSING)
+                recentSize--;
+            return true;
+        });
+        previous.forEachValue(members ->
+        {
+            members.remove(userId);
+            return true;
+        });
+    }
+
+    /**
+     * Invalidates all entries.
+     * <br>Used when the permissions of a role or the owner of the guild change.
+     */
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        recent.clear();
+        previous.clear();
+        recentSize = 0;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.events.guild;
+
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Guild;
+
+/**
+ * <b><u>GuildReadyEvent</u></b><br>
+ * Fired if a {@link net.dv8tion.jda.core.entities.Guild Guild} of the session finished loading.<br>
+ * <br>
+ * Use: This indicates that a Guild that was part of READY is fully cached and can be interacted with.
+ * With {@link net.dv8tion.jda.core.JDABuilder#setLazyGuildLoading(boolean) lazy guild loading} this is
+ * fired after the {@link net.dv8tion.jda.core.events.ReadyEvent ReadyEvent}, otherwise before it.
+ */
+public class GuildReadyEvent extends GenericGuildEvent
+{
+    public GuildReadyEvent(JDA api, long responseNumber, Guild guild)
+    {
+        super(api, responseNumber, guild);
+    }
+}
@@ -61,12 +61,13 @@ public class ChannelDeleteHandler extends SocketHandler
                 TextChannel channel = api.getTextChannelMap().remove(channelId);
                 if (channel == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_DELETE attempted to delete a text channel that is not yet cached. JSON: " + content);
                     return null;
                 }
 
                 guild.getTextChannelsMap().remove(channel.getIdLong());
+                guild.getPermissionCache().invalidateChannel(channelId);
                 api.getEventManager().handle(
                         new TextChannelDeleteEvent(
                                 api, responseNumber,
@@ -79,7 +80,7 @@ public class ChannelDeleteHandler extends SocketHandler
                 VoiceChannel channel = guild.getVoiceChannelsMap().remove(channelId);
                 if (channel == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_DELETE attempted to delete a voice channel that is not yet cached. JSON: " + content);
                     return null;
                 }
@@ -92,6 +93,7 @@ public class ChannelDeleteHandler extends SocketHandler
                     manager.closeAudioConnection(ConnectionStatus.DISCONNECTED_CHANNEL_DELETED);
                 }
                 guild.getVoiceChannelsMap().remove(channel.getIdLong());
+                guild.getPermissionCache().invalidateChannel(channelId);
                 api.getEventManager().handle(
                         new VoiceChannelDeleteEvent(
                                 api, responseNumber,
@@ -104,7 +106,7 @@ public class ChannelDeleteHandler extends SocketHandler
                 Category category = api.getCategoryMap().remove(channelId);
                 if (category == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_DELETE attempted to delete a category channel that is not yet cached. JSON: " + content);
                     return null;
                 }
@@ -124,7 +126,7 @@ public class ChannelDeleteHandler extends SocketHandler
                     channel = api.getFakePrivateChannelMap().remove(channelId);
                 if (channel == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_DELETE attempted to delete a private channel that is not yet cached. JSON: " + content);
                     return null;
                 }
@@ -147,7 +149,7 @@ public class ChannelDeleteHandler extends SocketHandler
                 GroupImpl group = (GroupImpl) ((JDAClientImpl) api.asClient()).getGroupMap().remove(groupId);
                 if (group == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_DELETE attempted to delete a group that is not yet cached. JSON: " + content);
                     return null;
                 }
@@ -72,7 +72,7 @@ public class ChannelUpdateHandler extends SocketHandler
                 TextChannelImpl textChannel = (TextChannelImpl) api.getTextChannelMap().get(channelId);
                 if (textChannel == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_UPDATE attempted to update a TextChannel that does not exist. JSON: " + content);
                     return null;
                 }
@@ -145,7 +145,7 @@ public class ChannelUpdateHandler extends SocketHandler
                 int bitrate = content.getInt("bitrate");
                 if (voiceChannel == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                    cacheEvent(EventCache.Type.CHANNEL, channelId);
                     EventCache.LOG.debug("CHANNEL_UPDATE attempted to update a VoiceChannel that does not exist. JSON: " + content);
                     return null;
                 }
@@ -290,6 +290,7 @@ public class ChannelUpdateHandler extends SocketHandler
             overridesMap.remove(id);
             return true;
         });
+        ((GuildImpl) channel.getGuild()).getPermissionCache().invalidateChannel(channel.getIdLong());
     }
 
     private IPermissionHolder mapPermissionHolder(long id, Guild guild)
@@ -314,7 +315,7 @@ public class ChannelUpdateHandler extends SocketHandler
 
                 if (permHolder == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.ROLE, id, () ->
+                    api.getEventCache().cache(EventCache.Type.ROLE, id, content, () ->
                             handlePermissionOverride(override, channel, content, changedPermHolders, containedPermHolders));
                     EventCache.LOG.debug("CHANNEL_UPDATE attempted to create or update a PermissionOverride for a Role that doesn't exist! RoleId: " + id + " JSON: " + content);
                     return;
@@ -326,7 +327,7 @@ public class ChannelUpdateHandler extends SocketHandler
                 permHolder = channel.getGuild().getMemberById(id);
                 if (permHolder == null)
                 {
-                    api.getEventCache().cache(EventCache.Type.USER, id, () ->
+                    api.getEventCache().cache(EventCache.Type.USER, id, content, () ->
                             handlePermissionOverride(override, channel, content, changedPermHolders, containedPermHolders));
                     EventCache.LOG.debug("CHANNEL_UPDATE attempted to create or update a PermissionOverride for Member that doesn't exist in this Guild! MemberId: " + id + " JSON: " + content);
                     return;
@@ -350,6 +351,8 @@ public class ChannelUpdateHandler extends SocketHandler
             permOverride.setDeny(deny);
             changedPermHolders.add(permHolder);
         }
+        //Overrides handled later through the EventCache are not covered by the invalidation in applyPermissions
+        ((GuildImpl) channel.getGuild()).getPermissionCache().invalidateChannel(channel.getIdLong());
         containedPermHolders.add(permHolder);
     }
 
@@ -363,7 +366,7 @@ public class ChannelUpdateHandler extends SocketHandler
         GroupImpl group = (GroupImpl) api.asClient().getGroupById(groupId);
         if (group == null)
         {
-            api.getEventCache().cache(EventCache.Type.CHANNEL, groupId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CHANNEL, groupId);
             EventCache.LOG.debug("Received CHANNEL_UPDATE for a group that was not yet cached. JSON: " + content);
             return;
         }
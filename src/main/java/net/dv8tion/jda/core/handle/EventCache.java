@@ -13,56 +13,58 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package net.dv8tion.jda.core.handle;
 
-import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.requests.WebSocketClient;
+import net.dv8tion.jda.core.utils.BufferOverflowPolicy;
+import net.dv8tion.jda.core.utils.EventBuffer;
 import net.dv8tion.jda.core.utils.SimpleLog;
+import org.json.JSONObject;
 
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class EventCache
 {
     public static final SimpleLog LOG = SimpleLog.getLog("EventCache");
-    private final Map<Type, TLongObjectMap<List<Runnable>>> eventCache = new HashMap<>();
+    private final JDAImpl api;
+    private final EventBuffer<Trigger, Runnable> eventCache = new EventBuffer<>();
+    private volatile long lastOverflowWarning = 0;
 
-    public void cache(Type type, long triggerId, Runnable handler)
+    public EventCache(JDAImpl api)
     {
-        TLongObjectMap<List<Runnable>> triggerCache =
-                eventCache.computeIfAbsent(type, k -> new TLongObjectHashMap<>());
-
-        List<Runnable> items = triggerCache.get(triggerId);
-        if (items == null)
-        {
-            items = new LinkedList<>();
-            triggerCache.put(triggerId, items);
-        }
+        this.api = api;
+    }
 
-        items.add(handler);
+    /**
+     * Caches a handler until the entity with the specified id is cached.
+     *
+     * @param type
+     *        The type of the entity
+     * @param triggerId
+     *        The id of the entity
+     * @param event
+     *        The raw event, used to approximate the size of the cached handler
+     * @param handler
+     *        The handler to run once the entity is cached
+     */
+    public void cache(Type type, long triggerId, JSONObject event, Runnable handler)
+    {
+        Set<Trigger> overflowed = eventCache.add(new Trigger(type, triggerId), handler, EventBuffer.estimateSize(event));
+        if (!overflowed.isEmpty())
+            handleOverflow(overflowed);
     }
 
     public void playbackCache(Type type, long triggerId)
     {
-        List<Runnable> items;
-        try
-        {
-            items = eventCache.get(type).get(triggerId);
-        }
-        catch (NullPointerException e)
-        {
-            //If we encounter an NPE that means something didn't exist.
-            return;
-        }
-
-        if (items != null && !items.isEmpty())
+        List<Runnable> items = eventCache.remove(new Trigger(type, triggerId));
+        if (!items.isEmpty())
         {
             EventCache.LOG.debug("Replaying " + items.size() + " events from the EventCache for a " + type + " with id: " + triggerId);
-            List<Runnable> itemsCopy = new LinkedList<>(items);
-            items.clear();
-            for (Runnable item : itemsCopy)
+            for (Runnable item : items)
             {
                 item.run();
             }
@@ -71,10 +73,42 @@ public class EventCache
 
     public int size()
     {
-        return (int) eventCache.values().stream()
-                .mapToLong(typeMap ->
-                    typeMap.valueCollection().stream().mapToLong(List::size).sum())
-                .sum();
+        return eventCache.size();
+    }
+
+    /**
+     * The approximate size of all cached events.
+     *
+     * @return The size in bytes
+     */
+    public long getBytes()
+    {
+        return eventCache.getBytes();
+    }
+
+    /**
+     * The total amount of events that were dropped because the cache overflowed.
+     *
+     * @return The amount of dropped events
+     */
+    public long getDroppedCount()
+    {
+        return eventCache.getDroppedCount();
+    }
+
+    /**
+     * The total amount of events that expired before their entity was cached.
+     *
+     * @return The amount of expired events
+     */
+    public long getExpiredCount()
+    {
+        return eventCache.getExpiredCount();
+    }
+
+    public void setLimits(int maxEvents, long maxBytes, long ttl, TimeUnit unit)
+    {
+        eventCache.setLimits(maxEvents, maxBytes, ttl, unit);
     }
 
     public void clear()
@@ -84,16 +118,54 @@ public class EventCache
 
     public void clear(Type type, long id)
     {
-        try
+        final int size = eventCache.clear(new Trigger(type, id));
+        if (size > 0)
+            LOG.debug("Clearing cache for type " + type + " with ID " + id + " (Size: " + size + ')');
+    }
+
+    private void handleOverflow(Set<Trigger> triggers)
+    {
+        final long now = System.currentTimeMillis();
+        if (now - lastOverflowWarning > 10000)
         {
-            List<Runnable> events = eventCache.get(type).remove(id);
-            LOG.debug("Clearing cache for type " + type + " with ID " + id + " (Size: " + events.size() + ')');
+            lastOverflowWarning = now;
+            LOG.warn("The EventCache is full, dropped events of " + triggers.size() + " entities. Total dropped events: " + getDroppedCount());
         }
-        catch (NullPointerException ignored) {}
+
+        WebSocketClient client = api.getClient();
+        if (api.getBufferOverflowPolicy() == BufferOverflowPolicy.RESYNC && client != null)
+            client.resync("The EventCache overflowed");
     }
 
     public enum Type
     {
         USER, GUILD, CHANNEL, ROLE, RELATIONSHIP, CALL
     }
+
+    private static final class Trigger
+    {
+        private final Type type;
+        private final long id;
+
+        private Trigger(Type type, long id)
+        {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Trigger))
+                return false;
+            Trigger other = (Trigger) obj;
+            return type == other.type && id == other.id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * type.hashCode() + Long.hashCode(id);
+        }
+    }
 }
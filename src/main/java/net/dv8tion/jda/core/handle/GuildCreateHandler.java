@@ -15,13 +15,20 @@
  */
 package net.dv8tion.jda.core.handle;
 
+import net.dv8tion.jda.core.entities.EntityBuilder;
 import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.impl.GuildImpl;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.events.guild.GuildAvailableEvent;
 import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.core.events.guild.UnavailableGuildJoinedEvent;
+import net.dv8tion.jda.core.requests.WebSocketClient;
 import org.json.JSONObject;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
 public class GuildCreateHandler extends SocketHandler
 {
 
@@ -33,15 +40,21 @@ public class GuildCreateHandler extends SocketHandler
     @Override
     protected Long handleInternally(JSONObject content)
     {
-        Guild g = api.getGuildById(content.getLong("id"));
+        final long id = content.getLong("id");
+        Guild g = api.getGuildById(id);
         Boolean wasAvail = (g == null || g.getName() == null) ? null : g.isAvailable();
-        api.getEntityBuilder().createGuildFirstPass(content, guild ->
+        //The guild might be completed asynchronously, so the response number must not be read from the handler later
+        final long responseNumber = this.responseNumber;
+        Consumer<Guild> callback = guild ->
         {
+            ReadyHandler readyHandler = api.getClient().getHandler("READY");
+            //With lazy guild loading the guilds of READY are still loading after the session is ready
+            final boolean loading = api.isLazyGuildLoading() && readyHandler.isGuildLoading(guild.getIdLong());
             if (guild.isAvailable())
             {
-                if (!api.getClient().isReady())
+                if (!api.getClient().isReady() || loading)
                 {
-                    api.getClient().<ReadyHandler>getHandler("READY").guildSetupComplete(guild);
+                    readyHandler.guildSetupComplete(guild);
                 }
                 else
                 {
@@ -70,9 +83,9 @@ public class GuildCreateHandler extends SocketHandler
             {
                 if (!api.getClient().isReady())
                 {
-                    api.getClient().<ReadyHandler>getHandler("READY").acknowledgeGuild(guild, false, false, false);
+                    readyHandler.acknowledgeGuild(guild, false, false, false);
                 }
-                else
+                else if (!loading)
                 {
                     //Proper GuildJoinedEvent is fired when guild was populated
                     api.getEventManager().handle(
@@ -81,7 +94,75 @@ public class GuildCreateHandler extends SocketHandler
                                     guild.getIdLong()));
                 }
             }
-        });
+        };
+
+        ExecutorService pool = api.getGuildSetupPool();
+        if (pool == null || (content.has("unavailable") && content.getBoolean("unavailable")))
+            api.getEntityBuilder().createGuildFirstPass(content, callback);
+        else
+            setupGuildAsync(pool, id, content, callback);
         return null;
     }
+
+    private void setupGuildAsync(ExecutorService pool, long id, JSONObject content, Consumer<Guild> callback)
+    {
+        //Events of the guild are queued until the guild is published
+        api.getGuildLock().lockForSetup(id);
+        final WebSocketClient client = api.getClient();
+        final int generation = client.getSessionGeneration();
+        try
+        {
+            pool.execute(() ->
+            {
+                try
+                {
+                    EntityBuilder builder = api.getEntityBuilder();
+                    GuildImpl guild = builder.createGuildEntities(content);
+                    synchronized (client.getDispatchLock())
+                    {
+                        //The cache was dropped while the guild was built, discord will send the guild again
+                        if (generation != client.getSessionGeneration())
+                            return;
+                        builder.completeGuildFirstPass(guild, content, callback);
+                    }
+                }
+                catch (Exception e)
+                {
+                    WebSocketClient.LOG.warn("Failed to set up guild " + id + " on the guild setup pool, retrying under the dispatch lock");
+                    WebSocketClient.LOG.log(e);
+                    setupGuildFallback(id, content, callback, generation);
+                }
+                finally
+                {
+                    api.getGuildLock().setupComplete(id);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            api.getGuildLock().setupComplete(id);
+            api.getEntityBuilder().createGuildFirstPass(content, callback);
+        }
+    }
+
+    private void setupGuildFallback(long id, JSONObject content, Consumer<Guild> callback, int generation)
+    {
+        final WebSocketClient client = api.getClient();
+        synchronized (client.getDispatchLock())
+        {
+            if (generation != client.getSessionGeneration())
+                return;
+            try
+            {
+                api.getEntityBuilder().createGuildFirstPass(content, callback);
+            }
+            catch (Exception e)
+            {
+                //The guild stays locked like any other unavailable guild, READY does not wait for it
+                WebSocketClient.LOG.fatal("Failed to set up guild " + id + ", marking it as unavailable");
+                WebSocketClient.LOG.log(e);
+                api.getEntityBuilder().createGuildFirstPass(new JSONObject().put("id", id).put("unavailable", true), callback);
+            }
+        }
+    }
 }
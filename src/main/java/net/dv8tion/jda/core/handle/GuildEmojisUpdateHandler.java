@@ -49,8 +49,7 @@ public class GuildEmojisUpdateHandler extends SocketHandler
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(guildId);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, guildId, () ->
-                    handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.GUILD, guildId);
             return null;
         }
 
@@ -15,9 +15,9 @@
  */
 package net.dv8tion.jda.core.handle;
 
-import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.impl.GuildImpl;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.entities.impl.MemberImpl;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberJoinEvent;
 import org.json.JSONObject;
 
@@ -39,14 +39,13 @@ public class GuildMemberAddHandler extends SocketHandler
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(id);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, id, () ->
-            {
-                handle(responseNumber, allContent);
-            });
+            cacheEvent(EventCache.Type.GUILD, id);
             return null;
         }
 
-        Member member = api.getEntityBuilder().createMember(guild, content);
+        MemberImpl member = (MemberImpl) api.getEntityBuilder().createMember(guild, content);
+        api.getEntityBuilder().loadCachedPresence(guild, member);
+        api.getEntityBuilder().updateMemberCache(member);
         api.getEventManager().handle(
                 new GuildMemberJoinEvent(
                         api, responseNumber,
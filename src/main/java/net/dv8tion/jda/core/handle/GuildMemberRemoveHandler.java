@@ -15,8 +15,7 @@
  */
 package net.dv8tion.jda.core.handle;
 
-import net.dv8tion.jda.client.entities.Group;
-import net.dv8tion.jda.core.AccountType;
+import net.dv8tion.jda.core.OnlineStatus;
 import net.dv8tion.jda.core.entities.VoiceChannel;
 import net.dv8tion.jda.core.entities.impl.*;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
@@ -53,6 +52,16 @@ public class GuildMemberRemoveHandler extends SocketHandler
             return null;
         }
         MemberImpl member = (MemberImpl) guild.getMembersMap().remove(userId);
+        api.getEntityBuilder().cachePresence(guild, userId, OnlineStatus.OFFLINE, null);
+        guild.getPermissionCache().invalidateMember(userId);
+        api.getMemberCachePolicy().memberRemoved(guild, userId);
+        OffHeapMemberStore store = guild.getMemberStore();
+        if (store != null)
+        {
+            if (member == null)
+                member = store.materialize(guild, userId);
+            store.remove(userId);
+        }
 
         if (member == null)
         {
@@ -72,38 +81,8 @@ public class GuildMemberRemoveHandler extends SocketHandler
                             member, channel));
         }
 
-        //The user is not in a different guild that we share
-        // The user also is not a friend of this account in the case that the logged in account is a client account.
-        if (userId != api.getSelfUser().getIdLong() // don't remove selfUser from cache
-            && api.getGuildMap().valueCollection().stream().noneMatch(g -> ((GuildImpl) g).getMembersMap().containsKey(userId))
-            && !(api.getAccountType() == AccountType.CLIENT && api.asClient().getFriendById(userId) != null))
-        {
-            UserImpl user = (UserImpl) api.getUserMap().remove(userId);
-            if (user.hasPrivateChannel())
-            {
-                PrivateChannelImpl priv = (PrivateChannelImpl) user.getPrivateChannel();
-                user.setFake(true);
-                priv.setFake(true);
-                api.getFakeUserMap().put(user.getIdLong(), user);
-                api.getFakePrivateChannelMap().put(priv.getIdLong(), priv);
-            }
-            else if (api.getAccountType() == AccountType.CLIENT)
-            {
-                //While the user might not have a private channel, if this is a client account then the user
-                // could be in a Group, and if so we need to change the User object to be fake and
-                // place it in the FakeUserMap
-                for (Group grp : api.asClient().getGroups())
-                {
-                    if (grp.getNonFriendUsers().contains(user))
-                    {
-                        user.setFake(true);
-                        api.getFakeUserMap().put(user.getIdLong(), user);
-                        break; //Breaks from groups loop
-                    }
-                }
-            }
-            api.getEventCache().clear(EventCache.Type.USER, userId);
-        }
+        //Removes the user from the cache if we no longer share a guild with it
+        api.getEntityBuilder().unloadUser(userId);
         api.getEventManager().handle(
                 new GuildMemberLeaveEvent(
                         api, responseNumber,
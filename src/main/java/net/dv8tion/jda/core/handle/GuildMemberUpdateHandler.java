@@ -22,6 +22,7 @@ import net.dv8tion.jda.core.entities.impl.MemberImpl;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberNickChangeEvent;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleAddEvent;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.core.requests.WebSocketClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -47,21 +48,23 @@ public class GuildMemberUpdateHandler extends SocketHandler
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(id);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, userId, () ->
-            {
-                handle(responseNumber, allContent);
-            });
+            cacheEvent(EventCache.Type.GUILD, userId);
             EventCache.LOG.debug("Got GuildMember update but JDA currently does not have the Guild cached. " + content.toString());
             return null;
         }
 
-        MemberImpl member = (MemberImpl) guild.getMembersMap().get(userId);
+        //Members kept off-heap are materialized and stored again by the cache update below
+        MemberImpl member = (MemberImpl) guild.getMemberById(userId);
         if (member == null)
         {
-            api.getEventCache().cache(EventCache.Type.USER, userId, () ->
+            if (!api.isMemberCacheComplete())
             {
-                handle(responseNumber, allContent);
-            });
+                //The member is simply not cached, it will not show up later so we drop the update
+                guild.getPermissionCache().invalidateMember(userId);
+                WebSocketClient.LOG.debug("Ignoring GuildMember update for a Member that is not cached. " + content.toString());
+                return null;
+            }
+            cacheEvent(EventCache.Type.USER, userId);
             EventCache.LOG.debug("Got GuildMember update but Member is not currently present in Guild. " + content.toString());
             return null;
         }
@@ -93,6 +96,8 @@ public class GuildMemberUpdateHandler extends SocketHandler
             currentRoles.removeAll(removedRoles);
         if (newRoles.size() > 0)
             currentRoles.addAll(newRoles);
+        if (removedRoles.size() > 0 || newRoles.size() > 0)
+            guild.getPermissionCache().invalidateMember(userId);
 
         if (removedRoles.size() > 0)
         {
@@ -114,13 +119,14 @@ public class GuildMemberUpdateHandler extends SocketHandler
             String newNick = content.isNull("nick") ? null : content.getString("nick");
             if (!Objects.equals(prevNick, newNick))
             {
-                member.setNickname(newNick);
+                member.setNickname(api.getEntityBuilder().intern(newNick));
                 api.getEventManager().handle(
                         new GuildMemberNickChangeEvent(
                                 api, responseNumber,
                                 guild, member, prevNick, newNick));
             }
         }
+        api.getEntityBuilder().updateMemberCache(member);
         return null;
     }
 
@@ -137,10 +143,7 @@ public class GuildMemberUpdateHandler extends SocketHandler
             }
             else
             {
-                api.getEventCache().cache(EventCache.Type.ROLE, id, () ->
-                {
-                    handle(responseNumber, allContent);
-                });
+                cacheEvent(EventCache.Type.ROLE, id);
                 EventCache.LOG.debug("Got GuildMember update but one of the Roles for the Member is not yet cached.");
                 return null;
             }
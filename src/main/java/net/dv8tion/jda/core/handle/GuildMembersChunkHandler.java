@@ -17,20 +17,16 @@
 package net.dv8tion.jda.core.handle;
 
 import gnu.trove.map.TLongIntMap;
-import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongIntHashMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.LinkedList;
-import java.util.List;
-
 public class GuildMembersChunkHandler extends SocketHandler
 {
     private final TLongIntMap expectedGuildMembers = new TLongIntHashMap();
-    private final TLongObjectMap<List<JSONArray>> memberChunksCache = new TLongObjectHashMap<>();
+    //Chunks are converted into members as they arrive, only the amount of received members is retained
+    private final TLongIntMap receivedGuildMembers = new TLongIntHashMap();
 
     public GuildMembersChunkHandler(JDAImpl api)
     {
@@ -41,25 +37,23 @@ public class GuildMembersChunkHandler extends SocketHandler
     protected Long handleInternally(JSONObject content)
     {
         final long guildId = content.getLong("guild_id");
-        List<JSONArray> memberChunks = memberChunksCache.get(guildId);
-        int expectMemberCount = expectedGuildMembers.get(guildId);
+        if (!expectedGuildMembers.containsKey(guildId))
+        {
+            JDAImpl.LOG.debug("Received a GUILD_MEMBER_CHUNK for a guild that is not being chunked. GuildId: " + guildId);
+            return null;
+        }
 
         JSONArray members = content.getJSONArray("members");
         JDAImpl.LOG.debug("GUILD_MEMBER_CHUNK for: " + guildId + " \tMembers: " + members.length());
-        memberChunks.add(members);
-
-        int currentTotal = 0;
-        for (JSONArray arr : memberChunks)
-        {
-            currentTotal += arr.length();
-        }
+        api.getEntityBuilder().createGuildMemberChunk(guildId, members);
 
-        if (currentTotal >= expectMemberCount)
+        final int currentTotal = receivedGuildMembers.adjustOrPutValue(guildId, members.length(), members.length());
+        if (currentTotal >= expectedGuildMembers.get(guildId))
         {
             JDAImpl.LOG.debug("Finished chunking for: " + guildId);
-            api.getEntityBuilder().createGuildSecondPass(guildId, memberChunks);
-            memberChunksCache.remove(guildId);
+            receivedGuildMembers.remove(guildId);
             expectedGuildMembers.remove(guildId);
+            api.getEntityBuilder().createGuildSecondPass(guildId);
         }
         return null;
     }
@@ -71,27 +65,21 @@ public class GuildMembersChunkHandler extends SocketHandler
 
         expectedGuildMembers.put(guildId, count);
 
-        if (memberChunksCache.containsKey(guildId))
+        if (receivedGuildMembers.containsKey(guildId))
             JDAImpl.LOG.warn("Set the memberChunks for MemberChunking for a guild that was already setup for chunking! GuildId: " + guildId);
 
-        memberChunksCache.put(guildId, new LinkedList<>());
+        receivedGuildMembers.put(guildId, 0);
     }
 
     public void modifyExpectedGuildMember(long guildId, int changeAmount)
     {
-        try
-        {
-            Integer i = expectedGuildMembers.get(guildId);
-            i += changeAmount;
-            expectedGuildMembers.put(guildId, i);
-        }
-        //Ignore. If one of the above things doesn't exist, causing an NPE, then we don't need to worry.
-        catch (NullPointerException ignored) {}
+        //Only adjusts guilds that are currently being chunked
+        expectedGuildMembers.adjustValue(guildId, changeAmount);
     }
 
     public void clearCache()
     {
         expectedGuildMembers.clear();
-        memberChunksCache.clear();
+        receivedGuildMembers.clear();
     }
 }
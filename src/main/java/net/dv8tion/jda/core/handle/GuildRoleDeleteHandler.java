@@ -41,7 +41,7 @@ public class GuildRoleDeleteHandler extends SocketHandler
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(guildId);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, guildId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.GUILD, guildId);
             EventCache.LOG.debug("GUILD_ROLE_DELETE was received for a Guild that is not yet cached: " + content);
             return null;
         }
@@ -50,7 +50,7 @@ public class GuildRoleDeleteHandler extends SocketHandler
         Role removedRole = guild.getRolesMap().remove(roleId);
         if (removedRole == null)
         {
-            api.getEventCache().cache(EventCache.Type.ROLE, roleId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.ROLE, roleId);
             EventCache.LOG.debug("GUILD_ROLE_DELETE was received for a Role that is not yet cached: " + content);
             return null;
         }
@@ -61,6 +61,7 @@ public class GuildRoleDeleteHandler extends SocketHandler
             MemberImpl member = (MemberImpl) m;
             member.getRoleSet().remove(removedRole);
         }
+        guild.getPermissionCache().invalidateAll();
         api.getEventManager().handle(
                 new RoleDeleteEvent(
                         api, responseNumber,
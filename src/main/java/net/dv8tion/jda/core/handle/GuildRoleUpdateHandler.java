@@ -42,8 +42,7 @@ public class GuildRoleUpdateHandler extends SocketHandler
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(guildId);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, guildId, () ->
-                    handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.GUILD, guildId);
             EventCache.LOG.debug("Received a Role Update for a Guild that is not yet cached: " + content);
             return null;
         }
@@ -52,7 +51,7 @@ public class GuildRoleUpdateHandler extends SocketHandler
         RoleImpl role = (RoleImpl) guild.getRolesMap().get(roleId);
         if (role == null)
         {
-            api.getEventCache().cache(EventCache.Type.ROLE, roleId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.ROLE, roleId);
             EventCache.LOG.debug("Received a Role Update for Role that is not yet cached: " + content);
             return null;
         }
@@ -67,7 +66,7 @@ public class GuildRoleUpdateHandler extends SocketHandler
         if (!Objects.equals(name, role.getName()))
         {
             String oldName = role.getName();
-            role.setName(name);
+            role.setName(api.getEntityBuilder().intern(name));
             api.getEventManager().handle(
                     new RoleUpdateNameEvent(
                             api, responseNumber,
@@ -96,6 +95,7 @@ public class GuildRoleUpdateHandler extends SocketHandler
         {
             long oldPermissionsRaw = role.getPermissionsRaw();
             role.setRawPermissions(permissions);
+            guild.getPermissionCache().invalidateAll();
             api.getEventManager().handle(
                     new RoleUpdatePermissionsEvent(
                             api, responseNumber,
@@ -43,7 +43,7 @@ public class GuildUpdateHandler extends SocketHandler
             return id;
 
         GuildImpl guild = (GuildImpl) api.getGuildMap().get(id);
-        Member owner = guild.getMembersMap().get(content.getLong("owner_id"));
+        final long ownerId = content.getLong("owner_id");
         String name = content.getString("name");
         String iconId = !content.isNull("icon") ? content.getString("icon") : null;
         String splashId = !content.isNull("splash") ? content.getString("splash") : null;
@@ -60,10 +60,11 @@ public class GuildUpdateHandler extends SocketHandler
                 ? guild.getTextChannelsMap().get(content.getLong("system_channel_id"))
                 : null;
 
-        if (!Objects.equals(owner, guild.getOwner()))
+        if (ownerId != guild.getOwnerIdLong())
         {
             Member oldOwner = guild.getOwner();
-            guild.setOwner(owner);
+            guild.setOwnerId(ownerId);
+            guild.getPermissionCache().invalidateAll();
             api.getEventManager().handle(
                     new GuildUpdateOwnerEvent(
                         api, responseNumber,
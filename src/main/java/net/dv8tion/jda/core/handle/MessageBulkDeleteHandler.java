@@ -51,7 +51,7 @@ public class MessageBulkDeleteHandler extends SocketHandler
             TextChannel channel = api.getTextChannelMap().get(channelId);
             if (channel == null)
             {
-                api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                cacheEvent(EventCache.Type.CHANNEL, channelId);
                 EventCache.LOG.debug("Received a Bulk Message Delete for a TextChannel that is not yet cached.");
                 return null;
             }
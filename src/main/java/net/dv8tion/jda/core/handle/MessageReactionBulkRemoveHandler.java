@@ -56,7 +56,7 @@ public class MessageReactionBulkRemoveHandler extends SocketHandler
         }
         if (channel == null)
         {
-            api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CHANNEL, channelId);
             EventCache.LOG.debug("Received a reaction for a channel that JDA does not currently have cached");
             return null;
         }
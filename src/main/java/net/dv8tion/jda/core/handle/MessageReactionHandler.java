@@ -69,7 +69,13 @@ public class MessageReactionHandler extends SocketHandler
             user = api.getFakeUserMap().get(userId);
         if (user == null)
         {
-            api.getEventCache().cache(EventCache.Type.USER, userId, () -> handle(responseNumber, allContent));
+            if (!api.isMemberCacheComplete())
+            {
+                //The user is not cached due to the MemberCachePolicy and will not show up later
+                WebSocketClient.LOG.debug("Ignoring reaction for a user that is not cached");
+                return null;
+            }
+            cacheEvent(EventCache.Type.USER, userId);
             EventCache.LOG.debug("Received a reaction for a user that JDA does not currently have cached");
             return null;
         }
@@ -89,7 +95,7 @@ public class MessageReactionHandler extends SocketHandler
         }
         if (channel == null)
         {
-            api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CHANNEL, channelId);
             EventCache.LOG.debug("Received a reaction for a channel that JDA does not currently have cached");
             return null;
         }
@@ -22,6 +22,7 @@ import net.dv8tion.jda.core.events.user.UserAvatarUpdateEvent;
 import net.dv8tion.jda.core.events.user.UserGameUpdateEvent;
 import net.dv8tion.jda.core.events.user.UserNameUpdateEvent;
 import net.dv8tion.jda.core.events.user.UserOnlineStatusUpdateEvent;
+import net.dv8tion.jda.core.requests.WebSocketClient;
 import org.json.JSONObject;
 
 import java.util.Objects;
@@ -66,7 +67,7 @@ public class PresenceUpdateHandler extends SocketHandler
                 {
                     String oldUsername = user.getName();
                     String oldDiscriminator = user.getDiscriminator();
-                    user.setName(name);
+                    user.setName(api.getEntityBuilder().intern(name));
                     user.setDiscriminator(discriminator);
                     api.getEventManager().handle(
                             new UserNameUpdateEvent(
@@ -77,7 +78,7 @@ public class PresenceUpdateHandler extends SocketHandler
                 if (!(avatarId == null && oldAvatar == null) && !Objects.equals(avatarId, oldAvatar))
                 {
                     String oldAvatarId = user.getAvatarId();
-                    user.setAvatarId(avatarId);
+                    user.setAvatarId(api.getEntityBuilder().intern(avatarId));
                     api.getEventManager().handle(
                             new UserAvatarUpdateEvent(
                                     api, responseNumber,
@@ -87,27 +88,7 @@ public class PresenceUpdateHandler extends SocketHandler
 
             //Now that we've update the User's info, lets see if we need to set the specific Presence information.
             // This is stored in the Member or Relation objects.
-            String gameName = null;
-            String gameUrl = null;
-            Game.GameType type = null;
-            if ( !content.isNull("game") && !content.getJSONObject("game").isNull("name") )
-            {
-                gameName = content.getJSONObject("game").get("name").toString();
-                gameUrl = ( content.getJSONObject("game").isNull("url") ? null : content.getJSONObject("game").get("url").toString() );
-                try
-                {
-                    type = content.getJSONObject("game").isNull("type")
-                            ? Game.GameType.DEFAULT
-                            : Game.GameType.fromKey(Integer.parseInt(content.getJSONObject("game").get("type").toString()));
-                }
-                catch (NumberFormatException ex)
-                {
-                    type = Game.GameType.DEFAULT;
-                }
-            }
-            Game nextGame = (gameName == null
-                    ? null
-                    : api.getEntityBuilder().createGame(gameName, gameUrl, type));
+            Game nextGame = api.getEntityBuilder().createGame(content.isNull("game") ? null : content.getJSONObject("game"));
             OnlineStatus status = OnlineStatus.fromKey(content.getString("status"));
 
             //If we are in a Guild, then we will use Member.
@@ -126,11 +107,14 @@ public class PresenceUpdateHandler extends SocketHandler
                 if (member == null)
                 {
                     //Cache the presence and return to finish up.
-                    if (status != OnlineStatus.OFFLINE)
+                    // If the member cache is incomplete the member might never be added, so we don't cache then.
+                    if (status != OnlineStatus.OFFLINE && api.isMemberCacheComplete())
                     {
-                        guild.getCachedPresenceMap().put(userId, content);
+                        api.getEntityBuilder().cachePresence(guild, userId, status, nextGame);
                         return null;
                     }
+                    if (status != OnlineStatus.OFFLINE)
+                        loadMember(guild, content);
                 }
                 else
                 {
@@ -153,6 +137,7 @@ public class PresenceUpdateHandler extends SocketHandler
                                         api, responseNumber,
                                         user, guild, oldGame));
                     }
+                    api.getEntityBuilder().updateMemberCache(member);
                 }
             }
             else
@@ -173,14 +158,27 @@ public class PresenceUpdateHandler extends SocketHandler
 
             //If the OnlineStatus is OFFLINE, ignore the event and return.
             OnlineStatus status = OnlineStatus.fromKey(content.getString("status"));
-            if (status == OnlineStatus.OFFLINE)
+            //Members kept off-heap have no cached user, their stored status is updated regardless of the member cache
+            if (content.has("guild_id"))
+            {
+                OffHeapMemberStore store = ((GuildImpl) api.getGuildById(content.getLong("guild_id"))).getMemberStore();
+                if (store != null && store.setOnlineStatus(userId, status))
+                    return null;
+            }
+            if (!api.isMemberCacheComplete())
+            {
+                if (content.has("guild_id") && status != OnlineStatus.OFFLINE)
+                    loadMember((GuildImpl) api.getGuildById(content.getLong("guild_id")), content);
                 return null;
+            }
 
-            //If this was for a Guild, cache it in the Guild for later use in GUILD_MEMBER_ADD
+            //If this was for a Guild, cache it in the Guild for later use in GUILD_MEMBER_ADD.
+            // An OFFLINE status removes previously cached presences.
             if (content.has("guild_id"))
             {
                 GuildImpl guild = (GuildImpl) api.getGuildById(content.getLong("guild_id"));
-                guild.getCachedPresenceMap().put(userId, content);
+                Game game = api.getEntityBuilder().createGame(content.isNull("game") ? null : content.getJSONObject("game"));
+                api.getEntityBuilder().cachePresence(guild, userId, status, game);
             }
             else
             {
@@ -189,4 +187,14 @@ public class PresenceUpdateHandler extends SocketHandler
         }
         return null;
     }
+
+    //Members that are not cached because of the MemberCachePolicy might be accepted with their new presence
+    private void loadMember(GuildImpl guild, JSONObject content)
+    {
+        MemberImpl member = api.getEntityBuilder().createMemberFromPresence(guild, content);
+        if (member == null)
+            WebSocketClient.LOG.debug("Ignoring PRESENCE_UPDATE without user for a Member that is not cached. JSON: " + content);
+        else if (api.getEntityBuilder().updateMemberCache(member))
+            WebSocketClient.LOG.trace("Loaded Member " + member.getUser().getId() + " of Guild " + guild.getId() + " from PRESENCE_UPDATE");
+    }
 }
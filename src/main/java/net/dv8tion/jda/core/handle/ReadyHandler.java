@@ -29,6 +29,7 @@ import net.dv8tion.jda.core.entities.ChannelType;
 import net.dv8tion.jda.core.entities.EntityBuilder;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.events.guild.GuildReadyEvent;
 import net.dv8tion.jda.core.managers.impl.PresenceImpl;
 import net.dv8tion.jda.core.requests.WebSocketClient;
 import org.json.JSONArray;
@@ -104,8 +105,18 @@ public class ReadyHandler extends SocketHandler
                 builder.createGuildFirstPass(guild, this::guildSetupComplete);
         }
 
-        if (guilds.length() == 0)
+        if (api.isLazyGuildLoading())
+        {
+            //Guilds are loaded independently, the session does not wait for them.
+            // Only guilds that were complete in READY (client accounts) have acknowledged their requests by now, they are sent here.
+            // All other guilds request their members when their GUILD_CREATE arrives, the client sends those in batches of 50.
+            sendRequests();
             guildLoadComplete(content);
+        }
+        else if (guilds.length() == 0)
+        {
+            guildLoadComplete(content);
+        }
 
         return null;
     }
@@ -180,7 +191,15 @@ public class ReadyHandler extends SocketHandler
                 guildsRequiringSyncing.add(guild.getIdLong());
         }
         else
+        {
             unavailableGuilds.add(guild.getIdLong());
+            //The last guild READY was waiting for might have become unavailable while it was being set up
+            if (!api.isLazyGuildLoading() && incompleteGuilds.size() == unavailableGuilds.size())
+            {
+                guildLoadComplete(allContent.getJSONObject("d"));
+                return;
+            }
+        }
 
         checkIfReadyToSendRequests();
     }
@@ -189,12 +208,34 @@ public class ReadyHandler extends SocketHandler
     {
         if (!incompleteGuilds.remove(guild.getIdLong()))
             WebSocketClient.LOG.fatal("Completed the setup for Guild: " + guild + " without matching id in ReadyHandler cache");
-        if (incompleteGuilds.size() == unavailableGuilds.size())
+
+        api.getEventManager().handle(
+                new GuildReadyEvent(
+                        api, api.getResponseTotal(),
+                        guild));
+
+        if (api.isLazyGuildLoading())
+            api.getEventCache().playbackCache(EventCache.Type.GUILD, guild.getIdLong());
+        else if (incompleteGuilds.size() == unavailableGuilds.size())
             guildLoadComplete(allContent.getJSONObject("d"));
         else
             checkIfReadyToSendRequests();
     }
 
+    /**
+     * Whether the specified guild was part of READY and did not finish loading yet.
+     * <br>Only used with {@link net.dv8tion.jda.core.entities.impl.JDAImpl#isLazyGuildLoading() lazy guild loading},
+     * where guilds of the session are still loading after the session is ready.
+     *
+     * @param  guildId
+     *         The id of the guild
+     *
+     * @return True, if the guild is still loading
+     */
+    public boolean isGuildLoading(long guildId)
+    {
+        return incompleteGuilds.contains(guildId);
+    }
 
     public void clearCache()
     {
@@ -207,13 +248,17 @@ public class ReadyHandler extends SocketHandler
 
     private void checkIfReadyToSendRequests()
     {
-        if (acknowledgedGuilds.size() == incompleteGuilds.size())
-        {
-            api.getClient().setChunkingAndSyncing(true);
-            if (api.getAccountType() == AccountType.CLIENT)
-                sendGuildSyncRequests();
-            sendMemberChunkRequests();
-        }
+        //With lazy guild loading the requests are sent once READY was handled
+        if (!api.isLazyGuildLoading() && acknowledgedGuilds.size() == incompleteGuilds.size())
+            sendRequests();
+    }
+
+    private void sendRequests()
+    {
+        api.getClient().setChunkingAndSyncing(true);
+        if (api.getAccountType() == AccountType.CLIENT)
+            sendGuildSyncRequests();
+        sendMemberChunkRequests();
     }
 
     private void sendGuildSyncRequests()
@@ -48,6 +48,23 @@ public abstract class SocketHandler
      */
     protected abstract Long handleInternally(JSONObject content);
 
+    /**
+     * Caches the event that is currently handled in the {@link net.dv8tion.jda.core.handle.EventCache EventCache}
+     * until the entity with the specified id is cached.
+     *
+     * @param type
+     *        The type of the missing entity
+     * @param triggerId
+     *        The id of the missing entity
+     */
+    protected void cacheEvent(EventCache.Type type, long triggerId)
+    {
+        //Handlers are reused for every event, the replay must not read the fields when it runs
+        final long responseNumber = this.responseNumber;
+        final JSONObject allContent = this.allContent;
+        api.getEventCache().cache(type, triggerId, allContent, () -> handle(responseNumber, allContent));
+    }
+
     public static class NOPHandler extends SocketHandler
     {
         public NOPHandler(JDAImpl api)
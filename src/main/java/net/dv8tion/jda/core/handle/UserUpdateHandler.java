@@ -49,7 +49,7 @@ public class UserUpdateHandler extends SocketHandler
         {
             String oldName = self.getName();
             String oldDiscriminator = self.getDiscriminator();
-            self.setName(name);
+            self.setName(api.getEntityBuilder().intern(name));
             self.setDiscriminator(discriminator);
             api.getEventManager().handle(
                     new SelfUpdateNameEvent(
@@ -59,7 +59,7 @@ public class UserUpdateHandler extends SocketHandler
         if (!Objects.equals(avatarId, self.getAvatarId()))
         {
             String oldAvatarId = self.getAvatarId();
-            self.setAvatarId(avatarId);
+            self.setAvatarId(api.getEntityBuilder().intern(avatarId));
             api.getEventManager().handle(
                     new SelfUpdateAvatarEvent(
                             api, responseNumber,
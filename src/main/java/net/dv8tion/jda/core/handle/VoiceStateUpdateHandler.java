@@ -27,6 +27,7 @@ import net.dv8tion.jda.client.events.call.voice.CallVoiceLeaveEvent;
 import net.dv8tion.jda.client.events.call.voice.CallVoiceSelfDeafenEvent;
 import net.dv8tion.jda.client.events.call.voice.CallVoiceSelfMuteEvent;
 import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.impl.GuildImpl;
 import net.dv8tion.jda.core.entities.impl.GuildVoiceStateImpl;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.entities.impl.MemberImpl;
@@ -74,7 +75,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
         Guild guild = api.getGuildById(guildId);
         if (guild == null)
         {
-            api.getEventCache().cache(EventCache.Type.GUILD, guildId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.GUILD, guildId);
             EventCache.LOG.debug("Received a VOICE_STATE_UPDATE for a Guild that has yet to be cached. JSON: " + content);
             return;
         }
@@ -82,12 +83,23 @@ public class VoiceStateUpdateHandler extends SocketHandler
         VoiceChannelImpl channel = channelId != null ? (VoiceChannelImpl) guild.getVoiceChannelById(channelId) : null;
         if (channel == null && channelId != null)
         {
-            api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.CHANNEL, channelId);
             EventCache.LOG.debug("Received VOICE_STATE_UPDATE for a VoiceChannel that has yet to be cached. JSON: " + content);
             return;
         }
 
         MemberImpl member = (MemberImpl) guild.getMemberById(userId);
+        if (member == null && !api.isMemberCacheComplete())
+        {
+            //The member is not cached due to the MemberCachePolicy, if discord provided the member
+            // we can load it now and let the policy decide once the voice state is applied.
+            if (content.isNull("member"))
+            {
+                WebSocketClient.LOG.debug("Ignoring VOICE_STATE_UPDATE for a Member that is not cached. JSON: " + content);
+                return;
+            }
+            member = (MemberImpl) api.getEntityBuilder().createMember((GuildImpl) guild, content.getJSONObject("member"));
+        }
         if (member == null)
         {
             //Caching of this might not be valid. It is possible that we received this
@@ -100,7 +112,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
             // in fact the issue was that the VOICE_STATE_UPDATE was sent after they had left, however, by caching
             // it we will preserve the integrity of the cache in the event that it was actually a mis-ordering of
             // GUILD_MEMBER_ADD and VOICE_STATE_UPDATE. I'll take some bad-data events over an invalid cache.
-            api.getEventCache().cache(EventCache.Type.USER, userId, () -> handle(responseNumber, allContent));
+            cacheEvent(EventCache.Type.USER, userId);
             EventCache.LOG.debug("Received VOICE_STATE_UPDATE for a Member that has yet to be cached. JSON: " + content);
             return;
         }
@@ -181,6 +193,8 @@ public class VoiceStateUpdateHandler extends SocketHandler
             api.getEventManager().handle(new GuildVoiceMuteEvent(api, responseNumber, member));
         if (wasDeaf != vState.isDeafened())
             api.getEventManager().handle(new GuildVoiceDeafenEvent(api, responseNumber, member));
+
+        api.getEntityBuilder().updateMemberCache(member);
     }
 
     private void handleCallVoiceState(JSONObject content)
@@ -202,7 +216,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
 
             if (channel == null)
             {
-                api.getEventCache().cache(EventCache.Type.CHANNEL, channelId, () -> handle(responseNumber, allContent));
+                cacheEvent(EventCache.Type.CHANNEL, channelId);
                 EventCache.LOG.debug("Received a VOICE_STATE_UPDATE for a Group/PrivateChannel that was not yet cached! JSON: " + content);
                 return;
             }
@@ -210,7 +224,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
             CallImpl call = (CallImpl) channel.getCurrentCall();
             if (call == null)
             {
-                api.getEventCache().cache(EventCache.Type.CALL, channelId, () -> handle(responseNumber, allContent));
+                cacheEvent(EventCache.Type.CALL, channelId);
                 EventCache.LOG.debug("Received a VOICE_STATE_UPDATE for a Call that is not yet cached. JSON: " + content);
                 return;
             }
@@ -225,7 +239,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
             cUser = call.getCallUserMap().get(userId);
             if (cUser == null)
             {
-                api.getEventCache().cache(EventCache.Type.USER, userId, () -> handle(responseNumber, allContent));
+                cacheEvent(EventCache.Type.USER, userId);
                 EventCache.LOG.debug("Received a VOICE_STATE_UPDATE for a user that is not yet a a cached CallUser for the call. (groups only). JSON: " + content);
                 return;
             }
@@ -245,7 +259,7 @@ public class VoiceStateUpdateHandler extends SocketHandler
             CallUser cUser = ((JDAClientImpl) api.asClient()).getCallUserMap().remove(userId);
             if (cUser == null)
             {
-                api.getEventCache().cache(EventCache.Type.USER, userId, () -> handle(responseNumber, allContent));
+                cacheEvent(EventCache.Type.USER, userId);
                 EventCache.LOG.debug("Received a VOICE_STATE_UPDATE for a User leaving a Call, but the Call was not yet cached! JSON: " + content);
                 return;
             }
@@ -151,6 +151,30 @@ public interface AudioManager
      */
     long getConnectTimeout();
 
+    /**
+     * Sets the maximum delay, in milliseconds, of the jitter buffer used for received audio. The default value is 0 (disabled).
+     * <br>With a jitter buffer, packets that arrive out of order are reordered instead of dropped and the audio of each
+     * {@link net.dv8tion.jda.core.entities.User User} is provided in a steady 20ms rhythm. Frames that got lost are recovered
+     * from the forward error correction data of the next packet or concealed by Opus.
+     *
+     * <p>The buffer adapts its delay to the network, starting at 40ms and growing up to the provided maximum whenever
+     * packets arrive too late. Values below 40ms are rounded up to 40ms.
+     *
+     * @param  maxDelay
+     *         The maximum delay in milliseconds, or 0 to disable the jitter buffer
+     *
+     * @throws IllegalArgumentException
+     *         If the provided delay is negative
+     */
+    void setJitterBufferDelay(int maxDelay);
+
+    /**
+     * The maximum delay, in <b>milliseconds</b>, of the jitter buffer used for received audio.
+     *
+     * @return The maximum delay, or 0 if the jitter buffer is disabled.
+     */
+    int getJitterBufferDelay();
+
     /**
      * Sets the {@link net.dv8tion.jda.core.audio.AudioSendHandler}
      * that the manager will use to provide audio data to an audio connection.
@@ -1006,7 +1006,7 @@ public class GuildController
 
         //We check the owner instead of Position because, apparently, Discord doesn't care about position for
         // muting and deafening, only whether the affected Member is the owner.
-        if (guild.getOwner().equals(member))
+        if (member.isOwner())
             throw new HierarchyException("Cannot modify Guild Deafen status the Owner of the Guild");
 
         if (member.getVoiceState().isGuildDeafened() == deafen)
@@ -1073,7 +1073,7 @@ public class GuildController
 
         //We check the owner instead of Position because, apparently, Discord doesn't care about position for
         // muting and deafening, only whether the affected Member is the owner.
-        if (guild.getOwner().equals(member))
+        if (member.isOwner())
             throw new HierarchyException("Cannot modify Guild Mute status the Owner of the Guild");
 
         if (member.getVoiceState().isGuildMuted() == mute)
@@ -1745,7 +1745,7 @@ public class GuildController
         checkAvailable();
         Checks.notNull(newOwner, "newOwner member");
         checkGuild(newOwner.getGuild(), "newOwner member");
-        if (!guild.getOwner().equals(guild.getSelfMember()))
+        if (!guild.getSelfMember().isOwner())
             throw new PermissionException("The logged in account must be the owner of this Guild to be able to transfer ownership");
 
         if (guild.getSelfMember().equals(newOwner))
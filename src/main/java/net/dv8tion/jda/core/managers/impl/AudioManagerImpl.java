@@ -65,6 +65,7 @@ public class AudioManagerImpl implements AudioManager
     protected AudioSendHandler sendHandler;
     protected AudioReceiveHandler receiveHandler;
     protected long queueTimeout = 100;
+    protected int jitterBufferDelay = 0;
     protected boolean shouldReconnect = true;
 
     protected boolean selfMuted = false;
@@ -199,6 +200,21 @@ public class AudioManagerImpl implements AudioManager
         return timeout;
     }
 
+    @Override
+    public void setJitterBufferDelay(int maxDelay)
+    {
+        Checks.notNegative(maxDelay, "Jitter buffer delay");
+        this.jitterBufferDelay = maxDelay;
+        if (audioConnection != null)
+            audioConnection.setJitterBufferDelay(maxDelay);
+    }
+
+    @Override
+    public int getJitterBufferDelay()
+    {
+        return jitterBufferDelay;
+    }
+
     @Override
     public void setSendingHandler(AudioSendHandler handler)
     {
@@ -310,6 +326,7 @@ public class AudioManagerImpl implements AudioManager
         audioConnection.setSendingHandler(sendHandler);
         audioConnection.setReceivingHandler(receiveHandler);
         audioConnection.setQueueTimeout(queueTimeout);
+        audioConnection.setJitterBufferDelay(jitterBufferDelay);
     }
 
     public void prepareForRegionChange()
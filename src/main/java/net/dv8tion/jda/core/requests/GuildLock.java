@@ -13,76 +13,206 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+
 package net.dv8tion.jda.core.requests;
 
-import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TLongSet;
 import gnu.trove.set.hash.TLongHashSet;
-import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.utils.BufferOverflowPolicy;
+import net.dv8tion.jda.core.utils.EventBuffer;
 import net.dv8tion.jda.core.utils.SimpleLog;
 import org.json.JSONObject;
 
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class GuildLock
 {
     public static final SimpleLog LOG = SimpleLog.getLog("JDAGuildLock");
 
-    private final JDA api;
-    private final TLongObjectMap<List<JSONObject>> cache = new TLongObjectHashMap<>();
-    private final TLongSet cached = new TLongHashSet();
+    private final JDAImpl api;
+    private final TLongSet locked = new TLongHashSet();
+    //Guilds built on the guild setup pool, their GUILD_CREATE was handled but they are not published yet
+    private final TLongSet settingUp = new TLongHashSet();
+    private final EventBuffer<Long, JSONObject> buffer = new EventBuffer<>();
+    private volatile long lastOverflowWarning = 0;
 
-    public boolean isLocked(long guildId)
+    public synchronized boolean isLocked(long guildId)
     {
-        return cached.contains(guildId);
+        return locked.contains(guildId);
     }
 
-    public void lock(long guildId)
+    public synchronized void lock(long guildId)
     {
-        if (!isLocked(guildId))
-        {
-            cached.add(guildId);
-            cache.put(guildId, new LinkedList<>());
-        }
+        locked.add(guildId);
+    }
+
+    /**
+     * Locks a guild that is built on the guild setup pool.
+     * <br>Overflowing events of such a guild resynchronize the session even though the guild is not published yet.
+     *
+     * @param guildId
+     *        The id of the guild
+     */
+    public synchronized void lockForSetup(long guildId)
+    {
+        locked.add(guildId);
+        settingUp.add(guildId);
+    }
+
+    /**
+     * Marks the setup of a guild locked by {@link #lockForSetup(long)} as done, the guild stays locked.
+     *
+     * @param guildId
+     *        The id of the guild
+     */
+    public synchronized void setupComplete(long guildId)
+    {
+        settingUp.remove(guildId);
     }
 
     public void unlock(long guildId)
     {
-        if (isLocked(guildId))
+        List<JSONObject> events;
+        synchronized (this)
         {
-            cached.remove(guildId);
-            List<JSONObject> events = cache.remove(guildId);
-            if(events.size() > 0)
-            {
-                LOG.debug("Replaying " + events.size() + " events for unlocked guild with id " + guildId);
-                ((JDAImpl) api).getClient().handle(events);
-                LOG.debug("Finished replaying events for guild with id " + guildId);
-            }
+            settingUp.remove(guildId);
+            if (!locked.remove(guildId))
+                return;
+            events = buffer.remove(guildId);
+        }
+
+        if (events.size() > 0)
+        {
+            LOG.debug("Replaying " + events.size() + " events for unlocked guild with id " + guildId);
+            api.getClient().handle(events);
+            LOG.debug("Finished replaying events for guild with id " + guildId);
         }
     }
 
     public void queue(long guildId, JSONObject event)
     {
-        if (isLocked(guildId))
+        Set<Long> overflowed;
+        synchronized (this)
         {
+            if (!locked.contains(guildId))
+                return;
             LOG.debug("Queueing up event for guild with id " + guildId + ": " + event.toString());
-            cache.get(guildId).add(event);
+            overflowed = buffer.add(guildId, event, EventBuffer.estimateSize(event));
         }
+
+        if (!overflowed.isEmpty())
+            handleOverflow(overflowed);
+    }
+
+    public synchronized void clear()
+    {
+        buffer.clear();
+        locked.clear();
+        settingUp.clear();
+    }
+
+    /**
+     * Sets the limits of the queue.
+     * <br>Events of locked guilds never expire, a guild that takes long to load would otherwise silently miss them.
+     *
+     * @param maxEvents
+     *        The maximum amount of queued events
+     * @param maxBytes
+     *        The maximum approximate size of all queued events in bytes
+     */
+    public void setLimits(int maxEvents, long maxBytes)
+    {
+        buffer.setLimits(maxEvents, maxBytes, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The amount of guilds that are currently locked.
+     *
+     * @return The amount of locked guilds
+     */
+    public synchronized int getLockedCount()
+    {
+        return locked.size();
+    }
+
+    /**
+     * The amount of events that are currently queued for locked guilds.
+     *
+     * @return The amount of queued events
+     */
+    public int getQueuedCount()
+    {
+        return buffer.size();
+    }
+
+    /**
+     * The approximate size of all events that are currently queued for locked guilds.
+     *
+     * @return The size in bytes
+     */
+    public long getQueuedBytes()
+    {
+        return buffer.getBytes();
+    }
+
+    /**
+     * The total amount of events that were dropped because the queue overflowed.
+     *
+     * @return The amount of dropped events
+     */
+    public long getDroppedCount()
+    {
+        return buffer.getDroppedCount();
     }
 
-    public void clear()
+    private void handleOverflow(Set<Long> guildIds)
     {
-        cache.clear();
-        cached.clear();
+        final long now = System.currentTimeMillis();
+        if (now - lastOverflowWarning > 10000)
+        {
+            lastOverflowWarning = now;
+            LOG.warn("The event queue of locked guilds is full, dropped events of " + guildIds.size() + " guilds. Total dropped events: " + getDroppedCount());
+        }
+
+        if (api.getBufferOverflowPolicy() != BufferOverflowPolicy.RESYNC)
+            return;
+
+        boolean resync = false;
+        for (long guildId : guildIds)
+        {
+            final boolean setup;
+            synchronized (this)
+            {
+                setup = settingUp.contains(guildId);
+            }
+            Guild guild = api.getGuildMap().get(guildId);
+            //Unavailable guilds are sent in full once they become available again, the remaining events are obsolete.
+            // Guilds on the setup pool may not be cached or still be marked unavailable, but their GUILD_CREATE was already handled.
+            if (!setup && (guild == null || !guild.isAvailable()))
+            {
+                synchronized (this)
+                {
+                    buffer.clear(guildId);
+                }
+            }
+            else
+            {
+                resync = true;
+            }
+        }
+
+        WebSocketClient client = api.getClient();
+        if (resync && client != null)
+            client.resync("The event queue of a locked guild overflowed");
     }
 
-    public GuildLock(JDA api)
+    public GuildLock(JDAImpl api)
     {
         this.api = api;
+        setLimits(EventBuffer.DEFAULT_MAX_EVENTS, EventBuffer.DEFAULT_MAX_BYTES);
     }
 }
@@ -16,14 +16,13 @@
 
 package net.dv8tion.jda.core.requests;
 
-import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.requests.ratelimit.IBucket;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class RateLimiter
 {
@@ -31,6 +30,7 @@ public abstract class RateLimiter
 
     protected final Requester requester;
     protected final ScheduledThreadPoolExecutor pool;
+    protected final boolean shutdownPool;
     protected volatile boolean isShutdown = false; 
     protected volatile ConcurrentHashMap<String, IBucket> buckets = new ConcurrentHashMap<>();
     protected volatile ConcurrentLinkedQueue<IBucket> submittedBuckets = new ConcurrentLinkedQueue<>();
@@ -38,7 +38,10 @@ public abstract class RateLimiter
     protected RateLimiter(Requester requester, int poolSize)
     {
         this.requester = requester;
-        this.pool = new ScheduledThreadPoolExecutor(poolSize, new RateLimitThreadFactory(requester.getJDA()));
+        ScheduledThreadPoolExecutor sharedPool = requester.getJDA().getSharedRateLimitPool();
+        this.shutdownPool = sharedPool == null;
+        this.pool = sharedPool != null ? sharedPool : new ScheduledThreadPoolExecutor(poolSize, requester.getJDA().getThreadingModel()
+            .asThreadFactory(ThreadingModel.ThreadType.POOL, requester.getJDA().getIdentifierString() + " RateLimit-Queue Pool"));
     }
 
 
@@ -75,32 +78,16 @@ public abstract class RateLimiter
     {
         isShutdown = true;
 
+        //A shared pool is owned by the ShardManager
+        if (!shutdownPool)
+            return;
         pool.setKeepAliveTime(time, unit);
         pool.allowCoreThreadTimeOut(true);
     }
 
     public void forceShutdown()
     {
-        pool.shutdownNow();
-    }
-
-    private class RateLimitThreadFactory implements ThreadFactory
-    {
-        final String identifier;
-        AtomicInteger threadCount = new AtomicInteger(1);
-
-        public RateLimitThreadFactory(JDAImpl api)
-        {
-            identifier = api.getIdentifierString() + " RateLimit-Queue Pool";
-        }
-
-        @Override
-        public Thread newThread(Runnable r)
-        {
-            Thread t = new Thread(r, identifier + " - Thread " + threadCount.getAndIncrement());
-            t.setDaemon(true);
-
-            return t;
-        }
+        if (shutdownPool)
+            pool.shutdownNow();
     }
 }
@@ -62,7 +62,8 @@ public class Requester
         else
             rateLimiter = new ClientRateLimiter(this, 5);
         
-        this.httpClient = this.api.getHttpClientBuilder().build();
+        OkHttpClient sharedClient = this.api.getSharedHttpClient();
+        this.httpClient = sharedClient != null ? sharedClient : this.api.getHttpClientBuilder().build();
     }
 
     public JDAImpl getJDA()
@@ -16,78 +16,181 @@
 
 package net.dv8tion.jda.core.requests;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import net.dv8tion.jda.core.utils.Checks;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue used to reconnect sessions that have to send a new IDENTIFY.
+ * <br>Discord only allows one IDENTIFY per {@link WebSocketClient#IDENTIFY_DELAY IDENTIFY_DELAY} seconds
+ * for each identify bucket. Bots with a higher identify concurrency can use one bucket per allowed
+ * concurrent IDENTIFY, sessions are assigned to bucket {@code shardId % concurrency}.
+ *
+ * <p>All buckets are processed by one shared executor whose threads time out while the queue is idle.
+ */
 public class SessionReconnectQueue
 {
     //200 ms buffer for actually sending identify payload here
     private static final int RECONNECT_DELAY = (WebSocketClient.IDENTIFY_DELAY * 1000) + 200;
     protected final Object lock = new Object();
     protected final BlockingQueue<WebSocketClient> reconnectQueue;
-    protected volatile Thread reconnectThread;
+    protected final int concurrency;
+    protected final boolean[] activeBuckets;
+    protected final long[] nextIdentify;
+    protected volatile ScheduledThreadPoolExecutor executor;
+    protected volatile ThreadingModel threadingModel = ThreadingModel.DEFAULT;
 
     public SessionReconnectQueue()
     {
         this(new LinkedBlockingQueue<>());
     }
 
+    /**
+     * Creates a new queue which allows the specified amount of concurrent IDENTIFY requests.
+     *
+     * @param  concurrency
+     *         The identify concurrency of the bot account
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided concurrency is not positive
+     */
+    public SessionReconnectQueue(int concurrency)
+    {
+        this(new LinkedBlockingQueue<>(), concurrency);
+    }
+
     public SessionReconnectQueue(final BlockingQueue<WebSocketClient> reconnectQueue)
     {
+        this(reconnectQueue, 1);
+    }
+
+    public SessionReconnectQueue(final BlockingQueue<WebSocketClient> reconnectQueue, int concurrency)
+    {
+        Checks.positive(concurrency, "Concurrency");
         this.reconnectQueue = reconnectQueue;
+        this.concurrency = concurrency;
+        this.activeBuckets = new boolean[concurrency];
+        this.nextIdentify = new long[concurrency];
+    }
+
+    public int getConcurrency()
+    {
+        return concurrency;
     }
 
     protected void appendSession(final WebSocketClient client)
     {
-        if (!reconnectQueue.offer(client))
-            throw new IllegalStateException("Queue rejected session");
-        runWorker();
+        synchronized (lock)
+        {
+            if (!reconnectQueue.offer(client))
+                throw new IllegalStateException("Queue rejected session");
+            runWorker(getBucket(client));
+        }
     }
 
-    protected void runWorker()
+    protected void runWorker(int bucket)
     {
         synchronized (lock)
         {
-            if (reconnectThread == null)
-                reconnectThread = new ReconnectThread();
+            if (activeBuckets[bucket])
+                return;
+            activeBuckets[bucket] = true;
+            long delay = Math.max(0, nextIdentify[bucket] - System.currentTimeMillis());
+            getExecutor().schedule(() -> processBucket(bucket), delay, TimeUnit.MILLISECONDS);
         }
     }
 
-    protected final class ReconnectThread extends Thread
+    protected void processBucket(int bucket)
     {
-        protected ReconnectThread()
+        final WebSocketClient client;
+        final boolean isFirst;
+        synchronized (lock)
         {
-            super("JDA-ReconnectThread");
-            start();
+            client = poll(bucket);
+            if (client == null)
+            {
+                activeBuckets[bucket] = false;
+                return;
+            }
+            //Only the first session after an idle period has to handle an IDENTIFY rate limit itself
+            isFirst = System.currentTimeMillis() >= nextIdentify[bucket] + RECONNECT_DELAY;
         }
 
-        @Override
-        public final void run()
+        try
         {
-            boolean isFirst = true;
-            while (!reconnectQueue.isEmpty())
+            client.reconnect(true, isFirst);
+        }
+        finally
+        {
+            synchronized (lock)
             {
-                try
-                {
-                    final WebSocketClient client = reconnectQueue.poll();
-                    client.reconnect(true, isFirst);
-                    isFirst = false;
+                nextIdentify[bucket] = System.currentTimeMillis() + RECONNECT_DELAY;
+                getExecutor().schedule(() -> processBucket(bucket), RECONNECT_DELAY, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 
-                    if (!reconnectQueue.isEmpty())
-                        Thread.sleep(RECONNECT_DELAY);
-                }
-                catch (InterruptedException ex)
-                {
-                    throw new AssertionError(ex);
-                }
+    protected WebSocketClient poll(int bucket)
+    {
+        for (Iterator<WebSocketClient> it = reconnectQueue.iterator(); it.hasNext();)
+        {
+            WebSocketClient client = it.next();
+            if (getBucket(client) == bucket)
+            {
+                it.remove();
+                return client;
             }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} used to create the threads of this queue.
+     * <br>Only threads that are created after this call use the new model.
+     *
+     * @param  model
+     *         The threading model, or {@code null} to use the default threads
+     */
+    public void setThreadingModel(ThreadingModel model)
+    {
+        this.threadingModel = model == null ? ThreadingModel.DEFAULT : model;
+    }
+
+    protected int getBucket(WebSocketClient client)
+    {
+        return client.shardInfo == null ? 0 : client.shardInfo.getShardId() % concurrency;
+    }
+
+    protected ScheduledThreadPoolExecutor getExecutor()
+    {
+        ScheduledThreadPoolExecutor executor = this.executor;
+        if (executor == null)
+        {
             synchronized (lock)
             {
-                reconnectThread = null;
-                if (!reconnectQueue.isEmpty())
-                    runWorker(); // eliminate highly unlikely race condition
+                executor = this.executor;
+                if (executor == null)
+                {
+                    executor = this.executor = new ScheduledThreadPoolExecutor(concurrency, new ReconnectThreadFactory());
+                    executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+                    executor.allowCoreThreadTimeOut(true);
+                }
             }
         }
+        return executor;
     }
 
+    protected final class ReconnectThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger threadCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            return threadingModel.newThread(ThreadingModel.ThreadType.RECONNECT, r, "JDA-ReconnectThread " + threadCount.getAndIncrement());
+        }
+    }
 }
@@ -17,8 +17,11 @@
 package net.dv8tion.jda.core.requests;
 
 import com.neovisionaries.ws.client.*;
+import gnu.trove.iterator.TLongIterator;
 import gnu.trove.iterator.TLongObjectIterator;
 import gnu.trove.map.TLongObjectMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import net.dv8tion.jda.client.entities.impl.JDAClientImpl;
 import net.dv8tion.jda.client.handle.*;
 import net.dv8tion.jda.core.AccountType;
@@ -27,6 +30,7 @@ import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.WebSocketCode;
 import net.dv8tion.jda.core.audio.hooks.ConnectionListener;
 import net.dv8tion.jda.core.audio.hooks.ConnectionStatus;
+import net.dv8tion.jda.core.entities.CacheSnapshot;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.VoiceChannel;
 import net.dv8tion.jda.core.entities.impl.GuildImpl;
@@ -36,8 +40,11 @@ import net.dv8tion.jda.core.handle.*;
 import net.dv8tion.jda.core.managers.AudioManager;
 import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
 import net.dv8tion.jda.core.managers.impl.PresenceImpl;
+import net.dv8tion.jda.core.utils.HeartbeatTimer;
 import net.dv8tion.jda.core.utils.MiscUtil;
+import net.dv8tion.jda.core.utils.SessionStore;
 import net.dv8tion.jda.core.utils.SimpleLog;
+import net.dv8tion.jda.core.utils.ThreadingModel;
 import net.dv8tion.jda.core.utils.tuple.MutableTriple;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -48,6 +55,9 @@ import java.io.UnsupportedEncodingException;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -56,6 +66,8 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
     public static final SimpleLog LOG = SimpleLog.getLog("JDASocket");
     public static final int DISCORD_GATEWAY_VERSION = 6;
     public static final int IDENTIFY_DELAY = 5;
+    //A resync is only repaired by the new session, events that keep overflowing must not identify over and over
+    public static final long MIN_RESYNC_INTERVAL = TimeUnit.MINUTES.toMillis(5);
 
     protected final JDAImpl api;
     protected final JDA.ShardInfo shardInfo;
@@ -67,18 +79,23 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
     protected String gatewayUrl = null;
     protected String sessionId = null;
 
-    protected volatile Thread keepAliveThread;
+    protected volatile HeartbeatTimer.Task heartbeatTask;
+    protected volatile boolean heartbeatAcked = true;
     protected boolean initiating;             //cache all events?
     protected final List<JSONObject> cachedEvents = new LinkedList<>();
 
     protected int reconnectTimeoutS = 2;
-    protected long heartbeatStartTime;
+    protected volatile long heartbeatStartTime;
 
     //GuildId, <TimeOfNextAttempt, isReconnect, AudioConnection>
     protected final TLongObjectMap<MutableTriple<Long, Boolean, VoiceChannel>> queuedAudioConnections = MiscUtil.newLongMap();
 
     protected final LinkedList<String> chunkSyncQueue = new LinkedList<>();
+    //Guilds requesting members or a sync at runtime, sent in batches by the sending thread
+    protected final TLongSet pendingMemberRequests = new TLongHashSet();
+    protected final TLongSet pendingSyncRequests = new TLongHashSet();
     protected final LinkedList<String> ratelimitQueue = new LinkedList<>();
+    protected final AtomicReference<String> pendingHeartbeat = new AtomicReference<>();
     protected final SessionReconnectQueue reconnectQueue;
     protected volatile Thread ratelimitThread = null;
     protected volatile long ratelimitResetTime;
@@ -95,6 +112,11 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
     protected boolean firstInit = true;
     protected boolean processingReady = true;
 
+    //Held while dispatching events, guilds built on the guild setup pool are published while holding it
+    protected final Object dispatchLock = new Object();
+    protected volatile int sessionGeneration = 0;
+    protected long lastResync = 0;
+
     public WebSocketClient(JDAImpl api, SessionReconnectQueue reconnectQueue)
     {
         this.api = api;
@@ -103,6 +125,7 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         this.reconnectQueue = reconnectQueue;
         setupHandlers();
         setupSendingThread();
+        restoreSession();
         connect();
     }
 
@@ -135,6 +158,29 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         return connected;
     }
 
+    /**
+     * The lock that is held while events are dispatched.
+     * <br>Work done outside of the socket thread has to hold this lock while it modifies state
+     * that is shared with the event handlers.
+     *
+     * @return The dispatch lock
+     */
+    public Object getDispatchLock()
+    {
+        return dispatchLock;
+    }
+
+    /**
+     * Incremented whenever the session is invalidated and the cache is dropped.
+     * <br>Used to discard results of asynchronous work that was started for a previous session.
+     *
+     * @return The current session generation
+     */
+    public int getSessionGeneration()
+    {
+        return sessionGeneration;
+    }
+
     public void ready()
     {
         if (initiating)
@@ -185,7 +231,14 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
 
     public void handle(List<JSONObject> events)
     {
-        events.forEach(this::handleEvent);
+        //A replayed event might drop the session, the remaining events belong to the old session
+        final int generation = sessionGeneration;
+        for (JSONObject event : events)
+        {
+            if (generation != sessionGeneration)
+                break;
+            handleEvent(event);
+        }
     }
 
     public void send(String message)
@@ -198,6 +251,85 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         chunkSyncQueue.addLast(request.toString());
     }
 
+    /**
+     * Requests the members of the specified guild after READY.
+     * <br>Requests are collected until the sending thread is free and sent for up to 50 guilds at once.
+     *
+     * @param guildId
+     *        The id of the guild
+     */
+    public void requestGuildMembers(long guildId)
+    {
+        synchronized (pendingMemberRequests)
+        {
+            pendingMemberRequests.add(guildId);
+        }
+    }
+
+    /**
+     * Requests a sync of the specified guild after READY, only used by client accounts.
+     * <br>Requests are collected until the sending thread is free and sent for up to 50 guilds at once.
+     *
+     * @param guildId
+     *        The id of the guild
+     */
+    public void requestGuildSync(long guildId)
+    {
+        synchronized (pendingSyncRequests)
+        {
+            pendingSyncRequests.add(guildId);
+        }
+    }
+
+    private void queuePendingRequests()
+    {
+        synchronized (pendingSyncRequests)
+        {
+            for (JSONArray guildIds : drainBatches(pendingSyncRequests))
+            {
+                chunkOrSyncRequest(new JSONObject()
+                    .put("op", WebSocketCode.GUILD_SYNC)
+                    .put("d", guildIds));
+            }
+        }
+        synchronized (pendingMemberRequests)
+        {
+            for (JSONArray guildIds : drainBatches(pendingMemberRequests))
+            {
+                chunkOrSyncRequest(new JSONObject()
+                    .put("op", WebSocketCode.MEMBER_CHUNK_REQUEST)
+                    .put("d", new JSONObject()
+                        .put("guild_id", guildIds)
+                        .put("query", "")
+                        .put("limit", 0)
+                    ));
+            }
+        }
+    }
+
+    private static List<JSONArray> drainBatches(TLongSet guilds)
+    {
+        if (guilds.isEmpty())
+            return Collections.emptyList();
+
+        //We can only request 50 guilds in a single request
+        List<JSONArray> batches = new ArrayList<>();
+        JSONArray guildIds = new JSONArray();
+        for (TLongIterator it = guilds.iterator(); it.hasNext(); )
+        {
+            guildIds.put(it.next());
+            if (guildIds.length() == 50)
+            {
+                batches.add(guildIds);
+                guildIds = new JSONArray();
+            }
+        }
+        if (guildIds.length() > 0)
+            batches.add(guildIds);
+        guilds.clear();
+        return batches;
+    }
+
     private boolean send(String message, boolean skipQueue)
     {
         if (!connected)
@@ -233,7 +365,7 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
 
     private void setupSendingThread()
     {
-        ratelimitThread = new Thread(() ->
+        ratelimitThread = api.getThreadingModel().newThread(ThreadingModel.ThreadType.WEBSOCKET, () ->
         {
             boolean needRatelimit;
             boolean attemptedToSend;
@@ -249,8 +381,23 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                     }
                     attemptedToSend = false;
                     needRatelimit = false;
+
+                    //Heartbeats that hit the rate limit go ahead of everything else
+                    final String heartbeat = pendingHeartbeat.get();
+                    if (heartbeat != null)
+                    {
+                        if (!send(heartbeat, true))
+                        {
+                            Thread.sleep(1000);
+                            continue;
+                        }
+                        heartbeatStartTime = System.nanoTime();
+                        pendingHeartbeat.compareAndSet(heartbeat, null);
+                    }
                     MutableTriple<Long, Boolean, VoiceChannel> audioRequest = getNextAudioConnectRequest();
 
+                    if (chunkSyncQueue.isEmpty())
+                        queuePendingRequests();
                     String chunkOrSyncRequest = chunkSyncQueue.peekFirst();
                     if (chunkOrSyncRequest != null)
                     {
@@ -322,13 +469,12 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                     break;
                 }
             }
-        });
+        }, api.getIdentifierString() + " MainWS-Sending Thread");
         ratelimitThread.setUncaughtExceptionHandler((thread, throwable) ->
         {
             handleCallbackError(socket, throwable);
             setupSendingThread();
         });
-        ratelimitThread.setName(api.getIdentifierString() + " MainWS-Sending Thread");
         ratelimitThread.start();
     }
 
@@ -347,13 +493,41 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         socket.sendClose(code, reason);
     }
 
+    /**
+     * Drops the current session and connects with a new IDENTIFY.
+     * <br>Discord then sends the state of all guilds again, which repairs a cache that missed events.
+     * The session is dropped at most once every {@link #MIN_RESYNC_INTERVAL} milliseconds, calls in between are ignored.
+     *
+     * @param reason
+     *        The reason, used for logging and as close reason
+     */
+    public void resync(String reason)
+    {
+        synchronized (dispatchLock)
+        {
+            if (!connected || sessionId == null)
+                return;
+            final long now = System.currentTimeMillis();
+            if (now - lastResync < MIN_RESYNC_INTERVAL)
+            {
+                LOG.debug("Not resynchronizing the cache again yet: " + reason);
+                return;
+            }
+            lastResync = now;
+            LOG.warn("Dropping the session to resynchronize the cache: " + reason);
+            invalidate();
+        }
+        close(1000, reason);
+    }
+
     public void shutdown()
     {
         shutdown = true;
         shouldReconnect = false;
         if (reconnectQueue != null) // remove if in queue
             reconnectQueue.reconnectQueue.remove(this);
-        close(1000, "Shutting down");
+        //4000 keeps the stored session resumable, 1000 would invalidate it
+        close(saveSession() ? 4000 : 1000, "Shutting down");
     }
 
     /*
@@ -391,6 +565,84 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         }
     }
 
+    protected void restoreSession()
+    {
+        SessionStore store = api.getSessionStore();
+        if (store == null || api.getAccountType() != AccountType.BOT)
+            return;
+
+        SessionStore.SessionData data;
+        try
+        {
+            data = store.load(shardInfo);
+            if (data == null)
+                return;
+            //A stored session must never be resumed twice, so it is consumed even if the RESUME fails
+            store.remove(shardInfo);
+        }
+        catch (IOException e)
+        {
+            LOG.warn("Could not load stored session, starting a new session instead");
+            LOG.log(e);
+            return;
+        }
+
+        //Without the cache we would miss everything that happened before the RESUME
+        if (data.getSnapshot() == null)
+            return;
+        try
+        {
+            CacheSnapshot.read(api, data.getSnapshot());
+        }
+        catch (Exception e)
+        {
+            LOG.warn("Could not restore cache snapshot of stored session, starting a new session instead");
+            LOG.log(e);
+            invalidate();
+            return;
+        }
+
+        sessionId = data.getSessionId();
+        api.setResponseTotal((int) data.getSequence());
+        //The cache is complete, wait for RESUMED instead of READY
+        processingReady = false;
+        LOG.info("Restored stored session with " + api.getGuildMap().size() + " guilds, attempting to resume...");
+    }
+
+    protected boolean saveSession()
+    {
+        SessionStore store = api.getSessionStore();
+        if (store == null || api.getAccountType() != AccountType.BOT || !connected || initiating || sessionId == null)
+            return false;
+
+        try
+        {
+            final long sequence;
+            final byte[] snapshot;
+            //The socket thread may still be dispatching, the cache and the sequence are read between two events
+            synchronized (dispatchLock)
+            {
+                //Events queued for locked guilds are neither in the snapshot nor sent again by the RESUME
+                if (api.getGuildLock().getLockedCount() > 0)
+                {
+                    LOG.debug("Not storing the session while guilds are being set up");
+                    return false;
+                }
+                sequence = api.getResponseTotal();
+                snapshot = CacheSnapshot.write(api);
+            }
+            store.save(shardInfo, new SessionStore.SessionData(sessionId, sequence, System.currentTimeMillis(), snapshot));
+            LOG.debug("Stored session with sequence " + sequence + " and a snapshot of " + snapshot.length + " bytes");
+            return true;
+        }
+        catch (Exception e)
+        {
+            LOG.warn("Could not store session, it will be invalidated");
+            LOG.log(e);
+            return false;
+        }
+    }
+
     protected String getGateway()
     {
         try
@@ -457,10 +709,11 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         CloseCode closeCode = null;
         int rawCloseCode = 1000;
 
-        if (keepAliveThread != null)
+        HeartbeatTimer.Task heartbeat = heartbeatTask;
+        if (heartbeat != null)
         {
-            keepAliveThread.interrupt();
-            keepAliveThread = null;
+            heartbeat.cancel();
+            heartbeatTask = null;
         }
         if (serverCloseFrame != null)
         {
@@ -592,15 +845,16 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
         JSONObject content = new JSONObject(message);
         int opCode = content.getInt("op");
 
-        if (!content.isNull("s"))
-        {
-            api.setResponseTotal(content.getInt("s"));
-        }
-
         switch (opCode)
         {
             case WebSocketCode.DISPATCH:
-                handleEvent(content);
+                synchronized (dispatchLock)
+                {
+                    //Set under the lock, a stored session never has the sequence of an event missing in its snapshot
+                    if (!content.isNull("s"))
+                        api.setResponseTotal(content.getInt("s"));
+                    handleEvent(content);
+                }
                 break;
             case WebSocketCode.HEARTBEAT:
                 LOG.debug("Got Keep-Alive request (OP 1). Sending response...");
@@ -632,7 +886,8 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                 break;
             case WebSocketCode.HEARTBEAT_ACK:
                 LOG.trace("Got Heartbeat Ack (OP 11).");
-                api.setPing(System.currentTimeMillis() - heartbeatStartTime);
+                heartbeatAcked = true;
+                api.setPing(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heartbeatStartTime));
                 break;
             default:
                 LOG.debug("Got unknown op-code: " + opCode + " with content: " + message);
@@ -641,33 +896,46 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
 
     protected void setupKeepAlive(long timeout)
     {
-        keepAliveThread = new Thread(() ->
+        HeartbeatTimer.Task previous = heartbeatTask;
+        if (previous != null)
+            previous.cancel();
+
+        heartbeatAcked = true;
+        pendingHeartbeat.set(null);
+        try
         {
-            while (connected)
-            {
-                try
-                {
-                    sendKeepAlive();
+            //The first heartbeat is jittered so that shards which connected at the same time do not heartbeat at once
+            final long delay = (long) (timeout * ThreadLocalRandom.current().nextDouble());
+            heartbeatTask = api.getHeartbeatTimer().schedule(this::heartbeat, delay, timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (IllegalStateException e)
+        {
+            LOG.debug("Could not schedule the heartbeat because the HeartbeatTimer was shut down");
+        }
+    }
 
-                    //Sleep for heartbeat interval
-                    Thread.sleep(timeout);
-                }
-                catch (InterruptedException ex)
-                {
-                    //connection got cut... terminating keepAliveThread
-                    break;
-                }
-            }
-        });
-        keepAliveThread.setUncaughtExceptionHandler((thread, throwable) ->
+    protected void heartbeat()
+    {
+        if (!connected)
+            return;
+        if (pendingHeartbeat.get() != null)
         {
-            handleCallbackError(socket, throwable);
-            setupKeepAlive(timeout);
-        });
-        keepAliveThread.setName(api.getIdentifierString() + " MainWS-KeepAlive Thread");
-        keepAliveThread.setPriority(Thread.MAX_PRIORITY);
-        keepAliveThread.setDaemon(true);
-        keepAliveThread.start();
+            //The previous heartbeat is still waiting for the rate limit, there is no ACK to wait for yet.
+            // The waiting heartbeat is replaced so it carries the latest sequence.
+            sendKeepAlive();
+            return;
+        }
+        if (!heartbeatAcked)
+        {
+            //The last heartbeat was never acknowledged, the connection is a zombie.
+            // Closing with 4000 keeps the session, so we can resume on the new connection.
+            LOG.warn("Did not receive a heartbeat ACK in time, reconnecting the zombie connection");
+            heartbeatAcked = true;
+            close(4000, "Heartbeat ACK missing");
+            return;
+        }
+        heartbeatAcked = false;
+        sendKeepAlive();
     }
 
     protected void sendKeepAlive()
@@ -678,9 +946,16 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                     .put("d", api.getResponseTotal()
                 ).toString();
 
-        if (!send(keepAlivePacket, true))
-            ratelimitQueue.addLast(keepAlivePacket);
-        heartbeatStartTime = System.currentTimeMillis();
+        //Heartbeats are never queued behind other payloads, a late heartbeat would make the connection look like a zombie
+        if (send(keepAlivePacket, true))
+        {
+            pendingHeartbeat.set(null);
+            heartbeatStartTime = System.nanoTime();
+        }
+        else
+        {
+            pendingHeartbeat.set(keepAlivePacket);
+        }
     }
 
     protected void sendIdentify()
@@ -732,30 +1007,43 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
 
     protected void invalidate()
     {
-        sessionId = null;
-        chunkingAndSyncing = false;
-        sentAuthInfo = false;
-
-        api.getTextChannelMap().clear();
-        api.getVoiceChannelMap().clear();
-        api.getGuildMap().clear();
-        api.getUserMap().clear();
-        api.getPrivateChannelMap().clear();
-        api.getFakeUserMap().clear();
-        api.getFakePrivateChannelMap().clear();
-        api.getEntityBuilder().clearCache();
-        api.getEventCache().clear();
-        api.getGuildLock().clear();
-        this.<ReadyHandler>getHandler("READY").clearCache();
-        this.<GuildMembersChunkHandler>getHandler("GUILD_MEMBERS_CHUNK").clearCache();
-
-        if (api.getAccountType() == AccountType.CLIENT)
+        synchronized (dispatchLock)
         {
-            JDAClientImpl client = (JDAClientImpl) api.asClient();
+            sessionGeneration++;
+            sessionId = null;
+            chunkingAndSyncing = false;
+            sentAuthInfo = false;
+            synchronized (pendingMemberRequests)
+            {
+                pendingMemberRequests.clear();
+            }
+            synchronized (pendingSyncRequests)
+            {
+                pendingSyncRequests.clear();
+            }
+
+            api.getCategoryMap().clear();
+            api.getTextChannelMap().clear();
+            api.getVoiceChannelMap().clear();
+            api.getGuildMap().clear();
+            api.getUserMap().clear();
+            api.getPrivateChannelMap().clear();
+            api.getFakeUserMap().clear();
+            api.getFakePrivateChannelMap().clear();
+            api.getEntityBuilder().clearCache();
+            api.getEventCache().clear();
+            api.getGuildLock().clear();
+            this.<ReadyHandler>getHandler("READY").clearCache();
+            this.<GuildMembersChunkHandler>getHandler("GUILD_MEMBERS_CHUNK").clearCache();
+
+            if (api.getAccountType() == AccountType.CLIENT)
+            {
+                JDAClientImpl client = (JDAClientImpl) api.asClient();
 
-            client.getRelationshipMap().clear();
-            client.getGroupMap().clear();
-            client.getCallUserMap().clear();
+                client.getRelationshipMap().clear();
+                client.getGroupMap().clear();
+                client.getCallUserMap().clear();
+            }
         }
     }
 
@@ -789,6 +1077,7 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                     newMng.setSelfMuted(mng.isSelfMuted());
                     newMng.setSelfDeafened(mng.isSelfDeafened());
                     newMng.setQueueTimeout(mng.getConnectTimeout());
+                    newMng.setJitterBufferDelay(mng.getJitterBufferDelay());
                     newMng.setSendingHandler(mng.getSendingHandler());
                     newMng.setReceivingHandler(mng.getReceiveHandler());
                     newMng.setConnectionListener(listener);
@@ -898,7 +1187,8 @@ public class WebSocketClient extends WebSocketAdapter implements WebSocketListen
                 case "RESUMED":
                     if (!processingReady)
                     {
-                        initiating = false;
+                        //A session restored from the SessionStore did not fire its ReadyEvent yet
+                        initiating = firstInit;
                         ready();
                     }
                     if (!content.isNull("_trace"))
@@ -0,0 +1,44 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+/**
+ * Decides what JDA does when one of its event buffers exceeds its limits.
+ * <br>Events are buffered while a {@link net.dv8tion.jda.core.entities.Guild Guild} is still loading or unavailable,
+ * and while an event references an entity that is not cached yet.
+ *
+ * <p>Dropped events are never applied to the cache, so the affected entities might be out of date.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setBufferOverflowPolicy(BufferOverflowPolicy)
+ * @see net.dv8tion.jda.core.JDABuilder#setEventBufferLimits(int, long, long, java.util.concurrent.TimeUnit)
+ */
+public enum BufferOverflowPolicy
+{
+    /**
+     * Drops the oldest buffered events until the buffer is within its limits again. This is the default policy.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drops the oldest buffered events and resynchronizes the affected state.
+     * <br>Events of unavailable guilds are simply dropped, Discord sends the full guild once it becomes available.
+     * For any other overflow the session is dropped and a new one is identified, which makes Discord send the
+     * state of all guilds again. The session is dropped at most once every 5 minutes, overflows in between only drop
+     * the oldest events.
+     */
+    RESYNC
+}
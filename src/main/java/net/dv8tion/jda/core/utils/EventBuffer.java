@@ -0,0 +1,302 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe buffer of events grouped by a key, bounded by the amount of events, their approximate size and their age.
+ * <br>Events are kept in insertion order, when the buffer exceeds its limits the oldest events of all keys are dropped
+ * first. Events older than the time-to-live are expired, expiry is checked whenever an event is added.
+ *
+ * <p>Used by the {@link net.dv8tion.jda.core.requests.GuildLock GuildLock} and the
+ * {@link net.dv8tion.jda.core.handle.EventCache EventCache}.
+ *
+ * @param <K> The type of the keys
+ * @param <T> The type of the buffered events
+ */
+public class EventBuffer<K, T>
+{
+    public static final int DEFAULT_MAX_EVENTS = 100000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(15);
+
+    protected final Map<K, ArrayDeque<Entry<K, T>>> buffers = new HashMap<>();
+    protected final ArrayDeque<Entry<K, T>> order = new ArrayDeque<>();
+    protected int maxEvents = DEFAULT_MAX_EVENTS;
+    protected long maxBytes = DEFAULT_MAX_BYTES;
+    protected long ttl = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL);
+    protected int size = 0;
+    protected long bytes = 0;
+    protected long droppedCount = 0;
+    protected long expiredCount = 0;
+
+    /**
+     * Sets the limits of this buffer.
+     *
+     * @param  maxEvents
+     *         The maximum amount of buffered events
+     * @param  maxBytes
+     *         The maximum approximate size of all buffered events in bytes
+     * @param  ttl
+     *         The time after which a buffered event expires, or {@code 0} to never expire events
+     * @param  unit
+     *         The unit of the time-to-live
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If any of the limits is not positive, the ttl is negative or the unit is {@code null}
+     */
+    public synchronized void setLimits(int maxEvents, long maxBytes, long ttl, TimeUnit unit)
+    {
+        Checks.positive(maxEvents, "Max events");
+        Checks.positive(maxBytes, "Max bytes");
+        Checks.notNegative(ttl, "TTL");
+        Checks.notNull(unit, "TimeUnit");
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.ttl = unit.toNanos(ttl);
+    }
+
+    /**
+     * Adds an event to the buffer of the specified key and drops the oldest events if the limits are exceeded.
+     *
+     * @param  key
+     *         The key
+     * @param  event
+     *         The event
+     * @param  size
+     *         The approximate size of the event in bytes
+     *
+     * @return The keys which lost events because the buffer overflowed, expired events are not included
+     */
+    public synchronized Set<K> add(K key, T event, long size)
+    {
+        final long now = System.nanoTime();
+        Entry<K, T> entry = new Entry<>(key, event, size, now);
+        buffers.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(entry);
+        order.addLast(entry);
+        this.size++;
+        this.bytes += size;
+        return evict(now);
+    }
+
+    /**
+     * Removes all events of the specified key.
+     *
+     * @param  key
+     *         The key
+     *
+     * @return The events which have not expired, in insertion order
+     */
+    public synchronized List<T> remove(K key)
+    {
+        evict(System.nanoTime());
+        ArrayDeque<Entry<K, T>> entries = buffers.remove(key);
+        if (entries == null)
+            return Collections.emptyList();
+
+        List<T> events = new ArrayList<>(entries.size());
+        for (Entry<K, T> entry : entries)
+        {
+            unlink(entry);
+            events.add(entry.event);
+        }
+        compact();
+        return events;
+    }
+
+    /**
+     * Removes all events of the specified key without returning them.
+     *
+     * @param  key
+     *         The key
+     *
+     * @return The amount of removed events
+     */
+    public synchronized int clear(K key)
+    {
+        ArrayDeque<Entry<K, T>> entries = buffers.remove(key);
+        if (entries == null)
+            return 0;
+        entries.forEach(this::unlink);
+        compact();
+        return entries.size();
+    }
+
+    public synchronized void clear()
+    {
+        buffers.clear();
+        order.clear();
+        size = 0;
+        bytes = 0;
+    }
+
+    /**
+     * The amount of currently buffered events.
+     *
+     * @return The amount of events
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * The approximate size of all currently buffered events.
+     *
+     * @return The size in bytes
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * The amount of keys that currently have buffered events.
+     *
+     * @return The amount of keys
+     */
+    public synchronized int getKeyCount()
+    {
+        return buffers.size();
+    }
+
+    /**
+     * The total amount of events that were dropped because the buffer overflowed.
+     *
+     * @return The amount of dropped events
+     */
+    public synchronized long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    /**
+     * The total amount of events that expired before they were removed.
+     *
+     * @return The amount of expired events
+     */
+    public synchronized long getExpiredCount()
+    {
+        return expiredCount;
+    }
+
+    protected Set<K> evict(long now)
+    {
+        Set<K> overflowed = null;
+        Entry<K, T> head;
+        while ((head = order.peekFirst()) != null)
+        {
+            if (head.removed)
+            {
+                order.removeFirst();
+                continue;
+            }
+
+            final boolean expired = ttl > 0 && now - head.time > ttl;
+            if (!expired && size <= maxEvents && bytes <= maxBytes)
+                break;
+
+            //The oldest event in the buffer is always the oldest event of its key
+            order.removeFirst();
+            ArrayDeque<Entry<K, T>> entries = buffers.get(head.key);
+            entries.removeFirst();
+            if (entries.isEmpty())
+                buffers.remove(head.key);
+            unlink(head);
+
+            if (expired)
+            {
+                expiredCount++;
+            }
+            else
+            {
+                droppedCount++;
+                if (overflowed == null)
+                    overflowed = new HashSet<>();
+                overflowed.add(head.key);
+            }
+        }
+        return overflowed == null ? Collections.emptySet() : overflowed;
+    }
+
+    protected void unlink(Entry<K, T> entry)
+    {
+        entry.removed = true;
+        size--;
+        bytes -= entry.size;
+    }
+
+    protected void compact()
+    {
+        //Removed events are skipped lazily, only rebuild the order if it is mostly made of removed events
+        if (order.size() > 2 * size + 64)
+            order.removeIf(entry -> entry.removed);
+    }
+
+    /**
+     * Approximates the serialized size of a json value without serializing it.
+     *
+     * @param  value
+     *         The json value, may be {@code null}
+     *
+     * @return The approximate size in bytes
+     */
+    public static long estimateSize(Object value)
+    {
+        if (value instanceof JSONObject)
+        {
+            JSONObject object = (JSONObject) value;
+            long size = 2;
+            for (String key : object.keySet())
+                size += key.length() + 4 + estimateSize(object.opt(key));
+            return size;
+        }
+        if (value instanceof JSONArray)
+        {
+            JSONArray array = (JSONArray) value;
+            long size = 2;
+            for (int i = 0; i < array.length(); i++)
+                size += estimateSize(array.opt(i)) + 1;
+            return size;
+        }
+        if (value instanceof CharSequence)
+            return ((CharSequence) value).length() + 2;
+        return 8;
+    }
+
+    protected static class Entry<K, T>
+    {
+        protected final K key;
+        protected final T event;
+        protected final long size;
+        protected final long time;
+        protected boolean removed = false;
+
+        protected Entry(K key, T event, long size, long time)
+        {
+            this.key = key;
+            this.event = event;
+            this.size = size;
+            this.time = time;
+        }
+    }
+}
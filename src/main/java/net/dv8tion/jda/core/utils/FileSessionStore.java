@@ -0,0 +1,132 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import net.dv8tion.jda.core.JDA;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link net.dv8tion.jda.core.utils.SessionStore SessionStore} which keeps one file per shard in a local directory.
+ * <br>Files are named {@code session-<shardId>-<shardTotal>.dat}, or {@code session.dat} if the session is not sharded.
+ * Sessions are written to a temporary file first and moved into place afterwards, so a crash while saving
+ * never leaves a partially written session behind.
+ * <br>Loaded snapshots are memory-mapped instead of being read onto the heap.
+ *
+ * @see net.dv8tion.jda.core.utils.SessionStore#file(java.io.File)
+ */
+public class FileSessionStore implements SessionStore
+{
+    public static final SimpleLog LOG = SimpleLog.getLog("SessionStore");
+    private static final int MAGIC = 0x4A444153; // JDAS
+    private static final int VERSION = 1;
+
+    protected final File directory;
+
+    public FileSessionStore(File directory)
+    {
+        Checks.notNull(directory, "Directory");
+        Checks.check(!directory.isFile(), "Provided directory is a file: %s", directory);
+        this.directory = directory;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    @Override
+    public SessionData load(JDA.ShardInfo shardInfo) throws IOException
+    {
+        File file = getFile(shardInfo);
+        if (!file.isFile())
+            return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            //Not buffered, the position of the channel has to point behind the header to map the snapshot
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                LOG.warn("Ignoring session file with unknown format: " + file);
+                return null;
+            }
+            final String sessionId = in.readUTF();
+            final long sequence = in.readLong();
+            final long timestamp = in.readLong();
+            final int length = in.readInt();
+            ByteBuffer snapshot = null;
+            if (length >= 0)
+            {
+                if (channel.size() - channel.position() < length)
+                    throw new EOFException("Session file is truncated: " + file);
+                //The mapping stays valid after the channel is closed
+                snapshot = channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), length);
+            }
+            return new SessionData(sessionId, sequence, timestamp, snapshot);
+        }
+    }
+
+    @Override
+    public void save(JDA.ShardInfo shardInfo, SessionData data) throws IOException
+    {
+        Checks.notNull(data, "Data");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create directory " + directory);
+
+        File file = getFile(shardInfo);
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(data.getSessionId());
+            out.writeLong(data.getSequence());
+            out.writeLong(data.getTimestamp());
+            ByteBuffer snapshot = data.getSnapshot();
+            out.writeInt(snapshot == null ? -1 : snapshot.remaining());
+            out.flush();
+            if (snapshot != null)
+            {
+                FileChannel channel = fileOut.getChannel();
+                while (snapshot.hasRemaining())
+                    channel.write(snapshot);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void remove(JDA.ShardInfo shardInfo) throws IOException
+    {
+        Files.deleteIfExists(getFile(shardInfo).toPath());
+    }
+
+    protected File getFile(JDA.ShardInfo shardInfo)
+    {
+        if (shardInfo == null)
+            return new File(directory, "session.dat");
+        return new File(directory, "session-" + shardInfo.getShardId() + "-" + shardInfo.getShardTotal() + ".dat");
+    }
+}
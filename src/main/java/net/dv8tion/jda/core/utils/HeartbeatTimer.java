@@ -0,0 +1,278 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed-wheel timer that drives the heartbeats of the main gateway and of all voice gateways.
+ * <br>A single thread handles any amount of periodic tasks, one timer can be shared by all
+ * {@link net.dv8tion.jda.core.JDA JDA} instances of a process. Tasks are placed in the bucket of their
+ * next deadline, every tick only the tasks of one bucket are inspected, so the cost of a tick does not
+ * grow with the amount of connections.
+ *
+ * <p>Periodic tasks are scheduled at a fixed rate relative to their first execution, they do not drift
+ * when a task runs late. Tasks run on the timer thread and must not block, a failing task is logged and
+ * stays scheduled.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setHeartbeatTimer(HeartbeatTimer)
+ */
+public class HeartbeatTimer
+{
+    public static final SimpleLog LOG = SimpleLog.getLog("HeartbeatTimer");
+    private static final AtomicInteger timerCount = new AtomicInteger(1);
+
+    protected final long tickNanos;
+    protected final int mask;
+    protected final List<List<Task>> wheel;
+    protected final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    protected final Thread worker;
+    protected volatile boolean shutdown = false;
+    protected final long startTime;
+    protected long tick;
+
+    /**
+     * Creates a timer with a tick of 10 milliseconds and 512 buckets.
+     */
+    public HeartbeatTimer()
+    {
+        this(ThreadingModel.DEFAULT);
+    }
+
+    /**
+     * Creates a timer with a tick of 10 milliseconds and 512 buckets, its thread is created by the provided model.
+     *
+     * @param  model
+     *         The threading model
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided model is {@code null}
+     */
+    public HeartbeatTimer(ThreadingModel model)
+    {
+        this(model, 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param  model
+     *         The threading model used to create the thread of the timer
+     * @param  tickDuration
+     *         The precision of the timer
+     * @param  unit
+     *         The unit of the tick duration
+     * @param  wheelSize
+     *         The amount of buckets, rounded up to the next power of two
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the tick duration or wheel size is not positive, or the model or unit is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public HeartbeatTimer(ThreadingModel model, long tickDuration, TimeUnit unit, int wheelSize)
+    {
+        Checks.notNull(model, "ThreadingModel");
+        Checks.positive(tickDuration, "Tick duration");
+        Checks.notNull(unit, "TimeUnit");
+        Checks.positive(wheelSize, "Wheel size");
+        Checks.check(wheelSize <= 1 << 30, "Wheel size may not be greater than 2^30");
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize)
+            size <<= 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            wheel.add(new ArrayList<>());
+
+        this.worker = model.newThread(ThreadingModel.ThreadType.HEARTBEAT, this::run, "JDA HeartbeatTimer " + timerCount.getAndIncrement());
+        this.startTime = System.nanoTime();
+        this.worker.start();
+    }
+
+    /**
+     * Schedules a task that runs periodically until it is cancelled.
+     *
+     * @param  task
+     *         The task to run
+     * @param  initialDelay
+     *         The delay before the first execution
+     * @param  period
+     *         The time between the start of two executions
+     * @param  unit
+     *         The unit of the delay and period
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the task or unit is {@code null}, the delay is negative or the period is not positive
+     * @throws java.lang.IllegalStateException
+     *         If the timer was shut down
+     *
+     * @return The scheduled task, used to cancel it
+     */
+    public Task schedule(Runnable task, long initialDelay, long period, TimeUnit unit)
+    {
+        Checks.notNull(task, "Task");
+        Checks.notNull(unit, "TimeUnit");
+        Checks.notNegative(initialDelay, "Initial delay");
+        Checks.positive(period, "Period");
+        if (shutdown)
+            throw new IllegalStateException("HeartbeatTimer was shut down");
+
+        Task scheduled = new Task(task, System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period));
+        pending.add(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Stops the timer thread, scheduled tasks will not run anymore.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        worker.interrupt();
+    }
+
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    protected void run()
+    {
+        while (!shutdown)
+        {
+            //Deadlines are relative to the start of the timer, a late tick does not delay the following ones
+            final long deadline = startTime + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) < deadline)
+            {
+                LockSupport.parkNanos(this, deadline - now);
+                if (shutdown)
+                    return;
+            }
+
+            transferPending();
+            expire(wheel.get((int) (tick & mask)), now);
+            tick++;
+        }
+    }
+
+    protected void transferPending()
+    {
+        Task task;
+        while ((task = pending.poll()) != null)
+        {
+            if (!task.cancelled)
+                place(task, tick);
+        }
+    }
+
+    protected void place(Task task, long firstTick)
+    {
+        //A task is never placed before the first tick that is still processed, it would only run after a full rotation
+        final long ticks = Math.max(firstTick, (task.deadline - startTime + tickNanos - 1) / tickNanos);
+        task.rounds = (ticks - firstTick) / wheel.size();
+        wheel.get((int) (ticks & mask)).add(task);
+    }
+
+    protected void expire(List<Task> bucket, long now)
+    {
+        List<Task> rescheduled = null;
+        for (Iterator<Task> it = bucket.iterator(); it.hasNext(); )
+        {
+            Task task = it.next();
+            if (task.cancelled)
+            {
+                it.remove();
+                continue;
+            }
+            if (task.rounds > 0)
+            {
+                task.rounds--;
+                continue;
+            }
+
+            it.remove();
+            try
+            {
+                task.runnable.run();
+            }
+            catch (Throwable t)
+            {
+                LOG.fatal("A heartbeat task threw an exception");
+                LOG.log(t);
+            }
+
+            if (!task.cancelled)
+            {
+                //Skip missed periods instead of running the task several times in a row
+                task.deadline += task.period;
+                if (task.deadline <= now)
+                    task.deadline += ((now - task.deadline) / task.period + 1) * task.period;
+                if (rescheduled == null)
+                    rescheduled = new ArrayList<>();
+                rescheduled.add(task);
+            }
+        }
+
+        //Placed after the bucket was processed, a task with a period shorter than a tick would otherwise run twice
+        if (rescheduled != null)
+        {
+            for (Task task : rescheduled)
+                place(task, tick + 1);
+        }
+    }
+
+    /**
+     * A task scheduled on a {@link net.dv8tion.jda.core.utils.HeartbeatTimer HeartbeatTimer}.
+     */
+    public static class Task
+    {
+        protected final Runnable runnable;
+        protected final long period;
+        protected long deadline;
+        protected long rounds;
+        protected volatile boolean cancelled = false;
+
+        protected Task(Runnable runnable, long deadline, long period)
+        {
+            this.runnable = runnable;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        /**
+         * Cancels this task, it will not run again.
+         */
+        public void cancel()
+        {
+            cancelled = true;
+        }
+
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import net.dv8tion.jda.core.OnlineStatus;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.impl.GuildImpl;
+import net.dv8tion.jda.core.entities.impl.JDAImpl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides which {@link net.dv8tion.jda.core.entities.Member Members} are kept in the member cache of a
+ * {@link net.dv8tion.jda.core.JDA JDA} session.
+ * <br>The policy is consulted whenever a Member is loaded or updated by JDA, if it returns {@code false}
+ * the Member is removed from the cache again and can later be retrieved using
+ * {@link net.dv8tion.jda.core.entities.Guild#retrieveMemberById(long) Guild.retrieveMemberById(long)}.
+ *
+ * <p>The Member of the currently logged in account and the owner of each guild are always cached, the policy is not consulted for them.
+ * <br>Members that are not cached are loaded again when a presence or voice state update provides them, so a policy
+ * like {@link #ONLINE} also caches members that come online later.
+ *
+ * <p>When a policy other than {@link #ALL} is used it is recommended to also disable member chunking through
+ * {@link net.dv8tion.jda.core.JDABuilder#setChunkingEnabled(boolean) JDABuilder.setChunkingEnabled(false)}
+ * as the chunked members would otherwise be loaded just to be discarded again.
+ *
+ * <p>The policy is not consulted for guilds that keep their members off-heap,
+ * see {@link net.dv8tion.jda.core.JDABuilder#setOffHeapMemberThreshold(int) JDABuilder.setOffHeapMemberThreshold(int)}.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setMemberCachePolicy(MemberCachePolicy)
+ */
+@FunctionalInterface
+public interface MemberCachePolicy
+{
+    /**
+     * Caches all members. This is the default policy.
+     */
+    MemberCachePolicy ALL = member -> true;
+
+    /**
+     * Caches no members besides the self member and the guild owners.
+     */
+    MemberCachePolicy NONE = member -> false;
+
+    /**
+     * Caches all members that are not {@link net.dv8tion.jda.core.OnlineStatus#OFFLINE OFFLINE}.
+     */
+    MemberCachePolicy ONLINE = member -> member.getOnlineStatus() != OnlineStatus.OFFLINE;
+
+    /**
+     * Caches all members that are currently connected to a {@link net.dv8tion.jda.core.entities.VoiceChannel VoiceChannel}.
+     */
+    MemberCachePolicy VOICE = member -> member.getVoiceState().inVoiceChannel();
+
+    /**
+     * Caches only the owner of each guild.
+     */
+    MemberCachePolicy OWNER = Member::isOwner;
+
+    /**
+     * Whether the provided {@link net.dv8tion.jda.core.entities.Member Member} should be kept in the cache.
+     *
+     * @param  member
+     *         The member that was loaded or updated
+     *
+     * @return True, if the member should be cached
+     */
+    boolean cacheMember(Member member);
+
+    /**
+     * Called when a {@link net.dv8tion.jda.core.entities.Member Member} left the provided guild.
+     * <br>Policies that keep track of members should forget the member here.
+     *
+     * @param  guild
+     *         The guild the member left
+     * @param  userId
+     *         The id of the member
+     */
+    default void memberRemoved(Guild guild, long userId) {}
+
+    /**
+     * Combines this policy with the provided policy.
+     * <br>A member is cached if either of the policies accepts it. The provided policy is only
+     * consulted if this policy rejected the member.
+     *
+     * @param  policy
+     *         The other policy
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided policy is {@code null}
+     *
+     * @return The combined policy
+     */
+    default MemberCachePolicy or(MemberCachePolicy policy)
+    {
+        Checks.notNull(policy, "Policy");
+        final MemberCachePolicy self = this;
+        return new MemberCachePolicy()
+        {
+            @Override
+            public boolean cacheMember(Member member)
+            {
+                return self.cacheMember(member) || policy.cacheMember(member);
+            }
+
+            @Override
+            public void memberRemoved(Guild guild, long userId)
+            {
+                self.memberRemoved(guild, userId);
+                policy.memberRemoved(guild, userId);
+            }
+        };
+    }
+
+    /**
+     * Combines this policy with the provided policy.
+     * <br>A member is only cached if both policies accept it. The provided policy is only
+     * consulted if this policy accepted the member.
+     *
+     * @param  policy
+     *         The other policy
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided policy is {@code null}
+     *
+     * @return The combined policy
+     */
+    default MemberCachePolicy and(MemberCachePolicy policy)
+    {
+        Checks.notNull(policy, "Policy");
+        final MemberCachePolicy self = this;
+        return new MemberCachePolicy()
+        {
+            @Override
+            public boolean cacheMember(Member member)
+            {
+                return self.cacheMember(member) && policy.cacheMember(member);
+            }
+
+            @Override
+            public void memberRemoved(Guild guild, long userId)
+            {
+                self.memberRemoved(guild, userId);
+                policy.memberRemoved(guild, userId);
+            }
+        };
+    }
+
+    /**
+     * Creates a policy that keeps the most recently active members up to the specified amount.
+     * <br>A member counts as active whenever it is loaded or updated by an event.
+     * When the limit is exceeded, the least recently active member is removed from the cache of its guild.
+     *
+     * <p>The limit is shared by all guilds (and all JDA sessions) that use the returned instance.
+     * The self member and the guild owners are always cached and do not count towards the limit.
+     *
+     * @param  maxSize
+     *         The maximum amount of members to keep
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided size is not positive
+     *
+     * @return The LRU policy
+     */
+    static MemberCachePolicy lru(int maxSize)
+    {
+        return new LRUMemberCachePolicy(maxSize);
+    }
+
+    class LRUMemberCachePolicy implements MemberCachePolicy
+    {
+        private final LinkedHashMap<MemberKey, JDAImpl> cache;
+        private final int maxSize;
+
+        protected LRUMemberCachePolicy(int maxSize)
+        {
+            Checks.positive(maxSize, "Max size");
+            this.maxSize = maxSize;
+            this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        @Override
+        public boolean cacheMember(Member member)
+        {
+            final JDAImpl api = (JDAImpl) member.getJDA();
+            final long userId = member.getUser().getIdLong();
+            //The self member is always cached and must not take the place of another member
+            if (userId == api.getSelfUser().getIdLong())
+                return true;
+
+            MemberKey evicted = null;
+            JDAImpl evictedApi = null;
+            synchronized (cache)
+            {
+                cache.put(new MemberKey(member.getGuild().getIdLong(), userId), api);
+                if (cache.size() > maxSize)
+                {
+                    Iterator<Map.Entry<MemberKey, JDAImpl>> it = cache.entrySet().iterator();
+                    Map.Entry<MemberKey, JDAImpl> eldest = it.next();
+                    evicted = eldest.getKey();
+                    evictedApi = eldest.getValue();
+                    it.remove();
+                }
+            }
+
+            // Unload outside of the lock to avoid lock ordering issues with the synchronized member maps
+            if (evicted != null)
+            {
+                GuildImpl guild = (GuildImpl) evictedApi.getGuildMap().get(evicted.guildId);
+                if (guild != null)
+                    evictedApi.getEntityBuilder().unloadMember(guild, evicted.userId);
+            }
+            return true;
+        }
+
+        @Override
+        public void memberRemoved(Guild guild, long userId)
+        {
+            synchronized (cache)
+            {
+                cache.remove(new MemberKey(guild.getIdLong(), userId));
+            }
+        }
+
+        private static final class MemberKey
+        {
+            private final long guildId;
+            private final long userId;
+
+            private MemberKey(long guildId, long userId)
+            {
+                this.guildId = guildId;
+                this.userId = userId;
+            }
+
+            @Override
+            public boolean equals(Object obj)
+            {
+                if (!(obj instanceof MemberKey))
+                    return false;
+                MemberKey key = (MemberKey) obj;
+                return key.guildId == guildId && key.userId == userId;
+            }
+
+            @Override
+            public int hashCode()
+            {
+                return Long.hashCode(guildId) * 31 + Long.hashCode(userId);
+            }
+        }
+    }
+}
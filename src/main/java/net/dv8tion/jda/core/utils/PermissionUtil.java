@@ -17,10 +17,12 @@ package net.dv8tion.jda.core.utils;
 
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.*;
-import net.dv8tion.jda.core.entities.impl.AbstractChannelImpl;
 import net.dv8tion.jda.core.entities.impl.GuildImpl;
+import net.dv8tion.jda.core.entities.impl.MemberImpl;
+import net.dv8tion.jda.core.entities.impl.PermissionCache;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,9 +51,9 @@ public class PermissionUtil
         Guild guild = issuer.getGuild();
         if (!guild.equals(target.getGuild()))
             throw new IllegalArgumentException("Provided members must both be Member objects of the same Guild!");
-        if(guild.getOwner().equals(issuer))
+        if(issuer.isOwner())
             return true;
-        if(guild.getOwner().equals(target))
+        if(target.isOwner())
             return false;
         List<Role> issuerRoles = issuer.getRoles();
         List<Role> targetRoles = target.getRoles();
@@ -81,7 +83,7 @@ public class PermissionUtil
         Guild guild = issuer.getGuild();
         if (!guild.equals(target.getGuild()))
             throw new IllegalArgumentException("Provided Member issuer and Role target must be from the same Guild!");
-        if(guild.getOwner().equals(issuer))
+        if(issuer.isOwner())
             return true;
         List<Role> issuerRoles = issuer.getRoles();
         return !issuerRoles.isEmpty() && canInteract(issuerRoles.get(0), target);
@@ -306,7 +308,8 @@ public class PermissionUtil
             return Permission.ALL_PERMISSIONS;
         //Default to binary OR of all global permissions in this guild
         long permission = member.getGuild().getPublicRole().getPermissionsRaw();
-        for (Role role : member.getRoles())
+        //The order of the roles does not matter for the OR, so we can skip the sorted copy of getRoles()
+        for (Role role : getRoleSet(member))
         {
             permission |= role.getPermissionsRaw();
             if (isApplied(permission, Permission.ADMINISTRATOR.getRawValue()))
@@ -323,6 +326,9 @@ public class PermissionUtil
      * {@link net.dv8tion.jda.core.Permission Permissions} that this member can use in this {@link net.dv8tion.jda.core.entities.Channel Channel}.
      * <br>This functions very similarly to how {@link net.dv8tion.jda.core.entities.Role#getPermissionsRaw() Role.getPermissionsRaw()}.
      *
+     * <p>The result is cached per guild until the roles of the member, the permission overrides of the channel
+     * or the permissions of any role change.
+     *
      * @param  channel
      *         The {@link net.dv8tion.jda.core.entities.Channel Channel} being checked.
      * @param  member
@@ -339,7 +345,6 @@ public class PermissionUtil
     {
         Checks.notNull(channel, "Channel");
         Checks.notNull(member, "Member");
-        final long admin = Permission.ADMINISTRATOR.getRawValue();
 
         if (!channel.getGuild().equals(member.getGuild()))
             throw new IllegalArgumentException("Provided channel and provided member are not of the same guild!");
@@ -348,15 +353,63 @@ public class PermissionUtil
             // Owner effectively has all permissions
             return Permission.ALL_PERMISSIONS;
 
-        final AbstractChannelImpl<?> abstractChannel = (AbstractChannelImpl<?>) channel;
-        final Guild guild = member.getGuild();
-        long permission = getEffectivePermission(member) | getExplicitPermission(channel, member);
+        if (!(member.getGuild() instanceof GuildImpl))
+            return computeEffectivePermission(channel, member);
 
-        AtomicLong allow = new AtomicLong(0);
-        AtomicLong deny = new AtomicLong(0);
+        final PermissionCache cache = ((GuildImpl) member.getGuild()).getPermissionCache();
+        final long channelId = channel.getIdLong();
+        final long userId = member.getUser().getIdLong();
+        long permission = cache.get(channelId, userId);
+        if (permission != PermissionCache.MISSING)
+            return permission;
 
-        getExplicitOverrides(channel, member, allow, deny);
-        permission = apply(permission, allow.get(), deny.get());
+        final long generation = cache.getGeneration();
+        permission = computeEffectivePermission(channel, member);
+        cache.put(generation, channelId, userId, permission);
+        return permission;
+    }
+
+    private static long computeEffectivePermission(Channel channel, Member member)
+    {
+        final long admin = Permission.ADMINISTRATOR.getRawValue();
+        final Role publicRole = member.getGuild().getPublicRole();
+
+        // Same cascade as getExplicitOverrides, kept in locals to avoid allocations on this hot path
+        PermissionOverride override = channel.getPermissionOverride(publicRole);
+        long allow = 0;
+        long deny = 0;
+        if (override != null)
+        {
+            deny = override.getDeniedRaw();
+            allow = override.getAllowedRaw();
+        }
+
+        long allowRole = 0;
+        long denyRole = 0;
+        for (Role role : getRoleSet(member))
+        {
+            override = channel.getPermissionOverride(role);
+            if (override != null)
+            {
+                denyRole |= override.getDeniedRaw();
+                allowRole |= override.getAllowedRaw();
+            }
+        }
+        allow = (allow & ~denyRole) | allowRole;
+        deny = (deny & ~allowRole) | denyRole;
+
+        override = channel.getPermissionOverride(member);
+        if (override != null)
+        {
+            final long oDeny = override.getDeniedRaw();
+            final long oAllow = override.getAllowedRaw();
+            allow = (allow & ~oDeny) | oAllow;
+            deny = (deny & ~oAllow) | oDeny;
+        }
+
+        // Same as getEffectivePermission(member) | getExplicitPermission(channel, member)
+        long permission = getEffectivePermission(member) | apply(publicRole.getPermissionsRaw(), allow, deny);
+        permission = apply(permission, allow, deny);
 
         if (isApplied(permission, admin))
             // If the public role is marked as administrator we can return full permissions here
@@ -371,7 +424,7 @@ public class PermissionUtil
             // In text channels MANAGE_CHANNEL and MANAGE_PERMISSIONS grant full text/voice permissions
             permission |= Permission.ALL_TEXT_PERMISSIONS | Permission.ALL_VOICE_PERMISSIONS;
 
-        return permission & ~deny.get() | allow.get();
+        return permission & ~deny | allow;
     }
 
     /**
@@ -589,6 +642,11 @@ public class PermissionUtil
         deny.set(denyRaw);
     }
 
+    private static Collection<Role> getRoleSet(Member member)
+    {
+        return member instanceof MemberImpl ? ((MemberImpl) member).getRoleSet() : member.getRoles();
+    }
+
     /*
      * Check whether the specified permission is applied in the bits
      */
@@ -0,0 +1,179 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import net.dv8tion.jda.core.JDA;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Persists the state of a {@link net.dv8tion.jda.core.JDA JDA} session across restarts of the process.
+ * <br>When a store is configured, JDA saves the session id, the last sequence number and a snapshot of the
+ * entity cache on {@link net.dv8tion.jda.core.JDA#shutdown() shutdown} and closes the connection without invalidating
+ * the session. On the next login the saved state is loaded, the cache is restored from the snapshot and JDA attempts
+ * to RESUME the session instead of sending a new IDENTIFY.
+ *
+ * <p>Saved states are consumed by the login, a session is never resumed twice.
+ * If Discord rejects the RESUME, the restored cache is dropped and JDA falls back to a normal IDENTIFY.
+ *
+ * <p>Implementations are used by all shards of a process and must be thread-safe.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setSessionStore(SessionStore)
+ * @see #file(java.io.File)
+ */
+public interface SessionStore
+{
+    /**
+     * Loads the saved session of the specified shard.
+     *
+     * @param  shardInfo
+     *         The shard, or {@code null} if the session is not sharded
+     *
+     * @throws java.io.IOException
+     *         If the session could not be read
+     *
+     * @return The saved session, or {@code null} if there is none
+     */
+    SessionData load(JDA.ShardInfo shardInfo) throws IOException;
+
+    /**
+     * Saves the session of the specified shard, replacing any previously saved session.
+     *
+     * @param  shardInfo
+     *         The shard, or {@code null} if the session is not sharded
+     * @param  data
+     *         The session to save
+     *
+     * @throws java.io.IOException
+     *         If the session could not be written
+     */
+    void save(JDA.ShardInfo shardInfo, SessionData data) throws IOException;
+
+    /**
+     * Removes the saved session of the specified shard, if present.
+     *
+     * @param  shardInfo
+     *         The shard, or {@code null} if the session is not sharded
+     *
+     * @throws java.io.IOException
+     *         If the session could not be removed
+     */
+    void remove(JDA.ShardInfo shardInfo) throws IOException;
+
+    /**
+     * Creates a store which keeps one file per shard in the specified directory.
+     *
+     * @param  directory
+     *         The directory, created if it does not exist
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided directory is {@code null} or an existing file
+     *
+     * @return The file store
+     */
+    static SessionStore file(File directory)
+    {
+        return new FileSessionStore(directory);
+    }
+
+    /**
+     * The persisted state of one session.
+     */
+    class SessionData
+    {
+        protected final String sessionId;
+        protected final long sequence;
+        protected final long timestamp;
+        protected final ByteBuffer snapshot;
+
+        /**
+         * Creates a new session state.
+         *
+         * @param  sessionId
+         *         The id of the session
+         * @param  sequence
+         *         The sequence number of the last received event
+         * @param  timestamp
+         *         The epoch milliseconds at which the session was saved
+         * @param  snapshot
+         *         The serialized entity cache, or {@code null} if no snapshot was taken
+         *
+         * @throws java.lang.IllegalArgumentException
+         *         If the session id is {@code null} or empty, or the sequence is negative
+         */
+        public SessionData(String sessionId, long sequence, long timestamp, byte[] snapshot)
+        {
+            this(sessionId, sequence, timestamp, snapshot == null ? null : ByteBuffer.wrap(snapshot));
+        }
+
+        /**
+         * Creates a new session state with a snapshot held by a buffer, such as a memory-mapped file.
+         *
+         * @param  sessionId
+         *         The id of the session
+         * @param  sequence
+         *         The sequence number of the last received event
+         * @param  timestamp
+         *         The epoch milliseconds at which the session was saved
+         * @param  snapshot
+         *         The buffer holding the serialized entity cache between its position and limit,
+         *         or {@code null} if no snapshot was taken
+         *
+         * @throws java.lang.IllegalArgumentException
+         *         If the session id is {@code null} or empty, or the sequence is negative
+         */
+        public SessionData(String sessionId, long sequence, long timestamp, ByteBuffer snapshot)
+        {
+            Checks.notEmpty(sessionId, "Session ID");
+            Checks.notNegative(sequence, "Sequence");
+            this.sessionId = sessionId;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.snapshot = snapshot;
+        }
+
+        public String getSessionId()
+        {
+            return sessionId;
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public long getTimestamp()
+        {
+            return timestamp;
+        }
+
+        /**
+         * The serialized entity cache of the session.
+         * <br>The format is internal to JDA and may change between versions, a snapshot that cannot be read
+         * is ignored and the session is rebuilt from a new IDENTIFY.
+         * <br>The returned buffer shares its content with this session state and must not be modified.
+         *
+         * @return The snapshot between the position and limit of the buffer, or {@code null} if no snapshot was taken
+         */
+        public ByteBuffer getSnapshot()
+        {
+            return snapshot == null ? null : snapshot.duplicate();
+        }
+    }
+}
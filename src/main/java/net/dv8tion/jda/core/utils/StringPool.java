@@ -0,0 +1,216 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool used to deduplicate Strings of cached entities, such as user names, nicknames,
+ * avatar ids and role names.
+ * <br>Many of these values repeat across users and guilds, by sharing one instance per distinct value
+ * the heap used for the entity cache can be reduced considerably.
+ *
+ * <p>A pool can be shared by multiple JDA sessions and is thread-safe.
+ * <br>The statistics provided by the pool ({@link #getHitCount()}, {@link #getSavedBytes()}) are estimates
+ * meant to judge whether the pool is worth using for a specific bot.
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setStringPool(StringPool)
+ */
+public abstract class StringPool
+{
+    protected long lookups = 0;
+    protected long hits = 0;
+    protected long savedBytes = 0;
+
+    /**
+     * Creates a pool that keeps Strings as long as they are referenced anywhere else.
+     * <br>The pool is not bounded in size but will never keep otherwise unused Strings alive.
+     *
+     * @return New weak StringPool
+     */
+    public static StringPool weak()
+    {
+        return new WeakStringPool();
+    }
+
+    /**
+     * Creates a pool that keeps up to the specified amount of the most recently used Strings.
+     *
+     * @param  maxSize
+     *         The maximum amount of Strings to keep
+     *
+     * @throws java.lang.IllegalArgumentException
+     *         If the provided size is not positive
+     *
+     * @return New bounded StringPool
+     */
+    public static StringPool bounded(int maxSize)
+    {
+        Checks.positive(maxSize, "Max size");
+        return new BoundedStringPool(maxSize);
+    }
+
+    /**
+     * Returns the canonical instance for the provided String.
+     *
+     * @param  str
+     *         The String to deduplicate, may be null
+     *
+     * @return The pooled String equal to the provided one, or null if the input was null
+     */
+    public String intern(String str)
+    {
+        if (str == null)
+            return null;
+        synchronized (this)
+        {
+            lookups++;
+            String pooled = get(str);
+            if (pooled != null)
+            {
+                hits++;
+                //Interning the pooled instance again does not replace anything
+                if (pooled != str)
+                    savedBytes += estimateSize(pooled);
+                return pooled;
+            }
+            put(str);
+            return str;
+        }
+    }
+
+    /**
+     * The amount of Strings currently held by this pool.
+     *
+     * @return The pool size
+     */
+    public abstract int size();
+
+    /**
+     * The total amount of Strings that were passed to {@link #intern(String)}.
+     *
+     * @return The lookup count
+     */
+    public synchronized long getLookupCount()
+    {
+        return lookups;
+    }
+
+    /**
+     * The amount of lookups that returned an already pooled String.
+     * <br>This includes lookups of the pooled instance itself, which do not save any memory.
+     *
+     * @return The hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Estimate of the heap in bytes that would have been retained by the duplicate Strings replaced by this pool.
+     *
+     * @return The estimated amount of saved bytes
+     */
+    public synchronized long getSavedBytes()
+    {
+        return savedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        synchronized (this)
+        {
+            return String.format("StringPool(size: %d, lookups: %d, hits: %d, saved: ~%d KiB)",
+                size(), lookups, hits, savedBytes / 1024);
+        }
+    }
+
+    protected abstract String get(String str);
+
+    protected abstract void put(String str);
+
+    protected static long estimateSize(String str)
+    {
+        // String header with hash and array reference plus the backing char array, both 8-byte aligned
+        final long arraySize = (16 + 2L * str.length() + 7) & ~7;
+        return 24 + arraySize;
+    }
+
+    protected static class WeakStringPool extends StringPool
+    {
+        private final Map<String, WeakReference<String>> pool = new WeakHashMap<>();
+
+        @Override
+        public synchronized int size()
+        {
+            return pool.size();
+        }
+
+        @Override
+        protected String get(String str)
+        {
+            WeakReference<String> ref = pool.get(str);
+            return ref == null ? null : ref.get();
+        }
+
+        @Override
+        protected void put(String str)
+        {
+            pool.put(str, new WeakReference<>(str));
+        }
+    }
+
+    protected static class BoundedStringPool extends StringPool
+    {
+        private final Map<String, String> pool;
+
+        protected BoundedStringPool(int maxSize)
+        {
+            this.pool = new LinkedHashMap<String, String>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+                {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public synchronized int size()
+        {
+            return pool.size();
+        }
+
+        @Override
+        protected String get(String str)
+        {
+            return pool.get(str);
+        }
+
+        @Override
+        protected void put(String str)
+        {
+            pool.put(str, str);
+        }
+    }
+}
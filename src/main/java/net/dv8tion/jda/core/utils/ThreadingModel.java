@@ -0,0 +1,193 @@
+/*
+ *     Copyright 2015-2017 Austin Keener & Michael Ritter & Florian Spieß
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.dv8tion.jda.core.utils;
+
+import net.dv8tion.jda.core.managers.impl.AudioManagerImpl;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides every thread and executor that is used internally by {@link net.dv8tion.jda.core.JDA JDA}.
+ * <br>The threads of a {@link net.dv8tion.jda.core.JDA JDA} instance, its audio connections and the
+ * {@link net.dv8tion.jda.core.audio.factory.FrameClock#getShared(ThreadingModel) shared FrameClock} of its
+ * {@link net.dv8tion.jda.core.audio.factory.DefaultSendFactory DefaultSendFactory} are created through
+ * {@link #newThread(ThreadType, Runnable, String)} which allows to control the amount, priority, daemon status and naming
+ * of threads in a single place, or to use a different kind of thread altogether.
+ *
+ * <p>Objects that are created by the user and may be shared between instances, such as a
+ * {@link net.dv8tion.jda.core.audio.factory.NioAudioEngine NioAudioEngine}, a {@link net.dv8tion.jda.core.audio.factory.FrameClock FrameClock},
+ * a {@link net.dv8tion.jda.core.audio.PrefetchingSendHandler PrefetchingSendHandler} or an
+ * {@link net.dv8tion.jda.core.audio.OggOpusRecorder OggOpusRecorder}, do not know the model of the instance they are used with.
+ * They use the model or executor passed to their constructor, otherwise threads of {@link #DEFAULT}.
+ *
+ * <p>The executors returned by {@link #getScheduledExecutor()} and {@link #getBlockingExecutor()} are shared by every
+ * JDA instance using this model and are never shut down by JDA. If they return {@code null}, each JDA instance creates
+ * its own pools with threads of this model.
+ *
+ * <p><b>Example</b>
+ * <pre><code>
+ * ThreadingModel model = (type, task, name) -&gt;
+ * {
+ *     Thread thread = ThreadingModel.newDefaultThread(type, task, name);
+ *     thread.setName("bot-" + name);
+ *     return thread;
+ * };
+ * JDA jda = new JDABuilder(AccountType.BOT).setToken(token).setThreadingModel(model).buildAsync();
+ * </code></pre>
+ *
+ * @see net.dv8tion.jda.core.JDABuilder#setThreadingModel(ThreadingModel)
+ */
+@FunctionalInterface
+public interface ThreadingModel
+{
+    /**
+     * Creates the same threads JDA creates without a configured model.
+     */
+    ThreadingModel DEFAULT = ThreadingModel::newDefaultThread;
+
+    /**
+     * Creates a new, not yet started thread.
+     *
+     * @param  type
+     *         What the thread is used for
+     * @param  task
+     *         The task the thread has to run
+     * @param  name
+     *         The name JDA would give the thread
+     *
+     * @return The thread
+     */
+    Thread newThread(ThreadType type, Runnable task, String name);
+
+    /**
+     * The executor used for callbacks and scheduled tasks, shared by all JDA instances of this model.
+     *
+     * @return The executor, or {@code null} to let every JDA instance create its own
+     */
+    default ScheduledThreadPoolExecutor getScheduledExecutor()
+    {
+        return null;
+    }
+
+    /**
+     * The executor used for blocking I/O, such as rate-limited REST requests and the keep-alive of audio connections.
+     * <br>Shared by all JDA instances of this model.
+     *
+     * @return The executor, or {@code null} to let every JDA instance create its own
+     */
+    default ScheduledThreadPoolExecutor getBlockingExecutor()
+    {
+        return null;
+    }
+
+    /**
+     * Creates a {@link java.util.concurrent.ThreadFactory ThreadFactory} for a pool of this model.
+     * <br>Threads are named {@code "<name> - Thread <n>"}.
+     *
+     * @param  type
+     *         What the threads are used for
+     * @param  name
+     *         The name of the pool
+     *
+     * @return The thread factory
+     */
+    default ThreadFactory asThreadFactory(ThreadType type, String name)
+    {
+        final AtomicInteger threadCount = new AtomicInteger(1);
+        return task -> newThread(type, task, name + " - Thread " + threadCount.getAndIncrement());
+    }
+
+    /**
+     * Creates a thread the way JDA does without a configured model.
+     * <br>Useful for models that only want to change some of the threads.
+     *
+     * @param  type
+     *         What the thread is used for
+     * @param  task
+     *         The task the thread has to run
+     * @param  name
+     *         The name of the thread
+     *
+     * @return The thread
+     */
+    static Thread newDefaultThread(ThreadType type, Runnable task, String name)
+    {
+        final Thread thread;
+        switch (type)
+        {
+            case AUDIO:
+                thread = new Thread(AudioManagerImpl.AUDIO_THREADS, task, name);
+                break;
+            case AUDIO_SEND:
+                thread = new Thread(AudioManagerImpl.AUDIO_THREADS, task, name);
+                thread.setPriority((Thread.NORM_PRIORITY + Thread.MAX_PRIORITY) / 2);
+                break;
+            case HEARTBEAT:
+                thread = new Thread(task, name);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MAX_PRIORITY);
+                break;
+            case POOL:
+            case RECONNECT:
+                thread = new Thread(task, name);
+                thread.setDaemon(true);
+                break;
+            default:
+                //The websocket thread is not a daemon, it keeps the JVM alive while JDA is connected
+                thread = new Thread(task, name);
+        }
+        return thread;
+    }
+
+    /**
+     * What a thread created by a {@link net.dv8tion.jda.core.utils.ThreadingModel ThreadingModel} is used for.
+     */
+    enum ThreadType
+    {
+        /**
+         * The thread sending messages to the main gateway.
+         */
+        WEBSOCKET,
+
+        /**
+         * Threads of an audio connection, such as the receiving thread.
+         */
+        AUDIO,
+
+        /**
+         * The thread sending audio packets, it has to send a packet every 20 milliseconds.
+         */
+        AUDIO_SEND,
+
+        /**
+         * The thread of a {@link net.dv8tion.jda.core.utils.HeartbeatTimer HeartbeatTimer}.
+         */
+        HEARTBEAT,
+
+        /**
+         * Threads of the {@link net.dv8tion.jda.core.requests.SessionReconnectQueue SessionReconnectQueue}.
+         */
+        RECONNECT,
+
+        /**
+         * Threads of executors created by JDA.
+         */
+        POOL
+    }
+}
@@ -192,6 +192,8 @@ public interface Opus extends Library {
 
     int opus_decode(PointerByReference st, byte data[], int len, ShortBuffer pcm, int frame_size, int decode_fec);
 
+    int opus_decode(PointerByReference st, ByteBuffer data, int len, ShortBuffer pcm, int frame_size, int decode_fec);
+
     int opus_decode(PointerByReference st, Pointer data, int len, ShortByReference pcm, int frame_size, int decode_fec);
 
     int opus_decode_float(PointerByReference st, byte data[], int len, FloatBuffer pcm, int frame_size, int decode_fec);